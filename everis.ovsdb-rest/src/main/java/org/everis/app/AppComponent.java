@@ -15,21 +15,29 @@
  */
 package org.everis.app;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.RateLimiter;
+import org.onlab.metrics.MetricsService;
 import org.onlab.packet.IpAddress;
 import org.onlab.packet.TpPort;
 import org.onlab.packet.Ethernet;
 import org.onlab.util.ItemNotFoundException;
+import org.onlab.util.Tools;
+import org.onosproject.net.AnnotationKeys;
 import org.onosproject.net.Device;
 import org.onosproject.net.DeviceId;
 import org.onosproject.net.Path;
-import org.onosproject.net.Link;
-import org.onosproject.cli.AbstractShellCommand;
+import org.onosproject.net.PortNumber;
 import org.onosproject.net.flow.DefaultTrafficSelector;
 import org.onosproject.net.flow.TrafficSelector;
 import org.onosproject.net.intent.Intent;
 import org.onosproject.net.topology.Topology;
+import org.onosproject.net.topology.TopologyEvent;
+import org.onosproject.net.topology.TopologyListener;
 import org.onosproject.net.topology.TopologyService;
 import org.onosproject.net.behaviour.BridgeName;
 import org.onosproject.net.behaviour.BridgeConfig;
@@ -45,9 +53,14 @@ import org.onosproject.net.behaviour.DefaultPatchDescription;
 import org.onosproject.net.behaviour.PatchDescription;
 import org.onosproject.net.behaviour.InterfaceConfig;
 import org.onosproject.net.driver.DriverHandler;
+import org.onosproject.net.intent.IntentEvent;
+import org.onosproject.net.intent.IntentListener;
 import org.onosproject.net.intent.IntentService;
+import org.onosproject.net.intent.IntentState;
+import org.onosproject.net.intent.Key;
 import org.onosproject.net.intent.PathIntent;
 import org.onosproject.net.provider.ProviderId;
+import org.osgi.service.component.ComponentContext;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Deactivate;
@@ -55,29 +68,75 @@ import org.osgi.service.component.annotations.Reference;
 import org.osgi.service.component.annotations.Modified;
 import org.osgi.service.component.annotations.ReferenceCardinality;
 import org.onosproject.cfg.ComponentConfigService;
+import org.onosproject.cluster.ClusterEvent;
+import org.onosproject.cluster.ClusterEventListener;
 import org.onosproject.cluster.ClusterService;
+import org.onosproject.core.ApplicationId;
 import org.onosproject.core.CoreService;
+import org.onosproject.mastership.MastershipService;
 import org.onosproject.net.config.NetworkConfigService;
 import org.onosproject.net.device.DeviceAdminService;
+import org.onosproject.net.device.DeviceEvent;
+import org.onosproject.net.device.DeviceListener;
 import org.onosproject.net.device.DeviceService;
 import org.onosproject.net.driver.DriverService;
 import org.onosproject.ovsdb.controller.OvsdbController;
+import org.onosproject.ovsdbrest.common.BridgeRegistry;
+import org.onosproject.ovsdbrest.common.DatapathIdAllocator;
+import org.onosproject.ovsdbrest.common.NodeSnapshot;
+import org.onosproject.ovsdbrest.common.NodeSnapshotCache;
+import org.onosproject.ovsdbrest.common.OperationMetrics;
+import org.onosproject.ovsdbrest.common.OperationStats;
+import org.onosproject.ovsdbrest.common.PortSpec;
+import org.onosproject.store.service.StorageException;
+import org.onosproject.store.service.StorageService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Arrays;
 import java.util.Set;
 import java.util.Map;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.Dictionary;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
 
+import org.onosproject.ovsdbrest.common.OperationMetrics.Phase;
+import org.onosproject.ovsdbrest.common.OperationMetrics.Sample;
 import org.everis.app.OvsdbNodeConfig.OvsdbNode;
+import org.everis.app.PathCache.Candidates;
 import org.everis.app.OvsdbRestException.BridgeNotFoundException;
 import org.everis.app.OvsdbRestException.BridgeAlreadyExistsException;
 import org.everis.app.OvsdbRestException.OvsdbDeviceException;
 
+import static java.util.concurrent.Executors.newFixedThreadPool;
+import static java.util.concurrent.Executors.newSingleThreadExecutor;
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
+import static org.onlab.util.Tools.groupedThreads;
+import static org.everis.app.OsgiPropertyConstants.NODE_CONCURRENCY;
+import static org.everis.app.OsgiPropertyConstants.NODE_CONCURRENCY_DEFAULT;
+import static org.everis.app.OsgiPropertyConstants.NODE_QUEUE_LENGTH;
+import static org.everis.app.OsgiPropertyConstants.NODE_QUEUE_LENGTH_DEFAULT;
+import static org.everis.app.OsgiPropertyConstants.RECONCILE_CONCURRENCY;
+import static org.everis.app.OsgiPropertyConstants.RECONCILE_CONCURRENCY_DEFAULT;
+import static org.everis.app.OsgiPropertyConstants.RECONCILE_INTERVAL;
+import static org.everis.app.OsgiPropertyConstants.RECONCILE_INTERVAL_DEFAULT;
 import static org.onosproject.net.DeviceId.deviceId;
 
 /**
@@ -87,6 +146,10 @@ import static org.onosproject.net.DeviceId.deviceId;
            service = {OvsdbBridgeService.class},
             property = {
                 "someProperty=Some Default String Value",
+                RECONCILE_INTERVAL + ":Integer=" + RECONCILE_INTERVAL_DEFAULT,
+                RECONCILE_CONCURRENCY + ":Integer=" + RECONCILE_CONCURRENCY_DEFAULT,
+                NODE_CONCURRENCY + ":Integer=" + NODE_CONCURRENCY_DEFAULT,
+                NODE_QUEUE_LENGTH + ":Integer=" + NODE_QUEUE_LENGTH_DEFAULT,
             })
 public class AppComponent implements OvsdbBridgeService {
 
@@ -95,6 +158,18 @@ public class AppComponent implements OvsdbBridgeService {
     /** Some configurable property. */
     private String someProperty;
 
+    /** Seconds between two passes of the reconciliation of the desired topologies. */
+    private int reconcileInterval = RECONCILE_INTERVAL_DEFAULT;
+
+    /** Number of ovsdb nodes reconciled at the same time. */
+    private int reconcileConcurrency = RECONCILE_CONCURRENCY_DEFAULT;
+
+    /** Number of operations of an ovsdb node which run at the same time. */
+    private int nodeConcurrency = NODE_CONCURRENCY_DEFAULT;
+
+    /** Number of operations of an ovsdb node which wait for their turn, the next ones are rejected. */
+    private int nodeQueueLength = NODE_QUEUE_LENGTH_DEFAULT;
+
     @Reference(cardinality = ReferenceCardinality.MANDATORY)
     private ComponentConfigService cfgService;
 
@@ -119,63 +194,227 @@ public class AppComponent implements OvsdbBridgeService {
     @Reference(cardinality = ReferenceCardinality.MANDATORY)
     private DriverService driverService;
 
+    @Reference(cardinality = ReferenceCardinality.MANDATORY)
+    private StorageService storageService;
+
+    @Reference(cardinality = ReferenceCardinality.MANDATORY)
+    private MastershipService mastershipService;
+
+    @Reference(cardinality = ReferenceCardinality.MANDATORY)
+    private MetricsService metricsService;
+
+    @Reference(cardinality = ReferenceCardinality.MANDATORY)
+    private TopologyService topologyService;
+
+    @Reference(cardinality = ReferenceCardinality.MANDATORY)
+    private IntentService intentService;
+
     private static final int DPID_BEGIN = 4;
     private static final int OFPORT = 6633;
+    private static final int ASYNC_THREADS = 16;
+    private static final int ASYNC_QUEUE_SIZE = 1024;
     private static final TpPort OVSPORT = TpPort.tpPort(6640);
-    private final AtomicLong datapathId = new AtomicLong(DPID_BEGIN);
+    private static final long CONTROLLER_PUSH_DELAY = 5;
+    private static final double CONTROLLER_PUSH_RATE = 50.0;
+    private static final long CONTROLLER_PUSH_WAIT = 1;
+    private static final String DPID_COUNTER = "everis-ovsdb-rest-dpid";
+    private static final String BRIDGES_MAP = "everis-ovsdb-rest-bridges";
+    private static final String DESIRED_STATE_MAP = "everis-ovsdb-rest-desired-state";
+    private static final String METRICS_COMPONENT = "everis-ovsdb-rest";
+    private static final long INTENT_BATCH_RETENTION = 10;
+    private static final long SNAPSHOT_MAX_AGE = 30000;
+    private static final int CHANGE_FEED_SUBSCRIBERS = 64;
+    private static final int CHANGE_FEED_BUFFER = 1024;
+    private static final long CHANGE_FEED_KEEP_ALIVE = 15;
+    private static final long CHANGE_FEED_WRITE_TIMEOUT = 10;
+    private static final String APP_NAME = "everis.ovsdb-rest";
+    private ApplicationId appId;
+    private DatapathIdAllocator datapathIdAllocator;
+    private OperationMetrics operationMetrics;
     private static final ProviderId PROVIDER_ID = new ProviderId("AppComponent",
             "org.onosproject.net.intent");
 
-    // {bridgeName: datapathId} structure to manage the creation/deletion of bridges
-    private Map<String, DeviceId> bridgeIds = Maps.newConcurrentMap();
+    // {ovsdbId: {bridgeName: datapathId}} structure to manage the creation/deletion of bridges,
+    // shared by the cluster
+    private BridgeRegistry bridgeRegistry;
+
+    // bridges, ports and tunnels asked by the clients for every node, written before each change
+    private DesiredStateStore desiredState;
+    // brings the nodes mastered by this instance to their desired topology
+    private NodeReconciler reconciler;
+
+    // bridges, ports and tunnels of the nodes for the read API, refreshed in the background
+    // when they are old or a device event changed them
+    private final ExecutorService snapshotExecutor =
+            newFixedThreadPool(2, groupedThreads("everis/ovsdb-rest", "snapshot-%d", log));
+    private final NodeSnapshotCache<OvsdbDeviceException> snapshots =
+            new NodeSnapshotCache<>(this::readSnapshot, snapshotExecutor, SNAPSHOT_MAX_AGE);
+
+    private final ExecutorService eventExecutor =
+            newSingleThreadExecutor(groupedThreads("everis/ovsdb-rest", "event-handler", log));
+    // bounded, so a burst of requests is rejected instead of piling up in memory
+    private final ExecutorService asyncExecutor =
+            new ThreadPoolExecutor(ASYNC_THREADS, ASYNC_THREADS, 0L, TimeUnit.MILLISECONDS,
+                                   new ArrayBlockingQueue<>(ASYNC_QUEUE_SIZE),
+                                   groupedThreads("everis/ovsdb-rest", "async-%d", log));
+    // limits the operations of every node, so a burst against one node cannot take all the threads
+    private NodeAdmission admission;
+    private final DeviceListener deviceListener = new InternalDeviceListener();
+    // changes of the bridges, ports, tunnels and nodes pushed to the subscribers of the REST feed.
+    // A subscription has at most one delivery running, so the writers never exceed the subscribers
+    // and a client which stopped reading holds only its own writer until the write timeout
+    private final ScheduledExecutorService changeFeedTimer =
+            newSingleThreadScheduledExecutor(groupedThreads("everis/ovsdb-rest", "change-feed-timer", log));
+    private final ExecutorService changeFeedWriters =
+            new ThreadPoolExecutor(0, CHANGE_FEED_SUBSCRIBERS, 60L, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                                   groupedThreads("everis/ovsdb-rest", "change-feed-%d", log));
+    private final ChangeFeed changeFeed = new ChangeFeed(CHANGE_FEED_SUBSCRIBERS, CHANGE_FEED_BUFFER,
+                                                         changeFeedTimer, changeFeedWriters, CHANGE_FEED_KEEP_ALIVE,
+                                                         CHANGE_FEED_WRITE_TIMEOUT, TimeUnit.SECONDS);
+    // set while a full rescan is queued, so bursts of unknown bridges trigger a single rescan
+    private final AtomicBoolean rescanPending = new AtomicBoolean(false);
+
+    // controllers of the bridges, rebuilt only when the cluster membership changes
+    private volatile List<ControllerInfo> controllers = ImmutableList.of();
+    private final ClusterEventListener clusterListener = new InternalClusterListener();
+    private final ScheduledExecutorService controllerExecutor =
+            newSingleThreadScheduledExecutor(groupedThreads("everis/ovsdb-rest", "controller-sync", log));
+    // set while a push is scheduled, so a burst of membership changes makes a single pass
+    private final AtomicBoolean controllerPushPending = new AtomicBoolean(false);
+    // bridges updated per second by the push, to not flood the switches after a change
+    private final RateLimiter controllerPushLimiter = RateLimiter.create(CONTROLLER_PUSH_RATE);
+
+    // paths between devices for the path intents, kept valid from the topology events
+    private final PathCache pathCache = new PathCache();
+    private final TopologyListener topologyListener = new InternalTopologyListener();
+
+    // state of the intents of the bulk submissions, kept from the intent events
+    private final ScheduledExecutorService intentExecutor =
+            newSingleThreadScheduledExecutor(groupedThreads("everis/ovsdb-rest", "intent-tracker", log));
+    private final IntentTracker intentTracker =
+            new IntentTracker(intentExecutor, INTENT_BATCH_RETENTION, TimeUnit.MINUTES);
+    private final IntentListener intentListener = new InternalIntentListener();
+    // withdrawn intents to remove from the intent store once they are withdrawn
+    private final Set<Key> purgeOnWithdraw = Sets.newConcurrentHashSet();
 
     public AppComponent() {
     }
 
     @Activate
-    protected void activate() {
+    protected void activate(ComponentContext context) {
+        appId = coreService.registerApplication(APP_NAME);
+        datapathIdAllocator = new DatapathIdAllocator(storageService, DPID_COUNTER, DPID_BEGIN);
+        operationMetrics = new OperationMetrics(metricsService, METRICS_COMPONENT);
+        admission = new NodeAdmission(nodeConcurrency, nodeQueueLength, metricsService, METRICS_COMPONENT);
+        bridgeRegistry = new BridgeRegistry(storageService, BRIDGES_MAP);
+        desiredState = new DesiredStateStore(storageService, DESIRED_STATE_MAP);
+        reconciler = new NodeReconciler(desiredState, this, this::readNode, mastershipService::isLocalMaster,
+                                        metricsService, METRICS_COMPONENT);
+        // the collaborators exist before the properties are registered and read
         cfgService.registerProperties(getClass());
+        modified(context);
+        reconciler.setConcurrency(reconcileConcurrency);
+        reconciler.start(reconcileInterval);
+        controllers = buildControllers();
+        clusterService.addListener(clusterListener);
+        deviceService.addListener(deviceListener);
+        topologyService.addListener(topologyListener);
+        intentService.addListener(intentListener);
+        // seed the bridge index in the first start of the cluster, afterwards it is kept up to
+        // date from device events and it is restored from the cluster or the persistent copy
+        if (bridgeRegistry.isEmpty()) {
+            scheduleRescan();
+        }
         log.info("The App was successfully activated");
     }
 
     @Deactivate
     protected void deactivate() {
+        intentService.removeListener(intentListener);
+        topologyService.removeListener(topologyListener);
+        deviceService.removeListener(deviceListener);
+        clusterService.removeListener(clusterListener);
+        eventExecutor.shutdown();
+        reconciler.close();
+        snapshotExecutor.shutdown();
+        snapshots.clear();
+        changeFeed.close();
+        changeFeedTimer.shutdown();
+        changeFeedWriters.shutdown();
+        controllerExecutor.shutdownNow();
+        intentTracker.clear();
+        intentExecutor.shutdownNow();
+        asyncExecutor.shutdown();
+        operationMetrics.remove();
+        admission.close();
+        bridgeRegistry.close();
         cfgService.unregisterProperties(getClass(), false);
         log.info("The App was successfully deactivated");
     }
 
     @Modified
-    public void modified() {
-        log.info("Reconfigured");
+    public void modified(ComponentContext context) {
+        Dictionary<?, ?> properties = context != null ? context.getProperties() : null;
+        if (properties != null) {
+            Integer interval = Tools.getIntegerProperty(properties, RECONCILE_INTERVAL);
+            if (interval != null && interval > 0 && interval != reconcileInterval) {
+                reconcileInterval = interval;
+                reconciler.start(reconcileInterval);
+            }
+            Integer concurrency = Tools.getIntegerProperty(properties, RECONCILE_CONCURRENCY);
+            if (concurrency != null && concurrency > 0 && concurrency != reconcileConcurrency) {
+                reconcileConcurrency = concurrency;
+                reconciler.setConcurrency(reconcileConcurrency);
+            }
+            Integer perNode = Tools.getIntegerProperty(properties, NODE_CONCURRENCY);
+            if (perNode != null && perNode > 0) {
+                nodeConcurrency = perNode;
+            }
+            Integer queueLength = Tools.getIntegerProperty(properties, NODE_QUEUE_LENGTH);
+            if (queueLength != null && queueLength >= 0) {
+                nodeQueueLength = queueLength;
+            }
+            admission.setLimits(nodeConcurrency, nodeQueueLength);
+        }
+        log.info("Reconfigured, reconcileInterval={} reconcileConcurrency={} nodeConcurrency={} nodeQueueLength={}",
+                 reconcileInterval, reconcileConcurrency, nodeConcurrency, nodeQueueLength);
     }
 
-    @Override
-    public void createBridge(IpAddress ovsdbAddress, String bridgeName)
+    private void doCreateBridge(IpAddress ovsdbAddress, String bridgeName, Sample sample)
             throws OvsdbDeviceException, BridgeAlreadyExistsException {
         OvsdbNode ovsdbNode = new OvsdbNode(ovsdbAddress, OVSPORT);
 
-        // Get all the bridge devices
-        getAllBridges();
-        // construct a unique dev id'
-        DeviceId dpid = getNextUniqueDatapathId(datapathId);
+        // the admission runs several operations of a node at once, the name is held from the
+        // check until the bridge is registered
+        if (!bridgeRegistry.reserve(ovsdbNode.ovsdbId(), bridgeName)) {
+            log.warn("The bridge {} is already being created at {}, aborting.", bridgeName, ovsdbAddress);
+            throw new BridgeAlreadyExistsException();
+        }
+        try {
+            createReservedBridge(ovsdbNode, bridgeName, sample);
+        } finally {
+            bridgeRegistry.unreserve(ovsdbNode.ovsdbId(), bridgeName);
+        }
+    }
 
-        if (isBridgeCreated(bridgeName)) {
+    private void createReservedBridge(OvsdbNode ovsdbNode, String bridgeName, Sample sample)
+            throws OvsdbDeviceException, BridgeAlreadyExistsException {
+        if (isBridgeCreated(ovsdbNode.ovsdbId(), bridgeName)) {
             log.warn("A bridge with this name already exists, aborting.");
             throw new BridgeAlreadyExistsException();
         }
 
-        List<ControllerInfo> controllers = new ArrayList<>();
-        Sets.newHashSet(clusterService.getNodes()).forEach(controller -> {
-            ControllerInfo ctrlInfo = new ControllerInfo(controller.ip(), OFPORT, "tcp");
-            controllers.add(ctrlInfo);
-            log.info("controller {}:{} added", ctrlInfo.ip().toString(), ctrlInfo.port());
-        });
+        // construct a unique dev id'
+        DeviceId dpid = getNextUniqueDatapathId();
+        boolean created = false;
+
         try {
             Device device = deviceService.getDevice(ovsdbNode.ovsdbId());
             if (device == null) {
                 log.warn("Ovsdb device not found, aborting.");
                 throw new OvsdbDeviceException("Ovsdb device not found");
             }
+            sample.lap(Phase.LOOKUP);
             if (device.is(BridgeConfig.class)) {
                 BridgeConfig bridgeConfig = device.as(BridgeConfig.class);
                 BridgeDescription bridgeDescription = DefaultBridgeDescription.builder()
@@ -183,9 +422,18 @@ public class AppComponent implements OvsdbBridgeService {
                         .datapathId(dpid.toString())
                         .controllers(controllers)
                         .build();
-                bridgeConfig.addBridge(bridgeDescription);
-                bridgeIds.put(bridgeName, bridgeDescription.deviceId().get());
-                log.info("Correctly created bridge {} at {}", bridgeName, ovsdbAddress);
+                NodeTopology previous = recordDesiredState(ovsdbNode.ovsdbId(),
+                                                           topology -> topology.withBridge(bridgeName));
+                try {
+                    bridgeConfig.addBridge(bridgeDescription);
+                } catch (RuntimeException e) {
+                    revertDesiredState(ovsdbNode.ovsdbId(), topology -> topology.withBridgeAs(previous, bridgeName));
+                    throw e;
+                }
+                sample.lap(Phase.DRIVER);
+                created = true;
+                bridgeRegistry.put(ovsdbNode.ovsdbId(), bridgeName, bridgeDescription.deviceId().get());
+                log.info("Correctly created bridge {} at {}", bridgeName, ovsdbNode.ovsdbIp());
             } else {
                 log.warn("The bridging behaviour is not supported in device {}", device.id());
                 throw new OvsdbDeviceException(
@@ -195,20 +443,21 @@ public class AppComponent implements OvsdbBridgeService {
         } catch (ItemNotFoundException e) {
             log.warn("Failed to create integration bridge on {}", ovsdbNode.ovsdbIp());
             throw new OvsdbDeviceException("Error with ovsdb device: item not found");
+        } finally {
+            if (!created) {
+                releaseDatapathId(dpid);
+            }
         }
     }
 
-    @Override
-    public void deleteBridge(IpAddress ovsdbAddress, String bridgeName)
+    private void doDeleteBridge(IpAddress ovsdbAddress, String bridgeName, Sample sample)
             throws OvsdbDeviceException, BridgeNotFoundException {
 
         log.warn("Deleting bridge {} at {}", bridgeName, ovsdbAddress);
         OvsdbNode ovsdbNode = new OvsdbNode(ovsdbAddress, OVSPORT);
 
-        // Get all the bridge devices
-        getAllBridges();
         // Get the device ID using the name to delete the bridge
-        DeviceId deviceId = bridgeIds.get(bridgeName);
+        DeviceId deviceId = bridgeRegistry.bridgeId(ovsdbNode.ovsdbId(), bridgeName);
         if (deviceId == null) {
             log.warn("No bridge with this name, aborting.");
             throw new BridgeNotFoundException();
@@ -219,21 +468,30 @@ public class AppComponent implements OvsdbBridgeService {
                 log.warn("Ovsdb device not found, aborting.");
                 throw new OvsdbDeviceException("Ovsdb device not found");
             }
+            sample.lap(Phase.LOOKUP);
             if (device.is(BridgeConfig.class)) {
-
-                // unregister bridge from its controllers
+                NodeTopology previous = recordDesiredState(ovsdbNode.ovsdbId(),
+                                                           topology -> topology.withoutBridge(bridgeName));
                 deviceId = DeviceId.deviceId(deviceId.uri());
-                DriverHandler h = driverService.createHandler(deviceId);
-                ControllerConfig controllerConfig = h.behaviour(ControllerConfig.class);
-                controllerConfig.setControllers(new ArrayList<>());
-
-                // remove bridge from onos devices
-                adminService.removeDevice(deviceId);
-
-                // remove bridge from ovsdb
-                BridgeConfig bridgeConfig = device.as(BridgeConfig.class);
-                bridgeConfig.deleteBridge(BridgeName.bridgeName(bridgeName));
-                bridgeIds.remove(bridgeName);
+                try {
+                    // unregister bridge from its controllers
+                    DriverHandler h = driverService.createHandler(deviceId);
+                    ControllerConfig controllerConfig = h.behaviour(ControllerConfig.class);
+                    controllerConfig.setControllers(new ArrayList<>());
+
+                    // remove bridge from onos devices
+                    adminService.removeDevice(deviceId);
+
+                    // remove bridge from ovsdb
+                    BridgeConfig bridgeConfig = device.as(BridgeConfig.class);
+                    bridgeConfig.deleteBridge(BridgeName.bridgeName(bridgeName));
+                } catch (RuntimeException e) {
+                    revertDesiredState(ovsdbNode.ovsdbId(), topology -> topology.withBridgeAs(previous, bridgeName));
+                    throw e;
+                }
+                sample.lap(Phase.DRIVER);
+                bridgeRegistry.remove(ovsdbNode.ovsdbId(), bridgeName);
+                releaseDatapathId(deviceId);
 
                 log.info("Correctly deleted bridge {} at {}", bridgeName, ovsdbAddress);
             } else {
@@ -248,15 +506,12 @@ public class AppComponent implements OvsdbBridgeService {
         }
     }
 
-    @Override
-    public void addPort(IpAddress ovsdbAddress, String bridgeName, String portName)
+    private void doAddPort(IpAddress ovsdbAddress, String bridgeName, String portName, Sample sample)
             throws OvsdbDeviceException, BridgeNotFoundException {
         log.info("Adding port {} to bridge {} at {}", portName, bridgeName, ovsdbAddress);
         OvsdbNode ovsdbNode = new OvsdbNode(ovsdbAddress, OVSPORT);
 
-        // Get all the bridges
-        getAllBridges();
-        if (!isBridgeCreated(bridgeName)) {
+        if (!isBridgeCreated(ovsdbNode.ovsdbId(), bridgeName)) {
             log.warn("A bridge with this name does not exists, aborting.");
             throw new BridgeNotFoundException();
         }
@@ -268,11 +523,21 @@ public class AppComponent implements OvsdbBridgeService {
                 log.warn("Ovsdb device not found, aborting.");
                 throw new OvsdbDeviceException("Ovsdb device not found");
             }
+            sample.lap(Phase.LOOKUP);
             if (device.is(BridgeConfig.class)) {
                 log.info("Start Add Port Process");
                 // add port to bridge through ovsdb
                 BridgeConfig bridgeConfig = device.as(BridgeConfig.class);
-                bridgeConfig.addPort(BridgeName.bridgeName(bridgeName), portName);
+                NodeTopology previous = recordDesiredState(
+                        ovsdbNode.ovsdbId(), topology -> topology.withPort(bridgeName, PortSpec.port(portName)));
+                try {
+                    bridgeConfig.addPort(BridgeName.bridgeName(bridgeName), portName);
+                } catch (RuntimeException e) {
+                    revertDesiredState(ovsdbNode.ovsdbId(),
+                                       topology -> topology.withPortAs(previous, bridgeName, portName));
+                    throw e;
+                }
+                sample.lap(Phase.DRIVER);
                 log.info("Correctly added port {} to bridge {} at {}", portName, bridgeName, ovsdbAddress);
             } else {
                 log.warn("The bridging behaviour is not supported in device {}", device.id());
@@ -286,16 +551,13 @@ public class AppComponent implements OvsdbBridgeService {
         }
     }
 
-    @Override
-    public void removePort(IpAddress ovsdbAddress, String bridgeName, String portName)
+    private void doRemovePort(IpAddress ovsdbAddress, String bridgeName, String portName, Sample sample)
             throws OvsdbDeviceException, BridgeNotFoundException {
 
         log.warn("Deleting port {} to bridge {} at {}", portName, bridgeName, ovsdbAddress);
         OvsdbNode ovsdbNode = new OvsdbNode(ovsdbAddress, OVSPORT);
 
-        // Get all the bridges
-        getAllBridges();
-        if (!isBridgeCreated(bridgeName)) {
+        if (!isBridgeCreated(ovsdbNode.ovsdbId(), bridgeName)) {
             log.warn("A bridge with this name does not exists, aborting.");
             throw new BridgeNotFoundException();
         }
@@ -306,11 +568,21 @@ public class AppComponent implements OvsdbBridgeService {
                 log.warn("Ovsdb device not found, aborting.");
                 throw new OvsdbDeviceException("Ovsdb device not found");
             }
+            sample.lap(Phase.LOOKUP);
             if (device.is(BridgeConfig.class)) {
 
                 // delete port from bridge through ovsdb
                 BridgeConfig bridgeConfig = device.as(BridgeConfig.class);
-                bridgeConfig.deletePort(BridgeName.bridgeName(bridgeName), portName);
+                NodeTopology previous = recordDesiredState(
+                        ovsdbNode.ovsdbId(), topology -> topology.withoutPort(bridgeName, portName));
+                try {
+                    bridgeConfig.deletePort(BridgeName.bridgeName(bridgeName), portName);
+                } catch (RuntimeException e) {
+                    revertDesiredState(ovsdbNode.ovsdbId(),
+                                       topology -> topology.withPortAs(previous, bridgeName, portName));
+                    throw e;
+                }
+                sample.lap(Phase.DRIVER);
 
                 log.info("Correctly deleted port {} from bridge {} at {}", portName, bridgeName, ovsdbAddress);
 
@@ -326,18 +598,15 @@ public class AppComponent implements OvsdbBridgeService {
         }
     }
 
-    @Override
-    public void createPatchPeerPort(IpAddress ovsdbAddress, String bridgeName,
-                                    String portName, String patchPeer)
+    private void doCreatePatchPeerPort(IpAddress ovsdbAddress, String bridgeName,
+                                       String portName, String patchPeer, Sample sample)
             throws OvsdbDeviceException, BridgeNotFoundException {
 
         log.info("Setting port {} as peer of port {}", portName, patchPeer);
 
         OvsdbNode ovsdbNode = new OvsdbNode(ovsdbAddress, OVSPORT);
 
-        // Get all the bridges
-        getAllBridges();
-        if (!isBridgeCreated(bridgeName)) {
+        if (!isBridgeCreated(ovsdbNode.ovsdbId(), bridgeName)) {
             log.warn("A bridge with this name does not exists, aborting.");
             throw new BridgeNotFoundException();
         }
@@ -349,6 +618,7 @@ public class AppComponent implements OvsdbBridgeService {
             throw new OvsdbDeviceException("Ovsdb device not found");
         }
 
+        sample.lap(Phase.LOOKUP);
         if (device.is(InterfaceConfig.class)) {
             InterfaceConfig interfaceConfig = device.as(InterfaceConfig.class);
 
@@ -359,8 +629,18 @@ public class AppComponent implements OvsdbBridgeService {
                     .ifaceName(portName)
                     .peer(patchPeer)
                     .build();
-            // add patch to port through ovsdb
-            interfaceConfig.addPatchMode(portName, patchDescription);
+            PortSpec patch = PortSpec.patch(portName, patchPeer);
+            NodeTopology previous = recordDesiredState(ovsdbNode.ovsdbId(),
+                                                       topology -> topology.withPort(bridgeName, patch));
+            try {
+                // add patch to port through ovsdb
+                interfaceConfig.addPatchMode(portName, patchDescription);
+            } catch (RuntimeException e) {
+                revertDesiredState(ovsdbNode.ovsdbId(),
+                                   topology -> topology.withPortAs(previous, bridgeName, portName));
+                throw e;
+            }
+            sample.lap(Phase.DRIVER);
             log.info("Correctly created port {} on device {} as peer of port {}", portName, bridgeName, patchPeer);
         } else {
             log.warn("The interface behaviour is not supported in device {}", device.id());
@@ -370,18 +650,15 @@ public class AppComponent implements OvsdbBridgeService {
         }
     }
 
-    @Override
-    public void createVxlanTunnel(IpAddress ovsdbAddress, String bridgeName, String portName,
-                                  IpAddress remoteIp, String key)
+    private void doCreateVxlanTunnel(IpAddress ovsdbAddress, String bridgeName, String portName,
+                                     IpAddress remoteIp, String key, Sample sample)
             throws OvsdbDeviceException, BridgeNotFoundException {
 
         log.info("Setting up tunnel VXLAN to {} with key {}",
                 remoteIp, key);
         OvsdbNode ovsdbNode = new OvsdbNode(ovsdbAddress, OVSPORT);
 
-        // Get all the bridges
-        getAllBridges();
-        if (!isBridgeCreated(bridgeName)) {
+        if (!isBridgeCreated(ovsdbNode.ovsdbId(), bridgeName)) {
             log.warn("A bridge with this name does not exists, aborting.");
             throw new BridgeNotFoundException();
         }
@@ -394,6 +671,7 @@ public class AppComponent implements OvsdbBridgeService {
                 throw new OvsdbDeviceException("Ovsdb device not found");
             }
 
+            sample.lap(Phase.LOOKUP);
             if (device.is(InterfaceConfig.class)) {
                 InterfaceConfig interfaceConfig = device.as(InterfaceConfig.class);
 
@@ -405,8 +683,17 @@ public class AppComponent implements OvsdbBridgeService {
                         .remote(TunnelEndPoints.ipTunnelEndpoint(remoteIp))
                         .key(new TunnelKey<>(key))
                         .build();
-                // create tunnel to port through ovsdb
-                interfaceConfig.addTunnelMode(portName, tunnelDescription);
+                NodeTopology previous = recordDesiredState(ovsdbNode.ovsdbId(), topology -> topology.withPort(
+                        bridgeName, PortSpec.vxlan(portName, remoteIp, key)));
+                try {
+                    // create tunnel to port through ovsdb
+                    interfaceConfig.addTunnelMode(portName, tunnelDescription);
+                } catch (RuntimeException e) {
+                    revertDesiredState(ovsdbNode.ovsdbId(),
+                                       topology -> topology.withPortAs(previous, bridgeName, portName));
+                    throw e;
+                }
+                sample.lap(Phase.DRIVER);
                 log.info("Correctly added tunnel VXLAN to {} with key {}", remoteIp, key);
             } else {
                 log.warn("The interface behaviour is not supported in device {}", device.id());
@@ -420,6 +707,58 @@ public class AppComponent implements OvsdbBridgeService {
         }
     }
 
+    @Override
+    public void createBridge(IpAddress ovsdbAddress, String bridgeName)
+            throws OvsdbDeviceException, BridgeAlreadyExistsException {
+        measure("createBridge", sample -> doCreateBridge(ovsdbAddress, bridgeName, sample),
+                OvsdbDeviceException.class, BridgeAlreadyExistsException.class);
+        publishOperation(ChangeEvent.Type.BRIDGE_ADDED, ovsdbAddress, bridgeName, null);
+    }
+
+    @Override
+    public void deleteBridge(IpAddress ovsdbAddress, String bridgeName)
+            throws OvsdbDeviceException, BridgeNotFoundException {
+        measure("deleteBridge", sample -> doDeleteBridge(ovsdbAddress, bridgeName, sample),
+                OvsdbDeviceException.class, BridgeNotFoundException.class);
+        publishOperation(ChangeEvent.Type.BRIDGE_REMOVED, ovsdbAddress, bridgeName, null);
+    }
+
+    @Override
+    public void addPort(IpAddress ovsdbAddress, String bridgeName, String portName)
+            throws OvsdbDeviceException, BridgeNotFoundException {
+        measure("addPort", sample -> doAddPort(ovsdbAddress, bridgeName, portName, sample),
+                OvsdbDeviceException.class, BridgeNotFoundException.class);
+        publishOperation(ChangeEvent.Type.PORT_ADDED, ovsdbAddress, bridgeName, portName);
+    }
+
+    @Override
+    public void removePort(IpAddress ovsdbAddress, String bridgeName, String portName)
+            throws OvsdbDeviceException, BridgeNotFoundException {
+        measure("removePort", sample -> doRemovePort(ovsdbAddress, bridgeName, portName, sample),
+                OvsdbDeviceException.class, BridgeNotFoundException.class);
+        publishOperation(ChangeEvent.Type.PORT_REMOVED, ovsdbAddress, bridgeName, portName);
+    }
+
+    @Override
+    public void createPatchPeerPort(IpAddress ovsdbAddress, String bridgeName,
+                                    String portName, String patchPeer)
+            throws OvsdbDeviceException, BridgeNotFoundException {
+        measure("createPatchPeerPort",
+                sample -> doCreatePatchPeerPort(ovsdbAddress, bridgeName, portName, patchPeer, sample),
+                OvsdbDeviceException.class, BridgeNotFoundException.class);
+        publishOperation(ChangeEvent.Type.PORT_ADDED, ovsdbAddress, bridgeName, portName);
+    }
+
+    @Override
+    public void createVxlanTunnel(IpAddress ovsdbAddress, String bridgeName, String portName,
+                                  IpAddress remoteIp, String key)
+            throws OvsdbDeviceException, BridgeNotFoundException {
+        measure("createVxlanTunnel",
+                sample -> doCreateVxlanTunnel(ovsdbAddress, bridgeName, portName, remoteIp, key, sample),
+                OvsdbDeviceException.class, BridgeNotFoundException.class);
+        publishOperation(ChangeEvent.Type.TUNNEL_UP, ovsdbAddress, bridgeName, portName);
+    }
+
     @Override
     public void deleteGreTunnel(IpAddress ovsdbAddress, String bridgeName, String portName)
             throws OvsdbDeviceException {
@@ -430,8 +769,305 @@ public class AppComponent implements OvsdbBridgeService {
     public void createPathIntent(String srcId, String dstId, String portSrc, String portDst,
                                  PathIntent.ProtectionType setType)
             throws Exception {
+        measure("createPathIntent",
+                sample -> doCreatePathIntent(srcId, dstId, portSrc, portDst, setType, sample));
+    }
+
+    @Override
+    public List<OperationStats> operationStats() {
+        return operationMetrics.stats();
+    }
+
+    @Override
+    public NodeTopology desiredTopology(IpAddress ovsdbAddress) {
+        return desiredState.topology(new OvsdbNode(ovsdbAddress, OVSPORT).ovsdbId());
+    }
+
+    @Override
+    public void setDesiredTopology(IpAddress ovsdbAddress, NodeTopology topology) {
+        DeviceId ovsdbId = new OvsdbNode(ovsdbAddress, OVSPORT).ovsdbId();
+        NodeTopology previous = desiredState.replace(ovsdbId, topology.declared());
+        List<BridgeOperation> removals = previous.bridgeNames().stream()
+                .filter(bridgeName -> !topology.bridgeNames().contains(bridgeName))
+                .map(bridgeName -> BridgeOperation.deleteBridge(ovsdbAddress, bridgeName))
+                .collect(Collectors.toList());
+        // reconciled here at once, afterwards the master of the node keeps it in sync
+        reconciler.reconcile(ovsdbId, removals);
+    }
+
+    @Override
+    public List<NodeConvergence> reconcileStatus() {
+        return reconciler.status();
+    }
+
+    @Override
+    public NodeSnapshot nodeSnapshot(IpAddress ovsdbAddress) throws OvsdbDeviceException {
+        return snapshots.get(new OvsdbNode(ovsdbAddress, OVSPORT).ovsdbId());
+    }
+
+    @Override
+    public Iterator<NodeSnapshot> inventory(DeviceId after) {
+        // only the ids are listed up front, the nodes are read lazily by the stream
+        List<DeviceId> ovsdbIds = Tools.stream(deviceService.getDevices(Device.Type.CONTROLLER))
+                .map(Device::id)
+                .filter(ovsdbId -> after == null || ovsdbId.toString().compareTo(after.toString()) > 0)
+                .sorted(Comparator.comparing(DeviceId::toString))
+                .collect(Collectors.toList());
+        return ovsdbIds.stream()
+                .map(this::inventorySnapshot)
+                .filter(Objects::nonNull)
+                .iterator();
+    }
+
+    /**
+     * Returns the snapshot of a node for the inventory export. A node which is not cached is
+     * read without being cached, so an export does not fill the cache with every node.
+     *
+     * @param ovsdbId the device id of the ovsdb node
+     * @return the snapshot, null if the node is not available
+     */
+    private NodeSnapshot inventorySnapshot(DeviceId ovsdbId) {
+        NodeSnapshot snapshot = snapshots.peek(ovsdbId);
+        if (snapshot != null) {
+            return snapshot;
+        }
+        try {
+            return readSnapshot(ovsdbId);
+        } catch (OvsdbDeviceException | ItemNotFoundException e) {
+            log.debug("Skipped {} in the inventory: {}", ovsdbId, e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public ChangeFeed.Subscription subscribeChanges(ChangeFeed.Listener listener) {
+        return changeFeed.subscribe(listener);
+    }
+
+    @Override
+    public Map<String, Long> admissionStats() {
+        return admission.stats();
+    }
+
+    @Override
+    public Map<String, Long> pathCacheStats() {
+        return ImmutableMap.of("hits", pathCache.hitCount(),
+                               "misses", pathCache.missCount(),
+                               "size", (long) pathCache.size());
+    }
+
+    /**
+     * Runs an operation and records its latency and its outcome in the operation metrics.
+     *
+     * @param name the operation name
+     * @param operation the operation
+     * @param first first checked error of the operation
+     * @param second second checked error of the operation
+     * @param <E1> the type of the first checked error
+     * @param <E2> the type of the second checked error
+     * @throws E1 if the operation failed with the first error
+     * @throws E2 if the operation failed with the second error
+     */
+    private <E1 extends Exception, E2 extends Exception> void measure(String name, MeasuredOperation operation,
+                                                                      Class<E1> first, Class<E2> second)
+            throws E1, E2 {
+        try {
+            measure(name, operation);
+        } catch (Exception e) {
+            if (first.isInstance(e)) {
+                throw first.cast(e);
+            } else if (second.isInstance(e)) {
+                throw second.cast(e);
+            } else if (e instanceof RuntimeException) {
+                throw (RuntimeException) e;
+            }
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Runs an operation which may fail with any error and records its latency and its
+     * outcome in the operation metrics.
+     *
+     * @param name the operation name
+     * @param operation the operation
+     * @throws Exception the error of the operation, as it is
+     */
+    private void measure(String name, MeasuredOperation operation) throws Exception {
+        Sample sample = operationMetrics.start(name);
+        try {
+            operation.run(sample);
+            sample.success();
+        } catch (Exception e) {
+            sample.failure(e);
+            throw e;
+        }
+    }
+
+    private void doCreatePathIntent(String srcId, String dstId, String portSrc, String portDst,
+                                    PathIntent.ProtectionType setType, Sample sample)
+            throws Exception {
         log.info("Start the createPathIntent function");
-        IntentService intentService = AbstractShellCommand.get(IntentService.class);
+        PathIntent intent = buildPathIntent(srcId, dstId, portSrc, portDst, setType);
+        sample.lap(Phase.LOOKUP);
+        log.info("Send the created Intent to apply the changes");
+        // Send the created intent
+        submitPathIntent(intent);
+        sample.lap(Phase.INTENT);
+    }
+
+    @Override
+    public IntentBatchStatus createPathIntents(List<PathIntentRequest> requests) {
+        log.info("Submitting a bulk of {} path intents", requests.size());
+        Sample sample = operationMetrics.start("createPathIntents");
+        try {
+            List<PathIntent> intents = new ArrayList<>();
+            List<Key> keys = new ArrayList<>();
+            List<String> errors = new ArrayList<>();
+            for (PathIntentRequest request : requests) {
+                try {
+                    PathIntent intent = buildPathIntent(request.srcId(), request.dstId(), request.portSrc(),
+                                                    request.portDst(), request.setType());
+                    intents.add(intent);
+                    keys.add(intent.key());
+                    errors.add(null);
+                } catch (Exception e) {
+                    log.warn("Path intent {} was not submitted: {}", request, e.toString());
+                    keys.add(null);
+                    errors.add(e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+                }
+            }
+            sample.lap(Phase.LOOKUP);
+            // tracked before the submission, so none of the state changes is missed
+            long batchId = intentTracker.track(requests, keys, errors);
+            for (PathIntent intent : intents) {
+                if (!submitPathIntent(intent)) {
+                    // no event will come for an intent which is already installed
+                    intentTracker.update(intent.key(), IntentState.INSTALLED);
+                }
+            }
+            sample.lap(Phase.INTENT);
+            sample.success();
+            return intentTracker.status(batchId);
+        } catch (RuntimeException e) {
+            sample.failure(e);
+            throw e;
+        }
+    }
+
+    @Override
+    public IntentBatchStatus pathIntentStatus(long batchId) {
+        return intentTracker.status(batchId);
+    }
+
+    @Override
+    public CompletableFuture<IntentBatchStatus> awaitPathIntents(long batchId, long timeoutMillis) {
+        return intentTracker.await(batchId, timeoutMillis);
+    }
+
+    @Override
+    public List<Key> withdrawPathIntents(List<PathIntentRequest> requests, boolean purge) {
+        return withdraw(requests.stream()
+                                .map(request -> pathIntentKey(request.srcId(), request.dstId(), request.portSrc(),
+                                                              request.portDst(), request.setType()))
+                                .collect(Collectors.toList()),
+                        purge);
+    }
+
+    @Override
+    public List<Key> withdrawAllPathIntents(boolean purge) {
+        List<Key> keys = new ArrayList<>();
+        // the intent service of this release has no lookup by application
+        intentService.getIntents().forEach(intent -> {
+            if (appId.equals(intent.appId())) {
+                keys.add(intent.key());
+            }
+        });
+        return withdraw(keys, purge);
+    }
+
+    /**
+     * Withdraws the intents with the given keys. The ones to purge are purged right away if
+     * they are not installed, or once they are withdrawn otherwise.
+     *
+     * @param keys the keys of the intents
+     * @param purge whether to remove the intents from the intent store too
+     * @return the keys of the intents which were found
+     */
+    private List<Key> withdraw(Collection<Key> keys, boolean purge) {
+        List<Key> found = new ArrayList<>();
+        for (Key key : keys) {
+            Intent intent = intentService.getIntent(key);
+            if (intent == null) {
+                continue;
+            }
+            found.add(key);
+            IntentState state = intentService.getIntentState(key);
+            if (state == IntentState.WITHDRAWN || state == IntentState.FAILED) {
+                if (purge) {
+                    intentService.purge(intent);
+                }
+                continue;
+            }
+            if (purge) {
+                purgeOnWithdraw.add(key);
+            }
+            intentService.withdraw(intent);
+        }
+        log.info("Withdrawn {} of {} path intents", found.size(), keys.size());
+        return found;
+    }
+
+    /**
+     * Submits a path intent unless the same intent is already installed. An intent with the
+     * same key and another path replaces the previous one in place.
+     *
+     * @param intent the path intent
+     * @return true if the intent was submitted
+     */
+    private boolean submitPathIntent(PathIntent intent) {
+        Intent current = intentService.getIntent(intent.key());
+        if (current instanceof PathIntent && ((PathIntent) current).path().equals(intent.path())
+                && intentService.getIntentState(intent.key()) == IntentState.INSTALLED) {
+            log.info("The intent {} is already installed", intent.key());
+            return false;
+        }
+        purgeOnWithdraw.remove(intent.key());
+        intentService.submit(intent);
+        return true;
+    }
+
+    /**
+     * Returns the key of the path intent between two ports, which is the same for every
+     * request of the same path.
+     *
+     * @param srcId the source device id
+     * @param dstId the destination device id
+     * @param portSrc the port of the source device
+     * @param portDst the port of the destination device
+     * @param setType the protection type of the path
+     * @return the intent key
+     */
+    private Key pathIntentKey(String srcId, String dstId, String portSrc, String portDst,
+                              PathIntent.ProtectionType setType) {
+        return Key.of(String.format("path:%s/%s-%s/%s:%s", deviceId(srcId), PortNumber.fromString(portSrc),
+                                    deviceId(dstId), PortNumber.fromString(portDst), setType), appId);
+    }
+
+    /**
+     * Finds the path between the given ports of two devices and builds its path intent.
+     *
+     * @param srcId the source device id
+     * @param dstId the destination device id
+     * @param portSrc the port of the source device
+     * @param portDst the port of the destination device
+     * @param setType the protection type of the path
+     * @return the path intent
+     * @throws Exception if a device or the path does not exist
+     */
+    private PathIntent buildPathIntent(String srcId, String dstId, String portSrc, String portDst,
+                                       PathIntent.ProtectionType setType)
+            throws Exception {
         log.info("Start TrafficSelector");
         // Set Variables to make the builder
         TrafficSelector selector = DefaultTrafficSelector.builder()
@@ -444,79 +1080,316 @@ public class AppComponent implements OvsdbBridgeService {
             throw  new Exception("The Src or Dst Device don't exists");
         }
 
-        log.info("Set Topology Service");
-        TopologyService topologyService = AbstractShellCommand.get(TopologyService.class);
         Topology topology = topologyService.currentTopology();
-        Set<? extends Path> paths = topologyService.getPaths(topology, srcDid, dstDid);
-        // Path path = paths.stream().findFirst().get();
+        Candidates paths = pathCache.get(srcDid, dstDid, topology);
         if (paths == null) {
-            throw  new Exception("The Src and Dst Port don't have any path");
+            Set<Path> computed = topologyService.getPaths(topology, srcDid, dstDid);
+            paths = pathCache.put(srcDid, dstDid, topology, computed == null ? ImmutableSet.of() : computed);
         }
-        Path pathUser = null;
-        for (Path path : paths) {
-            List<Link> links = path.links();
-            AtomicBoolean foundPath = new AtomicBoolean(false);
-            links.forEach(link -> {
-                log.info("This is the source port: {}", link.src().port().toString());
-                log.info("This is the destination port: {}", link.dst().port().toString());
-                if (portSrc.equals(link.src().port().toString()) &&
-                        portDst.equals(link.dst().port().toString())) {
-                    log.info("We found the path that the user want");
-                    foundPath.set(true);
-                }
-            });
-            log.info("The value of the boolean is {}", foundPath);
-            if (foundPath.get()) {
-                pathUser = path;
-                break;
-            }
+        if (paths.isEmpty()) {
+            throw  new Exception("The Src and Dst Port don't have any path");
         }
+        Path pathUser = paths.path(PortNumber.fromString(portSrc), PortNumber.fromString(portDst));
         if (pathUser == null) {
             throw  new Exception("The Path that the user want doesn't exist");
         }
         log.info("The path was received correctly: {}", pathUser);
 
         log.info("Start to create the Intent");
-        Intent intent = PathIntent.builder()
-                .appId(coreService.getAppId("org.onosproject.cli"))
+        return PathIntent.builder()
+                .appId(appId)
+                .key(pathIntentKey(srcId, dstId, portSrc, portDst, setType))
                 .selector(selector)
                 .priority(400)
                 .path(pathUser)
                 .setType(setType)
                 .build();
-        log.info("Send the created Intent to apply the changes");
-        // Send the created intent
-        intentService.submit(intent);
+    }
+
+    @Override
+    public List<BridgeOperationResult> applyBatch(List<BridgeOperation> operations) {
+        return join(applyBatchAsync(operations));
+    }
+
+    @Override
+    public List<BridgeOperationResult> provisionVxlanMesh(Map<IpAddress, IpAddress> endpoints, String bridgeName,
+                                                          String key) {
+        return join(provisionVxlanMeshAsync(endpoints, bridgeName, key));
+    }
+
+    @Override
+    public CompletableFuture<Void> createBridgeAsync(IpAddress ovsdbAddress, String bridgeName) {
+        return supplyAsync(ovsdbAddress, () -> {
+            createBridge(ovsdbAddress, bridgeName);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteBridgeAsync(IpAddress ovsdbAddress, String bridgeName) {
+        return supplyAsync(ovsdbAddress, () -> {
+            deleteBridge(ovsdbAddress, bridgeName);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> addPortAsync(IpAddress ovsdbAddress, String bridgeName, String portName) {
+        return supplyAsync(ovsdbAddress, () -> {
+            addPort(ovsdbAddress, bridgeName, portName);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> removePortAsync(IpAddress ovsdbAddress, String bridgeName, String portName) {
+        return supplyAsync(ovsdbAddress, () -> {
+            removePort(ovsdbAddress, bridgeName, portName);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> createPatchPeerPortAsync(IpAddress ovsdbAddress, String bridgeName,
+                                                            String portName, String patchPeer) {
+        return supplyAsync(ovsdbAddress, () -> {
+            createPatchPeerPort(ovsdbAddress, bridgeName, portName, patchPeer);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> createVxlanTunnelAsync(IpAddress ovsdbAddress, String bridgeName,
+                                                          String portName, IpAddress remoteIp, String key) {
+        return supplyAsync(ovsdbAddress, () -> {
+            createVxlanTunnel(ovsdbAddress, bridgeName, portName, remoteIp, key);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> createPathIntentAsync(String srcId, String dstId, String portSrc,
+                                                         String portDst, PathIntent.ProtectionType setType) {
+        return supplyAsync(() -> {
+            createPathIntent(srcId, dstId, portSrc, portDst, setType);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<IntentBatchStatus> createPathIntentsAsync(List<PathIntentRequest> requests) {
+        return supplyAsync(() -> createPathIntents(requests));
+    }
+
+    @Override
+    public CompletableFuture<List<BridgeOperationResult>> applyBatchAsync(List<BridgeOperation> operations) {
+        log.info("Applying a batch of {} operations", operations.size());
+        BridgeOperationResult[] results = new BridgeOperationResult[operations.size()];
+
+        // {ovsdbAddress: [operation index]} keeping the order of the operations of every node
+        Map<IpAddress, List<Integer>> nodeOperations = Maps.newLinkedHashMap();
+        for (int i = 0; i < operations.size(); i++) {
+            nodeOperations.computeIfAbsent(operations.get(i).ovsdbAddress(), ip -> new ArrayList<>()).add(i);
+        }
+
+        // the operations of a node run in order as one task admitted for that node, the nodes
+        // run in parallel and no thread waits for another one
+        CompletableFuture<?>[] futures = nodeOperations.entrySet().stream()
+                .map(node -> supplyAsync(node.getKey(), () -> {
+                    node.getValue().forEach(i -> results[i] = applyOperation(operations.get(i)));
+                    return null;
+                }).exceptionally(error -> {
+                    // the node is busy or the executor is full, none of the operations of the node ran
+                    Exception cause = unwrap(error);
+                    node.getValue().forEach(i -> results[i] = BridgeOperationResult.failure(operations.get(i), cause));
+                    return null;
+                }))
+                .toArray(CompletableFuture[]::new);
+        return CompletableFuture.allOf(futures).thenApply(done -> Arrays.asList(results));
+    }
+
+    @Override
+    public CompletableFuture<List<BridgeOperationResult>> provisionVxlanMeshAsync(Map<IpAddress, IpAddress> endpoints,
+                                                                              String bridgeName, String key) {
+        // the ports of all the nodes are read in parallel, each as an admitted task of its node,
+        // before planning the missing tunnels
+        Map<IpAddress, CompletableFuture<Set<String>>> ports = Maps.newHashMap();
+        endpoints.keySet().forEach(ovsdbAddress -> ports.put(
+                ovsdbAddress, supplyAsync(ovsdbAddress, () -> portNames(ovsdbAddress)).exceptionally(error -> {
+                    log.warn("Failed to read the ports of {}: {}", ovsdbAddress, error.toString());
+                    return ImmutableSet.of();
+                })));
+        return CompletableFuture.allOf(ports.values().toArray(new CompletableFuture<?>[0])).thenCompose(read -> {
+            List<BridgeOperation> operations =
+                    VxlanMesh.plan(endpoints, bridgeName, key, ovsdbAddress -> ports.get(ovsdbAddress).join());
+            log.info("Provisioning a VXLAN mesh of {} nodes in bridge {}, {} tunnels are missing",
+                     endpoints.size(), bridgeName, operations.size());
+            return applyBatchAsync(operations);
+        });
+    }
+
+    /**
+     * Makes an operation of a batch, in the thread of the task of its node.
+     *
+     * @param operation the operation
+     * @return the result of the operation
+     */
+    private BridgeOperationResult applyOperation(BridgeOperation operation) {
+        try {
+            operation.apply(this);
+            return BridgeOperationResult.success(operation);
+        } catch (Exception e) {
+            log.warn("Batch operation {} failed: {}", operation, e.toString());
+            return BridgeOperationResult.failure(operation, e);
+        }
+    }
+
+    /**
+     * Waits for a future for the callers of the blocking methods.
+     *
+     * @param future the future
+     * @param <T> the type of the result
+     * @return the result
+     */
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Exception cause = unwrap(e);
+            throw cause instanceof RuntimeException ? (RuntimeException) cause : e;
+        }
+    }
+
+    /**
+     * Returns the error of a failed future.
+     *
+     * @param error the error given by the future, possibly wrapped
+     * @return the error of the operation
+     */
+    private static Exception unwrap(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return cause instanceof Exception ? (Exception) cause : new IllegalStateException(cause);
+    }
+
+    /**
+     * Runs an operation of an ovsdb node in the async executor, once the admission control of
+     * the node lets it run.
+     *
+     * @param ovsdbAddress IP Address of the ovsdb node
+     * @param operation the operation
+     * @param <T> the type of the result of the operation
+     * @return future completed with the result or the error of the operation, it is completed
+     * with NodeBusyException when the node has too many pending operations
+     */
+    private <T> CompletableFuture<T> supplyAsync(IpAddress ovsdbAddress, Callable<T> operation) {
+        return admission.submit(new OvsdbNode(ovsdbAddress, OVSPORT).ovsdbId(), () -> supplyAsync(operation));
+    }
+
+    /**
+     * Runs an operation in the async executor.
+     *
+     * @param operation the operation
+     * @param <T> the type of the result of the operation
+     * @return future completed with the result or the error of the operation, it is completed
+     * with RejectedExecutionException when there are too many pending operations
+     */
+    private <T> CompletableFuture<T> supplyAsync(Callable<T> operation) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            asyncExecutor.execute(() -> {
+                try {
+                    future.complete(operation.call());
+                } catch (Exception e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.warn("Too many pending operations, rejecting the request");
+            future.completeExceptionally(e);
+        }
+        return future;
     }
 
     /**
      * Use the deviceService to get all the devices which are Bridges and save this information
-     * in the bridgeIds Map.
+     * in the bridge registry. It is only used to seed the index and to recover from bridges
+     * whose ovsdb node cannot be guessed, device events keep the index up to date otherwise.
      */
     private void getAllBridges() {
-        // Clean the bridges variable to avoid write data more than once
-        bridgeIds.clear();
+        rescanPending.set(false);
         Iterable<Device> devices = deviceService.getDevices(Device.Type.CONTROLLER);
-        devices.forEach(device -> {
-            BridgeConfig bridgeConfigDevice = device.as(BridgeConfig.class);
-            Collection<BridgeDescription> setBridges = bridgeConfigDevice.getBridges();
+        devices.forEach(this::refreshBridges);
+    }
+
+    /**
+     * Queues a full rescan of the bridges unless one is already waiting to run.
+     */
+    private void scheduleRescan() {
+        if (rescanPending.compareAndSet(false, true)) {
+            eventExecutor.execute(this::getAllBridges);
+        }
+    }
+
+    /**
+     * Reads the bridges of a single ovsdb device and replaces them in the bridge registry.
+     *
+     * @param device the ovsdb device
+     */
+    private void refreshBridges(Device device) {
+        if (!device.is(BridgeConfig.class) || !deviceService.isAvailable(device.id())) {
+            return;
+        }
+        try {
+            Collection<BridgeDescription> setBridges = device.as(BridgeConfig.class).getBridges();
+            Map<String, DeviceId> nodeBridges = Maps.newHashMap();
             setBridges.forEach(bridge -> {
                 if (bridge.deviceId().isPresent()) {
-                    bridgeIds.put(bridge.name(), bridge.deviceId().get());
+                    nodeBridges.put(bridge.name(), bridge.deviceId().get());
                 } else {
                     log.info("There is a problem with the bridges it is not returning ID");
                 }
             });
-        });
+            bridgeRegistry.replace(device.id(), nodeBridges);
+        } catch (ItemNotFoundException e) {
+            log.warn("Failed to read the bridges of {}", device.id());
+        }
+    }
+
+    /**
+     * Handles a bridge device which is not yet in the index. The OpenFlow channel address is
+     * used to find the ovsdb device of the bridge, if it does not match any ovsdb device
+     * all of them are read again.
+     *
+     * @param bridgeId the device id of the bridge
+     */
+    private void indexBridge(DeviceId bridgeId) {
+        if (bridgeRegistry.contains(bridgeId)) {
+            return;
+        }
+        Device bridge = deviceService.getDevice(bridgeId);
+        String channelId = bridge == null ? null : bridge.annotations().value(AnnotationKeys.CHANNEL_ID);
+        Device ovsdbDevice = null;
+        if (channelId != null && channelId.contains(":")) {
+            String channelIp = channelId.substring(0, channelId.lastIndexOf(':'));
+            ovsdbDevice = deviceService.getDevice(deviceId("ovsdb:" + channelIp));
+        }
+        if (ovsdbDevice != null) {
+            refreshBridges(ovsdbDevice);
+        }
+        if (!bridgeRegistry.contains(bridgeId)) {
+            scheduleRescan();
+        }
     }
 
     /**
-     * Checks if the bridge exists and is available.
+     * Checks if the bridge exists in the ovsdb node and is available.
      *
+     * @param ovsdbId the device id of the ovsdb node
+     * @param bridgeName the bridge name
      * @return true if the bridge is available, false otherwise
      */
-    private boolean isBridgeCreated(String bridgeName) {
-        DeviceId deviceId = bridgeIds.get(bridgeName);
+    private boolean isBridgeCreated(DeviceId ovsdbId, String bridgeName) {
+        DeviceId deviceId = bridgeRegistry.bridgeId(ovsdbId, bridgeName);
         return (deviceId != null
                 && deviceService.getDevice(deviceId) != null
                 && deviceService.isAvailable(deviceId));
@@ -524,20 +1397,392 @@ public class AppComponent implements OvsdbBridgeService {
 
 
     /**
-     * Gets an available datapath id for the new bridge.
+     * Records a change of a node in its desired state, before the change is made in the node.
+     * The reconciler never sees the node changed and its desired state not, and a change
+     * which cannot be recorded is not made, so the reconciler would not undo it.
+     *
+     * @param ovsdbId the device id of the ovsdb node
+     * @param change gives the new desired topology from the current one
+     * @return the desired topology before the change, to revert it if the change fails
+     * @throws OvsdbDeviceException if the desired state could not be written
+     */
+    private NodeTopology recordDesiredState(DeviceId ovsdbId, UnaryOperator<NodeTopology> change)
+            throws OvsdbDeviceException {
+        try {
+            return desiredState.update(ovsdbId, change);
+        } catch (StorageException e) {
+            log.warn("Failed to record the desired state of {}", ovsdbId, e);
+            throw new OvsdbDeviceException("Failed to record the desired state of " + ovsdbId);
+        }
+    }
+
+    /**
+     * Undoes a recorded change of the desired state of a node, when the change failed in the node.
+     *
+     * @param ovsdbId the device id of the ovsdb node
+     * @param undo gives back the desired topology of the changed element from the current one
+     */
+    private void revertDesiredState(DeviceId ovsdbId, UnaryOperator<NodeTopology> undo) {
+        try {
+            desiredState.update(ovsdbId, undo);
+        } catch (StorageException e) {
+            log.warn("Failed to revert the desired state of {}", ovsdbId, e);
+        }
+    }
+
+    /**
+     * Reads the bridges and the ports of an ovsdb node for the reconciliation. The ports of a
+     * bridge are only known when its OpenFlow device is connected.
+     *
+     * @param ovsdbId the device id of the ovsdb node
+     * @return the actual state of the node
+     * @throws OvsdbDeviceException if the node is not available
+     */
+    private NodeReconciler.ActualState readNode(DeviceId ovsdbId) throws OvsdbDeviceException {
+        Device device = deviceService.getDevice(ovsdbId);
+        if (device == null || !deviceService.isAvailable(ovsdbId) || !device.is(BridgeConfig.class)) {
+            throw new OvsdbDeviceException("The ovsdb node is not available");
+        }
+        BridgeConfig bridgeConfig = device.as(BridgeConfig.class);
+        Map<String, DeviceId> bridges = Maps.newHashMap();
+        bridgeConfig.getBridges().forEach(bridge -> bridges.put(bridge.name(), bridge.deviceId().orElse(null)));
+        Map<String, Set<String>> bridgePorts = Maps.newHashMap();
+        bridges.forEach((bridgeName, bridgeId) -> {
+            if (bridgeId != null && deviceService.getDevice(bridgeId) != null) {
+                bridgePorts.put(bridgeName, deviceService.getPorts(bridgeId).stream()
+                        .map(port -> port.annotations().value(AnnotationKeys.PORT_NAME))
+                        .filter(Objects::nonNull)
+                        .collect(Collectors.toSet()));
+            }
+        });
+        return new NodeReconciler.ActualState(bridges.keySet(), bridgePorts);
+    }
+
+    /**
+     * Publishes a change made by an operation of this application.
+     *
+     * @param type the type of change
+     * @param ovsdbAddress IP Address of the ovsdb node
+     * @param bridgeName the bridge name
+     * @param portName the port name, null for the changes of a bridge
+     */
+    private void publishOperation(ChangeEvent.Type type, IpAddress ovsdbAddress, String bridgeName,
+                                  String portName) {
+        changeFeed.publish(new ChangeEvent(type, ChangeEvent.Source.OPERATION,
+                                           new OvsdbNode(ovsdbAddress, OVSPORT).ovsdbId(), bridgeName, portName));
+    }
+
+    /**
+     * Publishes the change of a bridge seen in a device event. Bridges which are not in the
+     * bridge registry are not published, their node is not known.
+     *
+     * @param type the type of change
+     * @param bridgeId the datapath id of the bridge
+     */
+    private void publishBridge(ChangeEvent.Type type, DeviceId bridgeId) {
+        String bridgeName = bridgeRegistry.bridgeName(bridgeId);
+        if (bridgeName != null) {
+            changeFeed.publish(new ChangeEvent(type, ChangeEvent.Source.DEVICE, bridgeRegistry.ovsdbId(bridgeId),
+                                               bridgeName, null));
+        }
+    }
+
+    /**
+     * Publishes the change of a port seen in a device event. The VXLAN ports of the desired
+     * topology are published as tunnels, going up and down with the port.
+     *
+     * @param event the port event
+     */
+    private void publishPort(DeviceEvent event) {
+        DeviceId bridgeId = event.subject().id();
+        DeviceId ovsdbId = bridgeRegistry.ovsdbId(bridgeId);
+        String bridgeName = bridgeRegistry.bridgeName(bridgeId);
+        String portName = event.port() == null ? null : event.port().annotations().value(AnnotationKeys.PORT_NAME);
+        if (ovsdbId == null || bridgeName == null || portName == null) {
+            return;
+        }
+        PortSpec spec = desiredState.topology(ovsdbId).ports(bridgeName).get(portName);
+        boolean tunnel = spec != null && spec.type() == PortSpec.Type.VXLAN;
+        ChangeEvent.Type type;
+        switch (event.type()) {
+            case PORT_ADDED:
+                type = !tunnel ? ChangeEvent.Type.PORT_ADDED :
+                        event.port().isEnabled() ? ChangeEvent.Type.TUNNEL_UP : null;
+                break;
+            case PORT_REMOVED:
+                type = tunnel ? ChangeEvent.Type.TUNNEL_DOWN : ChangeEvent.Type.PORT_REMOVED;
+                break;
+            case PORT_UPDATED:
+                type = !tunnel ? null :
+                        event.port().isEnabled() ? ChangeEvent.Type.TUNNEL_UP : ChangeEvent.Type.TUNNEL_DOWN;
+                break;
+            default:
+                type = null;
+                break;
+        }
+        if (type != null) {
+            changeFeed.publish(new ChangeEvent(type, ChangeEvent.Source.DEVICE, ovsdbId, bridgeName, portName));
+        }
+    }
+
+    /**
+     * Reads the bridges, ports and tunnels of an ovsdb node for the read API. The tunnels are
+     * the VXLAN ports of the desired topology which exist in the node, since the port names
+     * alone do not tell the remote end and the key of a tunnel.
+     *
+     * @param ovsdbId the device id of the ovsdb node
+     * @return the snapshot of the node, without version
+     * @throws OvsdbDeviceException if the node is not available
+     */
+    private NodeSnapshot readSnapshot(DeviceId ovsdbId) throws OvsdbDeviceException {
+        Device device = deviceService.getDevice(ovsdbId);
+        if (device == null || !deviceService.isAvailable(ovsdbId) || !device.is(BridgeConfig.class)) {
+            throw new OvsdbDeviceException("The ovsdb node is not available");
+        }
+        BridgeConfig bridgeConfig = device.as(BridgeConfig.class);
+        Map<String, DeviceId> bridges = Maps.newHashMap();
+        Map<String, Set<String>> bridgePorts = Maps.newHashMap();
+        bridgeConfig.getBridges().forEach(bridge -> bridge.deviceId().ifPresent(bridgeId -> {
+            bridges.put(bridge.name(), bridgeId);
+            if (deviceService.getDevice(bridgeId) != null) {
+                bridgePorts.put(bridge.name(), deviceService.getPorts(bridgeId).stream()
+                        .map(port -> port.annotations().value(AnnotationKeys.PORT_NAME))
+                        .filter(Objects::nonNull)
+                        .collect(Collectors.toSet()));
+            }
+        }));
+        Set<String> ports = portNames(bridgeConfig);
+        NodeTopology topology = desiredState.topology(ovsdbId);
+        Map<String, List<PortSpec>> tunnels = Maps.newHashMap();
+        bridges.keySet().forEach(bridgeName -> tunnels.put(bridgeName, topology.ports(bridgeName).values().stream()
+                .filter(port -> port.type() == PortSpec.Type.VXLAN && ports.contains(port.name()))
+                .sorted(Comparator.comparing(PortSpec::name))
+                .collect(Collectors.toList())));
+        return new NodeSnapshot(ovsdbId, bridges, bridgePorts, tunnels);
+    }
+
+    /**
+     * Reads the names of all the ports of an ovsdb node.
+     *
+     * @param bridgeConfig the bridge behaviour of the ovsdb node
+     * @return the port names
+     */
+    private static Set<String> portNames(BridgeConfig bridgeConfig) {
+        return bridgeConfig.getPorts().stream()
+                .map(port -> port.annotations().value(AnnotationKeys.PORT_NAME))
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * Reads the names of all the ports of an ovsdb node, for the mesh provisioning.
+     *
+     * @param ovsdbAddress IP Address of the ovsdb node
+     * @return the port names, empty if the node is not available
+     */
+    private Set<String> portNames(IpAddress ovsdbAddress) {
+        DeviceId ovsdbId = new OvsdbNode(ovsdbAddress, OVSPORT).ovsdbId();
+        Device device = deviceService.getDevice(ovsdbId);
+        if (device == null || !deviceService.isAvailable(ovsdbId) || !device.is(BridgeConfig.class)) {
+            return ImmutableSet.of();
+        }
+        try {
+            return portNames(device.as(BridgeConfig.class));
+        } catch (ItemNotFoundException e) {
+            log.warn("Failed to read the ports of {}", ovsdbId);
+            return ImmutableSet.of();
+        }
+    }
+
+    /**
+     * Gets an available datapath id for the new bridge. The allocator gives ids which are
+     * unique in the cluster, the device check only skips the ids taken by bridges which were
+     * not created through the allocator.
      *
-     * @param datapathId the integer used to generate ids
      * @return the datapath id
      */
-    private DeviceId getNextUniqueDatapathId(AtomicLong datapathId) {
+    private DeviceId getNextUniqueDatapathId() {
         DeviceId dpid;
         do {
-            String stringId = String.format("of:%16X", datapathId.getAndIncrement()).replace(' ', '0');
-            log.info("This is a possible id: {}", stringId);
+            String stringId = String.format("of:%016X", datapathIdAllocator.allocate());
+            log.debug("This is a possible id: {}", stringId);
             dpid = DeviceId.deviceId(stringId);
 
         } while (deviceService.getDevice(dpid) != null);
         return dpid;
     }
 
+    /**
+     * Gives back the datapath id of a deleted bridge to the allocator.
+     *
+     * @param dpid the device id of the bridge
+     */
+    private void releaseDatapathId(DeviceId dpid) {
+        try {
+            datapathIdAllocator.release(Long.parseUnsignedLong(dpid.uri().getSchemeSpecificPart(), 16));
+        } catch (NumberFormatException e) {
+            log.debug("The datapath id {} was not given by the allocator", dpid);
+        }
+    }
+
+    /**
+     * Builds the controllers of the bridges from the members of the cluster.
+     *
+     * @return the controllers, sorted so that equal memberships give equal lists
+     */
+    private List<ControllerInfo> buildControllers() {
+        List<ControllerInfo> targets = clusterService.getNodes().stream()
+                .map(node -> new ControllerInfo(node.ip(), OFPORT, "tcp"))
+                .sorted((a, b) -> a.ip().compareTo(b.ip()))
+                .collect(Collectors.toList());
+        targets.forEach(info -> log.info("controller {}:{} added", info.ip().toString(), info.port()));
+        return ImmutableList.copyOf(targets);
+    }
+
+    /**
+     * Rebuilds the controllers after a membership change and schedules their push to the
+     * existing bridges.
+     */
+    private void updateControllers() {
+        List<ControllerInfo> targets = buildControllers();
+        if (targets.equals(controllers)) {
+            return;
+        }
+        controllers = targets;
+        if (controllerPushPending.compareAndSet(false, true)) {
+            controllerExecutor.schedule(this::pushControllers, CONTROLLER_PUSH_DELAY, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Sets the current controllers in the bridges mastered by this instance, at a limited rate.
+     * It stops when the component is deactivated, and the push is scheduled again when a
+     * permit of the rate limiter cannot be had in time.
+     */
+    private void pushControllers() {
+        controllerPushPending.set(false);
+        List<ControllerInfo> targets = controllers;
+        for (DeviceId bridgeId : bridgeRegistry.bridgeIds()) {
+            if (!mastershipService.isLocalMaster(bridgeId)) {
+                continue;
+            }
+            // interrupted by the shutdown of the executor on deactivation
+            if (Thread.currentThread().isInterrupted()) {
+                log.info("Push of the controllers {} stopped", targets);
+                return;
+            }
+            if (!controllerPushLimiter.tryAcquire(CONTROLLER_PUSH_WAIT, TimeUnit.SECONDS)) {
+                if (controllerPushPending.compareAndSet(false, true)) {
+                    controllerExecutor.schedule(this::pushControllers, CONTROLLER_PUSH_DELAY, TimeUnit.SECONDS);
+                }
+                return;
+            }
+            try {
+                DriverHandler h = driverService.createHandler(bridgeId);
+                h.behaviour(ControllerConfig.class).setControllers(targets);
+            } catch (RuntimeException e) {
+                log.warn("Failed to update the controllers of bridge {}", bridgeId, e);
+            }
+        }
+        log.info("Controllers {} pushed to the bridges", targets);
+    }
+
+    /**
+     * Body of an operation of the service, it records its phases in the given sample.
+     */
+    private interface MeasuredOperation {
+        void run(Sample sample) throws Exception;
+    }
+
+    private class InternalClusterListener implements ClusterEventListener {
+
+        @Override
+        public void event(ClusterEvent event) {
+            switch (event.type()) {
+                case INSTANCE_ADDED:
+                case INSTANCE_REMOVED:
+                    controllerExecutor.execute(AppComponent.this::updateControllers);
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    private class InternalIntentListener implements IntentListener {
+
+        @Override
+        public void event(IntentEvent event) {
+            intentTracker.update(event);
+            if (event.type() == IntentEvent.Type.WITHDRAWN && purgeOnWithdraw.remove(event.subject().key())) {
+                intentExecutor.execute(() -> intentService.purge(event.subject()));
+            }
+        }
+    }
+
+    private class InternalTopologyListener implements TopologyListener {
+
+        @Override
+        public void event(TopologyEvent event) {
+            pathCache.topologyChanged(event.subject(), event.reasons());
+        }
+    }
+
+    private class InternalDeviceListener implements DeviceListener {
+
+        @Override
+        public void event(DeviceEvent event) {
+            Device device = event.subject();
+            if (device.type() == Device.Type.CONTROLLER) {
+                switch (event.type()) {
+                    case DEVICE_ADDED:
+                    case DEVICE_UPDATED:
+                    case DEVICE_AVAILABILITY_CHANGED:
+                        eventExecutor.execute(() -> refreshBridges(device));
+                        snapshots.invalidate(device.id());
+                        if (event.type() != DeviceEvent.Type.DEVICE_UPDATED) {
+                            boolean available = deviceService.isAvailable(device.id());
+                            changeFeed.publish(new ChangeEvent(available ? ChangeEvent.Type.NODE_CONNECTED :
+                                                                       ChangeEvent.Type.NODE_DISCONNECTED,
+                                                               ChangeEvent.Source.DEVICE, device.id(), null, null));
+                        }
+                        break;
+                    case DEVICE_REMOVED:
+                        bridgeRegistry.removeNode(device.id());
+                        snapshots.remove(device.id());
+                        changeFeed.publish(new ChangeEvent(ChangeEvent.Type.NODE_DISCONNECTED,
+                                                           ChangeEvent.Source.DEVICE, device.id(), null, null));
+                        break;
+                    default:
+                        break;
+                }
+            } else if (device.type() == Device.Type.SWITCH) {
+                // the bridge or its ports changed, so the snapshot of its node is stale
+                DeviceId ovsdbId = bridgeRegistry.ovsdbId(device.id());
+                if (ovsdbId != null) {
+                    snapshots.invalidate(ovsdbId, event.type());
+                }
+                switch (event.type()) {
+                    case DEVICE_ADDED:
+                        eventExecutor.execute(() -> {
+                            indexBridge(device.id());
+                            publishBridge(ChangeEvent.Type.BRIDGE_ADDED, device.id());
+                        });
+                        break;
+                    case DEVICE_REMOVED:
+                        publishBridge(ChangeEvent.Type.BRIDGE_REMOVED, device.id());
+                        bridgeRegistry.remove(device.id());
+                        break;
+                    case PORT_ADDED:
+                    case PORT_REMOVED:
+                    case PORT_UPDATED:
+                        // the desired topology is read from the cluster, off the event thread
+                        eventExecutor.execute(() -> publishPort(event));
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+    }
 }
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2020-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everis.app;
+
+import org.onlab.packet.IpAddress;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Single bridge, port or tunnel operation of a batch.
+ */
+public final class BridgeOperation {
+
+    /**
+     * Types of operation, named like the REST API that makes the same change.
+     */
+    public enum Type {
+        CREATE_BRIDGE("createBridge"),
+        DELETE_BRIDGE("deleteBridge"),
+        ADD_PORT("addPort"),
+        DELETE_PORT("deletePort"),
+        CREATE_PATCH_PEER_PORT("createPatchPeerPort"),
+        CREATE_VXLAN_TUNNEL("createVxlanTunnel");
+
+        private final String apiName;
+
+        Type(String apiName) {
+            this.apiName = apiName;
+        }
+
+        /**
+         * Returns the name of the operation in the REST API.
+         *
+         * @return the operation name
+         */
+        public String apiName() {
+            return apiName;
+        }
+
+        /**
+         * Returns the type of operation with the given REST API name.
+         *
+         * @param apiName the operation name
+         * @return the type of operation
+         * @throws IllegalArgumentException if there is not any operation with this name
+         */
+        public static Type fromApiName(String apiName) {
+            for (Type type : values()) {
+                if (type.apiName.equals(apiName)) {
+                    return type;
+                }
+            }
+            throw new IllegalArgumentException("Unknown operation " + apiName);
+        }
+    }
+
+    private final Type type;
+    private final IpAddress ovsdbAddress;
+    private final String bridgeName;
+    private final String portName;
+    private final String patchPeer;
+    private final IpAddress remoteIp;
+    private final String key;
+
+    private BridgeOperation(Type type, IpAddress ovsdbAddress, String bridgeName, String portName,
+                            String patchPeer, IpAddress remoteIp, String key) {
+        this.type = checkNotNull(type);
+        this.ovsdbAddress = checkNotNull(ovsdbAddress);
+        this.bridgeName = checkNotNull(bridgeName);
+        this.portName = portName;
+        this.patchPeer = patchPeer;
+        this.remoteIp = remoteIp;
+        this.key = key;
+    }
+
+    public static BridgeOperation createBridge(IpAddress ovsdbAddress, String bridgeName) {
+        return new BridgeOperation(Type.CREATE_BRIDGE, ovsdbAddress, bridgeName, null, null, null, null);
+    }
+
+    public static BridgeOperation deleteBridge(IpAddress ovsdbAddress, String bridgeName) {
+        return new BridgeOperation(Type.DELETE_BRIDGE, ovsdbAddress, bridgeName, null, null, null, null);
+    }
+
+    public static BridgeOperation addPort(IpAddress ovsdbAddress, String bridgeName, String portName) {
+        return new BridgeOperation(Type.ADD_PORT, ovsdbAddress, bridgeName,
+                checkNotNull(portName), null, null, null);
+    }
+
+    public static BridgeOperation deletePort(IpAddress ovsdbAddress, String bridgeName, String portName) {
+        return new BridgeOperation(Type.DELETE_PORT, ovsdbAddress, bridgeName,
+                checkNotNull(portName), null, null, null);
+    }
+
+    public static BridgeOperation createPatchPeerPort(IpAddress ovsdbAddress, String bridgeName,
+                                                      String portName, String patchPeer) {
+        return new BridgeOperation(Type.CREATE_PATCH_PEER_PORT, ovsdbAddress, bridgeName,
+                checkNotNull(portName), checkNotNull(patchPeer), null, null);
+    }
+
+    public static BridgeOperation createVxlanTunnel(IpAddress ovsdbAddress, String bridgeName,
+                                                    String portName, IpAddress remoteIp, String key) {
+        return new BridgeOperation(Type.CREATE_VXLAN_TUNNEL, ovsdbAddress, bridgeName,
+                checkNotNull(portName), null, checkNotNull(remoteIp), checkNotNull(key));
+    }
+
+    public Type type() {
+        return type;
+    }
+
+    public IpAddress ovsdbAddress() {
+        return ovsdbAddress;
+    }
+
+    public String bridgeName() {
+        return bridgeName;
+    }
+
+    public String portName() {
+        return portName;
+    }
+
+    public String patchPeer() {
+        return patchPeer;
+    }
+
+    public IpAddress remoteIp() {
+        return remoteIp;
+    }
+
+    public String key() {
+        return key;
+    }
+
+    /**
+     * Makes the operation through the given service.
+     *
+     * @param service the bridge service
+     * @throws Exception the same errors of the service method of the operation
+     */
+    public void apply(OvsdbBridgeService service) throws Exception {
+        switch (type) {
+            case CREATE_BRIDGE:
+                service.createBridge(ovsdbAddress, bridgeName);
+                break;
+            case DELETE_BRIDGE:
+                service.deleteBridge(ovsdbAddress, bridgeName);
+                break;
+            case ADD_PORT:
+                service.addPort(ovsdbAddress, bridgeName, portName);
+                break;
+            case DELETE_PORT:
+                service.removePort(ovsdbAddress, bridgeName, portName);
+                break;
+            case CREATE_PATCH_PEER_PORT:
+                service.createPatchPeerPort(ovsdbAddress, bridgeName, portName, patchPeer);
+                break;
+            case CREATE_VXLAN_TUNNEL:
+                service.createVxlanTunnel(ovsdbAddress, bridgeName, portName, remoteIp, key);
+                break;
+            default:
+                throw new IllegalStateException("Unsupported operation " + type);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return toStringHelper(this)
+                .add("type", type)
+                .add("ovsdbAddress", ovsdbAddress)
+                .add("bridgeName", bridgeName)
+                .add("portName", portName)
+                .add("patchPeer", patchPeer)
+                .add("remoteIp", remoteIp)
+                .add("key", key)
+                .toString();
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2020-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everis.app;
+
+import org.everis.app.OvsdbRestException.BridgeAlreadyExistsException;
+import org.everis.app.OvsdbRestException.BridgeNotFoundException;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Outcome of a bridge, port or tunnel operation of a batch.
+ */
+public final class BridgeOperationResult {
+
+    private final BridgeOperation operation;
+    private final String error;
+
+    private BridgeOperationResult(BridgeOperation operation, String error) {
+        this.operation = checkNotNull(operation);
+        this.error = error;
+    }
+
+    /**
+     * Returns the result of an operation which was made without errors.
+     *
+     * @param operation the operation
+     * @return the result
+     */
+    public static BridgeOperationResult success(BridgeOperation operation) {
+        return new BridgeOperationResult(operation, null);
+    }
+
+    /**
+     * Returns the result of an operation which failed, with the same error messages
+     * given by the single operation REST APIs.
+     *
+     * @param operation the operation
+     * @param cause the error thrown by the operation
+     * @return the result
+     */
+    public static BridgeOperationResult failure(BridgeOperation operation, Exception cause) {
+        String error;
+        if (cause instanceof BridgeAlreadyExistsException) {
+            error = "The Bridge Already Exists, please use another name";
+        } else if (cause instanceof BridgeNotFoundException) {
+            error = "The bridge was not found";
+        } else if (cause.getMessage() != null) {
+            error = cause.getMessage();
+        } else {
+            error = cause.getClass().getSimpleName();
+        }
+        return new BridgeOperationResult(operation, error);
+    }
+
+    public BridgeOperation operation() {
+        return operation;
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    /**
+     * Returns the description of the error.
+     *
+     * @return the error message, null if the operation was successful
+     */
+    public String error() {
+        return error;
+    }
+
+    @Override
+    public String toString() {
+        return toStringHelper(this)
+                .add("operation", operation)
+                .add("error", error)
+                .toString();
+    }
+}
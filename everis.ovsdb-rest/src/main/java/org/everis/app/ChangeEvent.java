@@ -0,0 +1,133 @@
+/*
+ * Copyright 2020-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everis.app;
+
+import org.onosproject.net.DeviceId;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Change of a bridge, port, tunnel or ovsdb node pushed to the subscribers of the change feed.
+ */
+public final class ChangeEvent {
+
+    /**
+     * Types of change.
+     */
+    public enum Type {
+        BRIDGE_ADDED,
+        BRIDGE_REMOVED,
+        PORT_ADDED,
+        PORT_REMOVED,
+        TUNNEL_UP,
+        TUNNEL_DOWN,
+        NODE_CONNECTED,
+        NODE_DISCONNECTED
+    }
+
+    /**
+     * Origins of a change.
+     */
+    public enum Source {
+        /** Seen in a device event, whoever made the change. */
+        DEVICE,
+        /** Made by an operation of this application, before the device reports it. */
+        OPERATION
+    }
+
+    private final long id;
+    private final Type type;
+    private final Source source;
+    private final DeviceId ovsdbId;
+    private final String bridgeName;
+    private final String portName;
+    private final long timeMillis;
+
+    /**
+     * Creates a change without id, the id is given when it is published.
+     *
+     * @param type the type of change
+     * @param source where the change was seen
+     * @param ovsdbId the device id of the ovsdb node, null if it is not known
+     * @param bridgeName the bridge name, null for the changes of a node
+     * @param portName the port name, null for the changes of a node or a bridge
+     */
+    public ChangeEvent(Type type, Source source, DeviceId ovsdbId, String bridgeName, String portName) {
+        this(0, type, source, ovsdbId, bridgeName, portName, System.currentTimeMillis());
+    }
+
+    private ChangeEvent(long id, Type type, Source source, DeviceId ovsdbId, String bridgeName, String portName,
+                        long timeMillis) {
+        this.id = id;
+        this.type = checkNotNull(type);
+        this.source = checkNotNull(source);
+        this.ovsdbId = ovsdbId;
+        this.bridgeName = bridgeName;
+        this.portName = portName;
+        this.timeMillis = timeMillis;
+    }
+
+    /**
+     * Returns a copy of the change with an id.
+     *
+     * @param newId the id, increasing in the order the changes were published
+     * @return the change
+     */
+    public ChangeEvent withId(long newId) {
+        return new ChangeEvent(newId, type, source, ovsdbId, bridgeName, portName, timeMillis);
+    }
+
+    public long id() {
+        return id;
+    }
+
+    public Type type() {
+        return type;
+    }
+
+    public Source source() {
+        return source;
+    }
+
+    public DeviceId ovsdbId() {
+        return ovsdbId;
+    }
+
+    public String bridgeName() {
+        return bridgeName;
+    }
+
+    public String portName() {
+        return portName;
+    }
+
+    public long timeMillis() {
+        return timeMillis;
+    }
+
+    @Override
+    public String toString() {
+        return toStringHelper(this)
+                .add("id", id)
+                .add("type", type)
+                .add("source", source)
+                .add("ovsdbId", ovsdbId)
+                .add("bridgeName", bridgeName)
+                .add("portName", portName)
+                .toString();
+    }
+}
@@ -0,0 +1,272 @@
+/*
+ * Copyright 2020-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everis.app;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pushes the changes of the bridges, ports, tunnels and ovsdb nodes to its subscribers.
+ * Every subscriber has a bounded buffer: when it is full the change is dropped for that
+ * subscriber and counted, so a slow subscriber never slows down the publishers nor the
+ * other subscribers.
+ * The buffers are delivered to the listeners of the subscribers by the writer executor, one
+ * delivery at a time per subscriber, so no thread waits for the changes of a subscriber.
+ * A delivery which does not end within the write timeout, such as a write to a client which
+ * stopped reading, closes its subscription, so a stuck subscriber holds a writer only for a
+ * bounded time and never delays the others. The timer only runs the keep-alives and the
+ * timeouts, never a listener, so it is never held by a subscriber.
+ * A subscriber which got nothing for a keep-alive period is told so, which also finds out
+ * when it went away.
+ */
+public class ChangeFeed {
+
+    /**
+     * Receives the changes of a subscription. The changes and the keep-alives of a subscription
+     * are delivered one at a time.
+     */
+    public interface Listener {
+        /**
+         * Receives the changes buffered since the previous delivery.
+         *
+         * @param events the changes, in the order they were published
+         * @param dropped the changes dropped for the subscriber until now
+         * @throws IOException if the subscriber went away, the subscription is then closed
+         */
+        void changes(List<ChangeEvent> events, long dropped) throws IOException;
+
+        /**
+         * Is told that there were no changes for a keep-alive period.
+         *
+         * @throws IOException if the subscriber went away, the subscription is then closed
+         */
+        void idle() throws IOException;
+
+        /**
+         * Is told that the subscription ended, no more calls follow. It may be called while
+         * a delivery is stuck, so it must not wait for it.
+         */
+        void closed();
+    }
+
+    private final int maxSubscribers;
+    private final int bufferSize;
+    private final ScheduledExecutorService timer;
+    private final Executor writers;
+    private final long keepAliveNanos;
+    private final long writeTimeoutNanos;
+    private final AtomicLong nextId = new AtomicLong();
+    private final Set<Subscription> subscriptions = Sets.newConcurrentHashSet();
+    private final ScheduledFuture<?> keepAliveTask;
+
+    /**
+     * Creates a feed.
+     *
+     * @param maxSubscribers the most subscribers at the same time
+     * @param bufferSize the changes kept for a subscriber until they are delivered
+     * @param timer runs the keep-alives and the write timeouts
+     * @param writers delivers the changes and the keep-alives to the listeners, at most one
+     *                delivery at a time per subscriber
+     * @param keepAlive the longest time a subscriber goes without hearing from the feed
+     * @param writeTimeout the longest time a delivery may take before its subscription is closed
+     * @param unit the unit of the keep-alive period and of the write timeout
+     */
+    public ChangeFeed(int maxSubscribers, int bufferSize, ScheduledExecutorService timer, Executor writers,
+                      long keepAlive, long writeTimeout, TimeUnit unit) {
+        this.maxSubscribers = maxSubscribers;
+        this.bufferSize = bufferSize;
+        this.timer = timer;
+        this.writers = writers;
+        this.keepAliveNanos = unit.toNanos(keepAlive);
+        this.writeTimeoutNanos = unit.toNanos(writeTimeout);
+        // checked twice per period, so an idle subscriber hears from the feed in time
+        long check = Math.max(1, keepAliveNanos / 2);
+        this.keepAliveTask = timer.scheduleWithFixedDelay(this::keepAlive, check, check, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Subscribes to the changes published from now on.
+     *
+     * @param listener receives the changes of the subscription
+     * @return the subscription, null if there are too many subscribers
+     */
+    public synchronized Subscription subscribe(Listener listener) {
+        if (subscriptions.size() >= maxSubscribers) {
+            return null;
+        }
+        Subscription subscription = new Subscription(bufferSize, listener);
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    /**
+     * Gives a change to every subscriber without waiting for any of them.
+     *
+     * @param event the change
+     */
+    public void publish(ChangeEvent event) {
+        if (subscriptions.isEmpty()) {
+            return;
+        }
+        ChangeEvent published = event.withId(nextId.incrementAndGet());
+        subscriptions.forEach(subscription -> subscription.offer(published));
+    }
+
+    /**
+     * Ends all the subscriptions.
+     */
+    public void close() {
+        keepAliveTask.cancel(false);
+        subscriptions.forEach(Subscription::close);
+    }
+
+    private void keepAlive() {
+        long now = System.nanoTime();
+        subscriptions.forEach(subscription -> subscription.keepAlive(now));
+    }
+
+    /**
+     * Changes buffered for a single subscriber.
+     */
+    public final class Subscription {
+        private final BlockingQueue<ChangeEvent> buffer;
+        private final Listener listener;
+        private final AtomicLong dropped = new AtomicLong();
+        // set while a delivery is queued or running
+        private final AtomicBoolean delivering = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        // the thread of the running delivery, interrupted when the delivery times out
+        private Thread writer;
+        private volatile boolean keepAliveDue;
+        private volatile long lastDelivery = System.nanoTime();
+
+        private Subscription(int bufferSize, Listener listener) {
+            this.buffer = new ArrayBlockingQueue<>(bufferSize);
+            this.listener = listener;
+        }
+
+        private void offer(ChangeEvent event) {
+            if (!buffer.offer(event)) {
+                dropped.incrementAndGet();
+            }
+            schedule();
+        }
+
+        private void keepAlive(long now) {
+            if (now - lastDelivery >= keepAliveNanos) {
+                keepAliveDue = true;
+                schedule();
+            }
+        }
+
+        private void schedule() {
+            if (closed.get() || !delivering.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                writers.execute(this::deliver);
+            } catch (RejectedExecutionException e) {
+                delivering.set(false);
+                close();
+            }
+        }
+
+        private void deliver() {
+            synchronized (this) {
+                writer = Thread.currentThread();
+            }
+            ScheduledFuture<?> timeout = null;
+            try {
+                timeout = timer.schedule(this::expire, writeTimeoutNanos, TimeUnit.NANOSECONDS);
+                List<ChangeEvent> events = Lists.newArrayList();
+                buffer.drainTo(events);
+                if (!closed.get() && !events.isEmpty()) {
+                    listener.changes(events, dropped.get());
+                    lastDelivery = System.nanoTime();
+                    keepAliveDue = false;
+                } else if (!closed.get() && keepAliveDue) {
+                    keepAliveDue = false;
+                    listener.idle();
+                    lastDelivery = System.nanoTime();
+                }
+            } catch (IOException | RuntimeException e) {
+                close();
+            } finally {
+                if (timeout != null) {
+                    timeout.cancel(false);
+                }
+                synchronized (this) {
+                    writer = null;
+                    // the interrupt of a delivery which timed out must not reach the next task of the thread
+                    Thread.interrupted();
+                }
+                delivering.set(false);
+            }
+            // changes published during the delivery
+            if (!buffer.isEmpty()) {
+                schedule();
+            }
+        }
+
+        private void expire() {
+            synchronized (this) {
+                // a write blocked in the stream may ignore it, it is then released by the close
+                if (writer != null) {
+                    writer.interrupt();
+                }
+            }
+            close();
+        }
+
+        /**
+         * Returns the number of changes dropped because the buffer was full.
+         *
+         * @return the changes missed by the subscriber since it subscribed
+         */
+        public long dropped() {
+            return dropped.get();
+        }
+
+        public boolean isClosed() {
+            return closed.get();
+        }
+
+        /**
+         * Ends the subscription and releases its buffer.
+         */
+        public void close() {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+            subscriptions.remove(this);
+            buffer.clear();
+            listener.closed();
+        }
+    }
+}
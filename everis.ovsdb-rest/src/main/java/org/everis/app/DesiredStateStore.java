@@ -0,0 +1,105 @@
+/*
+ * Copyright 2020-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everis.app;
+
+import com.google.common.collect.ImmutableSet;
+import org.onosproject.net.DeviceId;
+import org.onosproject.ovsdbrest.common.PortSpec;
+import org.onosproject.store.serializers.KryoNamespaces;
+import org.onosproject.store.service.ConsistentMap;
+import org.onosproject.store.service.Serializer;
+import org.onosproject.store.service.StorageService;
+import org.onosproject.store.service.Versioned;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+/**
+ * Desired bridges, ports and tunnels of every ovsdb node, kept in a consistent map of the
+ * cluster. It holds what the clients asked for, so it survives the restarts of the instances
+ * and of the switches.
+ */
+public class DesiredStateStore {
+
+    // {ovsdbId: topology}
+    private final ConsistentMap<DeviceId, NodeTopology> store;
+
+    /**
+     * Creates the store.
+     *
+     * @param storageService the storage service
+     * @param name the name of the consistent map
+     */
+    public DesiredStateStore(StorageService storageService, String name) {
+        store = storageService.<DeviceId, NodeTopology>consistentMapBuilder()
+                .withName(name)
+                .withSerializer(Serializer.using(KryoNamespaces.API, NodeTopology.class,
+                                                 PortSpec.class, PortSpec.Type.class))
+                .build();
+    }
+
+    /**
+     * Returns the desired topology of an ovsdb node.
+     *
+     * @param ovsdbId the device id of the ovsdb node
+     * @return the topology, empty if nothing was asked for the node
+     */
+    public NodeTopology topology(DeviceId ovsdbId) {
+        Versioned<NodeTopology> topology = store.get(ovsdbId);
+        return topology == null ? NodeTopology.EMPTY : topology.value();
+    }
+
+    /**
+     * Returns the ovsdb nodes which have a desired topology.
+     *
+     * @return the device ids of the ovsdb nodes
+     */
+    public Set<DeviceId> nodes() {
+        return ImmutableSet.copyOf(store.keySet());
+    }
+
+    /**
+     * Replaces the desired topology of an ovsdb node.
+     *
+     * @param ovsdbId the device id of the ovsdb node
+     * @param topology the topology, the node is removed when it is empty
+     * @return the previous topology, empty if nothing was asked for the node
+     */
+    public NodeTopology replace(DeviceId ovsdbId, NodeTopology topology) {
+        Versioned<NodeTopology> previous = topology.isEmpty()
+                ? store.remove(ovsdbId) : store.put(ovsdbId, topology);
+        return previous == null ? NodeTopology.EMPTY : previous.value();
+    }
+
+    /**
+     * Changes the desired topology of an ovsdb node, atomically in the cluster.
+     *
+     * @param ovsdbId the device id of the ovsdb node
+     * @param change gives the new topology from the current one
+     * @return the topology which was changed, empty if nothing was asked for the node
+     */
+    public NodeTopology update(DeviceId ovsdbId, UnaryOperator<NodeTopology> change) {
+        // the last call of the function is the one which was applied
+        AtomicReference<NodeTopology> previous = new AtomicReference<>(NodeTopology.EMPTY);
+        store.compute(ovsdbId, (id, current) -> {
+            previous.set(current == null ? NodeTopology.EMPTY : current);
+            NodeTopology next = change.apply(previous.get());
+            return next.isEmpty() ? null : next;
+        });
+        return previous.get();
+    }
+}
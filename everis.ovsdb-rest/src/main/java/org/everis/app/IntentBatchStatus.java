@@ -0,0 +1,145 @@
+/*
+ * Copyright 2020-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everis.app;
+
+import com.google.common.collect.ImmutableList;
+import org.onosproject.net.intent.IntentState;
+import org.onosproject.net.intent.Key;
+
+import java.util.List;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * State of the intents of a bulk path intent submission.
+ */
+public final class IntentBatchStatus {
+
+    /**
+     * State of a single intent of the batch.
+     */
+    public static final class IntentStatus {
+        private final PathIntentRequest request;
+        private final Key key;
+        private final IntentState state;
+        private final String error;
+
+        IntentStatus(PathIntentRequest request, Key key, IntentState state, String error) {
+            this.request = checkNotNull(request);
+            this.key = key;
+            this.state = state;
+            this.error = error;
+        }
+
+        public PathIntentRequest request() {
+            return request;
+        }
+
+        /**
+         * Returns the key of the submitted intent.
+         *
+         * @return the key, null if the intent could not be built
+         */
+        public Key key() {
+            return key;
+        }
+
+        /**
+         * Returns the last known state of the intent.
+         *
+         * @return the state, null if the intent could not be built
+         */
+        public IntentState state() {
+            return state;
+        }
+
+        /**
+         * Returns the reason why the intent could not be built.
+         *
+         * @return the error message, null if the intent was submitted
+         */
+        public String error() {
+            return error;
+        }
+
+        /**
+         * Checks if the intent will not change its state without another request.
+         *
+         * @return true if the intent was not submitted, or it is installed, failed or withdrawn
+         */
+        public boolean isDone() {
+            return state == null || IntentTracker.isFinal(state);
+        }
+
+        @Override
+        public String toString() {
+            return toStringHelper(this)
+                    .add("request", request)
+                    .add("key", key)
+                    .add("state", state)
+                    .add("error", error)
+                    .toString();
+        }
+    }
+
+    private final long id;
+    private final List<IntentStatus> intents;
+
+    IntentBatchStatus(long id, List<IntentStatus> intents) {
+        this.id = id;
+        this.intents = ImmutableList.copyOf(intents);
+    }
+
+    public long id() {
+        return id;
+    }
+
+    /**
+     * Returns the state of the intents, in the same order of the requests.
+     *
+     * @return the state of every intent
+     */
+    public List<IntentStatus> intents() {
+        return intents;
+    }
+
+    /**
+     * Checks if all the intents of the batch are done.
+     *
+     * @return true if none of the intents is still being installed
+     */
+    public boolean isDone() {
+        return intents.stream().allMatch(IntentStatus::isDone);
+    }
+
+    /**
+     * Checks if all the intents of the batch are installed.
+     *
+     * @return true if every intent was submitted and it is installed
+     */
+    public boolean isInstalled() {
+        return intents.stream().allMatch(intent -> intent.state() == IntentState.INSTALLED);
+    }
+
+    @Override
+    public String toString() {
+        return toStringHelper(this)
+                .add("id", id)
+                .add("intents", intents)
+                .toString();
+    }
+}
@@ -0,0 +1,238 @@
+/*
+ * Copyright 2020-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everis.app;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.everis.app.IntentBatchStatus.IntentStatus;
+import org.onosproject.net.intent.IntentEvent;
+import org.onosproject.net.intent.IntentState;
+import org.onosproject.net.intent.Key;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Follows the state of the intents of the bulk path intent submissions, from the intent events.
+ * The batches are forgotten when nobody asked for them for the retention time.
+ */
+public class IntentTracker {
+
+    private static final Set<IntentState> FINAL_STATES =
+            EnumSet.of(IntentState.INSTALLED, IntentState.FAILED, IntentState.WITHDRAWN, IntentState.CORRUPT);
+
+    private final ScheduledExecutorService executor;
+    private final AtomicLong nextId = new AtomicLong();
+    private final Cache<Long, Batch> batches;
+    // {intentKey: [batch]} of the batches which are kept
+    private final Map<Key, Set<Batch>> batchesByKey = Maps.newConcurrentMap();
+
+    /**
+     * Creates a tracker.
+     *
+     * @param executor runs the deadlines of the waits and completes them
+     * @param retention time to keep a batch since it was last asked for
+     * @param unit the unit of the retention time
+     */
+    public IntentTracker(ScheduledExecutorService executor, long retention, TimeUnit unit) {
+        this.executor = executor;
+        this.batches = CacheBuilder.newBuilder()
+                .expireAfterAccess(retention, unit)
+                .removalListener(this::forget)
+                .build();
+    }
+
+    /**
+     * Checks if an intent will not change its state without another request.
+     *
+     * @param state the state of the intent
+     * @return true if the intent is installed, failed or withdrawn
+     */
+    public static boolean isFinal(IntentState state) {
+        return FINAL_STATES.contains(state);
+    }
+
+    /**
+     * Starts to follow the intents of a batch. It must be called before the intents are
+     * submitted, so none of their events is missed.
+     *
+     * @param requests the requests of the batch
+     * @param keys the key of the intent of every request, null if the intent could not be built
+     * @param errors the error of every request which has no intent, null for the others
+     * @return the id of the batch
+     */
+    public long track(List<PathIntentRequest> requests, List<Key> keys, List<String> errors) {
+        checkArgument(requests.size() == keys.size() && keys.size() == errors.size(),
+                      "There must be a key or an error for every request");
+        batches.cleanUp();
+        Batch batch = new Batch(nextId.incrementAndGet(), requests, keys, errors);
+        batches.put(batch.id, batch);
+        batch.states.keySet().forEach(key ->
+                batchesByKey.computeIfAbsent(key, k -> Sets.newConcurrentHashSet()).add(batch));
+        batch.checkDone();
+        return batch.id;
+    }
+
+    /**
+     * Returns the current state of a batch.
+     *
+     * @param id the id of the batch
+     * @return the state, null if the batch is unknown or it was forgotten
+     */
+    public IntentBatchStatus status(long id) {
+        Batch batch = batches.getIfPresent(id);
+        return batch == null ? null : batch.status();
+    }
+
+    /**
+     * Waits until all the intents of a batch are done, or until a deadline.
+     *
+     * @param id the id of the batch
+     * @param timeoutMillis the longest time to wait in milliseconds
+     * @return future completed with the state of the batch when it is done or at the deadline,
+     * null if the batch is unknown or it was forgotten
+     */
+    public CompletableFuture<IntentBatchStatus> await(long id, long timeoutMillis) {
+        Batch batch = batches.getIfPresent(id);
+        if (batch == null) {
+            return null;
+        }
+        CompletableFuture<IntentBatchStatus> result = new CompletableFuture<>();
+        batch.done.thenRunAsync(() -> result.complete(batch.status()), executor);
+        if (!result.isDone()) {
+            ScheduledFuture<?> deadline = executor.schedule(() -> result.complete(batch.status()),
+                                                            Math.max(timeoutMillis, 0), TimeUnit.MILLISECONDS);
+            result.whenComplete((status, error) -> deadline.cancel(false));
+        }
+        return result;
+    }
+
+    /**
+     * Records the new state of an intent given by an intent event.
+     *
+     * @param event the intent event
+     */
+    public void update(IntentEvent event) {
+        IntentState state = state(event.type());
+        if (state != null) {
+            update(event.subject().key(), state);
+        }
+    }
+
+    /**
+     * Records the new state of an intent, such as an intent which was not submitted again
+     * because it is already installed.
+     *
+     * @param key the intent key
+     * @param state the state of the intent
+     */
+    public void update(Key key, IntentState state) {
+        Set<Batch> keyBatches = batchesByKey.get(key);
+        if (keyBatches != null) {
+            keyBatches.forEach(batch -> batch.update(key, state));
+        }
+    }
+
+    /**
+     * Forgets all the batches.
+     */
+    public void clear() {
+        batches.invalidateAll();
+        batches.cleanUp();
+    }
+
+    private void forget(RemovalNotification<Long, Batch> notification) {
+        Batch batch = notification.getValue();
+        batch.states.keySet().forEach(key -> batchesByKey.computeIfPresent(key, (k, keyBatches) -> {
+            keyBatches.remove(batch);
+            return keyBatches.isEmpty() ? null : keyBatches;
+        }));
+    }
+
+    private static IntentState state(IntentEvent.Type type) {
+        switch (type) {
+            case INSTALL_REQ:
+                return IntentState.INSTALL_REQ;
+            case INSTALLED:
+                return IntentState.INSTALLED;
+            case FAILED:
+                return IntentState.FAILED;
+            case WITHDRAW_REQ:
+                return IntentState.WITHDRAW_REQ;
+            case WITHDRAWN:
+            case PURGED:
+                return IntentState.WITHDRAWN;
+            case CORRUPT:
+                return IntentState.CORRUPT;
+            default:
+                return null;
+        }
+    }
+
+    private static final class Batch {
+        private final long id;
+        private final List<PathIntentRequest> requests;
+        private final List<Key> keys;
+        private final List<String> errors;
+        // {intentKey: state} of the submitted intents
+        private final Map<Key, IntentState> states = Maps.newConcurrentMap();
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        private Batch(long id, List<PathIntentRequest> requests, List<Key> keys, List<String> errors) {
+            this.id = id;
+            this.requests = ImmutableList.copyOf(requests);
+            // copied as plain lists, they have nulls
+            this.keys = new ArrayList<>(keys);
+            this.errors = new ArrayList<>(errors);
+            keys.stream().filter(key -> key != null).forEach(key -> states.put(key, IntentState.INSTALL_REQ));
+        }
+
+        private void update(Key key, IntentState state) {
+            states.put(key, state);
+            checkDone();
+        }
+
+        private void checkDone() {
+            if (states.values().stream().allMatch(IntentTracker::isFinal)) {
+                done.complete(null);
+            }
+        }
+
+        private IntentBatchStatus status() {
+            ImmutableList.Builder<IntentStatus> intents = ImmutableList.builder();
+            for (int i = 0; i < requests.size(); i++) {
+                Key key = keys.get(i);
+                intents.add(new IntentStatus(requests.get(i), key, key == null ? null : states.get(key),
+                                             errors.get(i)));
+            }
+            return new IntentBatchStatus(id, intents.build());
+        }
+    }
+}
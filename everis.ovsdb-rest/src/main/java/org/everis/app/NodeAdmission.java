@@ -0,0 +1,225 @@
+/*
+ * Copyright 2020-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everis.app;
+
+import com.codahale.metrics.Timer;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import org.everis.app.OvsdbRestException.NodeBusyException;
+import org.onlab.metrics.MetricsComponent;
+import org.onlab.metrics.MetricsFeature;
+import org.onlab.metrics.MetricsService;
+import org.onosproject.net.DeviceId;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Admission control of the operations of every ovsdb node. Only a few operations of a node
+ * run at the same time, the next ones wait in a short queue of the node and the ones which
+ * do not fit in the queue are rejected at once, so a burst against a single node cannot pile
+ * up transactions in its ovsdb-server nor hold the threads used by the other nodes.
+ */
+public class NodeAdmission {
+
+    private static final String FEATURE = "admission";
+    private static final String QUEUE_WAIT = "queueWait";
+
+    private final MetricsService metricsService;
+    private final MetricsComponent component;
+    private final MetricsFeature feature;
+    private final Timer queueWait;
+    private final AtomicLong rejected = new AtomicLong();
+
+    private volatile int concurrency;
+    private volatile int queueLength;
+
+    // {ovsdbId: running and waiting operations}, a node keeps its entry once it was used
+    private final Map<DeviceId, Lane> lanes = Maps.newConcurrentMap();
+
+    /**
+     * Creates the admission control.
+     *
+     * @param concurrency the operations of a node which run at the same time
+     * @param queueLength the operations of a node which wait for their turn
+     * @param metricsService the metrics service
+     * @param componentName the name of the metrics component
+     */
+    public NodeAdmission(int concurrency, int queueLength, MetricsService metricsService, String componentName) {
+        setLimits(concurrency, queueLength);
+        this.metricsService = metricsService;
+        this.component = metricsService.registerComponent(componentName);
+        this.feature = component.registerFeature(FEATURE);
+        this.queueWait = metricsService.createTimer(component, feature, QUEUE_WAIT);
+    }
+
+    /**
+     * Changes the limits. The operations already admitted keep their place, a lower limit
+     * only applies to the next operations.
+     *
+     * @param newConcurrency the operations of a node which run at the same time
+     * @param newQueueLength the operations of a node which wait for their turn
+     */
+    public void setLimits(int newConcurrency, int newQueueLength) {
+        checkArgument(newConcurrency > 0, "The concurrency of a node must be positive");
+        checkArgument(newQueueLength >= 0, "The queue length of a node must not be negative");
+        this.concurrency = newConcurrency;
+        this.queueLength = newQueueLength;
+        // a higher concurrency lets the waiting operations start now
+        lanes.values().forEach(Lane::drain);
+    }
+
+    /**
+     * Runs an operation of a node when its turn comes.
+     *
+     * @param ovsdbId the device id of the ovsdb node
+     * @param operation starts the operation and gives its future
+     * @param <T> the type of the result of the operation
+     * @return future completed with the result of the operation, or with NodeBusyException
+     * when the queue of the node is full
+     */
+    public <T> CompletableFuture<T> submit(DeviceId ovsdbId, Supplier<CompletableFuture<T>> operation) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Lane lane = lanes.computeIfAbsent(ovsdbId, id -> new Lane());
+        Pending pending = new Pending(() -> {
+            CompletableFuture<T> future;
+            try {
+                future = operation.get();
+            } catch (RuntimeException e) {
+                future = new CompletableFuture<>();
+                future.completeExceptionally(e);
+            }
+            future.whenComplete((value, error) -> {
+                lane.release();
+                if (error == null) {
+                    result.complete(value);
+                } else {
+                    result.completeExceptionally(error);
+                }
+            });
+        });
+        if (!lane.admit(pending)) {
+            rejected.incrementAndGet();
+            result.completeExceptionally(new NodeBusyException(retryAfter()));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the counters of the admission control.
+     *
+     * @return the running, queued and rejected operations and the queue wait percentiles
+     */
+    public Map<String, Long> stats() {
+        long running = 0;
+        long queued = 0;
+        for (Lane lane : lanes.values()) {
+            synchronized (lane) {
+                running += lane.running;
+                queued += lane.waiting.size();
+            }
+        }
+        return ImmutableMap.of("running", running,
+                               "queued", queued,
+                               "rejected", rejected.get(),
+                               "queue-wait-p50-us", micros(queueWait.getSnapshot().getMedian()),
+                               "queue-wait-p99-us", micros(queueWait.getSnapshot().get99thPercentile()));
+    }
+
+    /**
+     * Removes the metrics of the admission control.
+     */
+    public void close() {
+        metricsService.removeMetric(component, feature, QUEUE_WAIT);
+    }
+
+    /**
+     * Estimates when a rejected operation may be admitted, from the time the operations wait
+     * in the queues.
+     *
+     * @return the seconds to wait before retrying, at least one
+     */
+    private long retryAfter() {
+        double nanos = queueWait.getSnapshot().get75thPercentile();
+        return Math.max(1, (long) Math.ceil(nanos / TimeUnit.SECONDS.toNanos(1)));
+    }
+
+    private static long micros(double nanos) {
+        return (long) (nanos / TimeUnit.MICROSECONDS.toNanos(1));
+    }
+
+    private final class Lane {
+        private int running;
+        private final Queue<Pending> waiting = new ArrayDeque<>();
+
+        private boolean admit(Pending pending) {
+            synchronized (this) {
+                if (running >= concurrency) {
+                    if (waiting.size() >= queueLength) {
+                        return false;
+                    }
+                    waiting.add(pending);
+                    return true;
+                }
+                running++;
+            }
+            pending.start(false);
+            return true;
+        }
+
+        private void release() {
+            synchronized (this) {
+                running--;
+            }
+            drain();
+        }
+
+        private void drain() {
+            while (true) {
+                Pending next;
+                synchronized (this) {
+                    if (running >= concurrency || waiting.isEmpty()) {
+                        return;
+                    }
+                    next = waiting.poll();
+                    running++;
+                }
+                next.start(true);
+            }
+        }
+    }
+
+    private final class Pending {
+        private final Runnable start;
+        private final long queuedNanos = System.nanoTime();
+
+        private Pending(Runnable start) {
+            this.start = start;
+        }
+
+        private void start(boolean waited) {
+            queueWait.update(waited ? System.nanoTime() - queuedNanos : 0, TimeUnit.NANOSECONDS);
+            start.run();
+        }
+    }
+}
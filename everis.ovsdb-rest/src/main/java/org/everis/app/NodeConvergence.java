@@ -0,0 +1,108 @@
+/*
+ * Copyright 2020-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everis.app;
+
+import org.onosproject.net.DeviceId;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Reconciliation state of an ovsdb node, as seen by the last reconciliation pass.
+ */
+public final class NodeConvergence {
+
+    private final DeviceId ovsdbId;
+    private final boolean converged;
+    private final long lastPassMillis;
+    private final long convergenceMillis;
+    private final int appliedChanges;
+    private final int failedChanges;
+    private final String error;
+
+    /**
+     * Creates the state of a node.
+     *
+     * @param ovsdbId the device id of the ovsdb node
+     * @param converged whether the node matched its desired topology after the last pass
+     * @param lastPassMillis the end time of the last pass, in milliseconds since the epoch
+     * @param convergenceMillis the time the node took to converge the last time it was out of sync
+     * @param appliedChanges the number of changes made by the last pass
+     * @param failedChanges the number of changes which failed in the last pass
+     * @param error the reason why the last pass could not read the node, null if it could
+     */
+    public NodeConvergence(DeviceId ovsdbId, boolean converged, long lastPassMillis, long convergenceMillis,
+                           int appliedChanges, int failedChanges, String error) {
+        this.ovsdbId = checkNotNull(ovsdbId);
+        this.converged = converged;
+        this.lastPassMillis = lastPassMillis;
+        this.convergenceMillis = convergenceMillis;
+        this.appliedChanges = appliedChanges;
+        this.failedChanges = failedChanges;
+        this.error = error;
+    }
+
+    public DeviceId ovsdbId() {
+        return ovsdbId;
+    }
+
+    public boolean isConverged() {
+        return converged;
+    }
+
+    public long lastPassMillis() {
+        return lastPassMillis;
+    }
+
+    /**
+     * Returns the time the node took to converge, from the first pass which found it out of
+     * sync, or from the submission of its topology, to the pass which fixed it.
+     *
+     * @return the time in milliseconds, zero if the node never was out of sync
+     */
+    public long convergenceMillis() {
+        return convergenceMillis;
+    }
+
+    public int appliedChanges() {
+        return appliedChanges;
+    }
+
+    public int failedChanges() {
+        return failedChanges;
+    }
+
+    /**
+     * Returns the reason why the last pass could not read the node.
+     *
+     * @return the error message, null if the node was read
+     */
+    public String error() {
+        return error;
+    }
+
+    @Override
+    public String toString() {
+        return toStringHelper(this)
+                .add("ovsdbId", ovsdbId)
+                .add("converged", converged)
+                .add("convergenceMillis", convergenceMillis)
+                .add("appliedChanges", appliedChanges)
+                .add("failedChanges", failedChanges)
+                .add("error", error)
+                .toString();
+    }
+}
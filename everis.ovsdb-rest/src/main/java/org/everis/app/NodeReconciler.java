@@ -0,0 +1,384 @@
+/*
+ * Copyright 2020-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everis.app;
+
+import com.codahale.metrics.Timer;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.onlab.metrics.MetricsComponent;
+import org.onlab.metrics.MetricsFeature;
+import org.onlab.metrics.MetricsService;
+import org.onlab.packet.IpAddress;
+import org.onosproject.net.DeviceId;
+import org.onosproject.ovsdbrest.common.PortSpec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
+import static org.onlab.util.Tools.groupedThreads;
+
+/**
+ * Brings every ovsdb node to its desired topology. A background loop reads the actual bridges
+ * and ports of the nodes, compares them with the desired ones and makes only the missing or
+ * extra changes. The changes of a node are made in order in a single task, and the nodes are
+ * reconciled in parallel up to a configurable number of tasks.
+ * Only the ports of the desired bridges are compared, so the bridges which are not in the
+ * desired topology of a node are left alone, and the parameters of the existing tunnel and
+ * patch ports are not checked. The extra ports of a bridge are only removed when the topology
+ * of its node was declared as a whole; the bridges and ports added one by one through the
+ * service leave the other ports of their bridges alone.
+ */
+public class NodeReconciler {
+
+    private static final String FEATURE = "reconciler";
+    private static final String CONVERGENCE = "convergence";
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    /**
+     * Reads the actual state of an ovsdb node from the device.
+     */
+    public interface StateReader {
+        /**
+         * Reads the bridges and the ports of a node.
+         *
+         * @param ovsdbId the device id of the ovsdb node
+         * @return the state of the node
+         * @throws Exception if the node cannot be read
+         */
+        ActualState read(DeviceId ovsdbId) throws Exception;
+    }
+
+    /**
+     * Bridges and ports found in an ovsdb node.
+     */
+    public static final class ActualState {
+        private final Set<String> bridges;
+        private final Map<String, Set<String>> bridgePorts;
+
+        /**
+         * Creates the state of a node.
+         *
+         * @param bridges the names of the bridges of the node
+         * @param bridgePorts {bridgeName: [portName]} of the bridges whose ports are known
+         */
+        public ActualState(Set<String> bridges, Map<String, Set<String>> bridgePorts) {
+            this.bridges = ImmutableSet.copyOf(bridges);
+            this.bridgePorts = ImmutableMap.copyOf(bridgePorts);
+        }
+    }
+
+    private final DesiredStateStore desiredState;
+    private final OvsdbBridgeService service;
+    private final StateReader reader;
+    private final Predicate<DeviceId> isOwner;
+    private final MetricsService metricsService;
+    private final MetricsComponent component;
+    private final MetricsFeature feature;
+    private final Timer convergence;
+
+    private final ScheduledExecutorService loopExecutor =
+            newSingleThreadScheduledExecutor(groupedThreads("everis/ovsdb-rest", "reconcile-loop", log));
+    private final ThreadPoolExecutor nodeExecutor =
+            new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                                   groupedThreads("everis/ovsdb-rest", "reconcile-%d", log));
+    private ScheduledFuture<?> loop;
+    private long loopInterval;
+
+    // nodes with a queued or running pass, so a slow node never has two passes
+    private final Set<DeviceId> running = Sets.newConcurrentHashSet();
+    // nodes asked to be reconciled while their pass was running, they get another one
+    private final Set<DeviceId> rerun = Sets.newConcurrentHashSet();
+    // {ovsdbId: [change]} made by the next pass before the ones of the diff
+    private final Map<DeviceId, List<BridgeOperation>> pendingRemovals = Maps.newConcurrentMap();
+    // {ovsdbId: time in millis} of the nodes which are out of sync
+    private final Map<DeviceId, Long> outOfSyncSince = Maps.newConcurrentMap();
+    private final Map<DeviceId, NodeConvergence> convergenceByNode = Maps.newConcurrentMap();
+
+    /**
+     * Creates a reconciler, it does nothing until it is started.
+     *
+     * @param desiredState the desired topologies of the nodes
+     * @param service makes the changes in the nodes
+     * @param reader reads the actual state of the nodes
+     * @param isOwner tells if this instance reconciles a node
+     * @param metricsService the metrics service
+     * @param componentName the name of the metrics component
+     */
+    public NodeReconciler(DesiredStateStore desiredState, OvsdbBridgeService service, StateReader reader,
+                          Predicate<DeviceId> isOwner, MetricsService metricsService, String componentName) {
+        this.desiredState = desiredState;
+        this.service = service;
+        this.reader = reader;
+        this.isOwner = isOwner;
+        this.metricsService = metricsService;
+        this.component = metricsService.registerComponent(componentName);
+        this.feature = component.registerFeature(FEATURE);
+        this.convergence = metricsService.createTimer(component, feature, CONVERGENCE);
+    }
+
+    /**
+     * Starts the loop which reconciles all the nodes owned by this instance, or restarts it
+     * when the interval changed. The first pass runs at once.
+     *
+     * @param interval the time between two passes over the nodes, in seconds
+     */
+    public synchronized void start(long interval) {
+        checkArgument(interval > 0, "The reconciliation interval must be positive");
+        if (loop != null) {
+            if (interval == loopInterval) {
+                return;
+            }
+            loop.cancel(false);
+        }
+        loopInterval = interval;
+        loop = loopExecutor.scheduleWithFixedDelay(this::reconcileAll, 0, interval, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Changes the number of nodes reconciled at the same time.
+     *
+     * @param concurrency the number of parallel tasks
+     */
+    public synchronized void setConcurrency(int concurrency) {
+        checkArgument(concurrency > 0, "The reconciliation concurrency must be positive");
+        if (concurrency > nodeExecutor.getMaximumPoolSize()) {
+            nodeExecutor.setMaximumPoolSize(concurrency);
+            nodeExecutor.setCorePoolSize(concurrency);
+        } else {
+            nodeExecutor.setCorePoolSize(concurrency);
+            nodeExecutor.setMaximumPoolSize(concurrency);
+        }
+    }
+
+    /**
+     * Reconciles a node as soon as possible, such as after its desired topology changed.
+     *
+     * @param ovsdbId the device id of the ovsdb node
+     * @param removals changes made before the ones of the diff, such as the deletion of the
+     *                 bridges which are no longer desired
+     */
+    public void reconcile(DeviceId ovsdbId, List<BridgeOperation> removals) {
+        outOfSyncSince.putIfAbsent(ovsdbId, System.currentTimeMillis());
+        if (!removals.isEmpty()) {
+            pendingRemovals.merge(ovsdbId, ImmutableList.copyOf(removals), (current, more) ->
+                    ImmutableList.<BridgeOperation>builder().addAll(current).addAll(more).build());
+        }
+        if (!schedule(ovsdbId)) {
+            rerun.add(ovsdbId);
+        }
+    }
+
+    /**
+     * Returns the state of the nodes after their last pass.
+     *
+     * @return the state of every node reconciled by this instance, sorted by device id
+     */
+    public List<NodeConvergence> status() {
+        return convergenceByNode.values().stream()
+                .sorted(Comparator.comparing(node -> node.ovsdbId().toString()))
+                .collect(ImmutableList.toImmutableList());
+    }
+
+    /**
+     * Stops the reconciliation and removes the metrics.
+     */
+    public void close() {
+        loopExecutor.shutdownNow();
+        nodeExecutor.shutdownNow();
+        metricsService.removeMetric(component, feature, CONVERGENCE);
+    }
+
+    /**
+     * Computes the changes which bring a node from its actual state to the desired one.
+     *
+     * @param ovsdbAddress the address of the ovsdb node
+     * @param desired the desired topology of the node
+     * @param actual the actual state of the node
+     * @return the changes, first the bridges, then the missing ports and then the extra ports
+     */
+    public static List<BridgeOperation> diff(IpAddress ovsdbAddress, NodeTopology desired, ActualState actual) {
+        List<BridgeOperation> bridges = new ArrayList<>();
+        List<BridgeOperation> missing = new ArrayList<>();
+        List<BridgeOperation> extra = new ArrayList<>();
+        for (String bridgeName : desired.bridgeNames()) {
+            Map<String, PortSpec> ports = desired.ports(bridgeName);
+            Set<String> actualPorts;
+            if (!actual.bridges.contains(bridgeName)) {
+                bridges.add(BridgeOperation.createBridge(ovsdbAddress, bridgeName));
+                actualPorts = ImmutableSet.of();
+            } else {
+                actualPorts = actual.bridgePorts.get(bridgeName);
+                if (actualPorts == null) {
+                    // the ports of the bridge are not known yet, it is compared by a later pass
+                    continue;
+                }
+            }
+            ports.values().stream()
+                    .filter(port -> !actualPorts.contains(port.name()))
+                    .forEach(port -> missing.add(portOperation(ovsdbAddress, bridgeName, port)));
+            if (desired.isDeclared()) {
+                actualPorts.stream()
+                        // the internal port of a bridge has the name of the bridge
+                        .filter(portName -> !ports.containsKey(portName) && !portName.equals(bridgeName))
+                        .forEach(portName -> extra.add(BridgeOperation.deletePort(ovsdbAddress, bridgeName,
+                                                                                  portName)));
+            }
+        }
+        return ImmutableList.<BridgeOperation>builder().addAll(bridges).addAll(missing).addAll(extra).build();
+    }
+
+    private static BridgeOperation portOperation(IpAddress ovsdbAddress, String bridgeName, PortSpec port) {
+        switch (port.type()) {
+            case PATCH:
+                return BridgeOperation.createPatchPeerPort(ovsdbAddress, bridgeName, port.name(), port.patchPeer());
+            case VXLAN:
+                return BridgeOperation.createVxlanTunnel(ovsdbAddress, bridgeName, port.name(),
+                                                         port.remoteIp(), port.key());
+            default:
+                return BridgeOperation.addPort(ovsdbAddress, bridgeName, port.name());
+        }
+    }
+
+    private void reconcileAll() {
+        try {
+            desiredState.nodes().stream()
+                    .filter(isOwner)
+                    .forEach(this::schedule);
+        } catch (RuntimeException e) {
+            log.warn("Failed to list the nodes to reconcile", e);
+        }
+    }
+
+    /**
+     * Queues a pass for a node unless it already has one.
+     *
+     * @return false if the node already has a pass
+     */
+    private boolean schedule(DeviceId ovsdbId) {
+        if (!running.add(ovsdbId)) {
+            return false;
+        }
+        try {
+            nodeExecutor.execute(() -> pass(ovsdbId));
+        } catch (RuntimeException e) {
+            running.remove(ovsdbId);
+            log.warn("Failed to queue the reconciliation of {}", ovsdbId, e);
+        }
+        return true;
+    }
+
+    /**
+     * Reconciles a single node. Its changes are made in order as a batch of the service, so
+     * they go through the admission control of the node like the requests of the clients, and
+     * the pass ends when the batch completes without holding a thread of the reconciler.
+     */
+    private void pass(DeviceId ovsdbId) {
+        rerun.remove(ovsdbId);
+        try {
+            IpAddress ovsdbAddress = IpAddress.valueOf(ovsdbId.uri().getSchemeSpecificPart());
+            ActualState actual;
+            try {
+                actual = reader.read(ovsdbId);
+            } catch (Exception e) {
+                record(ovsdbId, 0, 0, e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+                finish(ovsdbId);
+                return;
+            }
+            List<BridgeOperation> changes = new ArrayList<>();
+            List<BridgeOperation> removals = pendingRemovals.remove(ovsdbId);
+            if (removals != null) {
+                changes.addAll(removals);
+            }
+            changes.addAll(diff(ovsdbAddress, desiredState.topology(ovsdbId), actual));
+            if (changes.isEmpty()) {
+                record(ovsdbId, 0, 0, null);
+                finish(ovsdbId);
+                return;
+            }
+            outOfSyncSince.putIfAbsent(ovsdbId, System.currentTimeMillis());
+            log.info("Reconciling {} with {} changes", ovsdbId, changes.size());
+            service.applyBatchAsync(changes).whenComplete((results, error) -> {
+                try {
+                    if (error != null) {
+                        record(ovsdbId, 0, changes.size(), error.toString());
+                        return;
+                    }
+                    int failed = 0;
+                    for (BridgeOperationResult result : results) {
+                        if (!result.isSuccess()) {
+                            failed++;
+                            log.warn("Reconciliation change {} failed: {}", result.operation(), result.error());
+                        }
+                    }
+                    record(ovsdbId, changes.size() - failed, failed, null);
+                } finally {
+                    finish(ovsdbId);
+                }
+            });
+        } catch (RuntimeException e) {
+            log.warn("Failed to reconcile {}", ovsdbId, e);
+            finish(ovsdbId);
+        }
+    }
+
+    /**
+     * Ends the pass of a node and starts the next one if it was asked meanwhile.
+     */
+    private void finish(DeviceId ovsdbId) {
+        running.remove(ovsdbId);
+        if (rerun.contains(ovsdbId)) {
+            schedule(ovsdbId);
+        }
+    }
+
+    private void record(DeviceId ovsdbId, int applied, int failed, String error) {
+        long now = System.currentTimeMillis();
+        boolean converged = failed == 0 && error == null;
+        long convergenceMillis = 0;
+        NodeConvergence previous = convergenceByNode.get(ovsdbId);
+        if (previous != null) {
+            convergenceMillis = previous.convergenceMillis();
+        }
+        if (converged) {
+            Long since = outOfSyncSince.remove(ovsdbId);
+            if (since != null) {
+                convergenceMillis = now - since;
+                convergence.update(convergenceMillis, TimeUnit.MILLISECONDS);
+            }
+        } else {
+            outOfSyncSince.putIfAbsent(ovsdbId, now);
+        }
+        convergenceByNode.put(ovsdbId, new NodeConvergence(ovsdbId, converged, now, convergenceMillis,
+                                                           applied, failed, error));
+    }
+}
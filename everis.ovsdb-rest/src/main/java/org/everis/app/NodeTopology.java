@@ -0,0 +1,239 @@
+/*
+ * Copyright 2020-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everis.app;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import org.onosproject.ovsdbrest.common.PortSpec;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+
+/**
+ * Desired bridges and ports of an ovsdb node. It is immutable, every change gives a new topology.
+ * A topology declared as the whole topology of the node also owns the ports of its bridges:
+ * the ports which are not in it are removed from the node.
+ */
+public final class NodeTopology {
+
+    /**
+     * Topology without bridges.
+     */
+    public static final NodeTopology EMPTY = new NodeTopology(ImmutableMap.of(), false);
+
+    // {bridgeName: {portName: port}}
+    private final ImmutableMap<String, ImmutableMap<String, PortSpec>> bridges;
+    private final boolean declared;
+
+    private NodeTopology(ImmutableMap<String, ImmutableMap<String, PortSpec>> bridges, boolean declared) {
+        this.bridges = bridges;
+        this.declared = declared;
+    }
+
+    /**
+     * Returns the topology with the given bridges.
+     *
+     * @param bridges {bridgeName: [port]} of the node
+     * @return the topology
+     */
+    public static NodeTopology of(Map<String, ? extends Iterable<PortSpec>> bridges) {
+        ImmutableMap.Builder<String, ImmutableMap<String, PortSpec>> builder = ImmutableMap.builder();
+        bridges.forEach((bridgeName, ports) -> {
+            Map<String, PortSpec> bridgePorts = Maps.newLinkedHashMap();
+            ports.forEach(port -> bridgePorts.put(port.name(), port));
+            builder.put(bridgeName, ImmutableMap.copyOf(bridgePorts));
+        });
+        return new NodeTopology(builder.build(), false);
+    }
+
+    /**
+     * Returns the topology declared as the whole topology of the node, the changes made to it
+     * keep it declared.
+     *
+     * @return the declared topology
+     */
+    public NodeTopology declared() {
+        return declared ? this : new NodeTopology(bridges, true);
+    }
+
+    /**
+     * Tells if the topology was declared as the whole topology of the node, so the ports of
+     * its bridges which are not in it are extra.
+     *
+     * @return true if the topology is declared
+     */
+    public boolean isDeclared() {
+        return declared;
+    }
+
+    public Set<String> bridgeNames() {
+        return bridges.keySet();
+    }
+
+    /**
+     * Returns the ports of a bridge.
+     *
+     * @param bridgeName the bridge name
+     * @return {portName: port} of the bridge, empty if the bridge is not in the topology
+     */
+    public Map<String, PortSpec> ports(String bridgeName) {
+        ImmutableMap<String, PortSpec> ports = bridges.get(bridgeName);
+        return ports == null ? ImmutableMap.of() : ports;
+    }
+
+    public boolean isEmpty() {
+        return bridges.isEmpty();
+    }
+
+    /**
+     * Returns the topology with a new bridge, a bridge which is already there keeps its ports.
+     *
+     * @param bridgeName the bridge name
+     * @return the new topology
+     */
+    public NodeTopology withBridge(String bridgeName) {
+        if (bridges.containsKey(bridgeName)) {
+            return this;
+        }
+        return new NodeTopology(ImmutableMap.<String, ImmutableMap<String, PortSpec>>builder()
+                                        .putAll(bridges)
+                                        .put(bridgeName, ImmutableMap.of())
+                                        .build(), declared);
+    }
+
+    /**
+     * Returns the topology without a bridge and its ports.
+     *
+     * @param bridgeName the bridge name
+     * @return the new topology
+     */
+    public NodeTopology withoutBridge(String bridgeName) {
+        if (!bridges.containsKey(bridgeName)) {
+            return this;
+        }
+        ImmutableMap.Builder<String, ImmutableMap<String, PortSpec>> builder = ImmutableMap.builder();
+        bridges.forEach((name, ports) -> {
+            if (!name.equals(bridgeName)) {
+                builder.put(name, ports);
+            }
+        });
+        return new NodeTopology(builder.build(), declared);
+    }
+
+    /**
+     * Returns the topology with a new port, which replaces the port with the same name in the
+     * bridge. The bridge is added if it is not in the topology.
+     *
+     * @param bridgeName the bridge name
+     * @param port the port
+     * @return the new topology
+     */
+    public NodeTopology withPort(String bridgeName, PortSpec port) {
+        if (port.equals(ports(bridgeName).get(port.name()))) {
+            return this;
+        }
+        Map<String, PortSpec> ports = Maps.newLinkedHashMap(ports(bridgeName));
+        ports.put(port.name(), port);
+        return replaceBridge(bridgeName, ImmutableMap.copyOf(ports));
+    }
+
+    /**
+     * Returns the topology without a port.
+     *
+     * @param bridgeName the bridge name
+     * @param portName the port name
+     * @return the new topology
+     */
+    public NodeTopology withoutPort(String bridgeName, String portName) {
+        if (!ports(bridgeName).containsKey(portName)) {
+            return this;
+        }
+        Map<String, PortSpec> ports = Maps.newLinkedHashMap(ports(bridgeName));
+        ports.remove(portName);
+        return replaceBridge(bridgeName, ImmutableMap.copyOf(ports));
+    }
+
+    /**
+     * Returns the topology with a bridge and its ports as they are in another topology, or
+     * without the bridge if the other topology does not have it. It undoes the changes made
+     * to the bridge since the other topology.
+     *
+     * @param other the other topology
+     * @param bridgeName the bridge name
+     * @return the new topology
+     */
+    public NodeTopology withBridgeAs(NodeTopology other, String bridgeName) {
+        ImmutableMap<String, PortSpec> ports = other.bridges.get(bridgeName);
+        if (ports == null) {
+            return withoutBridge(bridgeName);
+        }
+        return ports.equals(bridges.get(bridgeName)) ? this : replaceBridge(bridgeName, ports);
+    }
+
+    /**
+     * Returns the topology with a port as it is in another topology, or without the port if
+     * the other topology does not have it. A bridge which was only added with the port is
+     * removed too. It undoes the changes made to the port since the other topology.
+     *
+     * @param other the other topology
+     * @param bridgeName the bridge name
+     * @param portName the port name
+     * @return the new topology
+     */
+    public NodeTopology withPortAs(NodeTopology other, String bridgeName, String portName) {
+        PortSpec port = other.ports(bridgeName).get(portName);
+        if (port != null) {
+            return withPort(bridgeName, port);
+        }
+        NodeTopology without = withoutPort(bridgeName, portName);
+        return !other.bridges.containsKey(bridgeName) && without.ports(bridgeName).isEmpty()
+                ? without.withoutBridge(bridgeName) : without;
+    }
+
+    private NodeTopology replaceBridge(String bridgeName, ImmutableMap<String, PortSpec> ports) {
+        Map<String, ImmutableMap<String, PortSpec>> copy = Maps.newLinkedHashMap(bridges);
+        copy.put(bridgeName, ports);
+        return new NodeTopology(ImmutableMap.copyOf(copy), declared);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof NodeTopology)) {
+            return false;
+        }
+        NodeTopology that = (NodeTopology) obj;
+        return declared == that.declared && bridges.equals(that.bridges);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(bridges, declared);
+    }
+
+    @Override
+    public String toString() {
+        return toStringHelper(this)
+                .add("bridges", bridges)
+                .add("declared", declared)
+                .toString();
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2020-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everis.app;
+
+/**
+ * Name/Value constants for properties.
+ */
+public final class OsgiPropertyConstants {
+
+    private OsgiPropertyConstants() {
+    }
+
+    public static final String RECONCILE_INTERVAL = "reconcileInterval";
+    public static final int RECONCILE_INTERVAL_DEFAULT = 30;
+
+    public static final String RECONCILE_CONCURRENCY = "reconcileConcurrency";
+    public static final int RECONCILE_CONCURRENCY_DEFAULT = 8;
+
+    public static final String NODE_CONCURRENCY = "nodeConcurrency";
+    public static final int NODE_CONCURRENCY_DEFAULT = 4;
+
+    public static final String NODE_QUEUE_LENGTH = "nodeQueueLength";
+    public static final int NODE_QUEUE_LENGTH_DEFAULT = 64;
+}
@@ -17,7 +17,16 @@
 package org.everis.app;
 
 import org.onlab.packet.IpAddress;
+import org.onosproject.net.DeviceId;
+import org.onosproject.ovsdbrest.common.NodeSnapshot;
+import org.onosproject.ovsdbrest.common.OperationStats;
 import org.onosproject.net.intent.PathIntent;
+import org.onosproject.net.intent.Key;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * APIs for ovsdb driver access.
@@ -103,7 +112,9 @@ public interface OvsdbBridgeService {
             throws OvsdbRestException.OvsdbDeviceException;
 
     /**
-     *
+     * Creates a Path Intent. The intent key depends only on the devices, the ports and the
+     * protection type, so repeating a request updates the same intent, or does nothing if
+     * the intent is already installed on the same path.
      * @param srcId Source ID of the Device
      * @param dstId Destination ID of the Device
      * @param portSrc Source Port that has the path
@@ -113,4 +124,233 @@ public interface OvsdbBridgeService {
      */
     void createPathIntent(String srcId, String dstId, String portSrc, String portDst,
                           PathIntent.ProtectionType setType) throws Exception;
+
+    /**
+     * Makes a batch of bridge, port and tunnel operations. The operations of the same ovsdb
+     * node are made in the given order, the ones of different nodes are made in parallel.
+     * The operations of a node run as one task of the admission control of the node, so they
+     * all fail with the node busy error when its queue is full.
+     * A failed operation does not stop the rest of the batch.
+     * @param operations the operations to make
+     * @return the result of every operation, in the same order of the operations
+     */
+    List<BridgeOperationResult> applyBatch(List<BridgeOperation> operations);
+
+    /**
+     * Creates the missing VXLAN tunnels of a full mesh between ovsdb nodes. Every node gets a
+     * tunnel towards every other node, with a port name given by the remote endpoint and the
+     * key, so the tunnels which already exist are kept and adding a node only creates the
+     * tunnels from and to it. The tunnels of different nodes are created in parallel.
+     * @param endpoints {ovsdbAddress: tunnel endpoint} of the nodes of the mesh
+     * @param bridgeName the bridge of the tunnel ports, it must exist in every node
+     * @param key the VXLAN key (VNI) of the mesh
+     * @return the result of every tunnel creation, grouped by node
+     */
+    List<BridgeOperationResult> provisionVxlanMesh(Map<IpAddress, IpAddress> endpoints, String bridgeName,
+                                                   String key);
+
+    /**
+     * Builds and submits many Path Intents, and starts to follow their state.
+     * A request whose path does not exist does not stop the rest of the requests.
+     * @param requests the path intents to create
+     * @return the state of the batch, with the key of every submitted intent
+     */
+    IntentBatchStatus createPathIntents(List<PathIntentRequest> requests);
+
+    /**
+     * Withdraws the Path Intents of the given requests, the requests which have no intent are ignored.
+     * @param requests the path intents to withdraw
+     * @param purge whether to remove the intents from the intent store once they are withdrawn
+     * @return the keys of the intents which were found
+     */
+    List<Key> withdrawPathIntents(List<PathIntentRequest> requests, boolean purge);
+
+    /**
+     * Withdraws all the Path Intents created by this application.
+     * @param purge whether to remove the intents from the intent store once they are withdrawn
+     * @return the keys of the intents which were found
+     */
+    List<Key> withdrawAllPathIntents(boolean purge);
+
+    /**
+     * Returns the current state of the intents of a bulk submission.
+     * @param batchId the id given by createPathIntents
+     * @return the state of the batch, null if it is unknown or it expired
+     */
+    IntentBatchStatus pathIntentStatus(long batchId);
+
+    /**
+     * Waits until all the intents of a bulk submission are installed or failed.
+     * @param batchId the id given by createPathIntents
+     * @param timeoutMillis the longest time to wait in milliseconds
+     * @return future completed with the state of the batch when it is done or at the deadline,
+     * null if the batch is unknown or it expired
+     */
+    CompletableFuture<IntentBatchStatus> awaitPathIntents(long batchId, long timeoutMillis);
+
+    /**
+     * Creates a new bridge without blocking the caller.
+     * @param ovsdbAddress the ovsdb IP address
+     * @param bridgeName the bridge identifier
+     * @return future completed when the bridge is created, or with the error of createBridge
+     */
+    CompletableFuture<Void> createBridgeAsync(IpAddress ovsdbAddress, String bridgeName);
+
+    /**
+     * Deletes a bridge without blocking the caller.
+     * @param ovsdbAddress the ovsdb IP address
+     * @param bridgeName the bridge identifier
+     * @return future completed when the bridge is deleted, or with the error of deleteBridge
+     */
+    CompletableFuture<Void> deleteBridgeAsync(IpAddress ovsdbAddress, String bridgeName);
+
+    /**
+     * Adds a port to a bridge without blocking the caller.
+     * @param ovsdbAddress the ovsdb IP address
+     * @param bridgeName the bridge identifier
+     * @param portName the name of the port to attach to the bridge
+     * @return future completed when the port is added, or with the error of addPort
+     */
+    CompletableFuture<Void> addPortAsync(IpAddress ovsdbAddress, String bridgeName, String portName);
+
+    /**
+     * Removes a port from a bridge without blocking the caller.
+     * @param ovsdbAddress the ovsdb IP address
+     * @param bridgeName the bridge identifier
+     * @param portName the name of the port to remove from the bridge
+     * @return future completed when the port is removed, or with the error of removePort
+     */
+    CompletableFuture<Void> removePortAsync(IpAddress ovsdbAddress, String bridgeName, String portName);
+
+    /**
+     * Adds a patch port to a bridge without blocking the caller.
+     * @param ovsdbAddress the ovsdb IP address
+     * @param bridgeName the bridge identifier
+     * @param portName the port name
+     * @param patchPeer the name of the peer port
+     * @return future completed when the port is created, or with the error of createPatchPeerPort
+     */
+    CompletableFuture<Void> createPatchPeerPortAsync(IpAddress ovsdbAddress, String bridgeName,
+                                                     String portName, String patchPeer);
+
+    /**
+     * Creates a VXLAN tunnel without blocking the caller.
+     * @param ovsdbAddress the ovsdb IP address
+     * @param bridgeName the bridge identifier
+     * @param portName the name of the new VXLAN port
+     * @param remoteIp remote end point of the tunnel
+     * @param key the tunnel key
+     * @return future completed when the tunnel is created, or with the error of createVxlanTunnel
+     */
+    CompletableFuture<Void> createVxlanTunnelAsync(IpAddress ovsdbAddress, String bridgeName, String portName,
+                                                   IpAddress remoteIp, String key);
+
+    /**
+     * Creates a Path Intent without blocking the caller.
+     * @param srcId Source ID of the Device
+     * @param dstId Destination ID of the Device
+     * @param portSrc Source Port that has the path
+     * @param portDst Destination Port that has the path
+     * @param setType set the type PRIMARY or BACKUP
+     * @return future completed when the intent is submitted, or with the error of createPathIntent
+     */
+    CompletableFuture<Void> createPathIntentAsync(String srcId, String dstId, String portSrc, String portDst,
+                                                  PathIntent.ProtectionType setType);
+
+    /**
+     * Makes a batch of bridge, port and tunnel operations without blocking the caller.
+     * @param operations the operations to make
+     * @return future with the result of every operation, in the same order of the operations
+     */
+    CompletableFuture<List<BridgeOperationResult>> applyBatchAsync(List<BridgeOperation> operations);
+
+    /**
+     * Creates the missing VXLAN tunnels of a full mesh without blocking the caller.
+     * @param endpoints {ovsdbAddress: tunnel endpoint} of the nodes of the mesh
+     * @param bridgeName the bridge of the tunnel ports
+     * @param key the VXLAN key (VNI) of the mesh
+     * @return future with the result of every tunnel creation
+     */
+    CompletableFuture<List<BridgeOperationResult>> provisionVxlanMeshAsync(Map<IpAddress, IpAddress> endpoints,
+                                                                       String bridgeName, String key);
+
+    /**
+     * Builds and submits many Path Intents without blocking the caller.
+     * @param requests the path intents to create
+     * @return future with the state of the batch
+     */
+    CompletableFuture<IntentBatchStatus> createPathIntentsAsync(List<PathIntentRequest> requests);
+
+    /**
+     * Returns the latency and the outcome counters of the operations of the service.
+     * @return the statistics of every operation which was called at least once
+     */
+    List<OperationStats> operationStats();
+
+    /**
+     * Returns the bridges, ports and tunnels asked for an ovsdb node, kept by the cluster.
+     * @param ovsdbAddress IP Address of the ovsdb node
+     * @return the desired topology of the node, empty if nothing was asked for it
+     */
+    NodeTopology desiredTopology(IpAddress ovsdbAddress);
+
+    /**
+     * Replaces the desired topology of an ovsdb node and reconciles the node with it. The node
+     * is then kept in that topology, the missing bridges and ports are created again and the
+     * extra ports of its bridges are removed. The bridges dropped from the previous topology
+     * are deleted. Only a topology set here removes extra ports, the bridges and ports created
+     * one by one are added to the desired topology without owning the other ports.
+     * @param ovsdbAddress IP Address of the ovsdb node
+     * @param topology the desired bridges, ports and tunnels of the node
+     */
+    void setDesiredTopology(IpAddress ovsdbAddress, NodeTopology topology);
+
+    /**
+     * Returns the reconciliation state of the ovsdb nodes reconciled by this instance.
+     * @return the state of every node after its last reconciliation pass
+     */
+    List<NodeConvergence> reconcileStatus();
+
+    /**
+     * Returns the bridges, ports and tunnels of an ovsdb node from the in-memory snapshot.
+     * The snapshot is refreshed in the background when it is old or the node changed, so it
+     * may be slightly behind the node. Its version only changes when its content changes.
+     * @param ovsdbAddress IP Address of the ovsdb node
+     * @return the snapshot of the node
+     * @throws OvsdbRestException.OvsdbDeviceException if the node was never read and it is not available
+     */
+    NodeSnapshot nodeSnapshot(IpAddress ovsdbAddress) throws OvsdbRestException.OvsdbDeviceException;
+
+    /**
+     * Returns the bridges, ports and tunnels of all the ovsdb nodes, in the order of their
+     * device ids. The nodes are read one at a time as the iterator advances, from their
+     * snapshot when there is one, so the whole inventory is never held in memory. The nodes
+     * which are not available are skipped.
+     * @param after device id of the last node already read, null to start from the first one
+     * @return the snapshot of every node after the given one
+     */
+    Iterator<NodeSnapshot> inventory(DeviceId after);
+
+    /**
+     * Subscribes to the changes of the bridges, ports, tunnels and ovsdb nodes, seen in the
+     * device events or made by the operations of this service. The changes which do not fit
+     * in the buffer of the subscription are dropped and counted. The changes are pushed to
+     * the listener by the threads of the feed, with a keep-alive when there are none.
+     * @param listener receives the changes of the subscription
+     * @return the subscription, null if there are too many subscribers
+     */
+    ChangeFeed.Subscription subscribeChanges(ChangeFeed.Listener listener);
+
+    /**
+     * Returns the counters of the admission control of the operations of the ovsdb nodes.
+     * @return the running, queued and rejected operations and the time they waited in the
+     * queues, in microseconds
+     */
+    Map<String, Long> admissionStats();
+
+    /**
+     * Returns the counters of the cache of paths used by the path intents.
+     * @return the number of hits, misses and cached device pairs
+     */
+    Map<String, Long> pathCacheStats();
 }
@@ -45,4 +45,27 @@ public class OvsdbRestException {
      *
      */
     public static class BridgeNotFoundException extends Exception { }
+
+    /**
+     *
+     * @throws Exception Thrown when an ovsdb node has too many pending operations.
+     *
+     */
+    public static class NodeBusyException extends Exception {
+        private final long retryAfter;
+
+        public NodeBusyException(long retryAfter) {
+            super("The ovsdb node has too many pending operations");
+            this.retryAfter = retryAfter;
+        }
+
+        /**
+         * Returns when the operation may be admitted.
+         *
+         * @return the seconds to wait before retrying
+         */
+        public long retryAfter() {
+            return retryAfter;
+        }
+    }
 }
@@ -0,0 +1,234 @@
+/*
+ * Copyright 2020-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everis.app;
+
+import com.google.common.collect.HashBasedTable;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableTable;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.collect.Table;
+import org.onosproject.event.Event;
+import org.onosproject.net.DeviceId;
+import org.onosproject.net.Link;
+import org.onosproject.net.LinkKey;
+import org.onosproject.net.Path;
+import org.onosproject.net.PortNumber;
+import org.onosproject.net.link.LinkEvent;
+import org.onosproject.net.topology.Topology;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of the paths between pairs of devices. Every entry is tagged with the time of the
+ * topology it was computed on, and it is only given for that topology.
+ * When the topology changes because links were removed or updated, only the entries with
+ * paths through those links are dropped and the rest are carried to the new topology. Any
+ * other change, such as new links or devices, can create new paths anywhere, so it drops
+ * the whole cache.
+ * The paths of an entry are indexed by the ports where they leave the source device and
+ * reach the destination device, so finding the path between two ports is a hash lookup.
+ */
+public class PathCache {
+
+    // {(src, dst): candidate paths}
+    private final Map<Key, Entry> entries = Maps.newHashMap();
+
+    // {link: [(src, dst)]} of the entries with a path through the link
+    private final Map<LinkKey, Set<Key>> keysByLink = Maps.newHashMap();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Returns the cached paths between two devices.
+     *
+     * @param src the source device
+     * @param dst the destination device
+     * @param topology the current topology
+     * @return the candidate paths, null if they are not cached for this topology
+     */
+    public synchronized Candidates get(DeviceId src, DeviceId dst, Topology topology) {
+        Entry entry = entries.get(new Key(src, dst));
+        if (entry == null || entry.topologyTime != topology.time()) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.candidates;
+    }
+
+    /**
+     * Caches the paths between two devices.
+     *
+     * @param src the source device
+     * @param dst the destination device
+     * @param topology the topology used to compute the paths
+     * @param paths the paths
+     * @return the candidate paths
+     */
+    public synchronized Candidates put(DeviceId src, DeviceId dst, Topology topology, Set<Path> paths) {
+        Key key = new Key(src, dst);
+        remove(key);
+        Entry entry = new Entry(topology.time(), new Candidates(paths));
+        entries.put(key, entry);
+        entry.links().forEach(link -> keysByLink.computeIfAbsent(link, l -> Sets.newHashSet()).add(key));
+        return entry.candidates;
+    }
+
+    /**
+     * Updates the cache after a topology change.
+     *
+     * @param topology the new topology
+     * @param reasons the events which changed the topology, raw as in TopologyEvent
+     */
+    @SuppressWarnings("rawtypes")
+    public synchronized void topologyChanged(Topology topology, List<Event> reasons) {
+        if (reasons == null || reasons.isEmpty() || !reasons.stream().allMatch(PathCache::onlyDropsPaths)) {
+            entries.clear();
+            keysByLink.clear();
+            return;
+        }
+        reasons.forEach(reason -> {
+            Set<Key> keys = keysByLink.get(LinkKey.linkKey(((LinkEvent) reason).subject()));
+            if (keys != null) {
+                ImmutableSet.copyOf(keys).forEach(this::remove);
+            }
+        });
+        // the paths of the remaining entries do not use any of the changed links
+        entries.values().forEach(entry -> entry.topologyTime = topology.time());
+    }
+
+    public long hitCount() {
+        return hits.get();
+    }
+
+    public long missCount() {
+        return misses.get();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private void remove(Key key) {
+        Entry entry = entries.remove(key);
+        if (entry == null) {
+            return;
+        }
+        entry.links().forEach(link -> {
+            Set<Key> keys = keysByLink.get(link);
+            if (keys != null && keys.remove(key) && keys.isEmpty()) {
+                keysByLink.remove(link);
+            }
+        });
+    }
+
+    /**
+     * Checks if an event can only make the existing paths invalid, without creating new ones.
+     */
+    private static boolean onlyDropsPaths(Event<?, ?> reason) {
+        return reason instanceof LinkEvent
+                && (reason.type() == LinkEvent.Type.LINK_REMOVED || reason.type() == LinkEvent.Type.LINK_UPDATED);
+    }
+
+    /**
+     * Paths between two devices, indexed by the source and destination ports.
+     */
+    public static final class Candidates {
+        private final Set<Path> paths;
+        // {srcPort: {dstPort: path}}, the first path given for a pair of ports wins
+        private final Table<PortNumber, PortNumber, Path> byPorts;
+
+        private Candidates(Set<Path> paths) {
+            this.paths = ImmutableSet.copyOf(paths);
+            Table<PortNumber, PortNumber, Path> table = HashBasedTable.create();
+            for (Path path : this.paths) {
+                if (!table.contains(path.src().port(), path.dst().port())) {
+                    table.put(path.src().port(), path.dst().port(), path);
+                }
+            }
+            this.byPorts = ImmutableTable.copyOf(table);
+        }
+
+        public boolean isEmpty() {
+            return paths.isEmpty();
+        }
+
+        /**
+         * Returns the path which leaves the source device and reaches the destination device
+         * through the given ports.
+         *
+         * @param srcPort the port of the source device
+         * @param dstPort the port of the destination device
+         * @return the path, null if there is none
+         */
+        public Path path(PortNumber srcPort, PortNumber dstPort) {
+            return byPorts.get(srcPort, dstPort);
+        }
+    }
+
+    private static final class Entry {
+        private long topologyTime;
+        private final Candidates candidates;
+
+        private Entry(long topologyTime, Candidates candidates) {
+            this.topologyTime = topologyTime;
+            this.candidates = candidates;
+        }
+
+        private Set<LinkKey> links() {
+            Set<LinkKey> links = Sets.newHashSet();
+            for (Path path : candidates.paths) {
+                for (Link link : path.links()) {
+                    links.add(LinkKey.linkKey(link));
+                }
+            }
+            return links;
+        }
+    }
+
+    private static final class Key {
+        private final DeviceId src;
+        private final DeviceId dst;
+
+        private Key(DeviceId src, DeviceId dst) {
+            this.src = src;
+            this.dst = dst;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key that = (Key) obj;
+            return src.equals(that.src) && dst.equals(that.dst);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(src, dst);
+        }
+    }
+}
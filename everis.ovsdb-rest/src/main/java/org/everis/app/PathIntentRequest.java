@@ -0,0 +1,82 @@
+/*
+ * Copyright 2020-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everis.app;
+
+import org.onosproject.net.intent.PathIntent;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Single path intent of a bulk submission, with the same fields of the createPathIntent REST API.
+ */
+public final class PathIntentRequest {
+
+    private final String srcId;
+    private final String dstId;
+    private final String portSrc;
+    private final String portDst;
+    private final PathIntent.ProtectionType setType;
+
+    /**
+     * Creates the request of a path intent.
+     *
+     * @param srcId the source device id
+     * @param dstId the destination device id
+     * @param portSrc the port of the source device
+     * @param portDst the port of the destination device
+     * @param setType the protection type of the path
+     */
+    public PathIntentRequest(String srcId, String dstId, String portSrc, String portDst,
+                             PathIntent.ProtectionType setType) {
+        this.srcId = checkNotNull(srcId);
+        this.dstId = checkNotNull(dstId);
+        this.portSrc = checkNotNull(portSrc);
+        this.portDst = checkNotNull(portDst);
+        this.setType = checkNotNull(setType);
+    }
+
+    public String srcId() {
+        return srcId;
+    }
+
+    public String dstId() {
+        return dstId;
+    }
+
+    public String portSrc() {
+        return portSrc;
+    }
+
+    public String portDst() {
+        return portDst;
+    }
+
+    public PathIntent.ProtectionType setType() {
+        return setType;
+    }
+
+    @Override
+    public String toString() {
+        return toStringHelper(this)
+                .add("srcId", srcId)
+                .add("dstId", dstId)
+                .add("portSrc", portSrc)
+                .add("portDst", portDst)
+                .add("setType", setType)
+                .toString();
+    }
+}
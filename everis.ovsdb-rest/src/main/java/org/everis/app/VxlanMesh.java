@@ -0,0 +1,86 @@
+/*
+ * Copyright 2020-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everis.app;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.Hashing;
+import org.onlab.packet.IpAddress;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Plans a full mesh of VXLAN tunnels between ovsdb nodes. Every node gets a tunnel port
+ * towards every other node in a bridge, and the name of the port only depends on the remote
+ * endpoint and the key, so the same mesh always has the same port names. The ports which
+ * already exist are not planned again, so adding a node to a mesh only adds the tunnels
+ * from and to that node.
+ */
+public final class VxlanMesh {
+
+    private static final String PORT_PREFIX = "vx";
+    // a port name is at most 15 characters, the prefix and 12 hex digits leave room to spare
+    private static final int PORT_HASH_BYTES = 6;
+
+    private VxlanMesh() {
+    }
+
+    /**
+     * Returns the name of the tunnel port towards a remote endpoint.
+     *
+     * @param remoteIp the tunnel endpoint of the remote node
+     * @param key the VXLAN key of the mesh
+     * @return the port name
+     */
+    public static String portName(IpAddress remoteIp, String key) {
+        byte[] hash = Hashing.murmur3_128()
+                .hashString(remoteIp.toString() + "/" + key, StandardCharsets.UTF_8)
+                .asBytes();
+        StringBuilder name = new StringBuilder(PORT_PREFIX);
+        for (int i = 0; i < PORT_HASH_BYTES; i++) {
+            name.append(String.format("%02x", hash[i]));
+        }
+        return name.toString();
+    }
+
+    /**
+     * Plans the tunnels which are missing in a mesh.
+     *
+     * @param endpoints {ovsdbAddress: tunnel endpoint} of the nodes of the mesh
+     * @param bridgeName the bridge of the tunnel ports in every node
+     * @param key the VXLAN key of the mesh
+     * @param existingPorts gives the names of the ports which exist in a node
+     * @return the tunnel creations, grouped by node in the order of the endpoints
+     */
+    public static List<BridgeOperation> plan(Map<IpAddress, IpAddress> endpoints, String bridgeName, String key,
+                                             Function<IpAddress, Set<String>> existingPorts) {
+        ImmutableList.Builder<BridgeOperation> operations = ImmutableList.builder();
+        endpoints.keySet().forEach(ovsdbAddress -> {
+            Set<String> ports = existingPorts.apply(ovsdbAddress);
+            endpoints.forEach((remoteAddress, remoteIp) -> {
+                String portName = portName(remoteIp, key);
+                if (!remoteAddress.equals(ovsdbAddress) && !ports.contains(portName)) {
+                    operations.add(BridgeOperation.createVxlanTunnel(ovsdbAddress, bridgeName, portName,
+                                                                     remoteIp, key));
+                }
+            });
+        });
+        return operations.build();
+    }
+}
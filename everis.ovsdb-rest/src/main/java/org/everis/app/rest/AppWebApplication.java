@@ -17,6 +17,7 @@
 package org.everis.app.rest;
 
 import org.onlab.rest.AbstractWebApplication;
+import org.onosproject.ovsdbrest.common.IdempotentReplayResource;
 
 import java.util.Set;
 
@@ -26,6 +27,6 @@ import java.util.Set;
 public class AppWebApplication extends AbstractWebApplication {
     @Override
     public Set<Class<?>> getClasses() {
-        return getClasses(AppWebResource.class);
+        return getClasses(AppWebResource.class, JsonIdempotencyFilter.class, IdempotentReplayResource.class);
     }
 }
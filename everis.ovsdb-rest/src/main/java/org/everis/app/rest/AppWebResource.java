@@ -15,35 +15,101 @@
  */
 package org.everis.app.rest;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.collect.ImmutableMap;
+import org.everis.app.BridgeOperation;
+import org.everis.app.BridgeOperationResult;
+import org.everis.app.ChangeEvent;
+import org.everis.app.ChangeFeed;
+import org.everis.app.IntentBatchStatus;
+import org.everis.app.IntentBatchStatus.IntentStatus;
+import org.everis.app.NodeConvergence;
+import org.everis.app.NodeTopology;
 import org.everis.app.OvsdbBridgeService;
 import org.everis.app.OvsdbRestException;
+import org.everis.app.PathIntentRequest;
+import org.glassfish.jersey.server.ChunkedOutput;
 import org.onlab.packet.IpAddress;
+import org.onosproject.net.DeviceId;
+import org.onosproject.net.intent.Key;
 import org.onosproject.net.intent.PathIntent;
+import org.onosproject.ovsdbrest.common.NodeSnapshot;
+import org.onosproject.ovsdbrest.common.OperationStats;
+import org.onosproject.ovsdbrest.common.PortSpec;
 import org.onosproject.rest.AbstractWebResource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.ws.rs.Consumes;
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.zip.GZIPOutputStream;
 
 import static org.onlab.util.Tools.readTreeFromStream;
 
 /**
  * Possible REST APIs to make changes in the switches of the ONOS Cluster.
+ * Every POST accepts an optional Idempotency-Key header, a retry with the same key gets the
+ * response of the first request instead of running the operation again.
  */
 @Path("config/")
 public class AppWebResource extends AbstractWebResource {
 
     private final Logger log = LoggerFactory.getLogger(getClass());
 
+    private static final String TIMEOUT = "timeout";
+    private static final String WAIT = "wait";
+    private static final String OVSDB_IP = "ovsdb-ip";
+    private static final String OVSDB_ID = "ovsdb-id";
+    private static final String BRIDGE_NAME = "bridge-name";
+    private static final String NDJSON = "application/x-ndjson";
+    private static final String GZIP = "gzip";
+    private static final String EVENT_STREAM = "text/event-stream";
+    private static final int TOO_MANY_REQUESTS = 429;
+    private static final String BRIDGE_CREATED = "bridge-created:";
+    private static final String BRIDGE_DELETED = "bridge-deleted:";
+    private static final String PORT_ADDED = "port-added:";
+    private static final String PORT_DELETED = "port-deleted:";
+    private static final String PATCH_PEER_CREATED = "patch-peer-created:";
+    private static final String VXLAN_CREATED = "vxlan-created:";
+    private static final String PATH_INTENT_CREATED = "createPathIntent-created:";
+
+    // {field: body} of the successful single operations, serialized once instead of per response
+    private static final Map<String, String> DONE = done(BRIDGE_CREATED, BRIDGE_DELETED, PORT_ADDED, PORT_DELETED,
+                                                         PATCH_PEER_CREATED, VXLAN_CREATED, PATH_INTENT_CREATED);
+
     /**
      * Get hello world greeting.
      *
@@ -59,344 +125,1119 @@ public class AppWebResource extends AbstractWebResource {
     /**
      * Create a Bridge using JSON.
      * @param stream JSON Parameter
-     * @return OK 200
+     * @param timeout optional time in milliseconds to wait for the operation
+     * @param asyncResponse response completed when the operation finishes
      * @onos.rsModel create_delete_Bridge
      */
     @POST
     @Path("createBridge/")
     @Consumes(MediaType.APPLICATION_JSON)
     @Produces(MediaType.APPLICATION_JSON)
-    public Response addBridge(InputStream stream) {
-        ObjectNode node = mapper().createObjectNode();
+    public void addBridge(InputStream stream,
+                          @QueryParam(TIMEOUT) long timeout,
+                          @Suspended AsyncResponse asyncResponse) {
+        setTimeout(asyncResponse, timeout);
         try {
-            ObjectNode jsonTree = readTreeFromStream(mapper(), stream);
-
-            String ovsdbIP = jsonTree.get("ovsdb-ip").asText();
-            String bridgeName = jsonTree.get("bridge-name").asText();
-
-            if (ovsdbIP == null || bridgeName == null) {
-                node.put("bridge-created:", "false");
-                node.put("error:", "The JSON was not complete to make the operation");
-                return Response.status(Response.Status.BAD_REQUEST).entity(node).build();
-            }
-            // Changing the values to be able to use the create Bridge app
-            IpAddress ovsdbAddress = IpAddress.valueOf(ovsdbIP);
-            // Go to the createBridge function to create the bridge according to the given information
+            BridgeOperation operation = RequestBinder.bindOperation(stream, BridgeOperation.Type.CREATE_BRIDGE);
             OvsdbBridgeService ovsdbBridgeService = get(OvsdbBridgeService.class);
-            ovsdbBridgeService.createBridge(ovsdbAddress, bridgeName);
-
-            node.put("bridge-created:", "true");
-            return ok(node).build();
-        } catch (OvsdbRestException.OvsdbDeviceException | IOException ex) {
-            node.put("bridge-created:", "false");
-            node.put("error:", ex.getMessage());
-            return Response.status(Response.Status.BAD_REQUEST).entity(node).build();
-        } catch (OvsdbRestException.BridgeAlreadyExistsException ex) {
-            node.put("bridge-created:", "false");
-            node.put("error:",
-                    "The Bridge Already Exists, please use another name");
-            return Response.status(Response.Status.BAD_REQUEST).entity(node).build();
-        } catch (Exception ex) {
-            node.put("bridge-created:", "false");
-            node.put("error:", "There was an error with the structure of the JSON");
-            return Response.status(Response.Status.CONFLICT).entity(node).build();
+            resume(asyncResponse, BRIDGE_CREATED,
+                   ovsdbBridgeService.createBridgeAsync(operation.ovsdbAddress(), operation.bridgeName()));
+        } catch (IOException | RequestBinder.InvalidRequestException ex) {
+            asyncResponse.resume(invalidRequest(BRIDGE_CREATED, ex));
+        } catch (RuntimeException ex) {
+            asyncResponse.resume(errorResponse(mapper().createObjectNode().put(BRIDGE_CREATED, "false"), ex));
         }
     }
 
     /**
      * Delete a Bridge using JSON.
      * @param stream JSON Parameter
-     * @return OK 200
+     * @param timeout optional time in milliseconds to wait for the operation
+     * @param asyncResponse response completed when the operation finishes
      * @onos.rsModel create_delete_Bridge
      */
     @POST
     @Path("deleteBridge/")
     @Consumes(MediaType.APPLICATION_JSON)
     @Produces(MediaType.APPLICATION_JSON)
-    public Response deleteBridge(InputStream stream) {
+    public void deleteBridge(InputStream stream,
+                             @QueryParam(TIMEOUT) long timeout,
+                             @Suspended AsyncResponse asyncResponse) {
+        setTimeout(asyncResponse, timeout);
+        try {
+            BridgeOperation operation = RequestBinder.bindOperation(stream, BridgeOperation.Type.DELETE_BRIDGE);
+            OvsdbBridgeService ovsdbBridgeService = get(OvsdbBridgeService.class);
+            resume(asyncResponse, BRIDGE_DELETED,
+                   ovsdbBridgeService.deleteBridgeAsync(operation.ovsdbAddress(), operation.bridgeName()));
+        } catch (IOException | RequestBinder.InvalidRequestException ex) {
+            asyncResponse.resume(invalidRequest(BRIDGE_DELETED, ex));
+        } catch (RuntimeException ex) {
+            asyncResponse.resume(errorResponse(mapper().createObjectNode().put(BRIDGE_DELETED, "false"), ex));
+        }
+    }
 
-        ObjectNode node = mapper().createObjectNode();
+    /**
+     * Add a port in the bridge with the given information.
+     * @param stream JSON Parameter
+     * @param timeout optional time in milliseconds to wait for the operation
+     * @param asyncResponse response completed when the operation finishes
+     * @onos.rsModel add_delete_Port
+     */
+    @POST
+    @Path("addPort/")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public void addPort(InputStream stream,
+                        @QueryParam(TIMEOUT) long timeout,
+                        @Suspended AsyncResponse asyncResponse) {
+        setTimeout(asyncResponse, timeout);
         try {
-            ObjectNode jsonTree = readTreeFromStream(mapper(), stream);
+            BridgeOperation operation = RequestBinder.bindOperation(stream, BridgeOperation.Type.ADD_PORT);
+            OvsdbBridgeService ovsdbBridgeService = get(OvsdbBridgeService.class);
+            resume(asyncResponse, PORT_ADDED,
+                   ovsdbBridgeService.addPortAsync(operation.ovsdbAddress(), operation.bridgeName(),
+                                                  operation.portName()));
+        } catch (IOException | RequestBinder.InvalidRequestException ex) {
+            asyncResponse.resume(invalidRequest(PORT_ADDED, ex));
+        } catch (RuntimeException ex) {
+            asyncResponse.resume(errorResponse(mapper().createObjectNode().put(PORT_ADDED, "false"), ex));
+        }
+    }
 
-            String ovsdbIP = jsonTree.get("ovsdb-ip").asText();
-            String bridgeName = jsonTree.get("bridge-name").asText();
+    /**
+     * Delete the port of a bridge.
+     * @param stream JSON Parameter
+     * @param timeout optional time in milliseconds to wait for the operation
+     * @param asyncResponse response completed when the operation finishes
+     * @onos.rsModel add_delete_Port
+     */
+    @POST
+    @Path("deletePort/")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public void deletePort(InputStream stream,
+                           @QueryParam(TIMEOUT) long timeout,
+                           @Suspended AsyncResponse asyncResponse) {
+        setTimeout(asyncResponse, timeout);
+        try {
+            BridgeOperation operation = RequestBinder.bindOperation(stream, BridgeOperation.Type.DELETE_PORT);
+            OvsdbBridgeService ovsdbBridgeService = get(OvsdbBridgeService.class);
+            resume(asyncResponse, PORT_DELETED,
+                   ovsdbBridgeService.removePortAsync(operation.ovsdbAddress(), operation.bridgeName(),
+                                                     operation.portName()));
+        } catch (IOException | RequestBinder.InvalidRequestException ex) {
+            asyncResponse.resume(invalidRequest(PORT_DELETED, ex));
+        } catch (RuntimeException ex) {
+            asyncResponse.resume(errorResponse(mapper().createObjectNode().put(PORT_DELETED, "false"), ex));
+        }
+    }
 
-            if (ovsdbIP == null || bridgeName == null) {
-                node.put("bridge-created:", "false");
-                node.put("error:", "The JSON was not complete to make the operation");
-                return Response.status(Response.Status.BAD_REQUEST).entity(node).build();
-            }
-            // Changing the values to be able to use the create Bridge app
-            IpAddress ovsdbAddress = IpAddress.valueOf(ovsdbIP);
+    /**
+     * Creates Patch Peer Port to connect with another port.
+     * @param stream JSON Configuration
+     * @param timeout optional time in milliseconds to wait for the operation
+     * @param asyncResponse response completed when the operation finishes
+     * @onos.rsModel createPatchPeerPort
+     */
+    @POST
+    @Path("createPatchPeerPort/")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public void createPatchPeerPort(InputStream stream,
+                                    @QueryParam(TIMEOUT) long timeout,
+                                    @Suspended AsyncResponse asyncResponse) {
+        setTimeout(asyncResponse, timeout);
+        try {
+            BridgeOperation operation =
+                    RequestBinder.bindOperation(stream, BridgeOperation.Type.CREATE_PATCH_PEER_PORT);
+            OvsdbBridgeService ovsdbBridgeService = get(OvsdbBridgeService.class);
+            resume(asyncResponse, PATCH_PEER_CREATED,
+                   ovsdbBridgeService.createPatchPeerPortAsync(operation.ovsdbAddress(), operation.bridgeName(),
+                                                              operation.portName(), operation.patchPeer()));
+        } catch (IOException | RequestBinder.InvalidRequestException ex) {
+            asyncResponse.resume(invalidRequest(PATCH_PEER_CREATED, ex));
+        } catch (RuntimeException ex) {
+            asyncResponse.resume(errorResponse(mapper().createObjectNode().put(PATCH_PEER_CREATED, "false"), ex));
+        }
+    }
 
+    /**
+     * Create a VXLAN Tunnel Port.
+     * @param stream JSON Configuration
+     * @param timeout optional time in milliseconds to wait for the operation
+     * @param asyncResponse response completed when the operation finishes
+     * @onos.rsModel addVxlanTunnel
+     */
+    @POST
+    @Path("createVxlanTunnel/")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public void addVxlanTunnel(InputStream stream,
+                               @QueryParam(TIMEOUT) long timeout,
+                               @Suspended AsyncResponse asyncResponse) {
+        setTimeout(asyncResponse, timeout);
+        try {
+            BridgeOperation operation = RequestBinder.bindOperation(stream, BridgeOperation.Type.CREATE_VXLAN_TUNNEL);
             OvsdbBridgeService ovsdbBridgeService = get(OvsdbBridgeService.class);
-            ovsdbBridgeService.deleteBridge(ovsdbAddress, bridgeName);
+            resume(asyncResponse, VXLAN_CREATED,
+                   ovsdbBridgeService.createVxlanTunnelAsync(operation.ovsdbAddress(), operation.bridgeName(),
+                                                            operation.portName(), operation.remoteIp(),
+                                                            operation.key()));
+        } catch (IOException | RequestBinder.InvalidRequestException ex) {
+            asyncResponse.resume(invalidRequest(VXLAN_CREATED, ex));
+        } catch (RuntimeException ex) {
+            asyncResponse.resume(errorResponse(mapper().createObjectNode().put(VXLAN_CREATED, "false"), ex));
+        }
+    }
 
-            node.put("bridge-deleted:", "true");
-            // Return 200 OK
-            return ok(node).build();
-        } catch (OvsdbRestException.BridgeNotFoundException ex) {
-            node.put("bridge-created:", "false");
-            node.put("error:", "The bridge was not found");
-            return Response.status(Response.Status.BAD_REQUEST).entity(node).build();
-        } catch (OvsdbRestException.OvsdbDeviceException | IOException ex) {
-            node.put("bridge-created:", "false");
-            node.put("error:", ex.getMessage());
-            return Response.status(Response.Status.BAD_REQUEST).entity(node).build();
-        } catch (Exception ex) {
-            node.put("bridge-created:", "false");
-            node.put("error:", "There was an error with the structure of the JSON");
-            return Response.status(Response.Status.CONFLICT).entity(node).build();
+    /**
+     * Create a Path Intent for a known Path Port.
+     * @param stream JSON Configuration to make the PathIntent
+     * @param timeout optional time in milliseconds to wait for the operation
+     * @param asyncResponse response completed when the operation finishes
+     * @onos.rsModel PathIntent
+     */
+    @POST
+    @Path("createPathIntent/")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public void createPathIntent(InputStream stream,
+                                 @QueryParam(TIMEOUT) long timeout,
+                                 @Suspended AsyncResponse asyncResponse) {
+        setTimeout(asyncResponse, timeout);
+        try {
+            PathIntentRequest request = RequestBinder.bindPathIntent(stream);
+            log.info("The path was set as {}", request.setType());
+            OvsdbBridgeService ovsdbBridgeService = get(OvsdbBridgeService.class);
+            resume(asyncResponse, PATH_INTENT_CREATED,
+                   ovsdbBridgeService.createPathIntentAsync(request.srcId(), request.dstId(), request.portSrc(),
+                                                            request.portDst(), request.setType()));
+        } catch (IOException | RequestBinder.InvalidRequestException ex) {
+            asyncResponse.resume(invalidRequest(PATH_INTENT_CREATED, ex));
+        } catch (RuntimeException ex) {
+            asyncResponse.resume(errorResponse(mapper().createObjectNode().put(PATH_INTENT_CREATED, "false"), ex));
         }
     }
 
     /**
-     * Add a port in the bridge with the given information.
-     * @param stream JSON Parameter
-     * @return 200 OK
-     * @onos.rsModel add_delete_Port
+     * Make many bridge, port and tunnel operations in one request. The operations of the
+     * same ovsdb-ip are made in order, a failed operation does not stop the others.
+     * @param stream JSON with the list of operations
+     * @param timeout optional time in milliseconds to wait for the operations
+     * @param asyncResponse response completed with the result of every operation
+     * @onos.rsModel batch
      */
     @POST
-    @Path("addPort/")
+    @Path("batch/")
     @Consumes(MediaType.APPLICATION_JSON)
     @Produces(MediaType.APPLICATION_JSON)
-    public Response addPort(InputStream stream) {
+    public void applyBatch(InputStream stream,
+                           @QueryParam(TIMEOUT) long timeout,
+                           @Suspended AsyncResponse asyncResponse) {
+        setTimeout(asyncResponse, timeout);
         ObjectNode node = mapper().createObjectNode();
         try {
             ObjectNode jsonTree = readTreeFromStream(mapper(), stream);
-
-            String ovsdbIP = jsonTree.get("ovsdb-ip").asText();
-            String bridgeName = jsonTree.get("bridge-name").asText();
-            String portName = jsonTree.get("port-name").asText();
-
-            if (ovsdbIP == null || bridgeName == null || portName == null) {
-                node.put("bridge-created:", "false");
+            JsonNode jsonOperations = jsonTree.get("operations");
+            if (jsonOperations == null || !jsonOperations.isArray()) {
+                node.put("batch-done:", "false");
                 node.put("error:", "The JSON was not complete to make the operation");
-                return Response.status(Response.Status.BAD_REQUEST).entity(node).build();
+                asyncResponse.resume(Response.status(Response.Status.BAD_REQUEST).entity(node).build());
+                return;
             }
-            log.info("See if the IP Address is valid");
-            IpAddress ovsdbAddress = IpAddress.valueOf(ovsdbIP);
-            log.info("Start the addPort function");
-            OvsdbBridgeService ovsdbBridgeService = get(OvsdbBridgeService.class);
-            ovsdbBridgeService.addPort(ovsdbAddress, bridgeName, portName);
 
-            node.put("port-added:", "true");
-            // Return 200 OK
-            return ok(node).build();
+            ArrayNode results = node.putArray("results");
+            List<BridgeOperation> operations = new ArrayList<>();
+            List<ObjectNode> operationResults = new ArrayList<>();
+            for (JsonNode jsonOperation : jsonOperations) {
+                ObjectNode result = results.addObject();
+                result.put("operation", jsonOperation.path("operation").asText());
+                result.put("ovsdb-ip", jsonOperation.path("ovsdb-ip").asText());
+                try {
+                    operations.add(decodeOperation(jsonOperation));
+                    operationResults.add(result);
+                } catch (Exception ex) {
+                    result.put("done:", "false");
+                    result.put("error:", "There was an error with the structure of the JSON");
+                }
+            }
 
-        } catch (OvsdbRestException.BridgeNotFoundException ex) {
-            node.put("port-added:", "false");
-            node.put("error:", "The bridge was not found");
-            return Response.status(Response.Status.BAD_REQUEST).entity(node).build();
-        } catch (OvsdbRestException.OvsdbDeviceException | IOException ex) {
-            node.put("port-added:", "false");
+            log.info("Start the batch of {} operations...", operations.size());
+            OvsdbBridgeService ovsdbBridgeService = get(OvsdbBridgeService.class);
+            ovsdbBridgeService.applyBatchAsync(operations).whenComplete((batchResults, error) -> {
+                if (error != null) {
+                    ObjectNode errorNode = mapper().createObjectNode().put("batch-done:", "false");
+                    asyncResponse.resume(errorResponse(errorNode, error));
+                    return;
+                }
+                for (int i = 0; i < batchResults.size(); i++) {
+                    BridgeOperationResult batchResult = batchResults.get(i);
+                    ObjectNode result = operationResults.get(i);
+                    result.put("done:", String.valueOf(batchResult.isSuccess()));
+                    if (!batchResult.isSuccess()) {
+                        result.put("error:", batchResult.error());
+                    }
+                }
+                node.put("batch-done:", "true");
+                // Return 200 OK
+                asyncResponse.resume(ok(node).build());
+            });
+        } catch (IOException ex) {
+            node.put("batch-done:", "false");
             node.put("error:", ex.getMessage());
-            return Response.status(Response.Status.BAD_REQUEST).entity(node).build();
-        } catch (Exception ex) {
-            node.put("bridge-created:", "false");
-            node.put("error:", "There was an error with the structure of the JSON");
-            return Response.status(Response.Status.CONFLICT).entity(node).build();
+            asyncResponse.resume(Response.status(Response.Status.BAD_REQUEST).entity(node).build());
         }
     }
 
     /**
-     * Delete the port of a bridge.
-     * @param stream JSON Parameter
-     * @return 200 OK
-     * @onos.rsModel add_delete_Port
+     * Create the missing VXLAN tunnels of a full mesh between ovsdb nodes. Every node gets a
+     * tunnel towards every other node in the bridge, with a port name given by the remote
+     * tunnel-ip and the key. The tunnels which already exist are kept, so adding a node to a
+     * mesh only creates its new tunnels. The tunnel-ip of a node is its ovsdb-ip when it is
+     * not given.
+     * @param stream JSON with the bridge-name, the key and the list of nodes
+     * @param timeout optional time in milliseconds to wait for the tunnels
+     * @param asyncResponse response completed with the result of every new tunnel
+     * @onos.rsModel vxlanMesh
      */
     @POST
-    @Path("deletePort/")
+    @Path("vxlanMesh/")
     @Consumes(MediaType.APPLICATION_JSON)
     @Produces(MediaType.APPLICATION_JSON)
-    public Response deletePort(InputStream stream) {
+    public void provisionVxlanMesh(InputStream stream,
+                                   @QueryParam(TIMEOUT) long timeout,
+                                   @Suspended AsyncResponse asyncResponse) {
+        setTimeout(asyncResponse, timeout);
         ObjectNode node = mapper().createObjectNode();
+        String bridgeName;
+        String key;
+        Map<IpAddress, IpAddress> endpoints = new LinkedHashMap<>();
         try {
             ObjectNode jsonTree = readTreeFromStream(mapper(), stream);
+            JsonNode jsonNodes = jsonTree.get("nodes");
+            if (jsonTree.get("bridge-name") == null || jsonTree.get("key") == null
+                    || jsonNodes == null || !jsonNodes.isArray()) {
+                node.put("vxlanMesh-done:", "false");
+                node.put("error:", "The JSON was not complete to make the operation");
+                asyncResponse.resume(Response.status(Response.Status.BAD_REQUEST).entity(node).build());
+                return;
+            }
+            bridgeName = jsonTree.get("bridge-name").asText();
+            key = jsonTree.get("key").asText();
+            for (JsonNode jsonNode : jsonNodes) {
+                IpAddress ovsdbAddress = IpAddress.valueOf(jsonNode.get("ovsdb-ip").asText());
+                endpoints.put(ovsdbAddress, jsonNode.has("tunnel-ip") ?
+                        IpAddress.valueOf(jsonNode.get("tunnel-ip").asText()) : ovsdbAddress);
+            }
+        } catch (Exception ex) {
+            node.put("vxlanMesh-done:", "false");
+            node.put("error:", "There was an error with the structure of the JSON");
+            asyncResponse.resume(Response.status(Response.Status.BAD_REQUEST).entity(node).build());
+            return;
+        }
 
-            String ovsdbIP = jsonTree.get("ovsdb-ip").asText();
-            String bridgeName = jsonTree.get("bridge-name").asText();
-            String portName = jsonTree.get("port-name").asText();
+        log.info("Start the VXLAN mesh of {} nodes...", endpoints.size());
+        OvsdbBridgeService ovsdbBridgeService = get(OvsdbBridgeService.class);
+        ovsdbBridgeService.provisionVxlanMeshAsync(endpoints, bridgeName, key).whenComplete((meshResults, error) -> {
+            if (error != null) {
+                ObjectNode errorNode = mapper().createObjectNode().put("vxlanMesh-done:", "false");
+                asyncResponse.resume(errorResponse(errorNode, error));
+                return;
+            }
+            ArrayNode results = node.putArray("tunnels");
+            for (BridgeOperationResult meshResult : meshResults) {
+                BridgeOperation operation = meshResult.operation();
+                ObjectNode result = results.addObject()
+                        .put("ovsdb-ip", operation.ovsdbAddress().toString())
+                        .put("port-name", operation.portName())
+                        .put("remote-ip", operation.remoteIp().toString())
+                        .put("done:", String.valueOf(meshResult.isSuccess()));
+                if (!meshResult.isSuccess()) {
+                    result.put("error:", meshResult.error());
+                }
+            }
+            node.put("vxlanMesh-done:", "true");
+            asyncResponse.resume(ok(node).build());
+        });
+    }
 
-            if (ovsdbIP == null || bridgeName == null || portName == null) {
-                node.put("bridge-created:", "false");
+    /**
+     * Create many Path Intents in one request and follow their state. The answer has the
+     * id of the batch, which is used to ask for the state of the intents later on.
+     * @param stream JSON with the list of path intents
+     * @param wait optional time in milliseconds to wait for the intents to be installed or
+     *             failed, without it the request is answered once the intents are submitted
+     * @param timeout optional time in milliseconds to wait for the submission
+     * @param asyncResponse response completed with the state of every intent, 200 OK if all
+     *                      the intents are done and 202 Accepted if some are still pending
+     * @onos.rsModel PathIntents
+     */
+    @POST
+    @Path("pathIntents/")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public void createPathIntents(InputStream stream,
+                                  @QueryParam(WAIT) long wait,
+                                  @QueryParam(TIMEOUT) long timeout,
+                                  @Suspended AsyncResponse asyncResponse) {
+        setTimeout(asyncResponse, timeout);
+        ObjectNode node = mapper().createObjectNode();
+        try {
+            ObjectNode jsonTree = readTreeFromStream(mapper(), stream);
+            JsonNode jsonIntents = jsonTree.get("intents");
+            if (jsonIntents == null || !jsonIntents.isArray()) {
+                node.put("pathIntents-created:", "false");
                 node.put("error:", "The JSON was not complete to make the operation");
-                return Response.status(Response.Status.BAD_REQUEST).entity(node).build();
+                asyncResponse.resume(Response.status(Response.Status.BAD_REQUEST).entity(node).build());
+                return;
+            }
+            List<PathIntentRequest> requests = new ArrayList<>();
+            for (JsonNode jsonIntent : jsonIntents) {
+                requests.add(decodePathIntent(jsonIntent));
             }
-            log.info("See if the IP Address is valid");
-            IpAddress ovsdbAddress = IpAddress.valueOf(ovsdbIP);
 
+            log.info("Start the creation of {} path intents...", requests.size());
             OvsdbBridgeService ovsdbBridgeService = get(OvsdbBridgeService.class);
-            ovsdbBridgeService.removePort(ovsdbAddress, bridgeName, portName);
-
-            node.put("port-deleted:", "true");
-            // Return 200 OK
-            return ok(node).build();
-
-        } catch (OvsdbRestException.BridgeNotFoundException ex) {
-            node.put("bridge-created:", "false");
-            node.put("error:", "The bridge was not found");
-            return Response.status(Response.Status.BAD_REQUEST).entity(node).build();
-        } catch (OvsdbRestException.OvsdbDeviceException | IOException ex) {
-            node.put("bridge-created:", "false");
-            node.put("error:", ex.getMessage());
-            return Response.status(Response.Status.BAD_REQUEST).entity(node).build();
+            ovsdbBridgeService.createPathIntentsAsync(requests)
+                    .thenCompose(status -> wait > 0 ?
+                            ovsdbBridgeService.awaitPathIntents(status.id(), wait) :
+                            CompletableFuture.completedFuture(status))
+                    .whenComplete((status, error) -> {
+                        if (error != null) {
+                            ObjectNode errorNode = mapper().createObjectNode().put("pathIntents-created:", "false");
+                            asyncResponse.resume(errorResponse(errorNode, error));
+                        } else {
+                            asyncResponse.resume(batchResponse(status));
+                        }
+                    });
         } catch (Exception ex) {
-            node.put("bridge-created:", "false");
+            node.put("pathIntents-created:", "false");
             node.put("error:", "There was an error with the structure of the JSON");
-            return Response.status(Response.Status.CONFLICT).entity(node).build();
+            asyncResponse.resume(Response.status(Response.Status.BAD_REQUEST).entity(node).build());
         }
     }
 
     /**
-     * Creates Patch Peer Port to connect with another port.
-     * @param stream JSON Configuration
-     * @return 200 OK If everything goes fine
-     * @onos.rsModel createPatchPeerPort
+     * Withdraw many Path Intents in one request, given with the same fields used to create
+     * them, or all the Path Intents of the application.
+     * @param stream JSON with the list of path intents, or with all set to true, and with
+     *               purge set to true to also remove the intents from the intent store
+     * @return 200 OK with the keys of the intents which were found
+     * @onos.rsModel withdrawPathIntents
      */
     @POST
-    @Path("createPatchPeerPort/")
+    @Path("withdrawPathIntents/")
     @Consumes(MediaType.APPLICATION_JSON)
     @Produces(MediaType.APPLICATION_JSON)
-    public Response createPatchPeerPort(InputStream stream) {
+    public Response withdrawPathIntents(InputStream stream) {
         ObjectNode node = mapper().createObjectNode();
         try {
             ObjectNode jsonTree = readTreeFromStream(mapper(), stream);
-
-            String ovsdbIp = jsonTree.get("ovsdb-ip").asText();
-            String bridgeName = jsonTree.get("bridge-name").asText();
-            String portName = jsonTree.get("port-name").asText();
-            String patchPeer = jsonTree.get("patch-peer").asText();
-
-            if (ovsdbIp == null || bridgeName == null || portName == null || patchPeer == null) {
-                node.put("bridge-created:", "false");
-                node.put("error:", "The JSON was not complete to make the operation");
-                return Response.status(Response.Status.BAD_REQUEST).entity(node).build();
-            }
-            log.info("Checking the address...");
-            IpAddress ovsdbAddress = IpAddress.valueOf(ovsdbIp);
-            log.info("Start the process in the createPatchPeerPort function...");
+            boolean purge = jsonTree.path("purge").asBoolean(false);
             OvsdbBridgeService ovsdbBridgeService = get(OvsdbBridgeService.class);
-            ovsdbBridgeService.createPatchPeerPort(ovsdbAddress, bridgeName, portName, patchPeer);
-
-            node.put("patch-peer-created:", "true");
-            // Return 200 OK
+            List<Key> keys;
+            if (jsonTree.path("all").asBoolean(false)) {
+                keys = ovsdbBridgeService.withdrawAllPathIntents(purge);
+            } else {
+                JsonNode jsonIntents = jsonTree.get("intents");
+                if (jsonIntents == null || !jsonIntents.isArray()) {
+                    node.put("pathIntents-withdrawn:", "false");
+                    node.put("error:", "The JSON was not complete to make the operation");
+                    return Response.status(Response.Status.BAD_REQUEST).entity(node).build();
+                }
+                List<PathIntentRequest> requests = new ArrayList<>();
+                for (JsonNode jsonIntent : jsonIntents) {
+                    requests.add(decodePathIntent(jsonIntent));
+                }
+                keys = ovsdbBridgeService.withdrawPathIntents(requests, purge);
+            }
+            node.put("pathIntents-withdrawn:", "true");
+            ArrayNode withdrawn = node.putArray("keys");
+            keys.forEach(key -> withdrawn.add(key.toString()));
             return ok(node).build();
-        } catch (OvsdbRestException.OvsdbDeviceException | IOException ex) {
-            node.put("bridge-created:", "false");
-            node.put("error:", ex.getMessage());
-            return Response.status(Response.Status.BAD_REQUEST).entity(node).build();
-        } catch (OvsdbRestException.BridgeNotFoundException ex) {
-            node.put("bridge-created:", "false");
-            node.put("error:", "The bridge was not found");
-            return Response.status(Response.Status.BAD_REQUEST).entity(node).build();
         } catch (Exception ex) {
-            node.put("bridge-created:", "false");
+            node.put("pathIntents-withdrawn:", "false");
             node.put("error:", "There was an error with the structure of the JSON");
-            return Response.status(Response.Status.CONFLICT).entity(node).build();
+            return Response.status(Response.Status.BAD_REQUEST).entity(node).build();
         }
     }
 
     /**
-     * Create a VXLAN Tunnel Port.
-     * @param stream JSON Configuration
-     * @onos.rsModel addVxlanTunnel
-     * @return OK 200
+     * Get the state of the Path Intents created in one request.
+     * @param batchId the id of the batch given when the intents were created
+     * @param wait optional time in milliseconds to wait for the intents to be installed or
+     *             failed, without it the current state is given
+     * @param asyncResponse response completed with the state of every intent, 200 OK if all
+     *                      the intents are done, 202 Accepted if some are still pending and
+     *                      404 Not Found if the batch is unknown or it expired, and the
+     *                      error of the wait otherwise
+     */
+    @GET
+    @Path("pathIntents/{batchId}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public void getPathIntents(@PathParam("batchId") long batchId,
+                               @QueryParam(WAIT) long wait,
+                               @Suspended AsyncResponse asyncResponse) {
+        OvsdbBridgeService ovsdbBridgeService = get(OvsdbBridgeService.class);
+        CompletableFuture<IntentBatchStatus> future = wait > 0 ?
+                ovsdbBridgeService.awaitPathIntents(batchId, wait) :
+                CompletableFuture.completedFuture(ovsdbBridgeService.pathIntentStatus(batchId));
+        if (future == null) {
+            asyncResponse.resume(batchResponse(null));
+            return;
+        }
+        future.whenComplete((status, error) -> {
+            if (error != null) {
+                ObjectNode errorNode = mapper().createObjectNode().put("batch-id", batchId);
+                asyncResponse.resume(errorResponse(errorNode, error));
+            } else {
+                asyncResponse.resume(batchResponse(status));
+            }
+        });
+    }
+
+    /**
+     * Builds the response with the state of a bulk of path intents.
+     *
+     * @param status the state of the batch, null if it is unknown
+     * @return the response with the state of every intent
+     */
+    private Response batchResponse(IntentBatchStatus status) {
+        ObjectNode node = mapper().createObjectNode();
+        if (status == null) {
+            node.put("error:", "The batch of path intents was not found");
+            return Response.status(Response.Status.NOT_FOUND).entity(node).build();
+        }
+        node.put("batch-id", status.id());
+        node.put("status", status.isInstalled() ? "INSTALLED" : status.isDone() ? "FAILED" : "PENDING");
+        ArrayNode intents = node.putArray("intents");
+        for (IntentStatus intentStatus : status.intents()) {
+            PathIntentRequest request = intentStatus.request();
+            ObjectNode intent = intents.addObject()
+                    .put("src-id", request.srcId())
+                    .put("dst-id", request.dstId())
+                    .put("port-src", request.portSrc())
+                    .put("port-dst", request.portDst())
+                    .put("setType", request.setType().name());
+            if (intentStatus.key() != null) {
+                intent.put("key", intentStatus.key().toString());
+                intent.put("state", intentStatus.state().name());
+            } else {
+                intent.put("error:", intentStatus.error());
+            }
+        }
+        Response.Status code = status.isDone() ? Response.Status.OK : Response.Status.ACCEPTED;
+        return Response.status(code).entity(node).build();
+    }
+
+    /**
+     * Set the desired bridges, ports and tunnels of an ovsdb node. The node is reconciled with
+     * them in the background, only the missing bridges and ports are created and the extra
+     * ports of the bridges are removed, and it is kept that way, such as after a restart of
+     * the switch. The bridges which were in the previous topology of the node are deleted.
+     * @param stream JSON with the ovsdb-ip and the list of bridges, every bridge with its
+     *               bridge-name and its ports
+     * @return 202 Accepted when the topology was recorded
+     * @onos.rsModel nodeTopology
      */
     @POST
-    @Path("createVxlanTunnel/")
+    @Path("nodeTopology/")
     @Consumes(MediaType.APPLICATION_JSON)
     @Produces(MediaType.APPLICATION_JSON)
-    public Response addVxlanTunnel(InputStream stream) {
+    public Response setNodeTopology(InputStream stream) {
         ObjectNode node = mapper().createObjectNode();
+        IpAddress ovsdbAddress;
+        NodeTopology topology;
         try {
             ObjectNode jsonTree = readTreeFromStream(mapper(), stream);
+            JsonNode jsonBridges = jsonTree.get("bridges");
+            if (jsonTree.get("ovsdb-ip") == null || jsonBridges == null || !jsonBridges.isArray()) {
+                node.put("topology-accepted:", "false");
+                node.put("error:", "The JSON was not complete to make the operation");
+                return Response.status(Response.Status.BAD_REQUEST).entity(node).build();
+            }
+            ovsdbAddress = IpAddress.valueOf(jsonTree.get("ovsdb-ip").asText());
+            topology = decodeTopology(jsonBridges);
+        } catch (Exception ex) {
+            node.put("topology-accepted:", "false");
+            node.put("error:", "There was an error with the structure of the JSON");
+            return Response.status(Response.Status.BAD_REQUEST).entity(node).build();
+        }
+        try {
+            get(OvsdbBridgeService.class).setDesiredTopology(ovsdbAddress, topology);
+        } catch (Exception ex) {
+            log.warn("Failed to set the topology of {}", ovsdbAddress, ex);
+            node.put("topology-accepted:", "false");
+            node.put("error:", "The topology could not be recorded");
+            return Response.status(Response.Status.SERVICE_UNAVAILABLE).entity(node).build();
+        }
+        node.put("topology-accepted:", "true");
+        return Response.status(Response.Status.ACCEPTED).entity(node).build();
+    }
 
-            String ovsdbIp = jsonTree.get("ovsdb-ip").asText();
-            String bridgeName = jsonTree.get("bridge-name").asText();
-            String portName = jsonTree.get("port-name").asText();
-            String remoteIp = jsonTree.get("remote-ip").asText();
-            String key = jsonTree.get("key").asText();
+    /**
+     * Get the reconciliation state of the ovsdb nodes reconciled by this instance, after
+     * their last reconciliation pass. The convergence time is the time the node took to
+     * match its desired topology the last time it was out of sync, in milliseconds.
+     *
+     * @return 200 OK with the state of every node
+     */
+    @GET
+    @Path("reconcile/")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getReconcileStatus() {
+        ObjectNode node = mapper().createObjectNode();
+        ArrayNode nodes = node.putArray("nodes");
+        for (NodeConvergence convergence : get(OvsdbBridgeService.class).reconcileStatus()) {
+            ObjectNode jsonNode = nodes.addObject()
+                    .put("ovsdb-id", convergence.ovsdbId().toString())
+                    .put("converged", convergence.isConverged())
+                    .put("last-pass", convergence.lastPassMillis())
+                    .put("convergence-ms", convergence.convergenceMillis())
+                    .put("applied", convergence.appliedChanges())
+                    .put("failed", convergence.failedChanges());
+            if (convergence.error() != null) {
+                jsonNode.put("error:", convergence.error());
+            }
+        }
+        return ok(node).build();
+    }
 
+    /**
+     * Get the bridges of an ovsdb node with their datapath ids. The answer comes from a
+     * snapshot of the node which is refreshed in the background, its version is given as the
+     * ETag, and a request with that version in If-None-Match is answered with 304 Not Modified
+     * while the node does not change.
+     *
+     * @param ovsdbIp IP Address of the ovsdb node
+     * @param request the request, for its conditional headers
+     * @return 200 OK with the bridges, 304 Not Modified or 404 Not Found if the node is not
+     * available
+     */
+    @GET
+    @Path("nodes/{ovsdb-ip}/bridges")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getBridges(@PathParam(OVSDB_IP) String ovsdbIp, @Context Request request) {
+        return snapshotResponse(ovsdbIp, request, (snapshot, node) -> {
+            ArrayNode bridges = node.putArray("bridges");
+            snapshot.bridges().forEach((bridgeName, bridgeId) -> bridges.addObject()
+                    .put("bridge-name", bridgeName)
+                    .put("bridge-id", bridgeId.toString()));
+        });
+    }
 
-            if (ovsdbIp == null || bridgeName == null || portName == null ||
-                    remoteIp == null || key == null) {
-                node.put("bridge-created:", "false");
-                node.put("error:", "The JSON was not complete to make the operation");
-                return Response.status(Response.Status.CONFLICT).entity(node).build();
+    /**
+     * Get the ports of the bridges of an ovsdb node, with the same snapshot and ETag of the
+     * bridges. The ports of a bridge are only known while its OpenFlow device is connected.
+     *
+     * @param ovsdbIp IP Address of the ovsdb node
+     * @param request the request, for its conditional headers
+     * @return 200 OK with the ports of every bridge, 304 Not Modified or 404 Not Found if the
+     * node is not available
+     */
+    @GET
+    @Path("nodes/{ovsdb-ip}/ports")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getPorts(@PathParam(OVSDB_IP) String ovsdbIp, @Context Request request) {
+        return snapshotResponse(ovsdbIp, request, (snapshot, node) -> {
+            ArrayNode bridges = node.putArray("bridges");
+            snapshot.ports().forEach((bridgeName, portNames) -> {
+                ArrayNode ports = bridges.addObject().put("bridge-name", bridgeName).putArray("ports");
+                portNames.forEach(ports::add);
+            });
+        });
+    }
+
+    /**
+     * Get the VXLAN tunnels of the bridges of an ovsdb node, with the same snapshot and ETag
+     * of the bridges. Only the tunnels asked through this application are known.
+     *
+     * @param ovsdbIp IP Address of the ovsdb node
+     * @param request the request, for its conditional headers
+     * @return 200 OK with the tunnels of every bridge, 304 Not Modified or 404 Not Found if
+     * the node is not available
+     */
+    @GET
+    @Path("nodes/{ovsdb-ip}/tunnels")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getTunnels(@PathParam(OVSDB_IP) String ovsdbIp, @Context Request request) {
+        return snapshotResponse(ovsdbIp, request, (snapshot, node) -> {
+            ArrayNode bridges = node.putArray("bridges");
+            snapshot.tunnels().forEach((bridgeName, tunnels) -> {
+                ArrayNode ports = bridges.addObject().put("bridge-name", bridgeName).putArray("tunnels");
+                tunnels.forEach(tunnel -> ports.addObject()
+                        .put("port-name", tunnel.name())
+                        .put("remote-ip", tunnel.remoteIp().toString())
+                        .put("key", tunnel.key()));
+            });
+        });
+    }
+
+    /**
+     * Export the bridges, ports and tunnels of all the ovsdb nodes as newline delimited JSON,
+     * one record per line. The nodes come in the order of their device ids, every node starts
+     * with a "node" record followed by its "bridge", "port" and "tunnel" records and ends with
+     * a "cursor" record. A broken export is resumed by giving the last cursor received, and
+     * the last line is an "end" record with the next cursor when the limit was reached. The
+     * records are written as the nodes are read, so the memory used does not depend on the
+     * size of the inventory. The body is gzip compressed when the client accepts it.
+     *
+     * @param cursor optional cursor of the last node already received
+     * @param limit optional maximum number of nodes to export, zero or less for all of them
+     * @param acceptEncoding the encodings accepted by the client
+     * @return 200 OK with the records, 400 Bad Request if the cursor is not valid
+     */
+    @GET
+    @Path("inventory/")
+    @Produces(NDJSON)
+    public Response exportInventory(@QueryParam("cursor") String cursor,
+                                    @QueryParam("limit") int limit,
+                                    @HeaderParam(HttpHeaders.ACCEPT_ENCODING) String acceptEncoding) {
+        DeviceId after;
+        try {
+            after = cursor == null || cursor.isEmpty() ? null : DeviceId.deviceId(cursor);
+        } catch (IllegalArgumentException ex) {
+            ObjectNode node = mapper().createObjectNode().put("error:", "The cursor is not valid");
+            return Response.status(Response.Status.BAD_REQUEST).type(MediaType.APPLICATION_JSON)
+                    .entity(node).build();
+        }
+        boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase().contains(GZIP);
+        OvsdbBridgeService ovsdbBridgeService = get(OvsdbBridgeService.class);
+        StreamingOutput output = stream -> {
+            OutputStream out = gzip ? new GZIPOutputStream(stream) : stream;
+            try (JsonGenerator generator = mapper().getFactory().createGenerator(out)) {
+                // the records are separated by the new lines, not by the default space
+                generator.setRootValueSeparator(null);
+                writeInventory(generator, ovsdbBridgeService.inventory(after), limit);
             }
-            IpAddress ovsdbAddress = IpAddress.valueOf(ovsdbIp);
-            IpAddress tunnelRemoteIp = IpAddress.valueOf(remoteIp);
-            log.info("Start the createVXLAN function...");
-            OvsdbBridgeService ovsdbBridgeService = get(OvsdbBridgeService.class);
-            ovsdbBridgeService.createVxlanTunnel(ovsdbAddress, bridgeName,
-                    portName, tunnelRemoteIp, key);
+        };
+        Response.ResponseBuilder response = ok(output).header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, GZIP);
+        }
+        return response.build();
+    }
 
-            node.put("vxlan-created:", "true");
-            // Return 200 OK
-            return ok(node).build();
+    /**
+     * Writes the records of the inventory export, flushing them after every node.
+     *
+     * @param generator writes the records to the response
+     * @param nodes the snapshots of the nodes to export
+     * @param limit maximum number of nodes to export, zero or less for all of them
+     * @throws IOException if the records cannot be written
+     */
+    private void writeInventory(JsonGenerator generator, Iterator<NodeSnapshot> nodes, int limit)
+            throws IOException {
+        int count = 0;
+        String lastCursor = null;
+        while (nodes.hasNext() && (limit <= 0 || count < limit)) {
+            NodeSnapshot snapshot = nodes.next();
+            String ovsdbId = snapshot.ovsdbId().toString();
+            writeRecord(generator, "node", ovsdbId, null);
+            generator.writeNumberField("bridges", snapshot.bridges().size());
+            generator.writeNumberField("read-at", snapshot.readMillis());
+            endRecord(generator);
+            for (Map.Entry<String, DeviceId> bridge : snapshot.bridges().entrySet()) {
+                writeRecord(generator, "bridge", ovsdbId, bridge.getKey());
+                generator.writeStringField("bridge-id", bridge.getValue().toString());
+                endRecord(generator);
+            }
+            for (Map.Entry<String, Set<String>> ports : snapshot.ports().entrySet()) {
+                for (String portName : ports.getValue()) {
+                    writeRecord(generator, "port", ovsdbId, ports.getKey());
+                    generator.writeStringField("port-name", portName);
+                    endRecord(generator);
+                }
+            }
+            for (Map.Entry<String, Collection<PortSpec>> tunnels : snapshot.tunnels().entrySet()) {
+                for (PortSpec tunnel : tunnels.getValue()) {
+                    writeRecord(generator, "tunnel", ovsdbId, tunnels.getKey());
+                    generator.writeStringField("port-name", tunnel.name());
+                    generator.writeStringField("remote-ip", tunnel.remoteIp().toString());
+                    generator.writeStringField("key", tunnel.key());
+                    endRecord(generator);
+                }
+            }
+            generator.writeStartObject();
+            generator.writeStringField("type", "cursor");
+            generator.writeStringField("cursor", ovsdbId);
+            endRecord(generator);
+            generator.flush();
+            lastCursor = ovsdbId;
+            count++;
+        }
+        generator.writeStartObject();
+        generator.writeStringField("type", "end");
+        generator.writeNumberField("nodes", count);
+        if (nodes.hasNext() && lastCursor != null) {
+            generator.writeStringField("next-cursor", lastCursor);
+        }
+        endRecord(generator);
+    }
 
-        } catch (OvsdbRestException.BridgeNotFoundException ex) {
-            node.put("bridge-created:", "false");
-            node.put("error:", "The bridge was not found");
+    /**
+     * Starts a record of the inventory export with the fields shared by all the records.
+     *
+     * @param generator writes the records to the response
+     * @param type the type of the record
+     * @param ovsdbId the device id of the ovsdb node
+     * @param bridgeName the bridge of the record, null for the records of the node
+     * @throws IOException if the record cannot be written
+     */
+    private static void writeRecord(JsonGenerator generator, String type, String ovsdbId, String bridgeName)
+            throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("type", type);
+        generator.writeStringField(OVSDB_ID, ovsdbId);
+        if (bridgeName != null) {
+            generator.writeStringField(BRIDGE_NAME, bridgeName);
+        }
+    }
+
+    private static void endRecord(JsonGenerator generator) throws IOException {
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+
+    /**
+     * Subscribe to the changes of the bridges, ports, tunnels and ovsdb nodes as Server-Sent
+     * Events. The event name is the type of change, such as bridge-added or tunnel-down, and
+     * the data is a JSON object with the node, the bridge and the port. The changes come from
+     * the device events and from the operations of this application, told apart by their
+     * source. Every subscriber has a bounded buffer, the changes which do not fit are dropped
+     * and the data carries the number of dropped changes, so a client which sees it grow can
+     * read the inventory again. A comment is sent when there were no changes for 15 seconds.
+     * No thread is held by a subscriber, the changes are written by the threads of the feed,
+     * and a subscriber whose client stops reading is closed once a write takes 10 seconds.
+     *
+     * @return 200 OK with the stream of changes, 503 Service Unavailable if there are too
+     * many subscribers
+     */
+    @GET
+    @Path("changes/")
+    @Produces(EVENT_STREAM)
+    public Response getChanges() {
+        ChunkedOutput<String> output = new ChunkedOutput<>(String.class);
+        ChangeFeed.Subscription subscription = get(OvsdbBridgeService.class).subscribeChanges(
+                new ChangeFeed.Listener() {
+                    @Override
+                    public void changes(List<ChangeEvent> events, long dropped) throws IOException {
+                        // the changes already buffered are sent together
+                        StringBuilder chunk = new StringBuilder();
+                        for (ChangeEvent event : events) {
+                            chunk.append(changeEvent(event, dropped));
+                        }
+                        output.write(chunk.toString());
+                    }
+
+                    @Override
+                    public void idle() throws IOException {
+                        // also finds out when the client went away
+                        output.write(": keep-alive\n\n");
+                    }
+
+                    @Override
+                    public void closed() {
+                        try {
+                            output.close();
+                        } catch (IOException ex) {
+                            log.debug("Failed to close the change stream: {}", ex.getMessage());
+                        }
+                    }
+                });
+        if (subscription == null) {
+            ObjectNode node = mapper().createObjectNode().put("error:", "There are too many subscribers");
+            return Response.status(Response.Status.SERVICE_UNAVAILABLE).type(MediaType.APPLICATION_JSON)
+                    .entity(node).build();
+        }
+        try {
+            // queued until the response starts
+            output.write(": subscribed\n\n");
+        } catch (IOException ex) {
+            subscription.close();
+        }
+        return ok(output).header(HttpHeaders.CACHE_CONTROL, "no-cache").build();
+    }
+
+    /**
+     * Formats a change as a Server-Sent Event.
+     *
+     * @param event the change
+     * @param dropped the changes dropped for the subscriber until now
+     * @return the event
+     * @throws IOException if the data of the change cannot be written
+     */
+    private String changeEvent(ChangeEvent event, long dropped) throws IOException {
+        ObjectNode data = mapper().createObjectNode()
+                .put("type", event.type().name())
+                .put("source", event.source().name())
+                .put("time", event.timeMillis())
+                .put("dropped", dropped);
+        if (event.ovsdbId() != null) {
+            data.put(OVSDB_ID, event.ovsdbId().toString());
+        }
+        if (event.bridgeName() != null) {
+            data.put(BRIDGE_NAME, event.bridgeName());
+        }
+        if (event.portName() != null) {
+            data.put("port-name", event.portName());
+        }
+        return "id: " + event.id() + "\n"
+                + "event: " + event.type().name().toLowerCase().replace('_', '-') + "\n"
+                + "data: " + mapper().writeValueAsString(data) + "\n\n";
+    }
+
+    /**
+     * Builds the answer of a read of the snapshot of a node, or 304 Not Modified when the
+     * client already has its version.
+     *
+     * @param ovsdbIp IP Address of the ovsdb node
+     * @param request the request, for its conditional headers
+     * @param body fills the body of the answer from the snapshot
+     * @return the response
+     */
+    private Response snapshotResponse(String ovsdbIp, Request request, BiConsumer<NodeSnapshot, ObjectNode> body) {
+        ObjectNode node = mapper().createObjectNode();
+        IpAddress ovsdbAddress;
+        try {
+            ovsdbAddress = IpAddress.valueOf(ovsdbIp);
+        } catch (IllegalArgumentException ex) {
+            node.put("error:", "The ovsdb-ip is not a valid IP Address");
             return Response.status(Response.Status.BAD_REQUEST).entity(node).build();
-        } catch (OvsdbRestException.OvsdbDeviceException | IOException ex) {
-            node.put("bridge-created:", "false");
+        }
+        NodeSnapshot snapshot;
+        try {
+            snapshot = get(OvsdbBridgeService.class).nodeSnapshot(ovsdbAddress);
+        } catch (OvsdbRestException.OvsdbDeviceException ex) {
             node.put("error:", ex.getMessage());
-            return Response.status(Response.Status.BAD_REQUEST).entity(node).build();
-        } catch (Exception ex) {
-            node.put("bridge-created:", "false");
-            node.put("error:", "There was an error with the structure of the JSON");
-            return Response.status(Response.Status.CONFLICT).entity(node).build();
+            return Response.status(Response.Status.NOT_FOUND).entity(node).build();
+        }
+        EntityTag etag = new EntityTag(snapshot.version());
+        Response.ResponseBuilder notModified = request.evaluatePreconditions(etag);
+        if (notModified != null) {
+            return notModified.tag(etag).build();
         }
+        node.put(OVSDB_IP, ovsdbAddress.toString());
+        node.put("version", snapshot.version());
+        node.put("read-at", snapshot.readMillis());
+        body.accept(snapshot, node);
+        return ok(node).tag(etag).build();
     }
 
     /**
-     * Create a Path Intent for a known Path Port.
-     * @param stream JSON Configuration to make the PathIntent
-     * @onos.rsModel PathIntent
-     * @return OK 200
+     * Get the latency and the number of successes and errors of every operation.
+     * The latencies are in milliseconds, for the whole operation and for its phases
+     * (lookup, driver and intent). It also has the hits and misses of the path cache
+     * of the path intents, and the operations running, queued and rejected by the admission
+     * control of the ovsdb nodes with the time they waited in the queues, in microseconds.
+     *
+     * @return 200 OK with the statistics of the operations
      */
-    @POST
-    @Path("createPathIntent/")
-    @Consumes(MediaType.APPLICATION_JSON)
+    @GET
+    @Path("metrics/")
     @Produces(MediaType.APPLICATION_JSON)
-    public Response createPathIntent(InputStream stream) {
+    public Response getMetrics() {
         ObjectNode node = mapper().createObjectNode();
-        try {
-            ObjectNode jsonTree = readTreeFromStream(mapper(), stream);
+        ArrayNode operations = node.putArray("operations");
+        for (OperationStats stats : get(OvsdbBridgeService.class).operationStats()) {
+            ObjectNode operation = operations.addObject();
+            operation.put("operation", stats.operation());
+            operation.put("success", stats.successCount());
+            ObjectNode errors = operation.putObject("errors");
+            stats.errorCounts().forEach(errors::put);
+            ObjectNode latencies = operation.putObject("latency-ms");
+            stats.latencies().forEach((name, snapshot) -> latencies.putObject(name)
+                    .put("p50", millis(snapshot.getMedian()))
+                    .put("p99", millis(snapshot.get99thPercentile()))
+                    .put("p999", millis(snapshot.get999thPercentile()))
+                    .put("max", millis(snapshot.getMax())));
+        }
+        ObjectNode pathCache = node.putObject("path-cache");
+        get(OvsdbBridgeService.class).pathCacheStats().forEach(pathCache::put);
+        ObjectNode admission = node.putObject("admission");
+        get(OvsdbBridgeService.class).admissionStats().forEach(admission::put);
+        return ok(node).build();
+    }
 
-            String srcId = jsonTree.get("src-id").asText();
-            String dstId = jsonTree.get("dst-id").asText();
-            String portSrc = jsonTree.get("port-src").asText();
-            String portDst = jsonTree.get("port-dst").asText();
-            String setType = jsonTree.get("setType").asText();
+    private static double millis(double nanos) {
+        return nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
 
-            log.info("Start the createPathIntent...");
-            OvsdbBridgeService ovsdbBridgeService = get(OvsdbBridgeService.class);
-            if (setType.equals("PRIMARY")) {
-                log.info("The path was set as PRIMARY");
-                ovsdbBridgeService.createPathIntent(srcId, dstId, portSrc, portDst,
-                        PathIntent.ProtectionType.PRIMARY);
-            } else if (setType.equals("BACKUP")) {
-                log.info("The path was set as BACKUP");
-                ovsdbBridgeService.createPathIntent(srcId, dstId, portSrc, portDst,
-                        PathIntent.ProtectionType.BACKUP);
-            } else if (setType.equals("FAILOVER")) {
-                log.info("The path was set as FAILOVER");
-                ovsdbBridgeService.createPathIntent(srcId, dstId, portSrc, portDst,
-                        PathIntent.ProtectionType.FAILOVER);
+    /**
+     * Sets the optional timeout of a request, after it the request is answered with
+     * 504 even if the operation is still running in the device.
+     *
+     * @param asyncResponse the response of the request
+     * @param timeout the timeout in milliseconds, zero or less to wait without limit
+     */
+    private void setTimeout(AsyncResponse asyncResponse, long timeout) {
+        if (timeout <= 0) {
+            return;
+        }
+        asyncResponse.setTimeoutHandler(response -> {
+            ObjectNode node = mapper().createObjectNode();
+            node.put("error:", "The operation did not finish in " + timeout + " ms");
+            response.resume(Response.status(Response.Status.GATEWAY_TIMEOUT).entity(node).build());
+        });
+        asyncResponse.setTimeout(timeout, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Answers a request when its operation finishes.
+     *
+     * @param asyncResponse the response of the request
+     * @param field the field which tells if the operation was done
+     * @param future the future of the operation
+     */
+    private void resume(AsyncResponse asyncResponse, String field, CompletableFuture<?> future) {
+        future.whenComplete((result, error) -> {
+            if (error == null) {
+                // Return 200 OK
+                asyncResponse.resume(ok(DONE.get(field)).build());
+            } else {
+                ObjectNode node = mapper().createObjectNode();
+                node.put(field, "false");
+                asyncResponse.resume(errorResponse(node, error));
             }
+        });
+    }
 
-            node.put("createPathIntent-created:", "true");
-            // Return 200 OK
-            return ok(node).build();
+    /**
+     * Builds the response of a request whose body could not be bound.
+     *
+     * @param field the field which tells if the operation was done
+     * @param error the reason why the body is not valid
+     * @return the response with the description of the error
+     */
+    private Response invalidRequest(String field, Exception error) {
+        ObjectNode node = mapper().createObjectNode();
+        node.put(field, "false");
+        node.put("error:", error.getMessage());
+        return Response.status(Response.Status.BAD_REQUEST).entity(node).build();
+    }
 
-        } catch (Exception ex) {
-            node.put("createPathIntent-created:", "false");
-            node.put("error:", ex.getMessage());
-            return Response.status(Response.Status.BAD_REQUEST).entity(node).build();
+    /**
+     * Serializes the body of a successful single operation for each field.
+     *
+     * @param fields the fields which tell if the operations were done
+     * @return the JSON body of every field
+     */
+    private static Map<String, String> done(String... fields) {
+        ImmutableMap.Builder<String, String> bodies = ImmutableMap.builder();
+        for (String field : fields) {
+            bodies.put(field, "{\"" + field + "\":\"true\"}");
+        }
+        return bodies.build();
+    }
+
+    /**
+     * Builds the response of a failed operation.
+     *
+     * @param node the body of the response
+     * @param error the error of the operation
+     * @return the response with the description of the error
+     */
+    private Response errorResponse(ObjectNode node, Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ?
+                error.getCause() : error;
+        if (cause instanceof RejectedExecutionException) {
+            node.put("error:", "There are too many pending operations, please try again later");
+            return Response.status(Response.Status.SERVICE_UNAVAILABLE).entity(node).build();
+        } else if (cause instanceof OvsdbRestException.NodeBusyException) {
+            node.put("error:", "The ovsdb node has too many pending operations, please try again later");
+            return Response.status(TOO_MANY_REQUESTS).entity(node)
+                    .header(HttpHeaders.RETRY_AFTER, ((OvsdbRestException.NodeBusyException) cause).retryAfter())
+                    .build();
+        } else if (cause instanceof OvsdbRestException.BridgeAlreadyExistsException) {
+            node.put("error:", "The Bridge Already Exists, please use another name");
+        } else if (cause instanceof OvsdbRestException.BridgeNotFoundException) {
+            node.put("error:", "The bridge was not found");
+        } else {
+            node.put("error:", cause.getMessage());
+        }
+        return Response.status(Response.Status.BAD_REQUEST).entity(node).build();
+    }
+
+    /**
+     * Builds a path intent request from its JSON description, which has the same fields
+     * of the createPathIntent request.
+     *
+     * @param jsonIntent the JSON description of the path intent
+     * @return the path intent request
+     */
+    private PathIntentRequest decodePathIntent(JsonNode jsonIntent) {
+        return new PathIntentRequest(jsonIntent.get("src-id").asText(),
+                                     jsonIntent.get("dst-id").asText(),
+                                     jsonIntent.get("port-src").asText(),
+                                     jsonIntent.get("port-dst").asText(),
+                                     PathIntent.ProtectionType.valueOf(jsonIntent.get("setType").asText()));
+    }
+
+    /**
+     * Builds the desired topology of a node from the JSON description of its bridges. The
+     * type of a port is port, patch or vxlan, port when it is not given.
+     *
+     * @param jsonBridges the JSON description of the bridges
+     * @return the topology
+     */
+    private NodeTopology decodeTopology(JsonNode jsonBridges) {
+        Map<String, List<PortSpec>> bridges = new LinkedHashMap<>();
+        for (JsonNode jsonBridge : jsonBridges) {
+            List<PortSpec> ports = new ArrayList<>();
+            for (JsonNode jsonPort : jsonBridge.path("ports")) {
+                String portName = jsonPort.get("port-name").asText();
+                switch (PortSpec.Type.valueOf(jsonPort.path("type").asText("port").toUpperCase())) {
+                    case PATCH:
+                        ports.add(PortSpec.patch(portName, jsonPort.get("patch-peer").asText()));
+                        break;
+                    case VXLAN:
+                        ports.add(PortSpec.vxlan(portName, IpAddress.valueOf(jsonPort.get("remote-ip").asText()),
+                                                 jsonPort.get("key").asText()));
+                        break;
+                    default:
+                        ports.add(PortSpec.port(portName));
+                        break;
+                }
+            }
+            bridges.put(jsonBridge.get("bridge-name").asText(), ports);
+        }
+        return NodeTopology.of(bridges);
+    }
+
+    /**
+     * Builds an operation of a batch from its JSON description, which has the same fields
+     * of the single operation request plus the name of the operation.
+     *
+     * @param jsonOperation the JSON description of the operation
+     * @return the operation
+     */
+    private BridgeOperation decodeOperation(JsonNode jsonOperation) {
+        BridgeOperation.Type type = BridgeOperation.Type.fromApiName(jsonOperation.get("operation").asText());
+        IpAddress ovsdbAddress = IpAddress.valueOf(jsonOperation.get("ovsdb-ip").asText());
+        String bridgeName = jsonOperation.get("bridge-name").asText();
+
+        switch (type) {
+            case CREATE_BRIDGE:
+                return BridgeOperation.createBridge(ovsdbAddress, bridgeName);
+            case DELETE_BRIDGE:
+                return BridgeOperation.deleteBridge(ovsdbAddress, bridgeName);
+            case ADD_PORT:
+                return BridgeOperation.addPort(ovsdbAddress, bridgeName,
+                        jsonOperation.get("port-name").asText());
+            case DELETE_PORT:
+                return BridgeOperation.deletePort(ovsdbAddress, bridgeName,
+                        jsonOperation.get("port-name").asText());
+            case CREATE_PATCH_PEER_PORT:
+                return BridgeOperation.createPatchPeerPort(ovsdbAddress, bridgeName,
+                        jsonOperation.get("port-name").asText(),
+                        jsonOperation.get("patch-peer").asText());
+            case CREATE_VXLAN_TUNNEL:
+                return BridgeOperation.createVxlanTunnel(ovsdbAddress, bridgeName,
+                        jsonOperation.get("port-name").asText(),
+                        IpAddress.valueOf(jsonOperation.get("remote-ip").asText()),
+                        jsonOperation.get("key").asText());
+            default:
+                throw new IllegalArgumentException("Unsupported operation " + type);
         }
     }
 }
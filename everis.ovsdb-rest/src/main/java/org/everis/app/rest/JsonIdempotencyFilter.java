@@ -0,0 +1,41 @@
+/*
+ * Copyright 2020-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everis.app.rest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.onosproject.ovsdbrest.common.IdempotencyFilter;
+
+import javax.ws.rs.container.PreMatching;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.Provider;
+
+/**
+ * Idempotency filter which answers its errors in the JSON format of the other errors of the API.
+ */
+@Provider
+@PreMatching
+public class JsonIdempotencyFilter extends IdempotencyFilter {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Override
+    protected Response error(int status, String message) {
+        ObjectNode node = MAPPER.createObjectNode().put("error:", message);
+        return Response.status(status).type(MediaType.APPLICATION_JSON).entity(node).build();
+    }
+}
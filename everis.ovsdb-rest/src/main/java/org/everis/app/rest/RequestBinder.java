@@ -0,0 +1,216 @@
+/*
+ * Copyright 2020-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everis.app.rest;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.everis.app.BridgeOperation;
+import org.everis.app.PathIntentRequest;
+import org.onlab.packet.IpAddress;
+import org.onosproject.net.intent.PathIntent;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Binds the JSON bodies of the single operation requests to their immutable requests. The
+ * body is read token by token with a JsonParser, only the fields of the request are kept
+ * and the others are skipped, so no tree of the body is built. The fields are checked before
+ * the request is made: a missing field or an invalid IP Address is reported by name.
+ */
+public final class RequestBinder {
+
+    private static final JsonFactory FACTORY = new JsonFactory();
+
+    private static final String OVSDB_IP = "ovsdb-ip";
+    private static final String BRIDGE_NAME = "bridge-name";
+    private static final String PORT_NAME = "port-name";
+    private static final String PATCH_PEER = "patch-peer";
+    private static final String REMOTE_IP = "remote-ip";
+    private static final String KEY = "key";
+    private static final String SRC_ID = "src-id";
+    private static final String DST_ID = "dst-id";
+    private static final String PORT_SRC = "port-src";
+    private static final String PORT_DST = "port-dst";
+    private static final String SET_TYPE = "setType";
+
+    private RequestBinder() {
+    }
+
+    /**
+     * Thrown when a request body is not valid, its message tells why.
+     */
+    public static class InvalidRequestException extends Exception {
+        public InvalidRequestException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Reads the body of a bridge, port or tunnel request.
+     *
+     * @param stream the body of the request
+     * @param type the operation of the request
+     * @return the operation
+     * @throws IOException if the body is not valid JSON
+     * @throws InvalidRequestException if a field is missing or it is not valid
+     */
+    public static BridgeOperation bindOperation(InputStream stream, BridgeOperation.Type type)
+            throws IOException, InvalidRequestException {
+        Fields fields = read(stream);
+        IpAddress ovsdbAddress = ipAddress(fields.ovsdbIp, OVSDB_IP);
+        String bridgeName = required(fields.bridgeName, BRIDGE_NAME);
+        switch (type) {
+            case CREATE_BRIDGE:
+                return BridgeOperation.createBridge(ovsdbAddress, bridgeName);
+            case DELETE_BRIDGE:
+                return BridgeOperation.deleteBridge(ovsdbAddress, bridgeName);
+            case ADD_PORT:
+                return BridgeOperation.addPort(ovsdbAddress, bridgeName, required(fields.portName, PORT_NAME));
+            case DELETE_PORT:
+                return BridgeOperation.deletePort(ovsdbAddress, bridgeName, required(fields.portName, PORT_NAME));
+            case CREATE_PATCH_PEER_PORT:
+                return BridgeOperation.createPatchPeerPort(ovsdbAddress, bridgeName,
+                                                           required(fields.portName, PORT_NAME),
+                                                           required(fields.patchPeer, PATCH_PEER));
+            case CREATE_VXLAN_TUNNEL:
+                return BridgeOperation.createVxlanTunnel(ovsdbAddress, bridgeName,
+                                                         required(fields.portName, PORT_NAME),
+                                                         ipAddress(fields.remoteIp, REMOTE_IP),
+                                                         required(fields.key, KEY));
+            default:
+                throw new InvalidRequestException("Unsupported operation " + type);
+        }
+    }
+
+    /**
+     * Reads the body of a path intent request.
+     *
+     * @param stream the body of the request
+     * @return the path intent request
+     * @throws IOException if the body is not valid JSON
+     * @throws InvalidRequestException if a field is missing or it is not valid
+     */
+    public static PathIntentRequest bindPathIntent(InputStream stream) throws IOException, InvalidRequestException {
+        Fields fields = read(stream);
+        String setType = required(fields.setType, SET_TYPE);
+        PathIntent.ProtectionType protectionType;
+        try {
+            protectionType = PathIntent.ProtectionType.valueOf(setType);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidRequestException("The " + SET_TYPE + " " + setType + " is not valid");
+        }
+        return new PathIntentRequest(required(fields.srcId, SRC_ID), required(fields.dstId, DST_ID),
+                                     required(fields.portSrc, PORT_SRC), required(fields.portDst, PORT_DST),
+                                     protectionType);
+    }
+
+    /**
+     * Reads the known fields of a flat JSON object.
+     */
+    private static Fields read(InputStream stream) throws IOException, InvalidRequestException {
+        Fields fields = new Fields();
+        try (JsonParser parser = FACTORY.createParser(stream)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new InvalidRequestException("The body must be a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if (value.isStructStart()) {
+                    parser.skipChildren();
+                    continue;
+                }
+                // numbers and booleans are taken as text, like the asText of the tree
+                fields.set(name, value == JsonToken.VALUE_NULL ? null : parser.getText());
+            }
+        }
+        return fields;
+    }
+
+    private static String required(String value, String name) throws InvalidRequestException {
+        if (value == null || value.isEmpty()) {
+            throw new InvalidRequestException("The field " + name + " is missing");
+        }
+        return value;
+    }
+
+    private static IpAddress ipAddress(String value, String name) throws InvalidRequestException {
+        try {
+            return IpAddress.valueOf(required(value, name));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidRequestException("The " + name + " " + value + " is not a valid IP Address");
+        }
+    }
+
+    /**
+     * Fields of the body being read, the ones which are not given stay null.
+     */
+    private static final class Fields {
+        private String ovsdbIp;
+        private String bridgeName;
+        private String portName;
+        private String patchPeer;
+        private String remoteIp;
+        private String key;
+        private String srcId;
+        private String dstId;
+        private String portSrc;
+        private String portDst;
+        private String setType;
+
+        private void set(String name, String value) {
+            switch (name) {
+                case OVSDB_IP:
+                    ovsdbIp = value;
+                    break;
+                case BRIDGE_NAME:
+                    bridgeName = value;
+                    break;
+                case PORT_NAME:
+                    portName = value;
+                    break;
+                case PATCH_PEER:
+                    patchPeer = value;
+                    break;
+                case REMOTE_IP:
+                    remoteIp = value;
+                    break;
+                case KEY:
+                    key = value;
+                    break;
+                case SRC_ID:
+                    srcId = value;
+                    break;
+                case DST_ID:
+                    dstId = value;
+                    break;
+                case PORT_SRC:
+                    portSrc = value;
+                    break;
+                case PORT_DST:
+                    portDst = value;
+                    break;
+                case SET_TYPE:
+                    setType = value;
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+}
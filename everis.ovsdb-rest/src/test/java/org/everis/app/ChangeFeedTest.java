@@ -0,0 +1,232 @@
+/*
+ * Copyright 2020-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everis.app;
+
+import com.google.common.collect.Lists;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.onosproject.net.DeviceId;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the push of the changes to the subscribers.
+ */
+public class ChangeFeedTest {
+
+    private static final DeviceId OVSDB_ID = DeviceId.deviceId("ovsdb:10.0.0.1");
+
+    private ScheduledExecutorService timer;
+    private ExecutorService writers;
+
+    @Before
+    public void setUp() {
+        timer = Executors.newSingleThreadScheduledExecutor();
+        writers = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        timer.shutdownNow();
+        writers.shutdownNow();
+    }
+
+    private static ChangeEvent portAdded(String portName) {
+        return new ChangeEvent(ChangeEvent.Type.PORT_ADDED, ChangeEvent.Source.OPERATION, OVSDB_ID,
+                               "br-int", portName);
+    }
+
+    /**
+     * Tests that the changes reach the listener in order, and that the changes which do not
+     * fit in the buffer are counted.
+     */
+    @Test
+    public void testDeliveryAndDrops() throws Exception {
+        ChangeFeed feed = new ChangeFeed(1, 2, timer, writers, 1, 1, TimeUnit.HOURS);
+        RecordingListener listener = new RecordingListener(3);
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        // holds the delivery thread, so the changes pile up in the buffer
+        writers.execute(() -> {
+            blocked.countDown();
+            await(release);
+        });
+        blocked.await(5, TimeUnit.SECONDS);
+        assertThat(feed.subscribe(listener), notNullValue());
+
+        for (int i = 0; i < 5; i++) {
+            feed.publish(portAdded("veth" + i));
+        }
+        release.countDown();
+        // published once the buffer was delivered, so it fits
+        while (listener.received.getCount() > 1) {
+            Thread.sleep(1);
+        }
+        feed.publish(portAdded("veth5"));
+
+        assertTrue(listener.received.await(5, TimeUnit.SECONDS));
+        assertThat(listener.portNames(), is(Lists.newArrayList("veth0", "veth1", "veth5")));
+        assertThat(listener.dropped, is(3L));
+        feed.close();
+    }
+
+    /**
+     * Tests that an idle subscriber gets a keep-alive.
+     */
+    @Test
+    public void testKeepAlive() throws Exception {
+        ChangeFeed feed = new ChangeFeed(1, 2, timer, writers, 20, 1000, TimeUnit.MILLISECONDS);
+        RecordingListener listener = new RecordingListener(1);
+        feed.subscribe(listener);
+
+        assertTrue(listener.idle.await(5, TimeUnit.SECONDS));
+        feed.close();
+    }
+
+    /**
+     * Tests that a listener which fails ends its subscription and frees its place.
+     */
+    @Test
+    public void testFailingListener() throws Exception {
+        ChangeFeed feed = new ChangeFeed(1, 2, timer, writers, 1, 1, TimeUnit.HOURS);
+        RecordingListener listener = new RecordingListener(1);
+        listener.fail = true;
+        ChangeFeed.Subscription subscription = feed.subscribe(listener);
+        assertThat(feed.subscribe(new RecordingListener(1)), nullValue());
+
+        feed.publish(portAdded("veth0"));
+
+        assertTrue(listener.closed.await(5, TimeUnit.SECONDS));
+        assertTrue(subscription.isClosed());
+        assertThat(feed.subscribe(new RecordingListener(1)), notNullValue());
+        feed.close();
+    }
+
+    /**
+     * Tests that closing the feed tells every listener.
+     */
+    @Test
+    public void testClose() throws Exception {
+        ChangeFeed feed = new ChangeFeed(2, 2, timer, writers, 1, 1, TimeUnit.HOURS);
+        RecordingListener first = new RecordingListener(1);
+        RecordingListener second = new RecordingListener(1);
+        feed.subscribe(first);
+        feed.subscribe(second);
+
+        feed.close();
+
+        assertThat(first.closed.getCount(), is(0L));
+        assertThat(second.closed.getCount(), is(0L));
+    }
+
+    /**
+     * Tests that a listener blocked in a write does not delay the other subscribers, and that
+     * its subscription is closed when the write timeout expires.
+     */
+    @Test
+    public void testBlockedListener() throws Exception {
+        writers.shutdownNow();
+        writers = Executors.newCachedThreadPool();
+        ChangeFeed feed = new ChangeFeed(2, 2, timer, writers, 1, 100, TimeUnit.MILLISECONDS);
+        RecordingListener blocked = new RecordingListener(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        blocked.block = interrupted;
+        RecordingListener other = new RecordingListener(2);
+        ChangeFeed.Subscription subscription = feed.subscribe(blocked);
+        feed.subscribe(other);
+
+        feed.publish(portAdded("veth0"));
+        feed.publish(portAdded("veth1"));
+
+        assertTrue(other.received.await(5, TimeUnit.SECONDS));
+        assertThat(other.portNames(), is(Lists.newArrayList("veth0", "veth1")));
+        assertTrue(blocked.closed.await(5, TimeUnit.SECONDS));
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+        assertTrue(subscription.isClosed());
+        assertThat(other.closed.getCount(), is(1L));
+        feed.close();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class RecordingListener implements ChangeFeed.Listener {
+        private final List<ChangeEvent> events = Lists.newCopyOnWriteArrayList();
+        private final CountDownLatch received;
+        private final CountDownLatch idle = new CountDownLatch(1);
+        private final CountDownLatch closed = new CountDownLatch(1);
+        private volatile long dropped;
+        private volatile boolean fail;
+        // when set, a delivery blocks until it is interrupted and then counts it down
+        private volatile CountDownLatch block;
+
+        private RecordingListener(int expected) {
+            this.received = new CountDownLatch(expected);
+        }
+
+        @Override
+        public void changes(List<ChangeEvent> newEvents, long droppedEvents) throws IOException {
+            if (fail) {
+                throw new IOException("gone");
+            }
+            if (block != null) {
+                try {
+                    new CountDownLatch(1).await();
+                } catch (InterruptedException e) {
+                    block.countDown();
+                    throw new IOException("interrupted");
+                }
+            }
+            events.addAll(newEvents);
+            dropped = droppedEvents;
+            newEvents.forEach(event -> received.countDown());
+        }
+
+        @Override
+        public void idle() {
+            idle.countDown();
+        }
+
+        @Override
+        public void closed() {
+            closed.countDown();
+        }
+
+        private List<String> portNames() {
+            List<String> names = Lists.newArrayList();
+            events.forEach(event -> names.add(event.portName()));
+            return names;
+        }
+    }
+}
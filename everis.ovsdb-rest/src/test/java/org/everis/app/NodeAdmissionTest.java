@@ -0,0 +1,166 @@
+/*
+ * Copyright 2020-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everis.app;
+
+import com.google.common.collect.Lists;
+import org.everis.app.OvsdbRestException.NodeBusyException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.onlab.metrics.MetricsManager;
+import org.onosproject.net.DeviceId;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit tests for the admission control of the operations of the ovsdb nodes.
+ */
+public class NodeAdmissionTest {
+
+    private static final DeviceId NODE = DeviceId.deviceId("ovsdb:10.0.0.1");
+    private static final DeviceId OTHER_NODE = DeviceId.deviceId("ovsdb:10.0.0.2");
+
+    private NodeAdmission admission;
+    // the operations which were started, completed by the tests
+    private final List<CompletableFuture<String>> started = Lists.newArrayList();
+
+    @Before
+    public void setUp() {
+        admission = new NodeAdmission(2, 1, new MetricsManager(), "test");
+    }
+
+    @After
+    public void tearDown() {
+        admission.close();
+    }
+
+    private CompletableFuture<String> submit(DeviceId ovsdbId) {
+        return admission.submit(ovsdbId, () -> {
+            CompletableFuture<String> operation = new CompletableFuture<>();
+            started.add(operation);
+            return operation;
+        });
+    }
+
+    private static Throwable failure(CompletableFuture<?> future) throws Exception {
+        try {
+            future.get(5, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            return e.getCause();
+        }
+        fail("the operation should fail");
+        return null;
+    }
+
+    /**
+     * Tests that the operations above the concurrency wait for their turn and start when a
+     * running one ends.
+     */
+    @Test
+    public void testQueue() throws Exception {
+        submit(NODE);
+        CompletableFuture<String> second = submit(NODE);
+        CompletableFuture<String> third = submit(NODE);
+
+        assertThat(started.size(), is(2));
+        assertThat(admission.stats().get("running"), is(2L));
+        assertThat(admission.stats().get("queued"), is(1L));
+
+        started.get(1).complete("done");
+        assertThat(second.get(5, TimeUnit.SECONDS), is("done"));
+        assertThat(started.size(), is(3));
+        assertThat(third.isDone(), is(false));
+        assertThat(admission.stats().get("queued"), is(0L));
+    }
+
+    /**
+     * Tests that an operation which does not fit in the queue is rejected at once.
+     */
+    @Test
+    public void testRejected() throws Exception {
+        submit(NODE);
+        submit(NODE);
+        submit(NODE);
+        CompletableFuture<String> rejected = submit(NODE);
+
+        Throwable error = failure(rejected);
+        assertThat(error, instanceOf(NodeBusyException.class));
+        assertThat(((NodeBusyException) error).retryAfter(), greaterThanOrEqualTo(1L));
+        assertThat(started.size(), is(2));
+        assertThat(admission.stats().get("rejected"), is(1L));
+    }
+
+    /**
+     * Tests that a busy node does not hold the operations of another node.
+     */
+    @Test
+    public void testNodesAreIndependent() {
+        submit(NODE);
+        submit(NODE);
+        submit(NODE);
+        CompletableFuture<String> other = submit(OTHER_NODE);
+
+        assertThat(started.size(), is(3));
+        started.get(2).complete("other");
+        assertThat(other.join(), is("other"));
+    }
+
+    /**
+     * Tests that a higher concurrency starts the waiting operations.
+     */
+    @Test
+    public void testRaiseLimits() {
+        submit(NODE);
+        submit(NODE);
+        submit(NODE);
+
+        admission.setLimits(3, 1);
+        assertThat(started.size(), is(3));
+        assertThat(admission.stats().get("queued"), is(0L));
+    }
+
+    /**
+     * Tests that an operation which throws fails its future and gives its place back.
+     */
+    @Test
+    public void testThrowingOperation() throws Exception {
+        admission.setLimits(1, 0);
+        CompletableFuture<String> thrown = admission.submit(NODE, () -> {
+            throw new IllegalStateException("no connection");
+        });
+
+        assertThat(failure(thrown), instanceOf(IllegalStateException.class));
+        submit(NODE);
+        assertThat(started.size(), is(1));
+    }
+
+    /**
+     * Tests that the limits are validated.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidLimits() {
+        admission.setLimits(0, 1);
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2020-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everis.app;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.junit.Test;
+import org.onlab.packet.IpAddress;
+import org.onosproject.ovsdbrest.common.PortSpec;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Unit tests for the diff of the desired and actual topology of a node.
+ */
+public class NodeReconcilerTest {
+
+    private static final IpAddress OVSDB_IP = IpAddress.valueOf("10.0.0.1");
+    private static final IpAddress REMOTE_IP = IpAddress.valueOf("10.0.0.2");
+
+    private static final NodeTopology TOPOLOGY = NodeTopology.of(ImmutableMap.of(
+            "br-int", ImmutableList.of(PortSpec.port("veth0"), PortSpec.patch("patch-ex", "patch-int")),
+            "br-tun", ImmutableList.of(PortSpec.vxlan("vxlan0", REMOTE_IP, "100"))));
+
+    /**
+     * Describes an operation by its type, bridge and port.
+     */
+    private static List<String> describe(List<BridgeOperation> operations) {
+        return operations.stream()
+                .map(op -> op.type() + " " + op.bridgeName() + (op.portName() != null ? " " + op.portName() : ""))
+                .collect(Collectors.toList());
+    }
+
+    private static NodeReconciler.ActualState actual(ImmutableMap<String, ImmutableSet<String>> bridgePorts) {
+        return new NodeReconciler.ActualState(bridgePorts.keySet(),
+                                              ImmutableMap.<String, Set<String>>copyOf(bridgePorts));
+    }
+
+    /**
+     * Tests that a node without its bridges gets the bridges first and then all the ports.
+     */
+    @Test
+    public void testEmptyNode() {
+        List<BridgeOperation> changes = NodeReconciler.diff(OVSDB_IP, TOPOLOGY, actual(ImmutableMap.of()));
+
+        assertThat(describe(changes), contains(
+                "CREATE_BRIDGE br-int",
+                "CREATE_BRIDGE br-tun",
+                "ADD_PORT br-int veth0",
+                "CREATE_PATCH_PEER_PORT br-int patch-ex",
+                "CREATE_VXLAN_TUNNEL br-tun vxlan0"));
+        assertThat(changes.get(3).patchPeer(), is("patch-int"));
+        assertThat(changes.get(4).remoteIp(), is(REMOTE_IP));
+        assertThat(changes.get(4).key(), is("100"));
+    }
+
+    /**
+     * Tests that a node in its desired state needs no change.
+     */
+    @Test
+    public void testConverged() {
+        NodeReconciler.ActualState state = actual(ImmutableMap.of(
+                "br-int", ImmutableSet.of("br-int", "veth0", "patch-ex"),
+                "br-tun", ImmutableSet.of("br-tun", "vxlan0")));
+
+        assertThat(NodeReconciler.diff(OVSDB_IP, TOPOLOGY, state), is(empty()));
+        assertThat(NodeReconciler.diff(OVSDB_IP, TOPOLOGY.declared(), state), is(empty()));
+    }
+
+    /**
+     * Tests that only the missing ports are added, and that the extra ports are left alone
+     * when the topology was not declared as a whole.
+     */
+    @Test
+    public void testMissingPortsOnly() {
+        NodeReconciler.ActualState state = actual(ImmutableMap.of(
+                "br-int", ImmutableSet.of("br-int", "veth0", "foreign"),
+                "br-tun", ImmutableSet.of("br-tun", "vxlan0")));
+
+        assertThat(describe(NodeReconciler.diff(OVSDB_IP, TOPOLOGY, state)),
+                   contains("CREATE_PATCH_PEER_PORT br-int patch-ex"));
+    }
+
+    /**
+     * Tests that the extra ports of the desired bridges are removed when the topology was
+     * declared as a whole, and that the internal port of the bridges and the other bridges
+     * are kept.
+     */
+    @Test
+    public void testDeclaredRemovesExtraPorts() {
+        NodeReconciler.ActualState state = actual(ImmutableMap.of(
+                "br-int", ImmutableSet.of("br-int", "veth0", "foreign"),
+                "br-tun", ImmutableSet.of("br-tun", "vxlan0"),
+                "br-other", ImmutableSet.of("br-other", "eth1")));
+
+        assertThat(describe(NodeReconciler.diff(OVSDB_IP, TOPOLOGY.declared(), state)), contains(
+                "CREATE_PATCH_PEER_PORT br-int patch-ex",
+                "DELETE_PORT br-int foreign"));
+    }
+
+    /**
+     * Tests that a bridge whose ports are not known yet is not compared.
+     */
+    @Test
+    public void testUnknownPorts() {
+        NodeReconciler.ActualState state = new NodeReconciler.ActualState(
+                ImmutableSet.of("br-int", "br-tun"),
+                ImmutableMap.of("br-tun", ImmutableSet.of("br-tun")));
+
+        assertThat(describe(NodeReconciler.diff(OVSDB_IP, TOPOLOGY.declared(), state)),
+                   contains("CREATE_VXLAN_TUNNEL br-tun vxlan0"));
+    }
+}
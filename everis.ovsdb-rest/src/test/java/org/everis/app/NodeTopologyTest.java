@@ -0,0 +1,81 @@
+/*
+ * Copyright 2020-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everis.app;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.junit.Test;
+import org.onlab.packet.IpAddress;
+import org.onosproject.ovsdbrest.common.PortSpec;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Unit tests for the changes of a desired node topology.
+ */
+public class NodeTopologyTest {
+
+    private static final NodeTopology TOPOLOGY = NodeTopology.of(ImmutableMap.of(
+            "br-int", ImmutableList.of(PortSpec.port("veth0"), PortSpec.port("veth1"))));
+
+    /**
+     * Tests that the changes give new topologies and keep the declared flag.
+     */
+    @Test
+    public void testChanges() {
+        NodeTopology declared = TOPOLOGY.declared();
+        NodeTopology changed = declared.withPort("br-tun", PortSpec.vxlan("vxlan0", IpAddress.valueOf("10.0.0.2"), "1"))
+                .withoutPort("br-int", "veth0");
+
+        assertThat(changed.isDeclared(), is(true));
+        assertThat(changed.bridgeNames(), contains("br-int", "br-tun"));
+        assertThat(changed.ports("br-int").keySet(), contains("veth1"));
+        assertThat(TOPOLOGY.ports("br-int").keySet(), contains("veth0", "veth1"));
+        assertThat(changed.withoutBridge("br-tun").bridgeNames(), contains("br-int"));
+        assertThat(declared, is(not(TOPOLOGY)));
+    }
+
+    /**
+     * Tests that a change which changes nothing gives the same topology.
+     */
+    @Test
+    public void testNoChange() {
+        assertThat(TOPOLOGY.withBridge("br-int"), sameInstance(TOPOLOGY));
+        assertThat(TOPOLOGY.withPort("br-int", PortSpec.port("veth0")), sameInstance(TOPOLOGY));
+        assertThat(TOPOLOGY.withoutPort("br-int", "veth9"), sameInstance(TOPOLOGY));
+        assertThat(TOPOLOGY.withoutBridge("br-tun"), sameInstance(TOPOLOGY));
+    }
+
+    /**
+     * Tests that a bridge and a port are restored as they were in a previous topology.
+     */
+    @Test
+    public void testRevert() {
+        NodeTopology changed = TOPOLOGY.withPort("br-int", PortSpec.patch("veth0", "peer"))
+                .withPort("br-new", PortSpec.port("eth0"));
+
+        assertThat(changed.withBridgeAs(TOPOLOGY, "br-int").ports("br-int"), is(TOPOLOGY.ports("br-int")));
+        assertThat(changed.withBridgeAs(TOPOLOGY, "br-new").bridgeNames(), contains("br-int"));
+        assertThat(changed.withPortAs(TOPOLOGY, "br-int", "veth0").ports("br-int").get("veth0"),
+                   is(PortSpec.port("veth0")));
+        // the bridge was only added with the port, so it goes away with it
+        assertThat(changed.withPortAs(TOPOLOGY, "br-new", "eth0").bridgeNames(), contains("br-int"));
+    }
+}
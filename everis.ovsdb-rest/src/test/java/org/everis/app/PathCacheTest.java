@@ -0,0 +1,132 @@
+/*
+ * Copyright 2020-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everis.app;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.everis.app.PathCache.Candidates;
+import org.junit.Test;
+import org.onosproject.net.DefaultPath;
+import org.onosproject.net.Link;
+import org.onosproject.net.Path;
+import org.onosproject.net.PortNumber;
+import org.onosproject.net.device.DeviceEvent;
+import org.onosproject.net.link.LinkEvent;
+import org.onosproject.net.topology.Topology;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.onlab.graph.ScalarWeight.toWeight;
+import static org.onosproject.net.NetTestTools.PID;
+import static org.onosproject.net.NetTestTools.createPath;
+import static org.onosproject.net.NetTestTools.device;
+import static org.onosproject.net.NetTestTools.did;
+import static org.onosproject.net.NetTestTools.link;
+
+/**
+ * Unit tests for the cache of the paths between pairs of devices.
+ */
+public class PathCacheTest {
+
+    // s1/2 -> s2 -> s3/1
+    private static final Path VIA_S2 = createPath("s1", "s2", "s3");
+    // s1/3 -> s4 -> s3/2
+    private static final Link S1_S4 = link("s1", 3, "s4", 1);
+    private static final Path VIA_S4 = new DefaultPath(PID, ImmutableList.of(S1_S4, link("s4", 2, "s3", 2)),
+                                                       toWeight(2));
+    // s5/2 -> s6/1
+    private static final Path S5_S6 = createPath("s5", "s6");
+
+    private final PathCache cache = new PathCache();
+
+    private static Topology topology(long time) {
+        Topology topology = createMock(Topology.class);
+        expect(topology.time()).andReturn(time).anyTimes();
+        replay(topology);
+        return topology;
+    }
+
+    /**
+     * Tests that an entry is only given for the topology it was computed on.
+     */
+    @Test
+    public void testGetForTopology() {
+        Topology topology = topology(1);
+        assertThat(cache.get(did("s1"), did("s3"), topology), nullValue());
+
+        cache.put(did("s1"), did("s3"), topology, ImmutableSet.of(VIA_S2));
+        assertThat(cache.get(did("s1"), did("s3"), topology), notNullValue());
+        assertThat(cache.get(did("s1"), did("s3"), topology(2)), nullValue());
+        assertThat(cache.get(did("s3"), did("s1"), topology), nullValue());
+
+        assertThat(cache.hitCount(), is(1L));
+        assertThat(cache.missCount(), is(3L));
+    }
+
+    /**
+     * Tests that the paths are found by their source and destination ports.
+     */
+    @Test
+    public void testPathByPorts() {
+        Candidates candidates = cache.put(did("s1"), did("s3"), topology(1), ImmutableSet.of(VIA_S2, VIA_S4));
+
+        assertThat(candidates.isEmpty(), is(false));
+        assertThat(candidates.path(PortNumber.portNumber(2), PortNumber.portNumber(1)), is(VIA_S2));
+        assertThat(candidates.path(PortNumber.portNumber(3), PortNumber.portNumber(2)), is(VIA_S4));
+        assertThat(candidates.path(PortNumber.portNumber(2), PortNumber.portNumber(2)), nullValue());
+    }
+
+    /**
+     * Tests that a removed link only drops the entries with a path through it, and that the
+     * other entries are carried to the new topology.
+     */
+    @Test
+    public void testLinkRemoved() {
+        Topology topology = topology(1);
+        cache.put(did("s1"), did("s3"), topology, ImmutableSet.of(VIA_S2, VIA_S4));
+        cache.put(did("s5"), did("s6"), topology, ImmutableSet.of(S5_S6));
+
+        Topology next = topology(2);
+        cache.topologyChanged(next, ImmutableList.of(new LinkEvent(LinkEvent.Type.LINK_REMOVED, S1_S4)));
+
+        assertThat(cache.size(), is(1));
+        assertThat(cache.get(did("s1"), did("s3"), next), nullValue());
+        assertThat(cache.get(did("s5"), did("s6"), next), notNullValue());
+    }
+
+    /**
+     * Tests that a change which may create new paths drops the whole cache.
+     */
+    @Test
+    public void testOtherChangeClears() {
+        Topology topology = topology(1);
+        cache.put(did("s5"), did("s6"), topology, ImmutableSet.of(S5_S6));
+
+        cache.topologyChanged(topology(2), ImmutableList.of(
+                new LinkEvent(LinkEvent.Type.LINK_REMOVED, S1_S4),
+                new DeviceEvent(DeviceEvent.Type.DEVICE_ADDED, device("s7"))));
+        assertThat(cache.size(), is(0));
+
+        cache.put(did("s5"), did("s6"), topology, ImmutableSet.of(S5_S6));
+        cache.topologyChanged(topology(2), null);
+        assertThat(cache.size(), is(0));
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2020-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everis.app;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.junit.Test;
+import org.onlab.packet.IpAddress;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Unit tests for the plan of a full mesh of VXLAN tunnels.
+ */
+public class VxlanMeshTest {
+
+    private static final IpAddress NODE_A = IpAddress.valueOf("10.0.0.1");
+    private static final IpAddress NODE_B = IpAddress.valueOf("10.0.0.2");
+    private static final IpAddress NODE_C = IpAddress.valueOf("10.0.0.3");
+    private static final IpAddress TUNNEL_A = IpAddress.valueOf("192.168.0.1");
+    private static final IpAddress TUNNEL_B = IpAddress.valueOf("192.168.0.2");
+    private static final IpAddress TUNNEL_C = IpAddress.valueOf("192.168.0.3");
+
+    private static final Map<IpAddress, IpAddress> ENDPOINTS = ImmutableMap.of(
+            NODE_A, TUNNEL_A, NODE_B, TUNNEL_B, NODE_C, TUNNEL_C);
+
+    /**
+     * Describes a tunnel creation by its node and remote endpoint.
+     */
+    private static List<String> describe(List<BridgeOperation> operations) {
+        return operations.stream()
+                .map(op -> op.ovsdbAddress() + "->" + op.remoteIp())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Tests that the port names are stable, short and depend on the endpoint and the key.
+     */
+    @Test
+    public void testPortName() {
+        String name = VxlanMesh.portName(TUNNEL_A, "100");
+
+        assertThat(VxlanMesh.portName(TUNNEL_A, "100"), is(name));
+        assertThat(name.length(), lessThanOrEqualTo(15));
+        assertThat(VxlanMesh.portName(TUNNEL_B, "100"), is(not(name)));
+        assertThat(VxlanMesh.portName(TUNNEL_A, "200"), is(not(name)));
+    }
+
+    /**
+     * Tests that every node gets a tunnel towards every other node.
+     */
+    @Test
+    public void testFullMesh() {
+        List<BridgeOperation> operations = VxlanMesh.plan(ENDPOINTS, "br-tun", "100", node -> ImmutableSet.of());
+
+        assertThat(describe(operations), contains(
+                "10.0.0.1->192.168.0.2", "10.0.0.1->192.168.0.3",
+                "10.0.0.2->192.168.0.1", "10.0.0.2->192.168.0.3",
+                "10.0.0.3->192.168.0.1", "10.0.0.3->192.168.0.2"));
+        BridgeOperation first = operations.get(0);
+        assertThat(first.type(), is(BridgeOperation.Type.CREATE_VXLAN_TUNNEL));
+        assertThat(first.bridgeName(), is("br-tun"));
+        assertThat(first.portName(), is(VxlanMesh.portName(TUNNEL_B, "100")));
+        assertThat(first.key(), is("100"));
+    }
+
+    /**
+     * Tests that adding a node to a mesh only plans the tunnels from and to that node.
+     */
+    @Test
+    public void testExistingPorts() {
+        Map<IpAddress, ImmutableSet<String>> existing = ImmutableMap.of(
+                NODE_A, ImmutableSet.of(VxlanMesh.portName(TUNNEL_B, "100")),
+                NODE_B, ImmutableSet.of(VxlanMesh.portName(TUNNEL_A, "100")),
+                NODE_C, ImmutableSet.of());
+
+        List<BridgeOperation> operations = VxlanMesh.plan(ENDPOINTS, "br-tun", "100", existing::get);
+
+        assertThat(describe(operations), contains(
+                "10.0.0.1->192.168.0.3", "10.0.0.2->192.168.0.3",
+                "10.0.0.3->192.168.0.1", "10.0.0.3->192.168.0.2"));
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2020-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everis.app.rest;
+
+import org.everis.app.BridgeOperation;
+import org.everis.app.PathIntentRequest;
+import org.everis.app.rest.RequestBinder.InvalidRequestException;
+import org.junit.Test;
+import org.onlab.packet.IpAddress;
+import org.onosproject.net.intent.PathIntent;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit tests for the binding of the request bodies.
+ */
+public class RequestBinderTest {
+
+    private static InputStream body(String json) {
+        return new ByteArrayInputStream(json.replace('\'', '"').getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void assertInvalid(String json, BridgeOperation.Type type, String message) throws IOException {
+        try {
+            RequestBinder.bindOperation(body(json), type);
+            fail("the body should be rejected");
+        } catch (InvalidRequestException e) {
+            assertThat(e.getMessage(), is(message));
+        }
+    }
+
+    /**
+     * Tests that the fields of a tunnel are bound and the unknown ones are skipped.
+     */
+    @Test
+    public void testBindTunnel() throws Exception {
+        BridgeOperation operation = RequestBinder.bindOperation(
+                body("{'ovsdb-ip': '10.0.0.1', 'extra': {'a': [1, 2]}, 'bridge-name': 'br-tun',"
+                             + " 'port-name': 'vxlan0', 'remote-ip': '10.0.0.2', 'key': 100, 'other': null}"),
+                BridgeOperation.Type.CREATE_VXLAN_TUNNEL);
+
+        assertThat(operation.type(), is(BridgeOperation.Type.CREATE_VXLAN_TUNNEL));
+        assertThat(operation.ovsdbAddress(), is(IpAddress.valueOf("10.0.0.1")));
+        assertThat(operation.bridgeName(), is("br-tun"));
+        assertThat(operation.portName(), is("vxlan0"));
+        assertThat(operation.remoteIp(), is(IpAddress.valueOf("10.0.0.2")));
+        assertThat(operation.key(), is("100"));
+    }
+
+    /**
+     * Tests that a bridge request keeps only the fields of a bridge.
+     */
+    @Test
+    public void testBindBridge() throws Exception {
+        BridgeOperation operation = RequestBinder.bindOperation(
+                body("{'ovsdb-ip': '10.0.0.1', 'bridge-name': 'br-int', 'port-name': 'veth0'}"),
+                BridgeOperation.Type.CREATE_BRIDGE);
+
+        assertThat(operation.bridgeName(), is("br-int"));
+        assertThat(operation.portName(), nullValue());
+    }
+
+    /**
+     * Tests that the missing and invalid fields are reported by name.
+     */
+    @Test
+    public void testInvalidFields() throws Exception {
+        assertInvalid("{'ovsdb-ip': '10.0.0.1', 'bridge-name': 'br-int'}",
+                      BridgeOperation.Type.ADD_PORT, "The field port-name is missing");
+        assertInvalid("{'ovsdb-ip': '10.0.0.1', 'bridge-name': null}",
+                      BridgeOperation.Type.CREATE_BRIDGE, "The field bridge-name is missing");
+        assertInvalid("{'ovsdb-ip': 'not-an-ip', 'bridge-name': 'br-int'}",
+                      BridgeOperation.Type.CREATE_BRIDGE, "The ovsdb-ip not-an-ip is not a valid IP Address");
+        assertInvalid("['10.0.0.1']", BridgeOperation.Type.CREATE_BRIDGE, "The body must be a JSON object");
+    }
+
+    /**
+     * Tests that a body which is not JSON fails to be read.
+     */
+    @Test(expected = IOException.class)
+    public void testMalformedBody() throws Exception {
+        RequestBinder.bindOperation(body("{'ovsdb-ip': "), BridgeOperation.Type.CREATE_BRIDGE);
+    }
+
+    /**
+     * Tests the binding of a path intent request and of its protection type.
+     */
+    @Test
+    public void testBindPathIntent() throws Exception {
+        PathIntentRequest request = RequestBinder.bindPathIntent(
+                body("{'src-id': 'of:0000000000000001', 'dst-id': 'of:0000000000000002',"
+                             + " 'port-src': '1', 'port-dst': 2, 'setType': 'BACKUP'}"));
+
+        assertThat(request.srcId(), is("of:0000000000000001"));
+        assertThat(request.portDst(), is("2"));
+        assertThat(request.setType(), is(PathIntent.ProtectionType.BACKUP));
+
+        try {
+            RequestBinder.bindPathIntent(body("{'src-id': 'a', 'dst-id': 'b', 'port-src': '1',"
+                                                      + " 'port-dst': '2', 'setType': 'NONE'}"));
+            fail("the set type should be rejected");
+        } catch (InvalidRequestException e) {
+            assertThat(e.getMessage(), is("The setType NONE is not valid"));
+        }
+    }
+}
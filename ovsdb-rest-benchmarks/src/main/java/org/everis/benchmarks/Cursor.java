@@ -0,0 +1,50 @@
+/*
+ * Copyright 2020-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everis.benchmarks;
+
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Position of a benchmark thread in the ovsdb nodes, it spreads the calls over all of them
+ * and gives bridge names which are not used by the other threads.
+ */
+@State(Scope.Thread)
+public class Cursor {
+
+    private final String prefix = "br-" + Thread.currentThread().getId() + "-";
+    private int next;
+
+    /**
+     * Moves to the next call.
+     *
+     * @return a non negative index, to pick the ovsdb node of the call
+     */
+    public int next() {
+        next = next == Integer.MAX_VALUE ? 0 : next + 1;
+        return next;
+    }
+
+    /**
+     * Returns the name of the bridge created by a call.
+     *
+     * @param index the index of the call
+     * @return the bridge name
+     */
+    public String bridgeName(int index) {
+        return prefix + index;
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2020-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everis.benchmarks;
+
+import org.everis.app.AppComponent;
+import org.onlab.metrics.MetricsManager;
+import org.onlab.packet.IpAddress;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the bridge, port and tunnel operations of the everis.ovsdb-rest AppComponent,
+ * for a growing number of ovsdb nodes. Every iteration starts from a new network where each
+ * node already has the bridge used by the port and tunnel operations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class EverisBridgeServiceBenchmark {
+
+    private static final String BRIDGE = "br-int";
+    private static final String PORT = "veth0";
+    private static final String TUNNEL = "vxlan0";
+    private static final String TUNNEL_KEY = "100";
+    private static final IpAddress REMOTE_IP = IpAddress.valueOf("172.16.0.1");
+
+    @Param({"10", "100", "1000", "10000"})
+    public int devices;
+
+    private AppComponent service;
+    private List<IpAddress> ovsdbAddresses;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws Exception {
+        InMemoryOvsdbNetwork network = new InMemoryOvsdbNetwork(devices);
+        service = new AppComponent();
+        StandIns.wire(service, network.deviceService(), network.clusterService(), network.storageService(),
+                      new MetricsManager());
+        StandIns.call(service, "activate");
+        ovsdbAddresses = network.ovsdbAddresses();
+        for (IpAddress ovsdbAddress : ovsdbAddresses) {
+            service.createBridge(ovsdbAddress, BRIDGE);
+        }
+        // the bridge index is seeded in the background, let it finish before measuring
+        StandIns.settle(service, "eventExecutor");
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        StandIns.call(service, "deactivate");
+    }
+
+    @Benchmark
+    public void createBridge(Cursor cursor) throws Exception {
+        int next = cursor.next();
+        service.createBridge(ovsdbAddresses.get(next % ovsdbAddresses.size()), cursor.bridgeName(next));
+    }
+
+    @Benchmark
+    public void addPort(Cursor cursor) throws Exception {
+        service.addPort(ovsdbAddresses.get(cursor.next() % ovsdbAddresses.size()), BRIDGE, PORT);
+    }
+
+    @Benchmark
+    public void createVxlanTunnel(Cursor cursor) throws Exception {
+        service.createVxlanTunnel(ovsdbAddresses.get(cursor.next() % ovsdbAddresses.size()),
+                                  BRIDGE, TUNNEL, REMOTE_IP, TUNNEL_KEY);
+    }
+}
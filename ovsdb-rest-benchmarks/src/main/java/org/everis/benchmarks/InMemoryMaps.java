@@ -0,0 +1,154 @@
+/*
+ * Copyright 2020-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everis.benchmarks;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import org.onosproject.store.service.ConsistentMap;
+import org.onosproject.store.service.EventuallyConsistentMap;
+import org.onosproject.store.service.EventuallyConsistentMapEvent;
+import org.onosproject.store.service.EventuallyConsistentMapListener;
+import org.onosproject.store.service.Versioned;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+
+import static org.everis.benchmarks.StandIns.UNHANDLED;
+import static org.everis.benchmarks.StandIns.standIn;
+
+/**
+ * In-memory stand-ins of the distributed maps of the storage service, for a single instance.
+ */
+public final class InMemoryMaps {
+
+    private InMemoryMaps() {
+    }
+
+    /**
+     * Creates a stand-in of a map builder, every setting is ignored and build gives a new map.
+     *
+     * @param type the builder interface
+     * @param build creates the map
+     * @param <B> the type of the builder
+     * @return the builder
+     */
+    public static <B> B builder(Class<B> type, Supplier<Object> build) {
+        Object[] self = new Object[1];
+        self[0] = standIn(type, (method, args) -> {
+            if ("build".equals(method.getName())) {
+                return build.get();
+            }
+            return method.getReturnType().isInstance(self[0]) ? self[0] : UNHANDLED;
+        });
+        return type.cast(self[0]);
+    }
+
+    /**
+     * Creates an eventually consistent map which notifies its listeners of the local changes.
+     *
+     * @param <K> the type of the keys
+     * @param <V> the type of the values
+     * @return the map
+     */
+    @SuppressWarnings("unchecked")
+    public static <K, V> EventuallyConsistentMap<K, V> eventuallyConsistentMap() {
+        Map<K, V> values = Maps.newConcurrentMap();
+        List<EventuallyConsistentMapListener<K, V>> listeners = new CopyOnWriteArrayList<>();
+        return standIn(EventuallyConsistentMap.class, (method, args) -> {
+            switch (method.getName()) {
+                case "get":
+                    return values.get(args[0]);
+                case "containsKey":
+                    return values.containsKey(args[0]);
+                case "size":
+                    return values.size();
+                case "isEmpty":
+                    return values.isEmpty();
+                case "keySet":
+                    return ImmutableSet.copyOf(values.keySet());
+                case "entrySet":
+                    return ImmutableSet.copyOf(values.entrySet());
+                case "put":
+                    values.put((K) args[0], (V) args[1]);
+                    notify(listeners, EventuallyConsistentMapEvent.Type.PUT, (K) args[0], (V) args[1]);
+                    return null;
+                case "remove":
+                    V removed = values.remove(args[0]);
+                    if (removed != null) {
+                        notify(listeners, EventuallyConsistentMapEvent.Type.REMOVE, (K) args[0], removed);
+                    }
+                    return args.length == 1 ? removed : null;
+                case "addListener":
+                    listeners.add((EventuallyConsistentMapListener<K, V>) args[0]);
+                    return null;
+                case "removeListener":
+                    listeners.remove(args[0]);
+                    return null;
+                default:
+                    return UNHANDLED;
+            }
+        });
+    }
+
+    /**
+     * Creates a consistent map.
+     *
+     * @param <K> the type of the keys
+     * @param <V> the type of the values
+     * @return the map
+     */
+    @SuppressWarnings("unchecked")
+    public static <K, V> ConsistentMap<K, V> consistentMap() {
+        Map<K, V> values = Maps.newConcurrentMap();
+        AtomicLong version = new AtomicLong();
+        return standIn(ConsistentMap.class, (method, args) -> {
+            switch (method.getName()) {
+                case "get":
+                    return versioned(values.get(args[0]), version);
+                case "containsKey":
+                    return values.containsKey(args[0]);
+                case "size":
+                    return values.size();
+                case "isEmpty":
+                    return values.isEmpty();
+                case "keySet":
+                    return ImmutableSet.copyOf(values.keySet());
+                case "put":
+                    return versioned(values.put((K) args[0], (V) args[1]), version);
+                case "remove":
+                    return args.length == 1 ? versioned(values.remove(args[0]), version) : UNHANDLED;
+                case "compute":
+                    return versioned(values.compute((K) args[0], (BiFunction<K, V, V>) args[1]), version);
+                default:
+                    return UNHANDLED;
+            }
+        });
+    }
+
+    private static <K, V> void notify(List<EventuallyConsistentMapListener<K, V>> listeners,
+                                      EventuallyConsistentMapEvent.Type type, K key, V value) {
+        EventuallyConsistentMapEvent<K, V> event = new EventuallyConsistentMapEvent<>("in-memory", type, key, value);
+        listeners.forEach(listener -> listener.event(event));
+    }
+
+    private static <V> Versioned<V> versioned(V value, AtomicLong version) {
+        return value == null ? null : new Versioned<>(value, version.incrementAndGet());
+    }
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright 2020-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everis.benchmarks;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import org.onlab.packet.IpAddress;
+import org.onosproject.cluster.ClusterService;
+import org.onosproject.cluster.ControllerNode;
+import org.onosproject.net.DefaultAnnotations;
+import org.onosproject.net.Device;
+import org.onosproject.net.DeviceId;
+import org.onosproject.net.behaviour.BridgeConfig;
+import org.onosproject.net.behaviour.BridgeDescription;
+import org.onosproject.net.behaviour.BridgeName;
+import org.onosproject.net.behaviour.InterfaceConfig;
+import org.onosproject.net.device.DeviceService;
+import org.onosproject.store.service.AtomicCounter;
+import org.onosproject.store.service.ConsistentMapBuilder;
+import org.onosproject.store.service.EventuallyConsistentMapBuilder;
+import org.onosproject.store.service.StorageService;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static org.everis.benchmarks.InMemoryMaps.builder;
+import static org.everis.benchmarks.StandIns.UNHANDLED;
+import static org.everis.benchmarks.StandIns.standIn;
+
+/**
+ * In-memory network of ovsdb nodes, exposed through stand-ins of the ONOS services.
+ * Every node answers the BridgeConfig and InterfaceConfig behaviours, the bridges it creates
+ * show up as available devices like the OpenFlow switches of a real network.
+ */
+public class InMemoryOvsdbNetwork {
+
+    private static final int CLUSTER_SIZE = 3;
+
+    private final List<IpAddress> ovsdbAddresses;
+    private final Map<DeviceId, Device> devices = Maps.newConcurrentMap();
+    private final DeviceService deviceService;
+    private final ClusterService clusterService;
+    private final StorageService storageService;
+
+    /**
+     * Creates a network with the given number of ovsdb nodes, at 10.0.0.1 onwards.
+     *
+     * @param nodeCount the number of ovsdb nodes
+     */
+    public InMemoryOvsdbNetwork(int nodeCount) {
+        ImmutableList.Builder<IpAddress> addresses = ImmutableList.builder();
+        for (int i = 0; i < nodeCount; i++) {
+            IpAddress address = IpAddress.valueOf(0x0A000001 + i);
+            addresses.add(address);
+            Device node = ovsdbDevice(DeviceId.deviceId("ovsdb:" + address));
+            devices.put(node.id(), node);
+        }
+        ovsdbAddresses = addresses.build();
+        deviceService = standIn(DeviceService.class, this::deviceServiceCall);
+        clusterService = buildClusterService();
+        storageService = buildStorageService();
+    }
+
+    /**
+     * Returns the management addresses of the ovsdb nodes.
+     *
+     * @return the addresses
+     */
+    public List<IpAddress> ovsdbAddresses() {
+        return ovsdbAddresses;
+    }
+
+    public DeviceService deviceService() {
+        return deviceService;
+    }
+
+    public ClusterService clusterService() {
+        return clusterService;
+    }
+
+    public StorageService storageService() {
+        return storageService;
+    }
+
+    private Object deviceServiceCall(Method method, Object[] args) {
+        switch (method.getName()) {
+            case "getDevice":
+                return devices.get((DeviceId) args[0]);
+            case "isAvailable":
+                return devices.containsKey((DeviceId) args[0]);
+            case "getDeviceCount":
+            case "getAvailableDeviceCount":
+                return devices.size();
+            case "getDevices":
+            case "getAvailableDevices":
+                if (args.length == 0) {
+                    return ImmutableList.copyOf(devices.values());
+                }
+                return devices.values().stream()
+                        .filter(device -> device.type() == args[0])
+                        .collect(Collectors.toList());
+            default:
+                return UNHANDLED;
+        }
+    }
+
+    private Device ovsdbDevice(DeviceId ovsdbId) {
+        Map<String, BridgeDescription> bridges = Maps.newConcurrentMap();
+        BridgeConfig bridgeConfig = standIn(BridgeConfig.class, (method, args) -> {
+            switch (method.getName()) {
+                case "addBridge":
+                    BridgeDescription bridge = (BridgeDescription) args[0];
+                    bridges.put(bridge.name(), bridge);
+                    bridge.deviceId().ifPresent(bridgeId -> devices.put(bridgeId, switchDevice(bridgeId)));
+                    return true;
+                case "deleteBridge":
+                    BridgeDescription removed = bridges.remove(((BridgeName) args[0]).name());
+                    if (removed != null) {
+                        removed.deviceId().ifPresent(devices::remove);
+                    }
+                    return null;
+                case "getBridges":
+                    return ImmutableList.copyOf(bridges.values());
+                default:
+                    // ports are accepted without keeping them
+                    return UNHANDLED;
+            }
+        });
+        InterfaceConfig interfaceConfig = standIn(InterfaceConfig.class, (method, args) -> {
+            switch (method.getName()) {
+                case "addTunnelMode":
+                case "addPatchMode":
+                case "removeTunnelMode":
+                case "removePatchMode":
+                    return true;
+                default:
+                    return UNHANDLED;
+            }
+        });
+        return device(ovsdbId, Device.Type.CONTROLLER, bridgeConfig, interfaceConfig);
+    }
+
+    private Device switchDevice(DeviceId bridgeId) {
+        return device(bridgeId, Device.Type.SWITCH, null, null);
+    }
+
+    private Device device(DeviceId id, Device.Type type, BridgeConfig bridgeConfig,
+                          InterfaceConfig interfaceConfig) {
+        return standIn(Device.class, (method, args) -> {
+            switch (method.getName()) {
+                case "id":
+                    return id;
+                case "type":
+                    return type;
+                case "annotations":
+                    return DefaultAnnotations.EMPTY;
+                case "is":
+                    return (args[0] == BridgeConfig.class && bridgeConfig != null)
+                            || (args[0] == InterfaceConfig.class && interfaceConfig != null);
+                case "as":
+                    if (args[0] == BridgeConfig.class && bridgeConfig != null) {
+                        return bridgeConfig;
+                    } else if (args[0] == InterfaceConfig.class && interfaceConfig != null) {
+                        return interfaceConfig;
+                    }
+                    return null;
+                default:
+                    return UNHANDLED;
+            }
+        });
+    }
+
+    private ClusterService buildClusterService() {
+        ImmutableSet.Builder<ControllerNode> nodes = ImmutableSet.builder();
+        for (int i = 0; i < CLUSTER_SIZE; i++) {
+            IpAddress ip = IpAddress.valueOf(0xC0A80001 + i);
+            nodes.add(standIn(ControllerNode.class, (method, args) ->
+                    "ip".equals(method.getName()) ? ip : UNHANDLED));
+        }
+        Object members = nodes.build();
+        return standIn(ClusterService.class, (method, args) ->
+                "getNodes".equals(method.getName()) ? members : UNHANDLED);
+    }
+
+    private StorageService buildStorageService() {
+        Map<String, AtomicCounter> counters = Maps.newConcurrentMap();
+        return standIn(StorageService.class, (method, args) -> {
+            switch (method.getName()) {
+                case "getAtomicCounter":
+                    return counters.computeIfAbsent((String) args[0], name -> atomicCounter());
+                case "eventuallyConsistentMapBuilder":
+                    return builder(EventuallyConsistentMapBuilder.class, InMemoryMaps::eventuallyConsistentMap);
+                case "consistentMapBuilder":
+                    return builder(ConsistentMapBuilder.class, InMemoryMaps::consistentMap);
+                default:
+                    return UNHANDLED;
+            }
+        });
+    }
+
+    private static AtomicCounter atomicCounter() {
+        AtomicLong value = new AtomicLong();
+        return standIn(AtomicCounter.class, (method, args) -> {
+            switch (method.getName()) {
+                case "get":
+                    return value.get();
+                case "set":
+                    value.set((Long) args[0]);
+                    return null;
+                case "incrementAndGet":
+                    return value.incrementAndGet();
+                case "getAndIncrement":
+                    return value.getAndIncrement();
+                case "getAndAdd":
+                    return value.getAndAdd((Long) args[0]);
+                case "addAndGet":
+                    return value.addAndGet((Long) args[0]);
+                case "compareAndSet":
+                    return value.compareAndSet((Long) args[0], (Long) args[1]);
+                default:
+                    return UNHANDLED;
+            }
+        });
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2020-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everis.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.Futures;
+import org.onlab.metrics.MetricsManager;
+import org.onlab.packet.IpAddress;
+import org.onosproject.core.ApplicationId;
+import org.onosproject.net.config.NetworkConfigRegistry;
+import org.onosproject.ovsdb.controller.OvsdbClientService;
+import org.onosproject.ovsdb.controller.OvsdbController;
+import org.onosproject.ovsdb.rfc.message.OperationResult;
+import org.onosproject.ovsdb.rfc.schema.DatabaseSchema;
+import org.onosproject.ovsdb.rfc.schema.TableSchema;
+import org.onosproject.ovsdbrest.OvsdbBridgeManager;
+import org.onosproject.ovsdbrest.OvsdbNodeConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.everis.benchmarks.StandIns.UNHANDLED;
+import static org.everis.benchmarks.StandIns.standIn;
+
+/**
+ * Throughput of the bridge, port and tunnel operations of the ovsdb-rest OvsdbBridgeManager,
+ * for a growing number of configured ovsdb nodes. The calls go through the per-node lanes of
+ * the manager, as the REST API calls do.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class OvsdbRestBridgeServiceBenchmark {
+
+    private static final String BRIDGE = "br-int";
+    private static final String PORT = "veth0";
+    private static final String TUNNEL = "gre0";
+    private static final String TUNNEL_KEY = "100";
+    private static final IpAddress REMOTE_IP = IpAddress.valueOf("172.16.0.1");
+    private static final int OVSDB_PORT = 6640;
+
+    @Param({"10", "100", "1000", "10000"})
+    public int devices;
+
+    private OvsdbBridgeManager service;
+    private List<IpAddress> ovsdbAddresses;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws Exception {
+        InMemoryOvsdbNetwork network = new InMemoryOvsdbNetwork(devices);
+        ovsdbAddresses = network.ovsdbAddresses();
+        service = new OvsdbBridgeManager();
+        StandIns.wire(service, network.deviceService(), network.clusterService(), network.storageService(),
+                      configRegistry(ovsdbAddresses), connectedController(), new MetricsManager());
+        StandIns.call(service, "activate");
+        for (IpAddress ovsdbAddress : ovsdbAddresses) {
+            service.createBridge(ovsdbAddress, BRIDGE);
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        StandIns.call(service, "deactivate");
+    }
+
+    @Benchmark
+    public void createBridge(Cursor cursor) throws Exception {
+        int next = cursor.next();
+        service.createBridge(ovsdbAddresses.get(next % ovsdbAddresses.size()), cursor.bridgeName(next));
+    }
+
+    @Benchmark
+    public void addPort(Cursor cursor) throws Exception {
+        service.addPort(ovsdbAddresses.get(cursor.next() % ovsdbAddresses.size()), BRIDGE, PORT);
+    }
+
+    @Benchmark
+    public void createGreTunnel(Cursor cursor) throws Exception {
+        IpAddress ovsdbAddress = ovsdbAddresses.get(cursor.next() % ovsdbAddresses.size());
+        service.createGreTunnel(ovsdbAddress, BRIDGE, TUNNEL, ovsdbAddress, REMOTE_IP, TUNNEL_KEY);
+    }
+
+    /**
+     * Builds the network configuration registry which holds the ovsdb nodes of the manager.
+     */
+    private static NetworkConfigRegistry configRegistry(List<IpAddress> ovsdbAddresses) {
+        ObjectMapper mapper = new ObjectMapper();
+        ObjectNode json = mapper.createObjectNode();
+        ArrayNode nodes = json.putArray("nodes");
+        ovsdbAddresses.forEach(address -> nodes.addObject()
+                .put("ovsdbIp", address.toString())
+                .put("ovsdbPort", String.valueOf(OVSDB_PORT)));
+        OvsdbNodeConfig config = new OvsdbNodeConfig();
+        config.init(standIn(ApplicationId.class), "ovsdbrest", json, mapper, null);
+        return standIn(NetworkConfigRegistry.class, (method, args) ->
+                "getConfig".equals(method.getName()) && args[1] == OvsdbNodeConfig.class ? config : UNHANDLED);
+    }
+
+    /**
+     * Builds the results of a transaction where every operation changed one row.
+     */
+    private static List<OperationResult> changedRows(List<?> operations) {
+        ImmutableList.Builder<OperationResult> results = ImmutableList.builder();
+        for (int i = 0; i < operations.size(); i++) {
+            OperationResult result = new OperationResult();
+            result.setCount(1);
+            results.add(result);
+        }
+        return results.build();
+    }
+
+    /**
+     * Builds an ovsdb controller where every node is already connected. Every bridge exists,
+     * no port exists and every transaction succeeds right away.
+     */
+    private static OvsdbController connectedController() {
+        DatabaseSchema schema = new DatabaseSchema("Open_vSwitch", "7.15.1", ImmutableMap.of(
+                "Bridge", new TableSchema("Bridge", ImmutableMap.of()),
+                "Port", new TableSchema("Port", ImmutableMap.of()),
+                "Interface", new TableSchema("Interface", ImmutableMap.of())));
+        OvsdbClientService client = standIn(OvsdbClientService.class, (method, args) -> {
+            switch (method.getName()) {
+                case "isConnected":
+                    return Boolean.TRUE;
+                case "getBridgeUuid":
+                    return "9f1c2a5e-0b6d-4c1e-8d57-3a0f4b2e7c11";
+                case "getDatabaseSchema":
+                    return schema;
+                case "transactConfig":
+                    return Futures.immediateFuture(changedRows((List<?>) args[1]));
+                default:
+                    return UNHANDLED;
+            }
+        });
+        return standIn(OvsdbController.class, (method, args) ->
+                "getOvsdbClient".equals(method.getName()) ? client : UNHANDLED);
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2020-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everis.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.everis.app.BridgeOperation;
+import org.everis.app.rest.RequestBinder;
+import org.onlab.packet.IpAddress;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import static org.onlab.util.Tools.readTreeFromStream;
+
+/**
+ * Cost of reading the body of a createVxlanTunnel request of the everis.ovsdb-rest REST API,
+ * with the ObjectNode tree the handlers used to build and with the streaming RequestBinder.
+ * Both end with the same BridgeOperation, so the IP Addresses are parsed in both.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class RequestBindingBenchmark {
+
+    private static final byte[] BODY = ("{\"ovsdb-ip\": \"10.0.0.1\", \"bridge-name\": \"br-int\", "
+            + "\"port-name\": \"vxlan0\", \"remote-ip\": \"172.16.0.1\", \"key\": \"100\"}")
+            .getBytes(StandardCharsets.UTF_8);
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Benchmark
+    public BridgeOperation tree() throws Exception {
+        ObjectNode jsonTree = readTreeFromStream(mapper, new ByteArrayInputStream(BODY));
+        return BridgeOperation.createVxlanTunnel(IpAddress.valueOf(jsonTree.get("ovsdb-ip").asText()),
+                                                 jsonTree.get("bridge-name").asText(),
+                                                 jsonTree.get("port-name").asText(),
+                                                 IpAddress.valueOf(jsonTree.get("remote-ip").asText()),
+                                                 jsonTree.get("key").asText());
+    }
+
+    @Benchmark
+    public BridgeOperation binder() throws Exception {
+        return RequestBinder.bindOperation(new ByteArrayInputStream(BODY), BridgeOperation.Type.CREATE_VXLAN_TUNNEL);
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2020-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.everis.benchmarks;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.function.BiFunction;
+
+/**
+ * Builds in-memory stand-ins of the ONOS services and wires them into the components under test.
+ * The stand-ins are dynamic proxies, so only the methods used by the hot paths need a behaviour,
+ * every other method returns an empty value.
+ */
+public final class StandIns {
+
+    /**
+     * Returned by a behaviour for the methods it does not handle.
+     */
+    public static final Object UNHANDLED = new Object();
+
+    private StandIns() {
+    }
+
+    /**
+     * Creates a stand-in of an interface.
+     *
+     * @param type the interface
+     * @param behaviour gives the result of a call, or UNHANDLED for the default result
+     * @param <T> the type of the interface
+     * @return the stand-in
+     */
+    public static <T> T standIn(Class<T> type, BiFunction<Method, Object[], Object> behaviour) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> {
+                    if (method.getDeclaringClass() == Object.class) {
+                        return objectMethod(proxy, type, method, args);
+                    }
+                    Object result = behaviour.apply(method, args == null ? new Object[0] : args);
+                    return result == UNHANDLED ? defaultValue(method.getReturnType()) : result;
+                }));
+    }
+
+    /**
+     * Creates a stand-in of an interface where every method returns an empty value.
+     *
+     * @param type the interface
+     * @param <T> the type of the interface
+     * @return the stand-in
+     */
+    public static <T> T standIn(Class<T> type) {
+        return standIn(type, (method, args) -> UNHANDLED);
+    }
+
+    /**
+     * Sets the service fields of a component, like the OSGi runtime does with the references.
+     * Every null field with an interface type gets the first given service of that type, or an
+     * empty stand-in when none of them fits.
+     *
+     * @param component the component
+     * @param services the services to wire
+     */
+    public static void wire(Object component, Object... services) {
+        for (Class<?> type = component.getClass(); type != Object.class; type = type.getSuperclass()) {
+            for (Field field : type.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers()) || Modifier.isFinal(field.getModifiers())
+                        || !field.getType().isInterface()) {
+                    continue;
+                }
+                try {
+                    field.setAccessible(true);
+                    if (field.get(component) == null) {
+                        field.set(component, service(field.getType(), services));
+                    }
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException("Cannot wire " + field, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Calls a lifecycle method of a component, such as activate or deactivate.
+     *
+     * @param component the component
+     * @param name the method name, the method takes no arguments
+     */
+    public static void call(Object component, String name) {
+        try {
+            Method method = component.getClass().getDeclaredMethod(name);
+            method.setAccessible(true);
+            method.invoke(component);
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException(name + " failed", e.getCause());
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot call " + name, e);
+        }
+    }
+
+    /**
+     * Waits for the tasks queued in a single thread executor of a component, such as the
+     * rescan of the bridges queued at activation.
+     *
+     * @param component the component
+     * @param name the name of the executor field
+     */
+    public static void settle(Object component, String name) {
+        try {
+            Field field = component.getClass().getDeclaredField(name);
+            field.setAccessible(true);
+            ((ExecutorService) field.get(component)).submit(() -> { }).get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(name + " failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for " + name, e);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot read " + name, e);
+        }
+    }
+
+    private static Object service(Class<?> type, Object[] services) {
+        for (Object service : services) {
+            if (type.isInstance(service)) {
+                return service;
+            }
+        }
+        return standIn(type);
+    }
+
+    private static Object objectMethod(Object proxy, Class<?> type, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            default:
+                return type.getSimpleName() + "StandIn";
+        }
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == void.class) {
+            return null;
+        } else if (type == boolean.class) {
+            return false;
+        } else if (type == char.class) {
+            return (char) 0;
+        } else if (type == byte.class) {
+            return (byte) 0;
+        } else if (type == short.class) {
+            return (short) 0;
+        } else if (type == int.class) {
+            return 0;
+        } else if (type == long.class) {
+            return 0L;
+        } else if (type == float.class) {
+            return 0f;
+        } else if (type == double.class) {
+            return 0d;
+        } else if (type == Optional.class) {
+            return Optional.empty();
+        } else if (type == Set.class) {
+            return ImmutableSet.of();
+        } else if (type == Map.class) {
+            return ImmutableMap.of();
+        } else if (type == List.class || type == Collection.class || type == Iterable.class) {
+            return ImmutableList.of();
+        } else if (type.isInterface()) {
+            return standIn(type);
+        }
+        return null;
+    }
+}
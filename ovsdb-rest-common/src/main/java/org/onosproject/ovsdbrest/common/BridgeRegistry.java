@@ -0,0 +1,331 @@
+/*
+ * Copyright 2020-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.ovsdbrest.common;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.onlab.util.KryoNamespace;
+import org.onosproject.net.DeviceId;
+import org.onosproject.store.serializers.KryoNamespaces;
+import org.onosproject.store.service.EventuallyConsistentMap;
+import org.onosproject.store.service.EventuallyConsistentMapEvent;
+import org.onosproject.store.service.EventuallyConsistentMapListener;
+import org.onosproject.store.service.StorageService;
+import org.onosproject.store.service.WallClockTimestamp;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Registry of the bridges of every ovsdb node.
+ * The nodes are identified by the device id of the ovsdb device (ovsdb:ip), so the same
+ * bridge name can exist in many nodes. Every bridge can also be found by its datapath id.
+ * The bridges are kept in an eventually consistent map replicated to every instance of the
+ * cluster and persisted, so every instance answers from its own copy and the registry
+ * survives a restart. The lookups use local indexes built from the map.
+ */
+public class BridgeRegistry {
+
+    // {datapathId: (ovsdbId, bridgeName)} shared by the cluster
+    private final EventuallyConsistentMap<DeviceId, Location> store;
+    private final EventuallyConsistentMapListener<DeviceId, Location> storeListener = this::storeEvent;
+
+    // {ovsdbId: {bridgeName: datapathId}}
+    private final Map<DeviceId, Map<String, DeviceId>> bridges = Maps.newConcurrentMap();
+
+    // {datapathId: ovsdbId}
+    private final Map<DeviceId, DeviceId> nodeByBridge = Maps.newConcurrentMap();
+
+    // {datapathId: bridgeName}
+    private final Map<DeviceId, String> nameByBridge = Maps.newConcurrentMap();
+
+    // bridges being created by this instance
+    private final Set<Location> reserved = Sets.newConcurrentHashSet();
+
+    /**
+     * Creates the registry and loads the bridges already known by the cluster.
+     *
+     * @param storageService the storage service
+     * @param name the name of the map of the bridges
+     */
+    public BridgeRegistry(StorageService storageService, String name) {
+        store = storageService.<DeviceId, Location>eventuallyConsistentMapBuilder()
+                .withName(name)
+                .withSerializer(KryoNamespace.newBuilder()
+                                        .register(KryoNamespaces.API)
+                                        .register(Location.class))
+                .withTimestampProvider((bridgeId, location) -> new WallClockTimestamp())
+                .withPersistence()
+                .build();
+        store.addListener(storeListener);
+        store.entrySet().forEach(entry -> index(entry.getKey(), entry.getValue()));
+    }
+
+    /**
+     * Stops following the changes made by the other instances and releases the local copy
+     * of the map, the bridges are kept by the cluster and in the persistent copy.
+     */
+    public void close() {
+        store.removeListener(storeListener);
+        store.destroy();
+    }
+
+    /**
+     * Returns the datapath id of a bridge.
+     *
+     * @param ovsdbId the device id of the ovsdb node
+     * @param bridgeName the bridge name
+     * @return the datapath id of the bridge, null if it is not registered
+     */
+    public DeviceId bridgeId(DeviceId ovsdbId, String bridgeName) {
+        Map<String, DeviceId> nodeBridges = bridges.get(ovsdbId);
+        return nodeBridges == null ? null : nodeBridges.get(bridgeName);
+    }
+
+    /**
+     * Returns the ovsdb node which holds a bridge.
+     *
+     * @param bridgeId the datapath id of the bridge
+     * @return the device id of the ovsdb node, null if the bridge is not registered
+     */
+    public DeviceId ovsdbId(DeviceId bridgeId) {
+        return nodeByBridge.get(bridgeId);
+    }
+
+    /**
+     * Returns the name of a bridge.
+     *
+     * @param bridgeId the datapath id of the bridge
+     * @return the bridge name, null if the bridge is not registered
+     */
+    public String bridgeName(DeviceId bridgeId) {
+        return nameByBridge.get(bridgeId);
+    }
+
+    /**
+     * Checks if a bridge is registered.
+     *
+     * @param bridgeId the datapath id of the bridge
+     * @return true if the bridge is registered, false otherwise
+     */
+    public boolean contains(DeviceId bridgeId) {
+        return nodeByBridge.containsKey(bridgeId);
+    }
+
+    /**
+     * Checks if no bridge is registered, such as in the first start of the cluster.
+     *
+     * @return true if the registry is empty
+     */
+    public boolean isEmpty() {
+        return nodeByBridge.isEmpty();
+    }
+
+    /**
+     * Returns the bridges of an ovsdb node.
+     *
+     * @param ovsdbId the device id of the ovsdb node
+     * @return {bridgeName: datapathId} of the node
+     */
+    public Map<String, DeviceId> bridges(DeviceId ovsdbId) {
+        Map<String, DeviceId> nodeBridges = bridges.get(ovsdbId);
+        return nodeBridges == null ? ImmutableMap.of() : ImmutableMap.copyOf(nodeBridges);
+    }
+
+    /**
+     * Returns the datapath ids of all the registered bridges.
+     *
+     * @return the datapath ids
+     */
+    public Set<DeviceId> bridgeIds() {
+        return ImmutableSet.copyOf(nodeByBridge.keySet());
+    }
+
+    /**
+     * Reserves the name of a bridge while it is being created, so two concurrent creations
+     * of the same bridge cannot both find it missing. The reservation is local to this
+     * instance, the creations of a node sent to other instances are not seen.
+     *
+     * @param ovsdbId the device id of the ovsdb node
+     * @param bridgeName the bridge name
+     * @return true if the name was reserved, false if another creation holds it
+     */
+    public boolean reserve(DeviceId ovsdbId, String bridgeName) {
+        return reserved.add(new Location(ovsdbId, bridgeName));
+    }
+
+    /**
+     * Ends the reservation of the name of a bridge, once it is created or its creation failed.
+     *
+     * @param ovsdbId the device id of the ovsdb node
+     * @param bridgeName the bridge name
+     */
+    public void unreserve(DeviceId ovsdbId, String bridgeName) {
+        reserved.remove(new Location(ovsdbId, bridgeName));
+    }
+
+    /**
+     * Registers a bridge, replacing the previous bridge with the same name in the node.
+     *
+     * @param ovsdbId the device id of the ovsdb node
+     * @param bridgeName the bridge name
+     * @param bridgeId the datapath id of the bridge
+     */
+    public synchronized void put(DeviceId ovsdbId, String bridgeName, DeviceId bridgeId) {
+        Location location = new Location(ovsdbId, bridgeName);
+        if (location.equals(store.get(bridgeId))) {
+            // already known, do not replicate it again
+            return;
+        }
+        DeviceId previous = bridgeId(ovsdbId, bridgeName);
+        if (previous != null && !previous.equals(bridgeId)) {
+            store.remove(previous);
+            unindex(previous);
+        }
+        store.put(bridgeId, location);
+        index(bridgeId, location);
+    }
+
+    /**
+     * Replaces all the bridges of an ovsdb node.
+     *
+     * @param ovsdbId the device id of the ovsdb node
+     * @param nodeBridges {bridgeName: datapathId} read from the node
+     */
+    public synchronized void replace(DeviceId ovsdbId, Map<String, DeviceId> nodeBridges) {
+        bridges(ovsdbId).forEach((name, bridgeId) -> {
+            if (!bridgeId.equals(nodeBridges.get(name))) {
+                store.remove(bridgeId);
+                unindex(bridgeId);
+            }
+        });
+        nodeBridges.forEach((name, bridgeId) -> put(ovsdbId, name, bridgeId));
+    }
+
+    /**
+     * Unregisters a bridge.
+     *
+     * @param ovsdbId the device id of the ovsdb node
+     * @param bridgeName the bridge name
+     * @return the datapath id of the removed bridge, null if it was not registered
+     */
+    public synchronized DeviceId remove(DeviceId ovsdbId, String bridgeName) {
+        DeviceId bridgeId = bridgeId(ovsdbId, bridgeName);
+        if (bridgeId != null) {
+            store.remove(bridgeId);
+            unindex(bridgeId);
+        }
+        return bridgeId;
+    }
+
+    /**
+     * Unregisters a bridge given its datapath id.
+     *
+     * @param bridgeId the datapath id of the bridge
+     */
+    public synchronized void remove(DeviceId bridgeId) {
+        if (contains(bridgeId)) {
+            store.remove(bridgeId);
+            unindex(bridgeId);
+        }
+    }
+
+    /**
+     * Unregisters all the bridges of an ovsdb node.
+     *
+     * @param ovsdbId the device id of the ovsdb node
+     */
+    public synchronized void removeNode(DeviceId ovsdbId) {
+        bridges(ovsdbId).values().forEach(this::remove);
+    }
+
+    /**
+     * Applies to the local indexes a change made by any instance.
+     */
+    private synchronized void storeEvent(EventuallyConsistentMapEvent<DeviceId, Location> event) {
+        switch (event.type()) {
+            case PUT:
+                index(event.key(), event.value());
+                break;
+            case REMOVE:
+                unindex(event.key());
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void index(DeviceId bridgeId, Location location) {
+        // a datapath id can only live in one node with one name
+        unindex(bridgeId);
+        DeviceId previous = bridges.computeIfAbsent(location.ovsdbId, id -> Maps.newConcurrentMap())
+                .put(location.bridgeName, bridgeId);
+        if (previous != null && !previous.equals(bridgeId)) {
+            nodeByBridge.remove(previous);
+            nameByBridge.remove(previous);
+        }
+        nodeByBridge.put(bridgeId, location.ovsdbId);
+        nameByBridge.put(bridgeId, location.bridgeName);
+    }
+
+    private void unindex(DeviceId bridgeId) {
+        DeviceId ovsdbId = nodeByBridge.remove(bridgeId);
+        String bridgeName = nameByBridge.remove(bridgeId);
+        if (ovsdbId == null || bridgeName == null) {
+            return;
+        }
+        Map<String, DeviceId> nodeBridges = bridges.get(ovsdbId);
+        if (nodeBridges != null) {
+            nodeBridges.remove(bridgeName, bridgeId);
+            if (nodeBridges.isEmpty()) {
+                bridges.remove(ovsdbId, nodeBridges);
+            }
+        }
+    }
+
+    /**
+     * Place of a bridge, the ovsdb node and the name it has in that node.
+     */
+    private static final class Location {
+        private final DeviceId ovsdbId;
+        private final String bridgeName;
+
+        private Location(DeviceId ovsdbId, String bridgeName) {
+            this.ovsdbId = ovsdbId;
+            this.bridgeName = bridgeName;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Location)) {
+                return false;
+            }
+            Location that = (Location) obj;
+            return ovsdbId.equals(that.ovsdbId) && bridgeName.equals(that.bridgeName);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(ovsdbId, bridgeName);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2020-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.ovsdbrest.common;
+
+import org.onosproject.store.service.AtomicCounter;
+import org.onosproject.store.service.StorageService;
+
+import java.util.BitSet;
+
+/**
+ * Allocator of datapath ids which are unique in the whole cluster.
+ * Every instance leases blocks of ids from a distributed counter, so the ids are handed out
+ * without talking to the cluster most of the time. The ids of deleted bridges are kept in a
+ * bitmap and given again before new ids are taken from the leased block.
+ * <p>
+ * The free list is local to the instance, it is not shared by the cluster: an id released on
+ * one instance is only given again by that instance, and the free ids are lost when the
+ * instance restarts. Such ids are never given twice, they are only left unused.
+ */
+public class DatapathIdAllocator {
+
+    private static final int BLOCK_SIZE = 1024;
+
+    private final AtomicCounter leasedIds;
+    private final long firstId;
+
+    // ids released by deleted bridges, as offsets from firstId
+    private final BitSet freeIds = new BitSet();
+    private int freeCount;
+    // no free id has a lower offset than this one
+    private int freeHint;
+
+    // current leased block [next, end)
+    private long next;
+    private long end;
+
+    /**
+     * Creates an allocator.
+     *
+     * @param storageService the storage service which provides the distributed counter
+     * @param counterName the name of the distributed counter, shared by the whole cluster
+     * @param firstId the lowest id given by the allocator
+     */
+    public DatapathIdAllocator(StorageService storageService, String counterName, long firstId) {
+        this.leasedIds = storageService.getAtomicCounter(counterName);
+        this.firstId = firstId;
+    }
+
+    /**
+     * Returns an id which is not used by any other bridge created through the allocator.
+     *
+     * @return the datapath id
+     */
+    public synchronized long allocate() {
+        if (freeCount > 0) {
+            int offset = freeIds.nextSetBit(freeHint);
+            freeIds.clear(offset);
+            freeCount--;
+            freeHint = offset + 1;
+            return firstId + offset;
+        }
+        if (next == end) {
+            // lease a new block for this instance
+            next = firstId + leasedIds.getAndAdd(BLOCK_SIZE);
+            end = next + BLOCK_SIZE;
+        }
+        return next++;
+    }
+
+    /**
+     * Gives back the id of a deleted bridge.
+     * Ids above the block currently leased by this instance are ignored: they may not have
+     * been leased yet, and the counter could give them again. Every id below the end of the
+     * local block was leased by some instance, so no remote read is needed to bound them.
+     *
+     * @param id the datapath id
+     */
+    public synchronized void release(long id) {
+        long offset = id - firstId;
+        if (offset < 0 || offset > Integer.MAX_VALUE || id >= end || freeIds.get((int) offset)) {
+            return;
+        }
+        freeIds.set((int) offset);
+        freeCount++;
+        freeHint = Math.min(freeHint, (int) offset);
+    }
+}
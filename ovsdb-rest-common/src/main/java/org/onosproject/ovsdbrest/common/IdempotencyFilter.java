@@ -0,0 +1,236 @@
+/*
+ * Copyright 2020-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.ovsdbrest.common;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.container.PreMatching;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
+import javax.ws.rs.ext.Provider;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Makes the POST requests with an Idempotency-Key header safe to retry. The response of the
+ * first request with a key is kept for a while and given again to the requests which repeat
+ * the key with the same body, without running the operation again. A request which repeats
+ * the key with another body gets a 422.
+ * A request which repeats the key of a request still running is sent to the
+ * {@link IdempotentReplayResource}, where it is suspended until the first request answers and
+ * then gets the same response, so the duplicates run the operation once and no request thread
+ * waits for another one. Like the operations, the duplicate gets a 504 after its optional
+ * "timeout" query parameter, in milliseconds. A first request which does not answer in five
+ * minutes gives up its key, so a lost request cannot hold it.
+ * The responses with a 5xx status, such as a timeout, and the 429 of a busy node are not
+ * kept, so the request can be retried. The responses are kept by every instance, a retry
+ * sent to another instance of the cluster runs the operation again.
+ * <p>
+ * The errors of the filter are plain text, an app answering in another format extends the
+ * filter and overrides {@link #error(int, String)}. The apps register the filter together
+ * with the {@link IdempotentReplayResource}.
+ */
+@Provider
+@PreMatching
+public class IdempotencyFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+    public static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    public static final String REPLAYED = "Idempotent-Replayed";
+    public static final String REPLAY_PATH = "idempotent-replay";
+
+    private static final String CLAIM = IdempotencyFilter.class.getName() + ".claim";
+    private static final String FOLLOWER = IdempotencyFilter.class.getName() + ".follower";
+    private static final long MAX_RESPONSES = 10000;
+    private static final long RESPONSE_TTL = 10;
+    private static final long MAX_RUNNING = 5;
+    private static final int TOO_MANY_REQUESTS = 429;
+    private static final int UNPROCESSABLE_ENTITY = 422;
+
+    private final Ticker ticker;
+
+    // {path + key: first request with the key}, its response is completed when it answers
+    private final Cache<String, Claim> claims;
+
+    /**
+     * Creates the filter.
+     */
+    public IdempotencyFilter() {
+        this(Ticker.systemTicker());
+    }
+
+    IdempotencyFilter(Ticker ticker) {
+        this.ticker = ticker;
+        this.claims = CacheBuilder.newBuilder()
+                .maximumSize(MAX_RESPONSES)
+                .expireAfterWrite(RESPONSE_TTL, TimeUnit.MINUTES)
+                .ticker(ticker)
+                .build();
+    }
+
+    @Override
+    public void filter(ContainerRequestContext request) throws IOException {
+        String key = request.getHeaderString(IDEMPOTENCY_KEY);
+        if (!HttpMethod.POST.equals(request.getMethod()) || key == null || key.isEmpty()) {
+            return;
+        }
+        // the body is read once to be hashed and given again to the resource
+        byte[] body = ByteStreams.toByteArray(request.getEntityStream());
+        request.setEntityStream(new ByteArrayInputStream(body));
+
+        Claim claim = new Claim(request.getUriInfo().getPath() + " " + key, Hashing.sha256().hashBytes(body),
+                                ticker.read());
+        Claim first = claims.asMap().putIfAbsent(claim.key, claim);
+        if (first != null && !first.response.isDone()
+                && claim.claimedNanos - first.claimedNanos > TimeUnit.MINUTES.toNanos(MAX_RUNNING)
+                && claims.asMap().replace(claim.key, first, claim)) {
+            // the first request never answered, this one takes its place
+            first.response.complete(new StoredResponse(error(
+                    Response.Status.GATEWAY_TIMEOUT.getStatusCode(),
+                    "The request with the same Idempotency-Key did not answer in " + MAX_RUNNING + " minutes")));
+            first = null;
+        }
+        if (first == null) {
+            // this is the first request with the key, it runs and its response is kept
+            request.setProperty(CLAIM, claim);
+        } else if (!first.bodyHash.equals(claim.bodyHash)) {
+            request.abortWith(error(UNPROCESSABLE_ENTITY,
+                                    "The Idempotency-Key was already used with another request body"));
+        } else if (first.response.isDone()) {
+            request.abortWith(first.response.join().toResponse());
+        } else {
+            // the duplicate waits for the response of the first request without a thread
+            request.setProperty(FOLLOWER, new Follower(first));
+            UriInfo uriInfo = request.getUriInfo();
+            request.setRequestUri(uriInfo.getBaseUriBuilder()
+                                          .path(REPLAY_PATH)
+                                          .replaceQuery(uriInfo.getRequestUri().getRawQuery())
+                                          .build());
+        }
+    }
+
+    @Override
+    public void filter(ContainerRequestContext request, ContainerResponseContext response) {
+        Object property = request.getProperty(CLAIM);
+        if (!(property instanceof Claim)) {
+            return;
+        }
+        Claim claim = (Claim) property;
+        Object entity = response.getEntity();
+        if (entity instanceof JsonNode) {
+            // the cached copy must not change if the response is changed afterwards
+            entity = ((JsonNode) entity).deepCopy();
+        }
+        claim.response.complete(new StoredResponse(response.getStatus(), entity, response.getMediaType()));
+        if (response.getStatus() == TOO_MANY_REQUESTS
+                || response.getStatus() >= Response.Status.INTERNAL_SERVER_ERROR.getStatusCode()) {
+            claims.asMap().remove(claim.key, claim);
+        }
+    }
+
+    /**
+     * Answers a request which repeats the key of a running request with the response of that
+     * request, when it answers.
+     *
+     * @param request the request sent to the replay path by the filter
+     * @param timeout the timeout in milliseconds, zero or less to wait until the first request
+     *                answers or gives up its key
+     * @param asyncResponse the response of the request
+     */
+    static void follow(ContainerRequestContext request, long timeout, AsyncResponse asyncResponse) {
+        Object property = request.getProperty(FOLLOWER);
+        if (!(property instanceof Follower)) {
+            // only the filter sends requests here
+            asyncResponse.resume(Response.status(Response.Status.NOT_FOUND).build());
+            return;
+        }
+        ((Follower) property).follow(timeout > 0 ? timeout : TimeUnit.MINUTES.toMillis(MAX_RUNNING), asyncResponse);
+    }
+
+    /**
+     * Builds the response of a request rejected by the filter.
+     *
+     * @param status the status of the response
+     * @param message the reason of the rejection
+     * @return the response
+     */
+    protected Response error(int status, String message) {
+        return Response.status(status).type(MediaType.TEXT_PLAIN).entity(message).build();
+    }
+
+    private static final class Claim {
+        private final String key;
+        private final HashCode bodyHash;
+        private final long claimedNanos;
+        private final CompletableFuture<StoredResponse> response = new CompletableFuture<>();
+
+        private Claim(String key, HashCode bodyHash, long claimedNanos) {
+            this.key = key;
+            this.bodyHash = bodyHash;
+            this.claimedNanos = claimedNanos;
+        }
+    }
+
+    private final class Follower {
+        private final Claim first;
+
+        private Follower(Claim first) {
+            this.first = first;
+        }
+
+        private void follow(long timeout, AsyncResponse asyncResponse) {
+            asyncResponse.setTimeoutHandler(response -> response.resume(error(
+                    Response.Status.GATEWAY_TIMEOUT.getStatusCode(),
+                    "The request with the same Idempotency-Key did not finish in " + timeout + " ms")));
+            asyncResponse.setTimeout(timeout, TimeUnit.MILLISECONDS);
+            first.response.thenAccept(stored -> asyncResponse.resume(stored.toResponse()));
+        }
+    }
+
+    private static final class StoredResponse {
+        private final int status;
+        private final Object entity;
+        private final MediaType mediaType;
+
+        private StoredResponse(int status, Object entity, MediaType mediaType) {
+            this.status = status;
+            this.entity = entity;
+            this.mediaType = mediaType;
+        }
+
+        private StoredResponse(Response response) {
+            this(response.getStatus(), response.getEntity(), response.getMediaType());
+        }
+
+        private Response toResponse() {
+            return Response.status(status).entity(entity).type(mediaType).header(REPLAYED, "true").build();
+        }
+    }
+}
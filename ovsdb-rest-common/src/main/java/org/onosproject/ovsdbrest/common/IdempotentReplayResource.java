@@ -0,0 +1,46 @@
+/*
+ * Copyright 2020-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.ovsdbrest.common;
+
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.Context;
+
+/**
+ * Suspends the requests which repeat the Idempotency-Key of a running request until that
+ * request answers. Only the {@link IdempotencyFilter} sends requests here.
+ */
+@Path(IdempotencyFilter.REPLAY_PATH)
+public class IdempotentReplayResource {
+
+    /**
+     * Answers a repeated request with the response of the first request with its key.
+     *
+     * @param request the request, with the first request set by the filter
+     * @param timeout optional time in milliseconds to wait for the first request
+     * @param asyncResponse the response of the request
+     */
+    @POST
+    public void replay(@Context ContainerRequestContext request,
+                       @QueryParam("timeout") long timeout,
+                       @Suspended AsyncResponse asyncResponse) {
+        IdempotencyFilter.follow(request, timeout, asyncResponse);
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright 2020-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.ovsdbrest.common;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import org.onosproject.net.DeviceId;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Bridges, ports and tunnels of an ovsdb node as read at some point in time. The version is
+ * a hash of the content, so it only changes when the content changes and every instance of
+ * the cluster gives the same version for the same content, even after a restart. It can be
+ * given to the clients as an entity tag.
+ */
+public final class NodeSnapshot {
+
+    private final DeviceId ovsdbId;
+    private final String version;
+    private final long readMillis;
+    private final Map<String, DeviceId> bridges;
+    private final Map<String, Set<String>> ports;
+    private final Map<String, Collection<PortSpec>> tunnels;
+
+    /**
+     * Creates a snapshot without tunnels.
+     *
+     * @param ovsdbId the device id of the ovsdb node
+     * @param bridges {bridgeName: datapathId} of the bridges of the node
+     * @param ports {bridgeName: [portName]} of the bridges whose ports are known
+     */
+    public NodeSnapshot(DeviceId ovsdbId, Map<String, DeviceId> bridges, Map<String, ? extends Set<String>> ports) {
+        this(ovsdbId, 0, ImmutableSortedMap.copyOf(bridges), sortedSets(ports), ImmutableSortedMap.of());
+    }
+
+    /**
+     * Creates a snapshot.
+     *
+     * @param ovsdbId the device id of the ovsdb node
+     * @param bridges {bridgeName: datapathId} of the bridges of the node
+     * @param ports {bridgeName: [portName]} of the bridges whose ports are known
+     * @param tunnels {bridgeName: [tunnel]} of the VXLAN tunnels which exist in the node
+     */
+    public NodeSnapshot(DeviceId ovsdbId, Map<String, DeviceId> bridges, Map<String, ? extends Set<String>> ports,
+                        Map<String, ? extends Collection<PortSpec>> tunnels) {
+        this(ovsdbId, 0, ImmutableSortedMap.copyOf(bridges), sortedSets(ports), sortedLists(tunnels));
+    }
+
+    private NodeSnapshot(DeviceId ovsdbId, long readMillis, Map<String, DeviceId> bridges,
+                         Map<String, Set<String>> ports, Map<String, Collection<PortSpec>> tunnels) {
+        this.ovsdbId = checkNotNull(ovsdbId);
+        this.readMillis = readMillis;
+        this.bridges = bridges;
+        this.ports = ports;
+        this.tunnels = tunnels;
+        this.version = contentHash();
+    }
+
+    private NodeSnapshot(NodeSnapshot snapshot, long readMillis) {
+        this.ovsdbId = snapshot.ovsdbId;
+        this.version = snapshot.version;
+        this.readMillis = readMillis;
+        this.bridges = snapshot.bridges;
+        this.ports = snapshot.ports;
+        this.tunnels = snapshot.tunnels;
+    }
+
+    /**
+     * Returns a copy of the snapshot with the time it was read.
+     *
+     * @param newReadMillis the time the content was read, in milliseconds since the epoch
+     * @return the snapshot
+     */
+    public NodeSnapshot withReadMillis(long newReadMillis) {
+        return new NodeSnapshot(this, newReadMillis);
+    }
+
+    /**
+     * Checks if two snapshots have the same bridges, ports and tunnels.
+     *
+     * @param other the other snapshot
+     * @return true if only the read time differs
+     */
+    public boolean sameContent(NodeSnapshot other) {
+        return version.equals(other.version)
+                && ovsdbId.equals(other.ovsdbId)
+                && bridges.equals(other.bridges)
+                && ports.equals(other.ports)
+                && tunnels.equals(other.tunnels);
+    }
+
+    public DeviceId ovsdbId() {
+        return ovsdbId;
+    }
+
+    /**
+     * Returns the version of the content.
+     *
+     * @return the hex digits of the hash of the bridges, ports and tunnels
+     */
+    public String version() {
+        return version;
+    }
+
+    public long readMillis() {
+        return readMillis;
+    }
+
+    /**
+     * Returns the bridges of the node.
+     *
+     * @return {bridgeName: datapathId}, sorted by name
+     */
+    public Map<String, DeviceId> bridges() {
+        return bridges;
+    }
+
+    /**
+     * Returns the ports of the bridges of the node.
+     *
+     * @return {bridgeName: [portName]}, sorted by name
+     */
+    public Map<String, Set<String>> ports() {
+        return ports;
+    }
+
+    /**
+     * Returns the VXLAN tunnels of the bridges of the node.
+     *
+     * @return {bridgeName: [tunnel]}, sorted by bridge name
+     */
+    public Map<String, Collection<PortSpec>> tunnels() {
+        return tunnels;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof NodeSnapshot)) {
+            return false;
+        }
+        NodeSnapshot that = (NodeSnapshot) obj;
+        return sameContent(that);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(ovsdbId, version);
+    }
+
+    @Override
+    public String toString() {
+        return toStringHelper(this)
+                .add("ovsdbId", ovsdbId)
+                .add("version", version)
+                .add("bridges", bridges)
+                .add("ports", ports)
+                .add("tunnels", tunnels)
+                .toString();
+    }
+
+    /**
+     * Hashes the content in the order of the sorted maps, every field ends with a separator
+     * so two different contents never give the same input.
+     */
+    private String contentHash() {
+        Hasher hasher = Hashing.sha256().newHasher();
+        field(hasher, ovsdbId.toString());
+        bridges.forEach((bridgeName, bridgeId) -> field(field(hasher.putChar('B'), bridgeName), bridgeId.toString()));
+        ports.forEach((bridgeName, portNames) -> {
+            field(hasher.putChar('P'), bridgeName);
+            portNames.forEach(portName -> field(hasher, portName));
+        });
+        tunnels.forEach((bridgeName, bridgeTunnels) -> {
+            field(hasher.putChar('T'), bridgeName);
+            bridgeTunnels.forEach(tunnel -> {
+                field(hasher, tunnel.type().name());
+                field(hasher, tunnel.name());
+                field(hasher, tunnel.patchPeer());
+                field(hasher, tunnel.remoteIp() != null ? tunnel.remoteIp().toString() : null);
+                field(hasher, tunnel.key());
+            });
+        });
+        // 64 bits are plenty to tell apart the versions of a node
+        return Long.toHexString(hasher.hash().asLong());
+    }
+
+    private static Hasher field(Hasher hasher, String value) {
+        if (value == null) {
+            return hasher.putByte((byte) 1);
+        }
+        return hasher.putString(value, StandardCharsets.UTF_8).putByte((byte) 0);
+    }
+
+    private static Map<String, Collection<PortSpec>> sortedLists(Map<String, ? extends Collection<PortSpec>> map) {
+        ImmutableMap.Builder<String, Collection<PortSpec>> builder = ImmutableSortedMap.naturalOrder();
+        map.forEach((name, values) -> builder.put(name, ImmutableList.copyOf(values)));
+        return builder.build();
+    }
+
+    private static Map<String, Set<String>> sortedSets(Map<String, ? extends Set<String>> map) {
+        ImmutableMap.Builder<String, Set<String>> builder = ImmutableSortedMap.naturalOrder();
+        map.forEach((name, values) -> builder.put(name, ImmutableSortedSet.copyOf(values)));
+        return builder.build();
+    }
+}
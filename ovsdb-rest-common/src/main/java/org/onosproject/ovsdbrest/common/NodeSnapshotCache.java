@@ -0,0 +1,193 @@
+/*
+ * Copyright 2020-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.ovsdbrest.common;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.onosproject.net.DeviceId;
+import org.onosproject.net.device.DeviceEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * In-memory snapshots of the ovsdb nodes for the read API. A snapshot is served as it is,
+ * and when it is older than the maximum age, or an event made it stale, it is read again in
+ * the background, so the requests never wait for the device except for the first read of a
+ * node. The version of a snapshot is a hash of its content, see {@link NodeSnapshot#version()}.
+ *
+ * @param <E> the exception thrown when a node cannot be read
+ */
+public class NodeSnapshotCache<E extends Exception> {
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    /**
+     * Reads the snapshot of an ovsdb node from the device.
+     *
+     * @param <E> the exception thrown when the node cannot be read
+     */
+    public interface Reader<E extends Exception> {
+        /**
+         * Reads the bridges, ports and tunnels of a node.
+         *
+         * @param ovsdbId the device id of the ovsdb node
+         * @return the snapshot, without read time
+         * @throws E if the node is not available
+         */
+        NodeSnapshot read(DeviceId ovsdbId) throws E;
+    }
+
+    private final Reader<E> reader;
+    private final ExecutorService executor;
+    private final long maxAgeMillis;
+
+    private final Map<DeviceId, NodeSnapshot> snapshots = Maps.newConcurrentMap();
+    // nodes changed by an event since their snapshot was read
+    private final Set<DeviceId> stale = Sets.newConcurrentHashSet();
+    // nodes being read in the background, so a node is never read twice at the same time
+    private final Set<DeviceId> refreshing = Sets.newConcurrentHashSet();
+
+    /**
+     * Creates a cache.
+     *
+     * @param reader reads the snapshots
+     * @param executor runs the background reads
+     * @param maxAgeMillis the age after which a snapshot is read again
+     */
+    public NodeSnapshotCache(Reader<E> reader, ExecutorService executor, long maxAgeMillis) {
+        this.reader = reader;
+        this.executor = executor;
+        this.maxAgeMillis = maxAgeMillis;
+    }
+
+    /**
+     * Returns the snapshot of a node. A stale snapshot is returned as it is and it is read
+     * again in the background.
+     *
+     * @param ovsdbId the device id of the ovsdb node
+     * @return the snapshot
+     * @throws E if the node was never read and it is not available now
+     */
+    public NodeSnapshot get(DeviceId ovsdbId) throws E {
+        NodeSnapshot snapshot = snapshots.get(ovsdbId);
+        if (snapshot == null) {
+            // nothing to serve yet, this is the only read made by the caller
+            return refresh(ovsdbId);
+        }
+        if (stale.contains(ovsdbId) || System.currentTimeMillis() - snapshot.readMillis() > maxAgeMillis) {
+            refreshAsync(ovsdbId);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Returns the snapshot of a node if there is one, without reading the node.
+     *
+     * @param ovsdbId the device id of the ovsdb node
+     * @return the snapshot, null if the node was never read
+     */
+    public NodeSnapshot peek(DeviceId ovsdbId) {
+        return snapshots.get(ovsdbId);
+    }
+
+    /**
+     * Marks the snapshot of a node as stale and reads it again in the background.
+     *
+     * @param ovsdbId the device id of the ovsdb node
+     */
+    public void invalidate(DeviceId ovsdbId) {
+        if (snapshots.containsKey(ovsdbId)) {
+            stale.add(ovsdbId);
+            refreshAsync(ovsdbId);
+        }
+    }
+
+    /**
+     * Marks the snapshot of a node as stale after a device event of the node or of one of its
+     * bridges. Only the events which can change the bridges, ports or tunnels make it stale,
+     * the statistics updates leave the snapshot as it is.
+     *
+     * @param ovsdbId the device id of the ovsdb node
+     * @param type the type of the device event
+     */
+    public void invalidate(DeviceId ovsdbId, DeviceEvent.Type type) {
+        switch (type) {
+            case DEVICE_ADDED:
+            case DEVICE_REMOVED:
+            case DEVICE_UPDATED:
+            case DEVICE_AVAILABILITY_CHANGED:
+            case PORT_ADDED:
+            case PORT_REMOVED:
+            case PORT_UPDATED:
+                invalidate(ovsdbId);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Forgets the snapshot of a node, such as when the node is removed.
+     *
+     * @param ovsdbId the device id of the ovsdb node
+     */
+    public void remove(DeviceId ovsdbId) {
+        snapshots.remove(ovsdbId);
+        stale.remove(ovsdbId);
+    }
+
+    /**
+     * Forgets all the snapshots.
+     */
+    public void clear() {
+        snapshots.clear();
+        stale.clear();
+    }
+
+    private NodeSnapshot refresh(DeviceId ovsdbId) throws E {
+        stale.remove(ovsdbId);
+        NodeSnapshot read = reader.read(ovsdbId);
+        NodeSnapshot snapshot = read.withReadMillis(System.currentTimeMillis());
+        snapshots.put(ovsdbId, snapshot);
+        return snapshot;
+    }
+
+    private void refreshAsync(DeviceId ovsdbId) {
+        if (!refreshing.add(ovsdbId)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    refresh(ovsdbId);
+                } catch (Exception e) {
+                    // the old snapshot is kept, the next request tries again
+                    stale.add(ovsdbId);
+                    log.debug("Failed to refresh the snapshot of {}: {}", ovsdbId, e.toString());
+                } finally {
+                    refreshing.remove(ovsdbId);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refreshing.remove(ovsdbId);
+        }
+    }
+}
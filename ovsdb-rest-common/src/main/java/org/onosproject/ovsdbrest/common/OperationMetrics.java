@@ -0,0 +1,203 @@
+/*
+ * Copyright 2020-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.ovsdbrest.common;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import org.onlab.metrics.MetricsComponent;
+import org.onlab.metrics.MetricsFeature;
+import org.onlab.metrics.MetricsService;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency timers and outcome counters of the bridge service operations, registered in the
+ * ONOS metrics service. Every operation is a metrics feature with a timer for the whole call,
+ * a timer per phase of the call, a success counter and an error counter per exception type.
+ */
+public class OperationMetrics {
+
+    /**
+     * Phases of an operation.
+     */
+    public enum Phase {
+        /** Lookup of the bridge and the ovsdb device, including the rescans. */
+        LOOKUP("lookup"),
+        /** Calls to the device drivers. */
+        DRIVER("driver"),
+        /** Submission of the intents. */
+        INTENT("intent");
+
+        private final String metricName;
+
+        Phase(String metricName) {
+            this.metricName = metricName;
+        }
+
+        public String metricName() {
+            return metricName;
+        }
+    }
+
+    /**
+     * Name of the timer of the whole operation.
+     */
+    public static final String TOTAL = "total";
+
+    private static final String SUCCESS = "success";
+    private static final String ERROR = "error.";
+
+    private final MetricsService metricsService;
+    private final MetricsComponent component;
+    private final Map<String, Operation> operations = Maps.newConcurrentMap();
+
+    /**
+     * Creates the metrics of a component.
+     *
+     * @param metricsService the metrics service
+     * @param componentName the name of the metrics component
+     */
+    public OperationMetrics(MetricsService metricsService, String componentName) {
+        this.metricsService = metricsService;
+        this.component = metricsService.registerComponent(componentName);
+    }
+
+    /**
+     * Starts the measure of a call to an operation.
+     *
+     * @param operation the operation name
+     * @return the sample of the call
+     */
+    public Sample start(String operation) {
+        return new Sample(operations.computeIfAbsent(operation, Operation::new));
+    }
+
+    /**
+     * Returns the current statistics of the operations which were called at least once.
+     *
+     * @return the statistics, sorted by operation name
+     */
+    public List<OperationStats> stats() {
+        return operations.values().stream()
+                .sorted((a, b) -> a.name.compareTo(b.name))
+                .map(Operation::stats)
+                .collect(ImmutableList.toImmutableList());
+    }
+
+    /**
+     * Removes all the metrics from the metrics service.
+     */
+    public void remove() {
+        operations.values().forEach(Operation::remove);
+        operations.clear();
+    }
+
+    private final class Operation {
+        private final String name;
+        private final MetricsFeature feature;
+        private final Timer total;
+        private final Counter success;
+        private final Map<Phase, Timer> phases = Maps.newConcurrentMap();
+        private final Map<String, Counter> errors = Maps.newConcurrentMap();
+
+        private Operation(String name) {
+            this.name = name;
+            this.feature = component.registerFeature(name);
+            this.total = metricsService.createTimer(component, feature, TOTAL);
+            this.success = metricsService.createCounter(component, feature, SUCCESS);
+        }
+
+        private Timer phase(Phase phase) {
+            return phases.computeIfAbsent(phase,
+                    p -> metricsService.createTimer(component, feature, p.metricName()));
+        }
+
+        private Counter error(Throwable cause) {
+            return errors.computeIfAbsent(cause.getClass().getSimpleName(),
+                    type -> metricsService.createCounter(component, feature, ERROR + type));
+        }
+
+        private OperationStats stats() {
+            ImmutableMap.Builder<String, Long> errorCounts = ImmutableMap.builder();
+            errors.forEach((type, counter) -> errorCounts.put(type, counter.getCount()));
+            ImmutableMap.Builder<String, Snapshot> latencies = ImmutableMap.builder();
+            latencies.put(TOTAL, total.getSnapshot());
+            for (Phase phase : Phase.values()) {
+                Timer timer = phases.get(phase);
+                if (timer != null) {
+                    latencies.put(phase.metricName(), timer.getSnapshot());
+                }
+            }
+            return new OperationStats(name, success.getCount(), errorCounts.build(), latencies.build());
+        }
+
+        private void remove() {
+            metricsService.removeMetric(component, feature, TOTAL);
+            metricsService.removeMetric(component, feature, SUCCESS);
+            phases.keySet().forEach(phase -> metricsService.removeMetric(component, feature, phase.metricName()));
+            errors.keySet().forEach(type -> metricsService.removeMetric(component, feature, ERROR + type));
+        }
+    }
+
+    /**
+     * Measure of a single call to an operation. The phases are recorded as laps, every lap
+     * measures the time since the previous lap or since the start of the call.
+     */
+    public static final class Sample {
+        private final Operation operation;
+        private final long start = System.nanoTime();
+        private long lapStart = start;
+
+        private Sample(Operation operation) {
+            this.operation = operation;
+        }
+
+        /**
+         * Records the end of a phase of the call.
+         *
+         * @param phase the phase which ends now
+         */
+        public void lap(Phase phase) {
+            long now = System.nanoTime();
+            operation.phase(phase).update(now - lapStart, TimeUnit.NANOSECONDS);
+            lapStart = now;
+        }
+
+        /**
+         * Records the end of a successful call.
+         */
+        public void success() {
+            operation.total.update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            operation.success.inc();
+        }
+
+        /**
+         * Records the end of a failed call.
+         *
+         * @param cause the error of the call
+         */
+        public void failure(Throwable cause) {
+            operation.total.update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            operation.error(cause).inc();
+        }
+    }
+}
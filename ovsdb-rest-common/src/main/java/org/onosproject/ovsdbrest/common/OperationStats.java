@@ -0,0 +1,76 @@
+/*
+ * Copyright 2020-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.ovsdbrest.common;
+
+import com.codahale.metrics.Snapshot;
+
+import java.util.Map;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Statistics of a bridge service operation at a point in time.
+ */
+public final class OperationStats {
+
+    private final String operation;
+    private final long successCount;
+    private final Map<String, Long> errorCounts;
+    private final Map<String, Snapshot> latencies;
+
+    /**
+     * Creates the statistics of an operation.
+     *
+     * @param operation the operation name
+     * @param successCount number of successful calls
+     * @param errorCounts {exception type: number of calls failed with it}
+     * @param latencies {timer name: latency snapshot in nanoseconds}, with the whole call
+     *                  and every phase of the call
+     */
+    public OperationStats(String operation, long successCount, Map<String, Long> errorCounts,
+                          Map<String, Snapshot> latencies) {
+        this.operation = checkNotNull(operation);
+        this.successCount = successCount;
+        this.errorCounts = checkNotNull(errorCounts);
+        this.latencies = checkNotNull(latencies);
+    }
+
+    public String operation() {
+        return operation;
+    }
+
+    public long successCount() {
+        return successCount;
+    }
+
+    public Map<String, Long> errorCounts() {
+        return errorCounts;
+    }
+
+    public Map<String, Snapshot> latencies() {
+        return latencies;
+    }
+
+    @Override
+    public String toString() {
+        return toStringHelper(this)
+                .add("operation", operation)
+                .add("successCount", successCount)
+                .add("errorCounts", errorCounts)
+                .toString();
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2020-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.ovsdbrest.common;
+
+import org.onlab.packet.IpAddress;
+
+import java.util.Objects;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Desired port of a bridge: a plain port, a patch port or a VXLAN tunnel port.
+ */
+public final class PortSpec {
+
+    /**
+     * Types of port.
+     */
+    public enum Type {
+        PORT,
+        PATCH,
+        VXLAN
+    }
+
+    private final Type type;
+    private final String name;
+    private final String patchPeer;
+    private final IpAddress remoteIp;
+    private final String key;
+
+    private PortSpec(Type type, String name, String patchPeer, IpAddress remoteIp, String key) {
+        this.type = checkNotNull(type);
+        this.name = checkNotNull(name);
+        this.patchPeer = patchPeer;
+        this.remoteIp = remoteIp;
+        this.key = key;
+    }
+
+    /**
+     * Returns a plain port.
+     *
+     * @param name the port name
+     * @return the port
+     */
+    public static PortSpec port(String name) {
+        return new PortSpec(Type.PORT, name, null, null, null);
+    }
+
+    /**
+     * Returns a patch port.
+     *
+     * @param name the port name
+     * @param patchPeer the name of the peer port
+     * @return the port
+     */
+    public static PortSpec patch(String name, String patchPeer) {
+        return new PortSpec(Type.PATCH, name, checkNotNull(patchPeer), null, null);
+    }
+
+    /**
+     * Returns a VXLAN tunnel port.
+     *
+     * @param name the port name
+     * @param remoteIp the remote end of the tunnel
+     * @param key the tunnel key
+     * @return the port
+     */
+    public static PortSpec vxlan(String name, IpAddress remoteIp, String key) {
+        return new PortSpec(Type.VXLAN, name, null, checkNotNull(remoteIp), checkNotNull(key));
+    }
+
+    public Type type() {
+        return type;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    /**
+     * Returns the peer of a patch port.
+     *
+     * @return the name of the peer port, null for the other types
+     */
+    public String patchPeer() {
+        return patchPeer;
+    }
+
+    /**
+     * Returns the remote end of a tunnel port.
+     *
+     * @return the remote ip, null for the other types
+     */
+    public IpAddress remoteIp() {
+        return remoteIp;
+    }
+
+    /**
+     * Returns the key of a tunnel port.
+     *
+     * @return the tunnel key, null for the other types
+     */
+    public String key() {
+        return key;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof PortSpec)) {
+            return false;
+        }
+        PortSpec that = (PortSpec) obj;
+        return type == that.type && name.equals(that.name) && Objects.equals(patchPeer, that.patchPeer)
+                && Objects.equals(remoteIp, that.remoteIp) && Objects.equals(key, that.key);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(type, name, patchPeer, remoteIp, key);
+    }
+
+    @Override
+    public String toString() {
+        return toStringHelper(this)
+                .omitNullValues()
+                .add("type", type)
+                .add("name", name)
+                .add("patchPeer", patchPeer)
+                .add("remoteIp", remoteIp)
+                .add("key", key)
+                .toString();
+    }
+}
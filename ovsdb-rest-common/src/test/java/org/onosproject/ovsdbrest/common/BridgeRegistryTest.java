@@ -0,0 +1,133 @@
+/*
+ * Copyright 2020-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.ovsdbrest.common;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.onosproject.net.DeviceId;
+import org.onosproject.store.service.TestStorageService;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the registry of the bridges of the ovsdb nodes.
+ */
+public class BridgeRegistryTest {
+
+    private static final DeviceId NODE1 = DeviceId.deviceId("ovsdb:10.0.0.1");
+    private static final DeviceId NODE2 = DeviceId.deviceId("ovsdb:10.0.0.2");
+    private static final DeviceId DPID1 = DeviceId.deviceId("of:0000000000000001");
+    private static final DeviceId DPID2 = DeviceId.deviceId("of:0000000000000002");
+    private static final DeviceId DPID3 = DeviceId.deviceId("of:0000000000000003");
+
+    private BridgeRegistry registry;
+
+    @Before
+    public void setUp() {
+        registry = new BridgeRegistry(new TestStorageService(), "bridges");
+    }
+
+    @After
+    public void tearDown() {
+        registry.close();
+    }
+
+    /**
+     * Tests that the same bridge name lives in many nodes and that every bridge is found
+     * by its node and name and by its datapath id.
+     */
+    @Test
+    public void testLookups() {
+        assertTrue(registry.isEmpty());
+        registry.put(NODE1, "br-int", DPID1);
+        registry.put(NODE2, "br-int", DPID2);
+
+        assertThat(registry.bridgeId(NODE1, "br-int"), is(DPID1));
+        assertThat(registry.bridgeId(NODE2, "br-int"), is(DPID2));
+        assertThat(registry.ovsdbId(DPID2), is(NODE2));
+        assertThat(registry.bridgeName(DPID2), is("br-int"));
+        assertThat(registry.bridges(NODE1), is(ImmutableMap.of("br-int", DPID1)));
+        assertThat(registry.bridgeIds().size(), is(2));
+        assertThat(registry.bridgeId(NODE1, "br-tun"), nullValue());
+    }
+
+    /**
+     * Tests that a new datapath id for a bridge name replaces the previous one.
+     */
+    @Test
+    public void testReplaceBridgeId() {
+        registry.put(NODE1, "br-int", DPID1);
+        registry.put(NODE1, "br-int", DPID2);
+
+        assertThat(registry.bridgeId(NODE1, "br-int"), is(DPID2));
+        assertFalse(registry.contains(DPID1));
+        assertThat(registry.ovsdbId(DPID1), nullValue());
+    }
+
+    /**
+     * Tests that the bridges read from a node replace the registered ones.
+     */
+    @Test
+    public void testReplaceNode() {
+        registry.put(NODE1, "br-int", DPID1);
+        registry.put(NODE1, "br-old", DPID2);
+        registry.put(NODE2, "br-int", DPID3);
+
+        registry.replace(NODE1, ImmutableMap.of("br-int", DPID1, "br-tun", DPID2));
+
+        assertThat(registry.bridges(NODE1), is(ImmutableMap.of("br-int", DPID1, "br-tun", DPID2)));
+        assertThat(registry.bridgeName(DPID2), is("br-tun"));
+        assertThat(registry.bridges(NODE2), is(ImmutableMap.of("br-int", DPID3)));
+    }
+
+    /**
+     * Tests the removal of a bridge by name, by datapath id and of a whole node.
+     */
+    @Test
+    public void testRemove() {
+        registry.put(NODE1, "br-int", DPID1);
+        registry.put(NODE1, "br-tun", DPID2);
+        registry.put(NODE2, "br-int", DPID3);
+
+        assertThat(registry.remove(NODE1, "br-int"), is(DPID1));
+        assertThat(registry.remove(NODE1, "br-int"), nullValue());
+        registry.remove(DPID3);
+        assertThat(registry.bridges(NODE2), is(ImmutableMap.of()));
+        registry.removeNode(NODE1);
+
+        assertTrue(registry.isEmpty());
+    }
+
+    /**
+     * Tests that a bridge name is reserved by a single creation at a time.
+     */
+    @Test
+    public void testReservation() {
+        assertTrue(registry.reserve(NODE1, "br-int"));
+        assertFalse(registry.reserve(NODE1, "br-int"));
+        assertTrue(registry.reserve(NODE2, "br-int"));
+
+        registry.unreserve(NODE1, "br-int");
+
+        assertTrue(registry.reserve(NODE1, "br-int"));
+    }
+}
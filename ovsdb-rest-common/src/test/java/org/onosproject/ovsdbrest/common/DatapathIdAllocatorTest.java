@@ -0,0 +1,111 @@
+/*
+ * Copyright 2020-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.ovsdbrest.common;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.onosproject.store.service.AtomicCounter;
+import org.onosproject.store.service.StorageService;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Unit tests for the allocation of datapath ids from leased blocks.
+ */
+public class DatapathIdAllocatorTest {
+
+    private static final String COUNTER = "dpid";
+    private static final long FIRST_ID = 4;
+    private static final long BLOCK = 1024;
+
+    private AtomicCounter counter;
+    private StorageService storageService;
+
+    @Before
+    public void setUp() {
+        counter = createMock(AtomicCounter.class);
+        storageService = createMock(StorageService.class);
+        expect(storageService.getAtomicCounter(COUNTER)).andReturn(counter);
+        replay(storageService);
+    }
+
+    /**
+     * Tests that the ids come in order from the leased block, and that a new block is
+     * leased only when the current one is used up.
+     */
+    @Test
+    public void testLeasedBlocks() {
+        // another instance leased the block in between
+        expect(counter.getAndAdd(BLOCK)).andReturn(0L);
+        expect(counter.getAndAdd(BLOCK)).andReturn(2 * BLOCK);
+        replay(counter);
+        DatapathIdAllocator allocator = new DatapathIdAllocator(storageService, COUNTER, FIRST_ID);
+
+        for (long i = 0; i < BLOCK; i++) {
+            assertThat(allocator.allocate(), is(FIRST_ID + i));
+        }
+        assertThat(allocator.allocate(), is(FIRST_ID + 2 * BLOCK));
+        verify(counter);
+    }
+
+    /**
+     * Tests that the released ids are given again, the lowest first, before new ids.
+     */
+    @Test
+    public void testReleasedIdsFirst() {
+        expect(counter.getAndAdd(BLOCK)).andReturn(0L);
+        replay(counter);
+        DatapathIdAllocator allocator = new DatapathIdAllocator(storageService, COUNTER, FIRST_ID);
+        for (int i = 0; i < 5; i++) {
+            allocator.allocate();
+        }
+
+        allocator.release(FIRST_ID + 3);
+        allocator.release(FIRST_ID + 1);
+        // a second release of the same id is ignored
+        allocator.release(FIRST_ID + 1);
+
+        assertThat(allocator.allocate(), is(FIRST_ID + 1));
+        assertThat(allocator.allocate(), is(FIRST_ID + 3));
+        assertThat(allocator.allocate(), is(FIRST_ID + 5));
+        verify(counter);
+    }
+
+    /**
+     * Tests that the ids out of the range leased so far are ignored.
+     */
+    @Test
+    public void testReleaseOutOfRange() {
+        expect(counter.getAndAdd(BLOCK)).andReturn(0L);
+        replay(counter);
+        DatapathIdAllocator allocator = new DatapathIdAllocator(storageService, COUNTER, FIRST_ID);
+        // nothing is leased yet
+        allocator.release(FIRST_ID);
+        assertThat(allocator.allocate(), is(FIRST_ID));
+
+        allocator.release(FIRST_ID - 1);
+        allocator.release(FIRST_ID + BLOCK);
+        allocator.release(Long.MAX_VALUE);
+
+        assertThat(allocator.allocate(), is(FIRST_ID + 1));
+        verify(counter);
+    }
+}
@@ -0,0 +1,308 @@
+/*
+ * Copyright 2020-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.ovsdbrest.common;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.base.Ticker;
+import com.google.common.collect.Maps;
+import org.easymock.Capture;
+import org.junit.Test;
+
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.TimeoutHandler;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriBuilder;
+import javax.ws.rs.core.UriInfo;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.anyString;
+import static org.easymock.EasyMock.capture;
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.eq;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.getCurrentArguments;
+import static org.easymock.EasyMock.newCapture;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Unit tests for the replay of the requests with an Idempotency-Key.
+ */
+public class IdempotencyFilterTest {
+
+    private static final String PATH = "bridge";
+    private static final String KEY = "key-1";
+    private static final String BODY = "{\"bridge-name\":\"br-int\"}";
+    private static final URI BASE_URI = URI.create("http://localhost:8181/onos/ovsdb/");
+
+    private final ManualTicker ticker = new ManualTicker();
+    private final IdempotencyFilter filter = new IdempotencyFilter(ticker);
+    // the properties of the last request, and of the last one which claimed its key
+    private Map<String, Object> properties;
+    private Map<String, Object> claimed;
+    // the URI the last request was sent to by the filter
+    private URI redirected;
+
+    private static final class ManualTicker extends Ticker {
+        private long nanos;
+
+        @Override
+        public long read() {
+            return nanos;
+        }
+    }
+
+    /**
+     * Builds a request which keeps its properties in a map.
+     */
+    private static ContainerRequestContext request(Map<String, Object> requestProperties) {
+        ContainerRequestContext request = createNiceMock(ContainerRequestContext.class);
+        expect(request.getProperty(anyString()))
+                .andAnswer(() -> requestProperties.get((String) getCurrentArguments()[0])).anyTimes();
+        return request;
+    }
+
+    /**
+     * Runs the request filter on a request.
+     *
+     * @return the response the request was aborted with, null if it goes on to a resource
+     */
+    private Response request(String method, String key, String body) throws IOException {
+        UriInfo uriInfo = createNiceMock(UriInfo.class);
+        expect(uriInfo.getPath()).andReturn(PATH).anyTimes();
+        expect(uriInfo.getBaseUriBuilder()).andAnswer(() -> UriBuilder.fromUri(BASE_URI)).anyTimes();
+        expect(uriInfo.getRequestUri()).andReturn(BASE_URI.resolve(PATH + "?timeout=50")).anyTimes();
+        replay(uriInfo);
+
+        properties = Maps.newHashMap();
+        Map<String, Object> requestProperties = properties;
+        Capture<Response> aborted = newCapture();
+        Capture<URI> uri = newCapture();
+        ContainerRequestContext request = request(requestProperties);
+        expect(request.getMethod()).andReturn(method).anyTimes();
+        expect(request.getHeaderString(IdempotencyFilter.IDEMPOTENCY_KEY)).andReturn(key).anyTimes();
+        expect(request.getEntityStream())
+                .andReturn(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8))).anyTimes();
+        expect(request.getUriInfo()).andReturn(uriInfo).anyTimes();
+        request.abortWith(capture(aborted));
+        expectLastCall().anyTimes();
+        request.setProperty(anyString(), anyObject());
+        expectLastCall().andAnswer(() -> {
+            requestProperties.put((String) getCurrentArguments()[0], getCurrentArguments()[1]);
+            return null;
+        }).anyTimes();
+        request.setRequestUri(capture(uri));
+        expectLastCall().anyTimes();
+        replay(request);
+
+        filter.filter(request);
+        redirected = uri.hasCaptured() ? uri.getValue() : null;
+        if (!properties.isEmpty() && redirected == null) {
+            claimed = properties;
+        }
+        return aborted.hasCaptured() ? aborted.getValue() : null;
+    }
+
+    private Response post(String body) throws IOException {
+        return request(HttpMethod.POST, KEY, body);
+    }
+
+    /**
+     * Runs the response filter for the request which claimed its key last.
+     */
+    private void respond(int status, Object entity) {
+        ContainerRequestContext request = request(claimed);
+        replay(request);
+        ContainerResponseContext response = createNiceMock(ContainerResponseContext.class);
+        expect(response.getStatus()).andReturn(status).anyTimes();
+        expect(response.getEntity()).andReturn(entity).anyTimes();
+        expect(response.getMediaType()).andReturn(MediaType.APPLICATION_JSON_TYPE).anyTimes();
+        replay(response);
+
+        filter.filter(request, response);
+    }
+
+    /**
+     * Suspends the last request in the replay resource.
+     *
+     * @param resumed gets the response the request is resumed with
+     * @param timeoutHandler gets the timeout handler of the request
+     */
+    private void follow(long timeout, Capture<Response> resumed, Capture<TimeoutHandler> timeoutHandler) {
+        ContainerRequestContext request = request(properties);
+        replay(request);
+        AsyncResponse asyncResponse = createNiceMock(AsyncResponse.class);
+        expect(asyncResponse.resume(capture(resumed))).andReturn(true).anyTimes();
+        asyncResponse.setTimeoutHandler(capture(timeoutHandler));
+        expectLastCall().anyTimes();
+        // without a timeout the request waits as long as the first request may hold its key
+        long wait = timeout > 0 ? timeout : TimeUnit.MINUTES.toMillis(5);
+        expect(asyncResponse.setTimeout(eq(wait), eq(TimeUnit.MILLISECONDS))).andReturn(true);
+        replay(asyncResponse);
+
+        new IdempotentReplayResource().replay(request, timeout, asyncResponse);
+        verify(asyncResponse);
+    }
+
+    /**
+     * Tests that a repeated request gets the kept response without running again, and
+     * that the kept response does not change with the response it was copied from.
+     */
+    @Test
+    public void testReplay() throws IOException {
+        assertThat(post(BODY), nullValue());
+        ObjectNode entity = new ObjectMapper().createObjectNode().put("bridge-name", "br-int");
+        respond(Response.Status.CREATED.getStatusCode(), entity);
+        entity.put("bridge-name", "changed");
+
+        Response replayed = post(BODY);
+        assertThat(replayed.getStatus(), is(Response.Status.CREATED.getStatusCode()));
+        assertThat(replayed.getHeaderString(IdempotencyFilter.REPLAYED), is("true"));
+        assertThat(((ObjectNode) replayed.getEntity()).get("bridge-name").asText(), is("br-int"));
+        assertThat(properties.isEmpty(), is(true));
+    }
+
+    /**
+     * Tests that a key repeated with another body is rejected.
+     */
+    @Test
+    public void testAnotherBody() throws IOException {
+        post(BODY);
+        respond(Response.Status.OK.getStatusCode(), null);
+
+        assertThat(post("{\"bridge-name\":\"br-tun\"}").getStatus(), is(422));
+    }
+
+    /**
+     * Tests that a key repeated while its first request runs waits, without a thread, for
+     * the response of the first request.
+     */
+    @Test
+    public void testCollapseOnRunning() throws IOException {
+        post(BODY);
+        assertThat(post(BODY), nullValue());
+        assertThat(redirected, is(URI.create("http://localhost:8181/onos/ovsdb/idempotent-replay?timeout=50")));
+
+        Capture<Response> resumed = newCapture();
+        follow(50, resumed, newCapture());
+        assertThat(resumed.hasCaptured(), is(false));
+
+        respond(Response.Status.OK.getStatusCode(), null);
+        assertThat(resumed.getValue().getStatus(), is(Response.Status.OK.getStatusCode()));
+        assertThat(resumed.getValue().getHeaderString(IdempotencyFilter.REPLAYED), is("true"));
+    }
+
+    /**
+     * Tests that a repeated request which waits longer than its timeout gets a 504.
+     */
+    @Test
+    public void testCollapseTimeout() throws IOException {
+        post(BODY);
+        post(BODY);
+        Capture<TimeoutHandler> timeoutHandler = newCapture();
+        follow(50, newCapture(), timeoutHandler);
+
+        Capture<Response> resumed = newCapture();
+        AsyncResponse expired = createNiceMock(AsyncResponse.class);
+        expect(expired.resume(capture(resumed))).andReturn(true);
+        replay(expired);
+        timeoutHandler.getValue().handleTimeout(expired);
+
+        assertThat(resumed.getValue().getStatus(), is(Response.Status.GATEWAY_TIMEOUT.getStatusCode()));
+    }
+
+    /**
+     * Tests that a first request which never answers gives up its key after a while, and
+     * that the requests waiting for it are answered.
+     */
+    @Test
+    public void testAbandonedClaim() throws IOException {
+        post(BODY);
+        post(BODY);
+        Capture<Response> resumed = newCapture();
+        follow(0, resumed, newCapture());
+
+        ticker.nanos += TimeUnit.MINUTES.toNanos(6);
+        assertThat(post(BODY), nullValue());
+        assertThat(redirected, nullValue());
+        assertThat(claimed.isEmpty(), is(false));
+        assertThat(resumed.getValue().getStatus(), is(Response.Status.GATEWAY_TIMEOUT.getStatusCode()));
+
+        respond(Response.Status.OK.getStatusCode(), null);
+        assertThat(post(BODY).getStatus(), is(Response.Status.OK.getStatusCode()));
+    }
+
+    /**
+     * Tests that the failed and busy responses are not kept, so the request can be retried.
+     */
+    @Test
+    public void testRetryAfterFailure() throws IOException {
+        post(BODY);
+        respond(Response.Status.SERVICE_UNAVAILABLE.getStatusCode(), null);
+        assertThat(post(BODY), nullValue());
+        assertThat(redirected, nullValue());
+
+        respond(429, null);
+        assertThat(post(BODY), nullValue());
+        assertThat(redirected, nullValue());
+    }
+
+    /**
+     * Tests that the requests without a key and the ones which are not a POST go through.
+     */
+    @Test
+    public void testIgnoredRequests() throws IOException {
+        assertThat(request(HttpMethod.POST, null, BODY), nullValue());
+        assertThat(properties.isEmpty(), is(true));
+        assertThat(request(HttpMethod.GET, KEY, BODY), nullValue());
+        assertThat(properties.isEmpty(), is(true));
+    }
+
+    /**
+     * Tests that the replay resource only answers the requests sent by the filter.
+     */
+    @Test
+    public void testReplayWithoutFollower() {
+        properties = Maps.newHashMap();
+        Capture<Response> resumed = newCapture();
+        ContainerRequestContext request = request(properties);
+        replay(request);
+        AsyncResponse asyncResponse = createNiceMock(AsyncResponse.class);
+        expect(asyncResponse.resume(capture(resumed))).andReturn(true);
+        replay(asyncResponse);
+
+        new IdempotentReplayResource().replay(request, 0, asyncResponse);
+
+        assertThat(resumed.getValue(), notNullValue());
+        assertThat(resumed.getValue().getStatus(), is(Response.Status.NOT_FOUND.getStatusCode()));
+    }
+}
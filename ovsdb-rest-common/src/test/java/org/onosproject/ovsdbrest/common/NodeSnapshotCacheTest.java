@@ -0,0 +1,111 @@
+/*
+ * Copyright 2020-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.ovsdbrest.common;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.MoreExecutors;
+import org.junit.Test;
+import org.onosproject.net.DeviceId;
+import org.onosproject.net.device.DeviceEvent;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Unit tests for the snapshots of the ovsdb nodes.
+ */
+public class NodeSnapshotCacheTest {
+
+    private static final DeviceId NODE = DeviceId.deviceId("ovsdb:10.0.0.1");
+    private static final long MAX_AGE = 60000;
+
+    private final AtomicInteger reads = new AtomicInteger();
+    private volatile NodeSnapshot content = snapshot("veth0");
+
+    // the background reads run in the calling thread
+    private final NodeSnapshotCache<RuntimeException> cache = new NodeSnapshotCache<>(ovsdbId -> {
+        reads.incrementAndGet();
+        return content;
+    }, MoreExecutors.newDirectExecutorService(), MAX_AGE);
+
+    private static NodeSnapshot snapshot(String... portNames) {
+        return new NodeSnapshot(NODE, ImmutableMap.of("br-int", DeviceId.deviceId("of:0000000000000001")),
+                                ImmutableMap.of("br-int", ImmutableSet.copyOf(portNames)));
+    }
+
+    /**
+     * Tests that the statistics updates do not read the node again.
+     */
+    @Test
+    public void testStatsEventsKeepSnapshot() {
+        cache.get(NODE);
+
+        cache.invalidate(NODE, DeviceEvent.Type.PORT_STATS_UPDATED);
+        cache.invalidate(NODE, DeviceEvent.Type.PORT_STATS_UPDATED);
+        cache.get(NODE);
+
+        assertThat(reads.get(), is(1));
+    }
+
+    /**
+     * Tests that the events which change the ports read the node again.
+     */
+    @Test
+    public void testPortEventsRefresh() {
+        cache.get(NODE);
+        content = snapshot("veth0", "veth1");
+
+        cache.invalidate(NODE, DeviceEvent.Type.PORT_ADDED);
+
+        assertThat(reads.get(), is(2));
+        assertThat(cache.peek(NODE).ports().get("br-int"), is(ImmutableSet.of("veth0", "veth1")));
+    }
+
+    /**
+     * Tests that the version only depends on the content, so a new cache, such as the one of
+     * another instance or of a restarted one, gives the same version for the same content.
+     */
+    @Test
+    public void testVersionFromContent() {
+        String version = cache.get(NODE).version();
+        NodeSnapshotCache<RuntimeException> other = new NodeSnapshotCache<>(
+                ovsdbId -> snapshot("veth0"), MoreExecutors.newDirectExecutorService(), MAX_AGE);
+        assertThat(other.get(NODE).version(), is(version));
+
+        content = snapshot("veth0");
+        cache.invalidate(NODE, DeviceEvent.Type.PORT_UPDATED);
+        assertThat(cache.peek(NODE).version(), is(version));
+
+        content = snapshot("veth1");
+        cache.invalidate(NODE, DeviceEvent.Type.PORT_UPDATED);
+        assertThat(cache.peek(NODE).version(), is(not(version)));
+        assertThat(snapshot("veth0", "veth1").version(), is(not(snapshot("veth0veth1").version())));
+    }
+
+    /**
+     * Tests that a node which was never read is not read because of an event.
+     */
+    @Test
+    public void testUnknownNode() {
+        cache.invalidate(NODE, DeviceEvent.Type.DEVICE_UPDATED);
+
+        assertThat(reads.get(), is(0));
+    }
+}
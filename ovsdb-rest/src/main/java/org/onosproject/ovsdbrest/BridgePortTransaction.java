@@ -0,0 +1,189 @@
+/*
+ * Copyright 2020-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.ovsdbrest;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import org.onosproject.ovsdb.controller.OvsdbClientService;
+import org.onosproject.ovsdb.rfc.message.OperationResult;
+import org.onosproject.ovsdb.rfc.notation.Column;
+import org.onosproject.ovsdb.rfc.notation.Mutation;
+import org.onosproject.ovsdb.rfc.notation.Row;
+import org.onosproject.ovsdb.rfc.notation.Uuid;
+import org.onosproject.ovsdb.rfc.operations.Insert;
+import org.onosproject.ovsdb.rfc.operations.Mutate;
+import org.onosproject.ovsdb.rfc.operations.Operation;
+import org.onosproject.ovsdb.rfc.schema.DatabaseSchema;
+import org.onosproject.ovsdb.rfc.utils.ConditionUtil;
+import org.onosproject.ovsdb.rfc.utils.MutationUtil;
+import org.onosproject.ovsdbrest.PortOperationCoalescer.Action;
+import org.onosproject.ovsdbrest.PortOperationCoalescer.PortChange;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.onosproject.ovsdb.controller.OvsdbConstant.BRIDGE;
+import static org.onosproject.ovsdb.controller.OvsdbConstant.DATABASENAME;
+import static org.onosproject.ovsdb.controller.OvsdbConstant.INTERFACE;
+import static org.onosproject.ovsdb.controller.OvsdbConstant.INTERFACES;
+import static org.onosproject.ovsdb.controller.OvsdbConstant.PORT;
+import static org.onosproject.ovsdb.controller.OvsdbConstant.PORTS;
+import static org.onosproject.ovsdb.controller.OvsdbConstant.UUID;
+import static org.onosproject.ovsdbrest.OvsdbRestException.BridgeNotFoundException;
+import static org.onosproject.ovsdbrest.OvsdbRestException.OvsdbDeviceException;
+
+/**
+ * Adds and removes several ports of a bridge in a single ovsdb transaction.
+ * The local cache of the client only decides which rows the transaction writes, the
+ * transaction itself does not trust it: an added port is inserted, so the unique index on
+ * the port names fails the whole transaction when the port was added in the meanwhile, and
+ * a removed port is dropped only if the bridge still holds it, which the result count tells.
+ * The changes which find their port already added, or already removed, are skipped and
+ * returned to the caller.
+ */
+final class BridgePortTransaction {
+
+    private static final String NAME = "name";
+
+    private final OvsdbClientService client;
+    private final long timeoutSeconds;
+
+    /**
+     * Creates a transaction builder for an ovsdb client.
+     *
+     * @param client the connected ovsdb client
+     * @param timeoutSeconds the longest wait for the transaction result, in seconds
+     */
+    BridgePortTransaction(OvsdbClientService client, long timeoutSeconds) {
+        this.client = client;
+        this.timeoutSeconds = timeoutSeconds;
+    }
+
+    /**
+     * Applies the changes to a bridge in one transaction, all of them or none.
+     *
+     * @param bridgeName the bridge name
+     * @param changes the port changes, never two of the same port
+     * @return the changes which were skipped because their port was already added, or
+     * already removed
+     * @throws OvsdbDeviceException if the transaction failed
+     * @throws BridgeNotFoundException if the bridge does not exist
+     */
+    List<PortChange> apply(String bridgeName, List<PortChange> changes)
+            throws OvsdbDeviceException, BridgeNotFoundException {
+        String bridgeUuid = client.getBridgeUuid(bridgeName);
+        if (bridgeUuid == null) {
+            throw new BridgeNotFoundException();
+        }
+
+        DatabaseSchema dbSchema = client.getDatabaseSchema(DATABASENAME);
+        List<Operation> operations = new ArrayList<>();
+        List<Mutation> addedPorts = new ArrayList<>();
+        // {index of the operation: removal it makes}
+        Map<Integer, PortChange> removals = Maps.newHashMap();
+        List<PortChange> skipped = new ArrayList<>();
+        for (int i = 0; i < changes.size(); i++) {
+            PortChange change = changes.get(i);
+            String portUuid = client.getPortUuid(change.portName(), bridgeUuid);
+            if (change.action() == Action.ADD && portUuid == null) {
+                // the new rows are referenced by their names inside the transaction
+                String portRef = "port" + i;
+                String interfaceRef = "interface" + i;
+                operations.add(new Insert(dbSchema.getTableSchema(INTERFACE), interfaceRef,
+                                          namedRow(INTERFACE, change.portName())));
+                Insert portInsert = new Insert(dbSchema.getTableSchema(PORT), portRef,
+                                               namedRow(PORT, change.portName()));
+                portInsert.getRow().put(INTERFACES, Uuid.uuid(interfaceRef));
+                operations.add(portInsert);
+                addedPorts.add(MutationUtil.insert(PORTS, Uuid.uuid(portRef)));
+            } else if (change.action() == Action.REMOVE && portUuid != null) {
+                // the port and its interfaces are garbage collected once the bridge drops them
+                removals.put(operations.size(), change);
+                operations.add(new Mutate(dbSchema.getTableSchema(BRIDGE),
+                                          ImmutableList.of(ConditionUtil.isEqual(UUID, Uuid.uuid(bridgeUuid)),
+                                                           ConditionUtil.includes(PORTS, Uuid.uuid(portUuid))),
+                                          ImmutableList.of(MutationUtil.delete(PORTS, Uuid.uuid(portUuid)))));
+            } else {
+                skipped.add(change);
+            }
+        }
+        int addition = -1;
+        if (!addedPorts.isEmpty()) {
+            addition = operations.size();
+            operations.add(new Mutate(dbSchema.getTableSchema(BRIDGE),
+                                      ImmutableList.of(ConditionUtil.isEqual(UUID, Uuid.uuid(bridgeUuid))),
+                                      addedPorts));
+        }
+        if (operations.isEmpty()) {
+            return skipped;
+        }
+
+        List<OperationResult> results = transact(bridgeName, operations);
+        if (addition >= 0 && results.get(addition).getCount() == 0) {
+            // the bridge went away, the new rows are not referenced and are dropped too
+            throw new BridgeNotFoundException();
+        }
+        removals.forEach((index, change) -> {
+            if (results.get(index).getCount() == 0) {
+                skipped.add(change);
+            }
+        });
+        return skipped;
+    }
+
+    private List<OperationResult> transact(String bridgeName, List<Operation> operations)
+            throws OvsdbDeviceException {
+        List<OperationResult> results;
+        try {
+            results = client.transactConfig(DATABASENAME, operations).get(timeoutSeconds, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OvsdbDeviceException("Interrupted while changing the ports of " + bridgeName);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new OvsdbDeviceException("Error with ovsdb device: " + e.getMessage());
+        }
+        if (results == null) {
+            throw new OvsdbDeviceException("Error with ovsdb device: the transaction was not applied");
+        }
+        for (OperationResult result : results) {
+            if (result != null && result.getError() != null) {
+                throw new OvsdbDeviceException("Error with ovsdb device: " + result.getError()
+                                                       + " " + result.getDetails());
+            }
+        }
+        if (results.size() < operations.size() || results.contains(null)) {
+            throw new OvsdbDeviceException("Error with ovsdb device: the transaction was not applied");
+        }
+        return results;
+    }
+
+    /**
+     * Builds a new row with only its name.
+     *
+     * @param tableName the table of the row
+     * @param name the name
+     * @return the row
+     */
+    private static Row namedRow(String tableName, String name) {
+        Map<String, Column> columns = Maps.newHashMap();
+        columns.put(NAME, new Column(NAME, name));
+        return new Row(tableName, null, columns);
+    }
+}
@@ -16,18 +16,28 @@
 
 package org.onosproject.ovsdbrest;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Maps;
-import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.RateLimiter;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Deactivate;
 import org.osgi.service.component.annotations.Reference;
 import org.osgi.service.component.annotations.ReferenceCardinality;
+import org.onlab.metrics.MetricsComponent;
+import org.onlab.metrics.MetricsFeature;
+import org.onlab.metrics.MetricsService;
 import org.onlab.packet.IpAddress;
 import org.onlab.util.ItemNotFoundException;
+import org.onosproject.cluster.ClusterEvent;
+import org.onosproject.cluster.ClusterEventListener;
 import org.onosproject.cluster.ClusterService;
 import org.onosproject.core.ApplicationId;
 import org.onosproject.core.CoreService;
+import org.onosproject.mastership.MastershipService;
+import org.onosproject.net.AnnotationKeys;
 import org.onosproject.net.Device;
 import org.onosproject.net.DeviceId;
 import org.onosproject.net.behaviour.BridgeConfig;
@@ -50,27 +60,48 @@ import org.onosproject.net.config.NetworkConfigService;
 import org.onosproject.net.config.NetworkConfigEvent;
 import org.onosproject.net.config.basics.SubjectFactories;
 import org.onosproject.net.device.DeviceAdminService;
+import org.onosproject.net.device.DeviceEvent;
+import org.onosproject.net.device.DeviceListener;
 import org.onosproject.net.device.DeviceService;
 import org.onosproject.net.driver.DriverHandler;
 import org.onosproject.net.driver.DriverService;
 import org.onosproject.ovsdb.controller.OvsdbClientService;
 import org.onosproject.ovsdb.controller.OvsdbController;
 import org.onosproject.ovsdb.controller.OvsdbNodeId;
+import org.onosproject.ovsdb.controller.OvsdbNodeListener;
+import org.onosproject.ovsdbrest.common.BridgeRegistry;
+import org.onosproject.ovsdbrest.common.DatapathIdAllocator;
+import org.onosproject.ovsdbrest.common.NodeSnapshot;
+import org.onosproject.ovsdbrest.common.NodeSnapshotCache;
+import org.onosproject.ovsdbrest.common.OperationMetrics;
+import org.onosproject.ovsdbrest.common.OperationMetrics.Phase;
+import org.onosproject.ovsdbrest.common.OperationMetrics.Sample;
+import org.onosproject.ovsdbrest.common.OperationStats;
+import org.onosproject.ovsdbrest.PortOperationCoalescer.PortChange;
+import org.onosproject.store.service.StorageService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutorService;
-import java.util.Optional;
-import java.util.NoSuchElementException;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import static org.onosproject.ovsdbrest.OvsdbNodeConfig.OvsdbNode;
+import static java.util.concurrent.Executors.newFixedThreadPool;
 import static java.util.concurrent.Executors.newSingleThreadExecutor;
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
 import static org.onlab.util.Tools.groupedThreads;
 import static org.onosproject.ovsdbrest.OvsdbRestException.BridgeAlreadyExistsException;
 import static org.onosproject.ovsdbrest.OvsdbRestException.BridgeNotFoundException;
@@ -86,7 +117,23 @@ public class OvsdbBridgeManager implements OvsdbBridgeService {
     private final Logger log = LoggerFactory.getLogger(getClass());
     private ApplicationId appId;
     private static final int DPID_BEGIN = 4;
+    private static final String DPID_COUNTER = "ovsdb-rest-dpid";
+    private static final String BRIDGES_MAP = "ovsdb-rest-bridges";
     private static final int OFPORT = 6633;
+    private static final int LANE_QUEUE_SIZE = 1024;
+    private static final long CONTROLLER_PUSH_DELAY = 5;
+    private static final double CONTROLLER_PUSH_RATE = 50.0;
+    private static final long CONTROLLER_PUSH_WAIT = 1;
+    private static final String METRICS_COMPONENT = "ovsdb-rest";
+    private static final String METRICS_FEATURE = "nodeLanes";
+    private static final int CONNECT_FAN_OUT = 32;
+    private static final int PORT_BATCH_MAX = 128;
+    private static final long TRANSACT_TIMEOUT = 10;
+    private static final String SKIPPED_PORT_CHANGES = "skippedPortChanges";
+    private static final long CONNECT_TIMEOUT = 10000;
+    private static final long RECONNECT_BACKOFF_BASE = 1000;
+    private static final long RECONNECT_BACKOFF_MAX = 60000;
+    private static final long SNAPSHOT_MAX_AGE = 30000;
 
     @Reference (cardinality = ReferenceCardinality.MANDATORY)
     private CoreService coreService;
@@ -112,17 +159,61 @@ public class OvsdbBridgeManager implements OvsdbBridgeService {
     @Reference(cardinality = ReferenceCardinality.MANDATORY)
     private DriverService driverService;
 
-    private Set<OvsdbNode> ovsdbNodes;
+    @Reference(cardinality = ReferenceCardinality.MANDATORY)
+    private MetricsService metricsService;
+
+    @Reference(cardinality = ReferenceCardinality.MANDATORY)
+    private StorageService storageService;
 
-    // {bridgeName: datapathId} structure to manage the creation/deletion of bridges
-    private Map<String, DeviceId> bridgeIds = Maps.newConcurrentMap();
+    @Reference(cardinality = ReferenceCardinality.MANDATORY)
+    private MastershipService mastershipService;
+
+    // swapped as a whole when the configuration changes, so lookups take no lock
+    private volatile OvsdbNodeIndex nodeIndex = OvsdbNodeIndex.EMPTY;
 
-    private Map<OvsdbNode, Set<DeviceId>> ovsdbNodeDevIdsSetMap = Maps.newConcurrentMap();
+    // {ovsdbId: {bridgeName: datapathId}} structure to manage the creation/deletion of bridges,
+    // shared by the cluster
+    private BridgeRegistry bridgeRegistry;
 
     private final ExecutorService eventExecutor =
             newSingleThreadExecutor(groupedThreads("onos/ovsdb-rest-ctl", "event-handler", log));
+    // operations of the same ovsdb node run in order in one lane, different nodes run in parallel
+    private final StripedExecutor nodeExecutor =
+            new StripedExecutor(Runtime.getRuntime().availableProcessors(), LANE_QUEUE_SIZE,
+                                "onos/ovsdb-rest-node", log);
+    // connects the configured nodes in parallel and reconnects the lost ones
+    private final OvsdbConnectionManager connectionManager =
+            new OvsdbConnectionManager(this::isOvsdbConnected, this::startConnection, CONNECT_FAN_OUT,
+                                       CONNECT_TIMEOUT, RECONNECT_BACKOFF_BASE, RECONNECT_BACKOFF_MAX);
+    private final OvsdbNodeListener ovsdbNodeListener = new InternalOvsdbNodeListener();
+    // port additions and removals of the same bridge, merged into one ovsdb transaction
+    private final PortOperationCoalescer portCoalescer =
+            new PortOperationCoalescer(nodeExecutor, this::applyPortChanges, PORT_BATCH_MAX);
+    // bridges and ports of the nodes for the read API, refreshed in the background when they
+    // are old or a device event changed them
+    private final ExecutorService snapshotExecutor =
+            newFixedThreadPool(2, groupedThreads("onos/ovsdb-rest-ctl", "snapshot-%d", log));
+    private final NodeSnapshotCache<OvsdbDeviceException> snapshots =
+            new NodeSnapshotCache<>(this::readSnapshot, snapshotExecutor, SNAPSHOT_MAX_AGE);
+    private final DeviceListener deviceListener = new InternalDeviceListener();
+    private MetricsComponent metricsComponent;
+    private MetricsFeature metricsFeature;
+    // latency and outcome of the operations, from the call to the completion of the future
+    private OperationMetrics operationMetrics;
+    // port changes which found their port already added, or already removed
+    private Counter skippedPortChanges;
     private final NetworkConfigListener configListener = new InternalConfigListener();
-    private final AtomicLong datapathId = new AtomicLong(DPID_BEGIN);
+    private DatapathIdAllocator datapathIdAllocator;
+
+    // controllers of the bridges, rebuilt only when the cluster membership changes
+    private volatile List<ControllerInfo> controllers = ImmutableList.of();
+    private final ClusterEventListener clusterListener = new InternalClusterListener();
+    private final ScheduledExecutorService controllerExecutor =
+            newSingleThreadScheduledExecutor(groupedThreads("onos/ovsdb-rest-ctl", "controller-sync", log));
+    // set while a push is scheduled, so a burst of membership changes makes a single pass
+    private final AtomicBoolean controllerPushPending = new AtomicBoolean(false);
+    // bridges updated per second by the push, to not flood the switches after a change
+    private final RateLimiter controllerPushLimiter = RateLimiter.create(CONTROLLER_PUSH_RATE);
 
 
     private final ConfigFactory configFactory =
@@ -137,10 +228,20 @@ public class OvsdbBridgeManager implements OvsdbBridgeService {
     protected void activate() {
         log.info("Stocks in appId");
         appId = coreService.getAppId("org.onosproject.ovsdbrest");
+        datapathIdAllocator = new DatapathIdAllocator(storageService, DPID_COUNTER, DPID_BEGIN);
+        bridgeRegistry = new BridgeRegistry(storageService, BRIDGES_MAP);
+        controllers = buildControllers();
+        clusterService.addListener(clusterListener);
+        controller.addNodeListener(ovsdbNodeListener);
+        deviceService.addListener(deviceListener);
         log.info("Stocks in configService.addListener(configListener)");
         configService.addListener(configListener);
         log.info("Stocks in configRegistry.registerConfigFactory(configFactory);");
         configRegistry.registerConfigFactory(configFactory);
+        readConfiguration();
+        registerLaneMetrics();
+        operationMetrics = new OperationMetrics(metricsService, METRICS_COMPONENT);
+        skippedPortChanges = metricsService.createCounter(metricsComponent, metricsFeature, SKIPPED_PORT_CHANGES);
         log.info("Started");
     }
 
@@ -148,47 +249,47 @@ public class OvsdbBridgeManager implements OvsdbBridgeService {
     protected void deactivate() {
         configService.removeListener(configListener);
         configRegistry.unregisterConfigFactory(configFactory);
+        clusterService.removeListener(clusterListener);
+        controller.removeNodeListener(ovsdbNodeListener);
+        deviceService.removeListener(deviceListener);
+        connectionManager.close();
         eventExecutor.shutdown();
+        snapshotExecutor.shutdown();
+        snapshots.clear();
+        controllerExecutor.shutdownNow();
+        nodeExecutor.shutdown();
+        unregisterLaneMetrics();
+        operationMetrics.remove();
+        metricsService.removeMetric(metricsComponent, metricsFeature, SKIPPED_PORT_CHANGES);
+        bridgeRegistry.close();
         log.info("Stopped");
     }
 
-    @Override
-    public void createBridge(IpAddress ovsdbAddress, String bridgeName)
+    private void doCreateBridge(IpAddress ovsdbAddress, String bridgeName, Sample sample)
             throws OvsdbDeviceException, BridgeAlreadyExistsException {
 
         OvsdbNode ovsdbNode;
         log.info("Creating bridge {} at {}", bridgeName, ovsdbAddress);
-        readConfiguration();
-        log.info(String.valueOf(ovsdbNodes));
 
-        try {
-            //  gets the target ovsdb node
-            ovsdbNode = ovsdbNodes.stream().filter(node -> node.ovsdbIp().equals(ovsdbAddress)).findFirst().get();
-        } catch (NoSuchElementException nsee) {
-            log.info(nsee.getMessage());
-            throw new OvsdbDeviceException(nsee.getMessage());
-        }
-
-        // construct a unique dev id'
-        DeviceId dpid = getNextUniqueDatapathId(datapathId);
+        // gets the target ovsdb node
+        ovsdbNode = ovsdbNode(ovsdbAddress);
+        connectOvsdb(ovsdbNode);
 
-
-        if (isBridgeCreated(bridgeName)) {
+        if (isBridgeCreated(ovsdbNode, bridgeName)) {
             log.warn("A bridge with this name already exists, aborting.");
             throw new BridgeAlreadyExistsException();
         }
-        List<ControllerInfo> controllers = new ArrayList<>();
-        Sets.newHashSet(clusterService.getNodes()).forEach(controller -> {
-            ControllerInfo ctrlInfo = new ControllerInfo(controller.ip(), OFPORT, "tcp");
-            controllers.add(ctrlInfo);
-            log.info("controller {}:{} added", ctrlInfo.ip().toString(), ctrlInfo.port());
-        });
+
+        // construct a unique dev id'
+        DeviceId dpid = getNextUniqueDatapathId();
+        boolean created = false;
         try {
             Device device = deviceService.getDevice(ovsdbNode.ovsdbId());
             if (device == null) {
                 log.warn("Ovsdb device not found, aborting.");
                 throw new OvsdbDeviceException("Ovsdb device not found");
             }
+            sample.lap(Phase.LOOKUP);
             if (device.is(BridgeConfig.class)) {
                 BridgeConfig bridgeConfig = device.as(BridgeConfig.class);
                 BridgeDescription bridgeDescription = DefaultBridgeDescription.builder()
@@ -197,7 +298,9 @@ public class OvsdbBridgeManager implements OvsdbBridgeService {
                         .controllers(controllers)
                         .build();
                 bridgeConfig.addBridge(bridgeDescription);
-                bridgeIds.put(bridgeName, bridgeDescription.deviceId().get());
+                sample.lap(Phase.DRIVER);
+                created = true;
+                bridgeRegistry.put(ovsdbNode.ovsdbId(), bridgeName, bridgeDescription.deviceId().get());
                 log.info("Correctly created bridge {} at {}", bridgeName, ovsdbAddress);
             } else {
                 log.warn("The bridging behaviour is not supported in device {}", device.id());
@@ -208,25 +311,23 @@ public class OvsdbBridgeManager implements OvsdbBridgeService {
         } catch (ItemNotFoundException e) {
             log.warn("Failed to create integration bridge on {}", ovsdbNode.ovsdbIp());
             throw new OvsdbDeviceException("Error with ovsdb device: item not found");
+        } finally {
+            if (!created) {
+                releaseDatapathId(dpid);
+            }
         }
     }
 
-    @Override
-    public void deleteBridge(IpAddress ovsdbAddress, String bridgeName)
+    private void doDeleteBridge(IpAddress ovsdbAddress, String bridgeName, Sample sample)
             throws OvsdbDeviceException, BridgeNotFoundException {
 
         OvsdbNode ovsdbNode;
         log.debug("Deleting bridge {} at {}", bridgeName, ovsdbAddress);
 
-        try {
-            // gets the target ovsdb node
-            ovsdbNode = ovsdbNodes.stream().filter(node -> node.ovsdbIp().equals(ovsdbAddress)).findFirst().get();
-        } catch (NoSuchElementException nsee) {
-            log.warn(nsee.getMessage());
-            throw new OvsdbDeviceException(nsee.getMessage());
-        }
+        // gets the target ovsdb node
+        ovsdbNode = ovsdbNode(ovsdbAddress);
 
-        DeviceId deviceId = bridgeIds.get(bridgeName);
+        DeviceId deviceId = bridgeId(ovsdbNode, bridgeName);
         if (deviceId == null) {
             log.warn("No bridge with this name, aborting.");
             throw new BridgeNotFoundException();
@@ -240,6 +341,7 @@ public class OvsdbBridgeManager implements OvsdbBridgeService {
                 log.warn("Ovsdb device not found, aborting.");
                 throw new OvsdbDeviceException("Ovsdb device not found");
             }
+            sample.lap(Phase.LOOKUP);
             if (device.is(BridgeConfig.class)) {
 
                 // unregister bridge from its controllers
@@ -251,7 +353,9 @@ public class OvsdbBridgeManager implements OvsdbBridgeService {
                 // remove bridge from ovsdb
                 BridgeConfig bridgeConfig = device.as(BridgeConfig.class);
                 bridgeConfig.deleteBridge(BridgeName.bridgeName(bridgeName));
-                bridgeIds.remove(bridgeName);
+                sample.lap(Phase.DRIVER);
+                bridgeRegistry.remove(ovsdbNode.ovsdbId(), bridgeName);
+                releaseDatapathId(deviceId);
 
                 // remove bridge from onos devices
                 adminService.removeDevice(deviceId);
@@ -269,102 +373,153 @@ public class OvsdbBridgeManager implements OvsdbBridgeService {
         }
     }
 
-    @Override
-    public void addPort(IpAddress ovsdbAddress, String bridgeName, String portName)
+    /**
+     * Adds and removes ports of a bridge. A single change goes through the bridge driver,
+     * several changes go in a single ovsdb transaction. The ports which are already added,
+     * or already removed, are skipped and counted. The lookup and driver phases are recorded
+     * in the sample of every change, a change applied again after a failed transaction
+     * records the phases of both attempts.
+     *
+     * @param ovsdbAddress the ovsdb IP address
+     * @param bridgeName the bridge name
+     * @param changes the port changes, never two of the same port
+     * @throws OvsdbDeviceException if the node is not connected or the transaction failed
+     * @throws BridgeNotFoundException if the bridge does not exist
+     */
+    private void applyPortChanges(IpAddress ovsdbAddress, String bridgeName, List<PortChange> changes)
             throws OvsdbDeviceException, BridgeNotFoundException {
-
-        OvsdbNode ovsdbNode;
-        log.debug("Adding port {} to bridge {} at {}", portName, bridgeName, ovsdbAddress);
-
-        try {
-            // gets the target ovsdb node
-            ovsdbNode = ovsdbNodes.stream().filter(node -> node.ovsdbIp().equals(ovsdbAddress)).findFirst().get();
-        } catch (NoSuchElementException nsee) {
-            log.warn(nsee.getMessage());
-            throw new OvsdbDeviceException(nsee.getMessage());
+        log.debug("Applying {} port changes to bridge {} at {}", changes.size(), bridgeName, ovsdbAddress);
+
+        // gets the target ovsdb node
+        OvsdbNode ovsdbNode = ovsdbNode(ovsdbAddress);
+        connectOvsdb(ovsdbNode);
+        OvsdbClientService ovsdbClient = getOvsdbClient(ovsdbNode);
+        if (ovsdbClient == null || !ovsdbClient.isConnected()) {
+            log.warn("Ovsdb device not connected, aborting.");
+            throw new OvsdbDeviceException("Ovsdb device not connected");
+        }
+        String bridgeUuid = ovsdbClient.getBridgeUuid(bridgeName);
+        if (bridgeUuid == null) {
+            log.warn("Bridge {} not found at {}", bridgeName, ovsdbAddress);
+            throw new BridgeNotFoundException();
         }
 
-        try {
-            Device device = deviceService.getDevice(ovsdbNode.ovsdbId());
-
-            log.debug("OvsdbNode.ovsdbId = " + ovsdbNode.ovsdbId());
-            if (device == null) {
-                log.warn("Ovsdb device not found, aborting.");
-                throw new OvsdbDeviceException("Ovsdb device not found");
-            }
-            if (device.is(BridgeConfig.class)) {
-                // add port to bridge through ovsdb
-                BridgeConfig bridgeConfig = device.as(BridgeConfig.class);
-                bridgeConfig.addPort(BridgeName.bridgeName(bridgeName), portName);
-                log.info("Correctly added port {} to bridge {} at {}", portName, bridgeName, ovsdbAddress);
+        if (changes.size() == 1) {
+            PortChange change = changes.get(0);
+            boolean present = ovsdbClient.getPortUuid(change.portName(), bridgeUuid) != null;
+            lap(changes, Phase.LOOKUP);
+            if (present == (change.action() == PortOperationCoalescer.Action.ADD)) {
+                skipPortChanges(ovsdbAddress, bridgeName, changes);
+            } else if (change.action() == PortOperationCoalescer.Action.ADD) {
+                doAddPort(ovsdbNode, bridgeName, change.portName());
+                lap(changes, Phase.DRIVER);
             } else {
-                log.warn("The bridging behaviour is not supported in device {}", device.id());
-                throw new OvsdbDeviceException(
-                        "The bridging behaviour is not supported in device " + device.id()
-                );
+                doRemovePort(ovsdbNode, bridgeName, change.portName());
+                lap(changes, Phase.DRIVER);
             }
-        } catch (ItemNotFoundException e) {
-            log.warn("Failed to delete bridge on {}", ovsdbNode.ovsdbIp());
-            throw new OvsdbDeviceException("Error with ovsdb device: item not found");
+            return;
         }
+
+        lap(changes, Phase.LOOKUP);
+        List<PortChange> skipped;
+        try {
+            skipped = new BridgePortTransaction(ovsdbClient, TRANSACT_TIMEOUT).apply(bridgeName, changes);
+            lap(changes, Phase.DRIVER);
+        } catch (OvsdbDeviceException e) {
+            log.warn("Failed to change the ports of bridge {} at {}: {}", bridgeName, ovsdbAddress,
+                     e.getMessage());
+            throw e;
+        }
+        skipPortChanges(ovsdbAddress, bridgeName, skipped);
+        log.info("Correctly applied {} port changes to bridge {} at {}", changes.size() - skipped.size(),
+                 bridgeName, ovsdbAddress);
     }
 
-    @Override
-    public void removePort(IpAddress ovsdbAddress, String bridgeName, String portName)
-            throws OvsdbDeviceException, BridgeNotFoundException {
+    /**
+     * Records the end of a phase in the samples of port changes.
+     *
+     * @param changes the port changes
+     * @param phase the phase which ends now
+     */
+    private static void lap(List<PortChange> changes, Phase phase) {
+        changes.stream()
+                .map(PortChange::sample)
+                .filter(Objects::nonNull)
+                .forEach(sample -> sample.lap(phase));
+    }
 
-        OvsdbNode ovsdbNode;
-        log.debug("Deleting port {} to bridge {} at {}", portName, bridgeName, ovsdbAddress);
+    /**
+     * Records the port changes which found their port already added, or already removed.
+     *
+     * @param ovsdbAddress the ovsdb IP address
+     * @param bridgeName the bridge name
+     * @param skipped the skipped changes
+     */
+    private void skipPortChanges(IpAddress ovsdbAddress, String bridgeName, List<PortChange> skipped) {
+        for (PortChange change : skipped) {
+            log.info("Skipped {} of port {} on bridge {} at {}, nothing to change", change.action(),
+                     change.portName(), bridgeName, ovsdbAddress);
+        }
+        skippedPortChanges.inc(skipped.size());
+    }
 
+    private void doAddPort(OvsdbNode ovsdbNode, String bridgeName, String portName)
+            throws OvsdbDeviceException {
+        log.debug("Adding port {} to bridge {} at {}", portName, bridgeName, ovsdbNode.ovsdbIp());
         try {
-            // gets the target ovsdb node
-            ovsdbNode = ovsdbNodes.stream().filter(node -> node.ovsdbIp().equals(ovsdbAddress)).findFirst().get();
-
-        } catch (NoSuchElementException nsee) {
-            log.warn(nsee.getMessage());
-            throw new OvsdbDeviceException(nsee.getMessage());
+            // add port to bridge through ovsdb
+            bridgeConfig(ovsdbNode).addPort(BridgeName.bridgeName(bridgeName), portName);
+            log.info("Correctly added port {} to bridge {} at {}", portName, bridgeName, ovsdbNode.ovsdbIp());
+        } catch (ItemNotFoundException e) {
+            log.warn("Failed to add port on {}", ovsdbNode.ovsdbIp());
+            throw new OvsdbDeviceException("Error with ovsdb device: item not found");
         }
+    }
 
+    private void doRemovePort(OvsdbNode ovsdbNode, String bridgeName, String portName)
+            throws OvsdbDeviceException {
+        log.debug("Deleting port {} from bridge {} at {}", portName, bridgeName, ovsdbNode.ovsdbIp());
         try {
-            Device device = deviceService.getDevice(ovsdbNode.ovsdbId());
-            if (device == null) {
-                log.warn("Ovsdb device not found, aborting.");
-                throw new OvsdbDeviceException("Ovsdb device not found");
-            }
-            if (device.is(BridgeConfig.class)) {
-
-                // delete port from bridge through ovsdb
-                BridgeConfig bridgeConfig = device.as(BridgeConfig.class);
-                bridgeConfig.deletePort(BridgeName.bridgeName(bridgeName), portName);
-
-                log.info("Correctly deleted port {} from bridge {} at {}", portName, bridgeName, ovsdbAddress);
-
-            } else {
-                log.warn("The bridging behaviour is not supported in device {}", device.id());
-                throw new OvsdbDeviceException(
-                        "The bridging behaviour is not supported in device " + device.id()
-                );
-            }
+            // delete port from bridge through ovsdb
+            bridgeConfig(ovsdbNode).deletePort(BridgeName.bridgeName(bridgeName), portName);
+            log.info("Correctly deleted port {} from bridge {} at {}", portName, bridgeName, ovsdbNode.ovsdbIp());
         } catch (ItemNotFoundException e) {
-            log.warn("Failed to delete bridge on {}", ovsdbNode.ovsdbIp());
+            log.warn("Failed to delete port on {}", ovsdbNode.ovsdbIp());
             throw new OvsdbDeviceException("Error with ovsdb device: item not found");
         }
     }
 
-    @Override
-    public void createPatchPeerPort(IpAddress ovsdbAddress, String bridgeName, String portName, String patchPeer)
+    /**
+     * Returns the bridging behaviour of an ovsdb device.
+     *
+     * @param ovsdbNode the ovsdb node
+     * @return the bridge configuration behaviour
+     * @throws OvsdbDeviceException if the device is not found or does not support bridging
+     */
+    private BridgeConfig bridgeConfig(OvsdbNode ovsdbNode) throws OvsdbDeviceException {
+        Device device = deviceService.getDevice(ovsdbNode.ovsdbId());
+        if (device == null) {
+            log.warn("Ovsdb device not found, aborting.");
+            throw new OvsdbDeviceException("Ovsdb device not found");
+        }
+        if (!device.is(BridgeConfig.class)) {
+            log.warn("The bridging behaviour is not supported in device {}", device.id());
+            throw new OvsdbDeviceException(
+                    "The bridging behaviour is not supported in device " + device.id()
+            );
+        }
+        return device.as(BridgeConfig.class);
+    }
+
+    private void doCreatePatchPeerPort(IpAddress ovsdbAddress, String bridgeName, String portName, String patchPeer,
+                                       Sample sample)
             throws OvsdbDeviceException {
 
         OvsdbNode ovsdbNode;
         log.debug("Setting port {} as peer of port {}", portName, patchPeer);
 
-        try {
-            // gets the target ovsdb node
-            ovsdbNode = ovsdbNodes.stream().filter(node -> node.ovsdbIp().equals(ovsdbAddress)).findFirst().get();
-        } catch (NoSuchElementException nsee) {
-            log.warn(nsee.getMessage());
-            throw new OvsdbDeviceException(nsee.getMessage());
-        }
+        // gets the target ovsdb node
+        ovsdbNode = ovsdbNode(ovsdbAddress);
 
         Device device = deviceService.getDevice(ovsdbNode.ovsdbId());
         log.debug("OvsdbNode.ovsdbId = " + ovsdbNode.ovsdbId());
@@ -372,6 +527,7 @@ public class OvsdbBridgeManager implements OvsdbBridgeService {
             log.warn("Ovsdb device not found, aborting.");
             throw new OvsdbDeviceException("Ovsdb device not found");
         }
+        sample.lap(Phase.LOOKUP);
 
         if (device.is(InterfaceConfig.class)) {
             InterfaceConfig interfaceConfig = device.as(InterfaceConfig.class);
@@ -385,6 +541,7 @@ public class OvsdbBridgeManager implements OvsdbBridgeService {
                     .build();
             // add patch to port through ovsdb
             interfaceConfig.addPatchMode(portName, patchDescription);
+            sample.lap(Phase.DRIVER);
             log.info("Correctly created port {} on device {} as peer of port {}", portName, bridgeName, patchPeer);
         } else {
             log.warn("The interface behaviour is not supported in device {}", device.id());
@@ -394,22 +551,16 @@ public class OvsdbBridgeManager implements OvsdbBridgeService {
         }
     }
 
-    @Override
-    public void createGreTunnel(IpAddress ovsdbAddress, String bridgeName, String portName, IpAddress localIp,
-                                IpAddress remoteIp, String key)
+    private void doCreateGreTunnel(IpAddress ovsdbAddress, String bridgeName, String portName, IpAddress localIp,
+                                IpAddress remoteIp, String key, Sample sample)
             throws OvsdbDeviceException, BridgeNotFoundException {
 
         OvsdbNode ovsdbNode;
         log.debug("Setting up tunnel GRE from {} to {} with key {}",
                 localIp, remoteIp, key);
 
-        try {
-            // gets the target ovsdb node
-            ovsdbNode = ovsdbNodes.stream().filter(node -> node.ovsdbIp().equals(ovsdbAddress)).findFirst().get();
-        } catch (NoSuchElementException nsee) {
-            log.warn(nsee.getMessage());
-            throw new OvsdbDeviceException(nsee.getMessage());
-        }
+        // gets the target ovsdb node
+        ovsdbNode = ovsdbNode(ovsdbAddress);
 
         try {
             Device device = deviceService.getDevice(ovsdbNode.ovsdbId());
@@ -418,6 +569,7 @@ public class OvsdbBridgeManager implements OvsdbBridgeService {
                 log.warn("Ovsdb device not found, aborting.");
                 throw new OvsdbDeviceException("Ovsdb device not found");
             }
+            sample.lap(Phase.LOOKUP);
 
             if (device.is(InterfaceConfig.class)) {
                 InterfaceConfig interfaceConfig = device.as(InterfaceConfig.class);
@@ -433,6 +585,7 @@ public class OvsdbBridgeManager implements OvsdbBridgeService {
                         .build();
                 // create tunnel to port through ovsdb
                 interfaceConfig.addTunnelMode(portName, tunnelDescription);
+                sample.lap(Phase.DRIVER);
                 log.info("Correctly added tunnel GRE from {} to {} with key {}",
                         localIp, remoteIp, key);
             } else {
@@ -447,21 +600,15 @@ public class OvsdbBridgeManager implements OvsdbBridgeService {
         }
     }
 
-    @Override
-    public void deleteGreTunnel(IpAddress ovsdbAddress, String bridgeName, String portName)
+    private void doDeleteGreTunnel(IpAddress ovsdbAddress, String bridgeName, String portName, Sample sample)
             throws OvsdbDeviceException {
 
         OvsdbNode ovsdbNode;
         log.debug("Deleting tunnel GRE from interface {}",
                 portName);
 
-        try {
-            // gets the target ovsdb node
-            ovsdbNode = ovsdbNodes.stream().filter(node -> node.ovsdbIp().equals(ovsdbAddress)).findFirst().get();
-        } catch (NoSuchElementException nsee) {
-            log.warn(nsee.getMessage());
-            throw new OvsdbDeviceException(nsee.getMessage());
-        }
+        // gets the target ovsdb node
+        ovsdbNode = ovsdbNode(ovsdbAddress);
 
         try {
             Device device = deviceService.getDevice(ovsdbNode.ovsdbId());
@@ -469,11 +616,13 @@ public class OvsdbBridgeManager implements OvsdbBridgeService {
                 log.warn("Ovsdb device not found, aborting.");
                 throw new OvsdbDeviceException("Ovsdb device not found");
             }
+            sample.lap(Phase.LOOKUP);
 
             if (device.is(InterfaceConfig.class)) {
                 InterfaceConfig interfaceConfig = device.as(InterfaceConfig.class);
                 // remove tunnel through ovsdb
                 interfaceConfig.removeTunnelMode(portName);
+                sample.lap(Phase.DRIVER);
                 log.info("Correctly deleted tunnel GRE from interface {}", portName);
             } else {
                 log.warn("The interface behaviour is not supported in device {}", device.id());
@@ -488,41 +637,344 @@ public class OvsdbBridgeManager implements OvsdbBridgeService {
 
     }
 
+    @Override
+    public void createBridge(IpAddress ovsdbAddress, String bridgeName)
+            throws OvsdbDeviceException, BridgeAlreadyExistsException {
+        await(createBridgeAsync(ovsdbAddress, bridgeName),
+              OvsdbDeviceException.class, BridgeAlreadyExistsException.class);
+    }
+
+    @Override
+    public void deleteBridge(IpAddress ovsdbAddress, String bridgeName)
+            throws OvsdbDeviceException, BridgeNotFoundException {
+        await(deleteBridgeAsync(ovsdbAddress, bridgeName),
+              OvsdbDeviceException.class, BridgeNotFoundException.class);
+    }
+
+    @Override
+    public void addPort(IpAddress ovsdbAddress, String bridgeName, String portName)
+            throws OvsdbDeviceException, BridgeNotFoundException {
+        await(addPortAsync(ovsdbAddress, bridgeName, portName),
+              OvsdbDeviceException.class, BridgeNotFoundException.class);
+    }
+
+    @Override
+    public void removePort(IpAddress ovsdbAddress, String bridgeName, String portName)
+            throws OvsdbDeviceException, BridgeNotFoundException {
+        await(removePortAsync(ovsdbAddress, bridgeName, portName),
+              OvsdbDeviceException.class, BridgeNotFoundException.class);
+    }
+
+    @Override
+    public void createPatchPeerPort(IpAddress ovsdbAddress, String bridgeName, String portName, String patchPeer)
+            throws OvsdbDeviceException {
+        await(createPatchPeerPortAsync(ovsdbAddress, bridgeName, portName, patchPeer),
+              OvsdbDeviceException.class, OvsdbDeviceException.class);
+    }
+
+    @Override
+    public void createGreTunnel(IpAddress ovsdbAddress, String bridgeName, String portName, IpAddress localIp,
+                                IpAddress remoteIp, String key)
+            throws OvsdbDeviceException, BridgeNotFoundException {
+        await(createGreTunnelAsync(ovsdbAddress, bridgeName, portName, localIp, remoteIp, key),
+              OvsdbDeviceException.class, BridgeNotFoundException.class);
+    }
+
+    @Override
+    public void deleteGreTunnel(IpAddress ovsdbAddress, String bridgeName, String portName)
+            throws OvsdbDeviceException {
+        await(deleteGreTunnelAsync(ovsdbAddress, bridgeName, portName),
+              OvsdbDeviceException.class, OvsdbDeviceException.class);
+    }
+
+    @Override
+    public CompletableFuture<Void> createBridgeAsync(IpAddress ovsdbAddress, String bridgeName) {
+        return measure("createBridge", sample -> submit(ovsdbAddress, () -> {
+            doCreateBridge(ovsdbAddress, bridgeName, sample);
+            return null;
+        }));
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteBridgeAsync(IpAddress ovsdbAddress, String bridgeName) {
+        return measure("deleteBridge", sample -> submit(ovsdbAddress, () -> {
+            doDeleteBridge(ovsdbAddress, bridgeName, sample);
+            return null;
+        }));
+    }
+
+    @Override
+    public CompletableFuture<Void> addPortAsync(IpAddress ovsdbAddress, String bridgeName, String portName) {
+        return measure("addPort", sample -> portCoalescer.submit(
+                ovsdbAddress, bridgeName, new PortChange(PortOperationCoalescer.Action.ADD, portName, sample)));
+    }
+
+    @Override
+    public CompletableFuture<Void> removePortAsync(IpAddress ovsdbAddress, String bridgeName, String portName) {
+        return measure("removePort", sample -> portCoalescer.submit(
+                ovsdbAddress, bridgeName, new PortChange(PortOperationCoalescer.Action.REMOVE, portName, sample)));
+    }
+
+    @Override
+    public CompletableFuture<Void> createPatchPeerPortAsync(IpAddress ovsdbAddress, String bridgeName,
+                                                            String portName, String patchPeer) {
+        return measure("createPatchPeerPort", sample -> submit(ovsdbAddress, () -> {
+            doCreatePatchPeerPort(ovsdbAddress, bridgeName, portName, patchPeer, sample);
+            return null;
+        }));
+    }
+
+    @Override
+    public CompletableFuture<Void> createGreTunnelAsync(IpAddress ovsdbAddress, String bridgeName, String portName,
+                                                        IpAddress localIp, IpAddress remoteIp, String key) {
+        return measure("createGreTunnel", sample -> submit(ovsdbAddress, () -> {
+            doCreateGreTunnel(ovsdbAddress, bridgeName, portName, localIp, remoteIp, key, sample);
+            return null;
+        }));
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteGreTunnelAsync(IpAddress ovsdbAddress, String bridgeName,
+                                                        String portName) {
+        return measure("deleteGreTunnel", sample -> submit(ovsdbAddress, () -> {
+            doDeleteGreTunnel(ovsdbAddress, bridgeName, portName, sample);
+            return null;
+        }));
+    }
+
+    @Override
+    public Map<DeviceId, OvsdbConnectionManager.NodeConnection> connections() {
+        return connectionManager.connections();
+    }
+
+    @Override
+    public NodeSnapshot nodeSnapshot(IpAddress ovsdbAddress) throws OvsdbDeviceException {
+        return snapshots.get(ovsdbNode(ovsdbAddress).ovsdbId());
+    }
+
+    @Override
+    public List<OperationStats> operationStats() {
+        return operationMetrics.stats();
+    }
+
+    /**
+     * Runs an operation in the lane of its ovsdb node.
+     *
+     * @param ovsdbAddress the ovsdb IP address
+     * @param operation the operation
+     * @param <T> the type of the result of the operation
+     * @return future completed with the result or the error of the operation, it is completed
+     * with RejectedExecutionException when there are too many pending operations in the lane
+     */
+    private <T> CompletableFuture<T> submit(IpAddress ovsdbAddress, Callable<T> operation) {
+        return nodeExecutor.submit(ovsdbAddress, operation);
+    }
+
+    /**
+     * Starts an operation and records its latency and its outcome in the operation metrics
+     * when its future completes. The operation records its phases in the sample.
+     *
+     * @param name the operation name
+     * @param operation starts the operation with its sample
+     * @param <T> the type of the result of the operation
+     * @return the future of the operation
+     */
+    private <T> CompletableFuture<T> measure(String name, Function<Sample, CompletableFuture<T>> operation) {
+        Sample sample = operationMetrics.start(name);
+        return operation.apply(sample).whenComplete((result, error) -> {
+            if (error == null) {
+                sample.success();
+            } else {
+                sample.failure(error instanceof CompletionException && error.getCause() != null ?
+                                       error.getCause() : error);
+            }
+        });
+    }
+
+    /**
+     * Waits for an operation and throws its checked errors.
+     *
+     * @param future the future of the operation
+     * @param first first checked error of the operation
+     * @param second second checked error of the operation
+     * @param <E1> the type of the first checked error
+     * @param <E2> the type of the second checked error
+     * @throws E1 if the operation failed with the first error
+     * @throws E2 if the operation failed with the second error
+     */
+    private <E1 extends Exception, E2 extends Exception> void await(CompletableFuture<?> future,
+                                                                    Class<E1> first, Class<E2> second)
+            throws E1, E2 {
+        try {
+            future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (first.isInstance(cause)) {
+                throw first.cast(cause);
+            } else if (second.isInstance(cause)) {
+                throw second.cast(cause);
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Exposes the queue depth, busy time and utilisation of every node lane as gauges.
+     */
+    private void registerLaneMetrics() {
+        metricsComponent = metricsService.registerComponent(METRICS_COMPONENT);
+        metricsFeature = metricsComponent.registerFeature(METRICS_FEATURE);
+        metricsService.registerMetric(metricsComponent, metricsFeature, "queueDepth",
+                                      (Gauge<Integer>) nodeExecutor::queueDepth);
+        for (int i = 0; i < nodeExecutor.laneCount(); i++) {
+            int lane = i;
+            metricsService.registerMetric(metricsComponent, metricsFeature, "lane" + lane + ".queueDepth",
+                                          (Gauge<Integer>) () -> nodeExecutor.queueDepth(lane));
+            metricsService.registerMetric(metricsComponent, metricsFeature, "lane" + lane + ".utilisation",
+                                          (Gauge<Double>) () -> nodeExecutor.utilisation(lane));
+            metricsService.registerMetric(metricsComponent, metricsFeature, "lane" + lane + ".busyNanos",
+                                          (Gauge<Long>) () -> nodeExecutor.busyTime(lane));
+        }
+    }
+
+    private void unregisterLaneMetrics() {
+        metricsService.removeMetric(metricsComponent, metricsFeature, "queueDepth");
+        for (int i = 0; i < nodeExecutor.laneCount(); i++) {
+            metricsService.removeMetric(metricsComponent, metricsFeature, "lane" + i + ".queueDepth");
+            metricsService.removeMetric(metricsComponent, metricsFeature, "lane" + i + ".utilisation");
+            metricsService.removeMetric(metricsComponent, metricsFeature, "lane" + i + ".busyNanos");
+        }
+    }
+
     /**
      * Performs the connection to ovsdb.
      *
      * @param node the ovsdb node, with IP address and port
      */
     private void connectOvsdb(OvsdbNode node) {
-        if (!isOvsdbConnected(node)) {
-            log.info("connecting ovsdb at {}:{}", node.ovsdbIp(), node.ovsdbPort());
-            controller.connect(node.ovsdbIp(), node.ovsdbPort());
-        }
+        connectionManager.connect(node);
+    }
+
+    /**
+     * Starts the connection to ovsdb, the connection manager follows it.
+     *
+     * @param node the ovsdb node, with IP address and port
+     */
+    private void startConnection(OvsdbNode node) {
+        controller.connect(node.ovsdbIp(), node.ovsdbPort());
     }
 
     /**
-     * Gets an available datapath id for the new bridge.
+     * Gets an available datapath id for the new bridge. The allocator gives ids which are
+     * unique in the cluster, the device check only skips the ids taken by bridges which were
+     * not created through the allocator.
      *
-     * @param datapathId the integer used to generate ids
      * @return the datapath id
      */
-    private DeviceId getNextUniqueDatapathId(AtomicLong datapathId) {
-        DeviceId dpid;
+    private DeviceId getNextUniqueDatapathId() {
+        String stringId;
         do {
-            String stringId = String.format("%16X", datapathId.getAndIncrement()).replace(' ', '0');
-            log.info("String id is: " + stringId);
-            dpid = DeviceId.deviceId(stringId);
-        } while (deviceService.getDevice(dpid) != null);
-        return dpid;
+            stringId = String.format("%016X", datapathIdAllocator.allocate());
+            log.debug("String id is: " + stringId);
+        } while (deviceService.getDevice(DeviceId.deviceId("of:" + stringId)) != null);
+        return DeviceId.deviceId(stringId);
+    }
+
+    /**
+     * Gives back the datapath id of a deleted bridge to the allocator.
+     *
+     * @param dpid the device id of the bridge, with or without the of: scheme
+     */
+    private void releaseDatapathId(DeviceId dpid) {
+        String stringId = dpid.toString();
+        try {
+            datapathIdAllocator.release(Long.parseUnsignedLong(stringId.substring(stringId.indexOf(':') + 1), 16));
+        } catch (NumberFormatException e) {
+            log.debug("The datapath id {} was not given by the allocator", dpid);
+        }
+    }
+
+    /**
+     * Returns the datapath id of a bridge of an ovsdb node. When the bridge is not registered
+     * the bridges of that node, and only that node, are read again.
+     *
+     * @param node the ovsdb node
+     * @param bridgeName the bridge name
+     * @return the datapath id of the bridge, null if it does not exist
+     */
+    private DeviceId bridgeId(OvsdbNode node, String bridgeName) {
+        DeviceId bridgeId = bridgeRegistry.bridgeId(node.ovsdbId(), bridgeName);
+        if (bridgeId == null) {
+            // the bridge may have been created before this instance started
+            refreshBridges(node);
+            bridgeId = bridgeRegistry.bridgeId(node.ovsdbId(), bridgeName);
+        }
+        return bridgeId;
+    }
+
+    /**
+     * Reads the bridges of an ovsdb node and replaces them in the bridge registry.
+     *
+     * @param node the ovsdb node
+     */
+    private void refreshBridges(OvsdbNode node) {
+        Device device = deviceService.getDevice(node.ovsdbId());
+        if (device == null || !device.is(BridgeConfig.class)) {
+            return;
+        }
+        try {
+            Collection<BridgeDescription> bridges = device.as(BridgeConfig.class).getBridges();
+            Map<String, DeviceId> nodeBridges = Maps.newHashMap();
+            bridges.forEach(bridge -> bridge.deviceId()
+                    .ifPresent(bridgeId -> nodeBridges.put(bridge.name(), bridgeId)));
+            bridgeRegistry.replace(node.ovsdbId(), nodeBridges);
+        } catch (ItemNotFoundException e) {
+            log.warn("Failed to read the bridges of {}", node.ovsdbId());
+        }
+    }
+
+    /**
+     * Reads the bridges and the ports of an ovsdb node for the read API. The ports of a
+     * bridge are only known when its OpenFlow device is connected.
+     *
+     * @param ovsdbId the device id of the ovsdb node
+     * @return the snapshot of the node, without version
+     * @throws OvsdbDeviceException if the node is not available
+     */
+    private NodeSnapshot readSnapshot(DeviceId ovsdbId) throws OvsdbDeviceException {
+        Device device = deviceService.getDevice(ovsdbId);
+        if (device == null || !deviceService.isAvailable(ovsdbId) || !device.is(BridgeConfig.class)) {
+            throw new OvsdbDeviceException("Ovsdb device not available");
+        }
+        Map<String, DeviceId> bridges = Maps.newHashMap();
+        Map<String, Set<String>> ports = Maps.newHashMap();
+        try {
+            device.as(BridgeConfig.class).getBridges().forEach(bridge -> bridge.deviceId().ifPresent(bridgeId -> {
+                bridges.put(bridge.name(), bridgeId);
+                if (deviceService.getDevice(bridgeId) != null) {
+                    ports.put(bridge.name(), deviceService.getPorts(bridgeId).stream()
+                            .map(port -> port.annotations().value(AnnotationKeys.PORT_NAME))
+                            .filter(Objects::nonNull)
+                            .collect(Collectors.toSet()));
+                }
+            }));
+        } catch (ItemNotFoundException e) {
+            throw new OvsdbDeviceException("Error with ovsdb device: item not found");
+        }
+        return new NodeSnapshot(ovsdbId, bridges, ports);
     }
 
     /**
-     * Checks if the bridge exists and is available.
+     * Checks if the bridge exists in the ovsdb node and is available.
      *
+     * @param node the ovsdb node
+     * @param bridgeName the bridge name
      * @return true if the bridge is available, false otherwise
      */
-    private boolean isBridgeCreated(String bridgeName) {
-        DeviceId deviceId = bridgeIds.get(bridgeName);
+    private boolean isBridgeCreated(OvsdbNode node, String bridgeName) {
+        DeviceId deviceId = bridgeId(node, bridgeName);
         return (deviceId != null
                 && deviceService.getDevice(deviceId) != null
                 && deviceService.isAvailable(deviceId));
@@ -562,9 +1014,23 @@ public class OvsdbBridgeManager implements OvsdbBridgeService {
      * @return cordvtn node, null if it fails to find the node
      */
     private OvsdbNode nodeByOvsdbId(DeviceId ovsdbId) {
-        return ovsdbNodes.stream()
-                .filter(node -> node.ovsdbId().equals(ovsdbId))
-                .findFirst().orElse(null);
+        return nodeIndex.node(ovsdbId);
+    }
+
+    /**
+     * Returns the configured ovsdb node with the given management address.
+     *
+     * @param ovsdbAddress the ovsdb node address
+     * @return the ovsdb node
+     * @throws OvsdbDeviceException if the node is not configured
+     */
+    private OvsdbNode ovsdbNode(IpAddress ovsdbAddress) throws OvsdbDeviceException {
+        OvsdbNode ovsdbNode = nodeIndex.node(ovsdbAddress);
+        if (ovsdbNode == null) {
+            log.warn("No ovsdb node is configured at {}", ovsdbAddress);
+            throw new OvsdbDeviceException("No ovsdb node is configured at " + ovsdbAddress);
+        }
+        return ovsdbNode;
     }
 
     /**
@@ -574,18 +1040,8 @@ public class OvsdbBridgeManager implements OvsdbBridgeService {
      * @return ovsdb node, null if it fails to find the node
      */
     private OvsdbNode nodeByBridgeId(DeviceId bridgeId) {
-        final  Set<OvsdbNode> nodes = new HashSet<>();
-        ovsdbNodeDevIdsSetMap.forEach((node, set) -> {
-            if (set.contains(bridgeId)) {
-                 nodes.add(node);
-            }
-        });
-        Optional<OvsdbNode> opt = nodes.stream().findAny();
-        if (opt.isPresent()) {
-            return opt.get();
-        } else {
-            return null;
-        }
+        DeviceId ovsdbId = bridgeRegistry.ovsdbId(bridgeId);
+        return ovsdbId == null ? null : nodeByOvsdbId(ovsdbId);
     }
 
     private void readConfiguration() {
@@ -594,8 +1050,132 @@ public class OvsdbBridgeManager implements OvsdbBridgeService {
             log.info("No configuration found");
             return;
         }
-        ovsdbNodes = config.getNodes();
-        ovsdbNodes.forEach(this::connectOvsdb);
+        OvsdbNodeIndex index = OvsdbNodeIndex.of(config.getNodes());
+        nodeIndex = index;
+        log.info("Read {} ovsdb nodes from the configuration", index.size());
+        connectionManager.connectAll(index.nodes());
+    }
+
+    /**
+     * Builds the controllers of the bridges from the members of the cluster.
+     *
+     * @return the controllers, sorted so that equal memberships give equal lists
+     */
+    private List<ControllerInfo> buildControllers() {
+        List<ControllerInfo> targets = clusterService.getNodes().stream()
+                .map(node -> new ControllerInfo(node.ip(), OFPORT, "tcp"))
+                .sorted((a, b) -> a.ip().compareTo(b.ip()))
+                .collect(Collectors.toList());
+        targets.forEach(info -> log.info("controller {}:{} added", info.ip().toString(), info.port()));
+        return ImmutableList.copyOf(targets);
+    }
+
+    /**
+     * Rebuilds the controllers after a membership change and schedules their push to the
+     * existing bridges.
+     */
+    private void updateControllers() {
+        List<ControllerInfo> targets = buildControllers();
+        if (targets.equals(controllers)) {
+            return;
+        }
+        controllers = targets;
+        if (controllerPushPending.compareAndSet(false, true)) {
+            controllerExecutor.schedule(this::pushControllers, CONTROLLER_PUSH_DELAY, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Sets the current controllers in the bridges mastered by this instance, at a limited rate.
+     * It stops when the component is deactivated, and the push is scheduled again when a
+     * permit of the rate limiter cannot be had in time.
+     * Every update runs in the lane of the ovsdb node of the bridge, after its pending operations.
+     */
+    private void pushControllers() {
+        controllerPushPending.set(false);
+        List<ControllerInfo> targets = controllers;
+        for (DeviceId bridgeId : bridgeRegistry.bridgeIds()) {
+            OvsdbNode node = nodeByBridgeId(bridgeId);
+            if (node == null || !mastershipService.isLocalMaster(bridgeId)) {
+                continue;
+            }
+            // interrupted by the shutdown of the executor on deactivation
+            if (Thread.currentThread().isInterrupted()) {
+                log.info("Push of the controllers {} stopped", targets);
+                return;
+            }
+            if (!controllerPushLimiter.tryAcquire(CONTROLLER_PUSH_WAIT, TimeUnit.SECONDS)) {
+                if (controllerPushPending.compareAndSet(false, true)) {
+                    controllerExecutor.schedule(this::pushControllers, CONTROLLER_PUSH_DELAY, TimeUnit.SECONDS);
+                }
+                return;
+            }
+            submit(node.ovsdbIp(), () -> {
+                DriverHandler h = driverService.createHandler(bridgeId);
+                h.behaviour(ControllerConfig.class).setControllers(targets);
+                return null;
+            }).whenComplete((result, error) -> {
+                if (error != null) {
+                    log.warn("Failed to update the controllers of bridge {}", bridgeId, error);
+                }
+            });
+        }
+        log.info("Controllers {} pushed to the bridges", targets);
+    }
+
+    private class InternalClusterListener implements ClusterEventListener {
+
+        @Override
+        public void event(ClusterEvent event) {
+            switch (event.type()) {
+                case INSTANCE_ADDED:
+                case INSTANCE_REMOVED:
+                    controllerExecutor.execute(OvsdbBridgeManager.this::updateControllers);
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    private class InternalOvsdbNodeListener implements OvsdbNodeListener {
+
+        @Override
+        public void nodeAdded(OvsdbNodeId nodeId) {
+            OvsdbNode node = nodeIndex.node(IpAddress.valueOf(nodeId.getIpAddress()));
+            if (node != null) {
+                connectionManager.connected(node);
+            }
+        }
+
+        @Override
+        public void nodeRemoved(OvsdbNodeId nodeId) {
+            OvsdbNode node = nodeIndex.node(IpAddress.valueOf(nodeId.getIpAddress()));
+            if (node != null) {
+                connectionManager.disconnected(node);
+            }
+        }
+    }
+
+    private class InternalDeviceListener implements DeviceListener {
+
+        @Override
+        public void event(DeviceEvent event) {
+            Device device = event.subject();
+            if (device.type() == Device.Type.CONTROLLER) {
+                if (event.type() == DeviceEvent.Type.DEVICE_REMOVED) {
+                    snapshots.remove(device.id());
+                } else {
+                    snapshots.invalidate(device.id(), event.type());
+                }
+            } else if (device.type() == Device.Type.SWITCH) {
+                // the bridge or its ports changed, so the snapshot of its node is stale
+                DeviceId ovsdbId = bridgeRegistry.ovsdbId(device.id());
+                if (ovsdbId != null) {
+                    snapshots.invalidate(ovsdbId, event.type());
+                }
+            }
+        }
     }
 
     private class InternalConfigListener implements NetworkConfigListener {
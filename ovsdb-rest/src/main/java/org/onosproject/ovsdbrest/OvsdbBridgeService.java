@@ -17,6 +17,13 @@
 package org.onosproject.ovsdbrest;
 
 import org.onlab.packet.IpAddress;
+import org.onosproject.net.DeviceId;
+import org.onosproject.ovsdbrest.common.NodeSnapshot;
+import org.onosproject.ovsdbrest.common.OperationStats;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * APIs for ovsdb driver access.
@@ -100,4 +107,94 @@ public interface OvsdbBridgeService {
      */
     void deleteGreTunnel(IpAddress ovsdbAddress, String bridgeName, String portName)
             throws OvsdbRestException.OvsdbDeviceException;
+
+    /**
+     * Creates a new bridge without blocking the caller.
+     * @param ovsdbAddress the ovsdb IP address
+     * @param bridgeName the bridge identifier
+     * @return future completed when the bridge is created, or with the error of createBridge
+     */
+    CompletableFuture<Void> createBridgeAsync(IpAddress ovsdbAddress, String bridgeName);
+
+    /**
+     * Deletes a bridge without blocking the caller.
+     * @param ovsdbAddress the ovsdb IP address
+     * @param bridgeName the bridge identifier
+     * @return future completed when the bridge is deleted, or with the error of deleteBridge
+     */
+    CompletableFuture<Void> deleteBridgeAsync(IpAddress ovsdbAddress, String bridgeName);
+
+    /**
+     * Adds a port to a bridge without blocking the caller.
+     * @param ovsdbAddress the ovsdb IP address
+     * @param bridgeName the bridge identifier
+     * @param portName the name of the port to attach to the bridge
+     * @return future completed when the port is added, or with the error of addPort
+     */
+    CompletableFuture<Void> addPortAsync(IpAddress ovsdbAddress, String bridgeName, String portName);
+
+    /**
+     * Removes a port from a bridge without blocking the caller.
+     * @param ovsdbAddress the ovsdb IP address
+     * @param bridgeName the bridge identifier
+     * @param portName the name of the port to remove from the bridge
+     * @return future completed when the port is removed, or with the error of removePort
+     */
+    CompletableFuture<Void> removePortAsync(IpAddress ovsdbAddress, String bridgeName, String portName);
+
+    /**
+     * Adds a patch port to a bridge without blocking the caller.
+     * @param ovsdbAddress the ovsdb IP address
+     * @param bridgeName the bridge identifier
+     * @param portName the port name
+     * @param patchPeer the name of the peer port
+     * @return future completed when the port is created, or with the error of createPatchPeerPort
+     */
+    CompletableFuture<Void> createPatchPeerPortAsync(IpAddress ovsdbAddress, String bridgeName,
+                                                     String portName, String patchPeer);
+
+    /**
+     * Creates a GRE tunnel without blocking the caller.
+     * @param ovsdbAddress the ovsdb IP address
+     * @param bridgeName the bridge identifier
+     * @param portName the name of the new GRE port
+     * @param localIp local end point of the GRE tunnel
+     * @param remoteIp remote end point of GRE tunnel
+     * @param key the tunnel key, should represent a 32 bit hexadecimal number
+     * @return future completed when the tunnel is created, or with the error of createGreTunnel
+     */
+    CompletableFuture<Void> createGreTunnelAsync(IpAddress ovsdbAddress, String bridgeName, String portName,
+                                                 IpAddress localIp, IpAddress remoteIp, String key);
+
+    /**
+     * Deletes a GRE tunnel without blocking the caller.
+     * @param ovsdbAddress the ovsdb IP address
+     * @param bridgeName the bridge identifier
+     * @param portName the name of the GRE
+     * @return future completed when the tunnel is deleted, or with the error of deleteGreTunnel
+     */
+    CompletableFuture<Void> deleteGreTunnelAsync(IpAddress ovsdbAddress, String bridgeName, String portName);
+
+    /**
+     * Returns the connection state of the configured ovsdb nodes.
+     * @return {ovsdbId: connection state}
+     */
+    Map<DeviceId, OvsdbConnectionManager.NodeConnection> connections();
+
+    /**
+     * Returns the bridges and ports of an ovsdb node from the in-memory snapshot. The
+     * snapshot is refreshed in the background when it is old or the node changed, so it may
+     * be slightly behind the node. Its version only changes when its content changes.
+     * @param ovsdbAddress the ovsdb IP address
+     * @return the snapshot of the node
+     * @throws OvsdbRestException.OvsdbDeviceException if the node is not configured, or it was
+     *         never read and it is not available
+     */
+    NodeSnapshot nodeSnapshot(IpAddress ovsdbAddress) throws OvsdbRestException.OvsdbDeviceException;
+
+    /**
+     * Returns the latency and the outcome counters of the operations of the service.
+     * @return the statistics of every operation which was called at least once
+     */
+    List<OperationStats> operationStats();
 }
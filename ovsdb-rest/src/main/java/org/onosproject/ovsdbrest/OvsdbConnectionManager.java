@@ -0,0 +1,372 @@
+/*
+ * Copyright 2020-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.ovsdbrest;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.onosproject.net.DeviceId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
+import static org.onlab.util.Tools.groupedThreads;
+import static org.onosproject.ovsdbrest.OvsdbNodeConfig.OvsdbNode;
+
+/**
+ * Keeps the configured ovsdb nodes connected. The nodes are connected in parallel by a
+ * bounded number of threads, and the nodes which are disconnected, or which do not connect
+ * in time, are connected again after an exponential backoff with jitter.
+ * The connected and disconnected callbacks keep the connection state of every node.
+ */
+public class OvsdbConnectionManager implements ConnectionHandler<OvsdbNode> {
+
+    private static final long BACKOFF_MAX_SHIFT = 20;
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    /**
+     * Connection states of an ovsdb node.
+     */
+    public enum State {
+        CONNECTING,
+        CONNECTED,
+        DISCONNECTED
+    }
+
+    /**
+     * Connection state of an ovsdb node.
+     */
+    public static final class NodeConnection {
+        private final State state;
+        private final int attempts;
+        private final long sinceMillis;
+
+        private NodeConnection(State state, int attempts, long sinceMillis) {
+            this.state = state;
+            this.attempts = attempts;
+            this.sinceMillis = sinceMillis;
+        }
+
+        public State state() {
+            return state;
+        }
+
+        /**
+         * Returns the number of connection attempts since the node was last connected.
+         *
+         * @return the number of attempts
+         */
+        public int attempts() {
+            return attempts;
+        }
+
+        /**
+         * Returns the time the node entered its state.
+         *
+         * @return the time in milliseconds since the epoch
+         */
+        public long sinceMillis() {
+            return sinceMillis;
+        }
+
+        @Override
+        public String toString() {
+            return toStringHelper(this)
+                    .add("state", state)
+                    .add("attempts", attempts)
+                    .add("sinceMillis", sinceMillis)
+                    .toString();
+        }
+    }
+
+    private final Predicate<OvsdbNode> isConnected;
+    private final Consumer<OvsdbNode> connector;
+    private final long connectTimeoutMillis;
+    private final long backoffBaseMillis;
+    private final long backoffMaxMillis;
+    private final LongSupplier clock;
+    private final Random random;
+
+    private final ExecutorService connectExecutor;
+    private final ScheduledExecutorService retryExecutor;
+
+    // {ovsdbId: node} of the configured nodes, swapped as a whole on every configuration
+    private volatile Map<DeviceId, OvsdbNode> configured = ImmutableMap.of();
+    // {ovsdbId: connection state} of the configured nodes
+    private final Map<DeviceId, NodeConnection> connections = Maps.newConcurrentMap();
+    // {ovsdbId: scheduled attempt} of the nodes waiting for their backoff
+    private final Map<DeviceId, ScheduledFuture<?>> retries = Maps.newConcurrentMap();
+    // nodes with a queued attempt, so a node is never queued twice
+    private final Set<DeviceId> queued = Sets.newConcurrentHashSet();
+
+    /**
+     * Creates a connection manager.
+     *
+     * @param isConnected tells if a node is connected
+     * @param connector starts the connection to a node, it does not wait for it
+     * @param fanOut the number of nodes connected at the same time
+     * @param connectTimeoutMillis time given to a node to connect before trying again
+     * @param backoffBaseMillis the delay before the first retry
+     * @param backoffMaxMillis the longest delay between two retries
+     */
+    public OvsdbConnectionManager(Predicate<OvsdbNode> isConnected, Consumer<OvsdbNode> connector, int fanOut,
+                                  long connectTimeoutMillis, long backoffBaseMillis, long backoffMaxMillis) {
+        this(isConnected, connector, connectExecutor(fanOut),
+             newSingleThreadScheduledExecutor(groupedThreads("onos/ovsdb-rest-ctl", "connect-retry",
+                                                             LoggerFactory.getLogger(OvsdbConnectionManager.class))),
+             System::currentTimeMillis, new Random(), connectTimeoutMillis, backoffBaseMillis, backoffMaxMillis);
+    }
+
+    /**
+     * Creates a connection manager with its executors, its clock and the source of the jitter.
+     *
+     * @param isConnected tells if a node is connected
+     * @param connector starts the connection to a node, it does not wait for it
+     * @param connectExecutor runs the queued attempts
+     * @param retryExecutor runs the checks of the attempts and the retries after their backoff
+     * @param clock the time of the connection states, in milliseconds since the epoch
+     * @param random the source of the jitter of the backoff
+     * @param connectTimeoutMillis time given to a node to connect before trying again
+     * @param backoffBaseMillis the delay before the first retry
+     * @param backoffMaxMillis the longest delay between two retries
+     */
+    OvsdbConnectionManager(Predicate<OvsdbNode> isConnected, Consumer<OvsdbNode> connector,
+                           ExecutorService connectExecutor, ScheduledExecutorService retryExecutor,
+                           LongSupplier clock, Random random,
+                           long connectTimeoutMillis, long backoffBaseMillis, long backoffMaxMillis) {
+        checkArgument(backoffBaseMillis > 0 && backoffMaxMillis >= backoffBaseMillis,
+                      "The backoff delays must be positive and the maximum must not be below the base");
+        this.isConnected = isConnected;
+        this.connector = connector;
+        this.connectExecutor = connectExecutor;
+        this.retryExecutor = retryExecutor;
+        this.clock = clock;
+        this.random = random;
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        this.backoffBaseMillis = backoffBaseMillis;
+        this.backoffMaxMillis = backoffMaxMillis;
+    }
+
+    private static ExecutorService connectExecutor(int fanOut) {
+        checkArgument(fanOut > 0, "The connection fan-out must be positive");
+        return new ThreadPoolExecutor(fanOut, fanOut, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                                      groupedThreads("onos/ovsdb-rest-ctl", "connect-%d",
+                                                     LoggerFactory.getLogger(OvsdbConnectionManager.class)));
+    }
+
+    /**
+     * Sets the configured nodes and connects the ones which are not connected, in the
+     * background. The nodes which are no longer configured are forgotten, without
+     * disconnecting them.
+     *
+     * @param nodes the configured nodes
+     */
+    public void connectAll(Collection<OvsdbNode> nodes) {
+        ImmutableMap.Builder<DeviceId, OvsdbNode> builder = ImmutableMap.builder();
+        nodes.forEach(node -> builder.put(node.ovsdbId(), node));
+        Map<DeviceId, OvsdbNode> current = builder.build();
+        configured = current;
+        connections.keySet().removeIf(ovsdbId -> !current.containsKey(ovsdbId));
+        retries.entrySet().removeIf(retry -> {
+            if (current.containsKey(retry.getKey())) {
+                return false;
+            }
+            retry.getValue().cancel(false);
+            return true;
+        });
+        long now = clock.getAsLong();
+        current.values().forEach(node -> {
+            NodeConnection connection = connections.computeIfAbsent(
+                    node.ovsdbId(), ovsdbId -> new NodeConnection(State.DISCONNECTED, 0, now));
+            if (connection.state != State.CONNECTED) {
+                queue(node);
+            }
+        });
+    }
+
+    /**
+     * Connects a node right away in the calling thread, such as before an operation on it.
+     *
+     * @param node the ovsdb node
+     */
+    public void connect(OvsdbNode node) {
+        if (isConnected.test(node)) {
+            markConnected(node);
+        } else {
+            attempt(node);
+        }
+    }
+
+    /**
+     * Returns the connection state of a node.
+     *
+     * @param ovsdbId the device id of the ovsdb node
+     * @return the state, null if the node is not configured
+     */
+    public NodeConnection connection(DeviceId ovsdbId) {
+        return connections.get(ovsdbId);
+    }
+
+    /**
+     * Returns the connection state of all the configured nodes.
+     *
+     * @return {ovsdbId: connection state}
+     */
+    public Map<DeviceId, NodeConnection> connections() {
+        return ImmutableMap.copyOf(connections);
+    }
+
+    @Override
+    public void connected(OvsdbNode node) {
+        log.debug("ovsdb {} connected", node.ovsdbId());
+        markConnected(node);
+    }
+
+    @Override
+    public void disconnected(OvsdbNode node) {
+        if (!configured.containsKey(node.ovsdbId())) {
+            return;
+        }
+        log.info("ovsdb {} disconnected", node.ovsdbId());
+        NodeConnection connection = connections.compute(node.ovsdbId(), (ovsdbId, current) ->
+                new NodeConnection(State.DISCONNECTED, current == null ? 0 : current.attempts,
+                                   clock.getAsLong()));
+        scheduleRetry(node, connection.attempts);
+    }
+
+    /**
+     * Stops all the pending attempts.
+     */
+    public void close() {
+        retryExecutor.shutdownNow();
+        connectExecutor.shutdownNow();
+        retries.clear();
+        queued.clear();
+    }
+
+    private void markConnected(OvsdbNode node) {
+        NodeConnection current = connections.get(node.ovsdbId());
+        if (current != null && current.state == State.CONNECTED) {
+            return;
+        }
+        if (configured.containsKey(node.ovsdbId())) {
+            connections.put(node.ovsdbId(), new NodeConnection(State.CONNECTED, 0, clock.getAsLong()));
+        }
+        ScheduledFuture<?> retry = retries.remove(node.ovsdbId());
+        if (retry != null) {
+            retry.cancel(false);
+        }
+    }
+
+    private void queue(OvsdbNode node) {
+        if (!queued.add(node.ovsdbId())) {
+            return;
+        }
+        try {
+            connectExecutor.execute(() -> {
+                queued.remove(node.ovsdbId());
+                connect(node);
+            });
+        } catch (RejectedExecutionException e) {
+            queued.remove(node.ovsdbId());
+            log.debug("The connection manager is closed, {} is not connected", node.ovsdbId());
+        }
+    }
+
+    /**
+     * Starts the connection to a node and checks it after the connection timeout.
+     */
+    private void attempt(OvsdbNode node) {
+        DeviceId ovsdbId = node.ovsdbId();
+        if (configured.containsKey(ovsdbId)) {
+            connections.compute(ovsdbId, (id, current) -> new NodeConnection(
+                    State.CONNECTING, current == null ? 1 : current.attempts + 1, clock.getAsLong()));
+        }
+        log.info("connecting ovsdb at {}:{}", node.ovsdbIp(), node.ovsdbPort());
+        try {
+            connector.accept(node);
+        } catch (RuntimeException e) {
+            log.warn("Failed to connect ovsdb at {}:{}", node.ovsdbIp(), node.ovsdbPort(), e);
+        }
+        if (!configured.containsKey(ovsdbId)) {
+            return;
+        }
+        try {
+            retryExecutor.schedule(() -> checkAttempt(node), connectTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            log.debug("The connection manager is closed, {} is not checked", ovsdbId);
+        }
+    }
+
+    private void checkAttempt(OvsdbNode node) {
+        NodeConnection connection = connections.get(node.ovsdbId());
+        if (connection == null || connection.state != State.CONNECTING) {
+            return;
+        }
+        if (isConnected.test(node)) {
+            markConnected(node);
+            return;
+        }
+        log.debug("ovsdb {} did not connect after {} attempts", node.ovsdbId(), connection.attempts);
+        connections.computeIfPresent(node.ovsdbId(), (ovsdbId, current) ->
+                new NodeConnection(State.DISCONNECTED, current.attempts, clock.getAsLong()));
+        scheduleRetry(node, connection.attempts);
+    }
+
+    private void scheduleRetry(OvsdbNode node, int attempts) {
+        long delay = backoff(attempts);
+        retries.compute(node.ovsdbId(), (ovsdbId, current) -> {
+            if (current != null && !current.isDone()) {
+                return current;
+            }
+            try {
+                return retryExecutor.schedule(() -> {
+                    retries.remove(ovsdbId);
+                    queue(node);
+                }, delay, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Returns the delay before the next attempt, doubled with every attempt up to the maximum.
+     * Half of the delay is random, so the nodes lost at the same time do not retry together.
+     */
+    private long backoff(int attempts) {
+        long ceiling = Math.min(backoffMaxMillis, backoffBaseMillis << Math.min(attempts, BACKOFF_MAX_SHIFT));
+        return ceiling / 2 + (long) (random.nextDouble() * (ceiling / 2 + 1));
+    }
+}
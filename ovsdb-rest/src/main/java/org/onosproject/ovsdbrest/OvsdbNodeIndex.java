@@ -0,0 +1,99 @@
+/*
+ * Copyright 2020-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.ovsdbrest;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import org.onlab.packet.IpAddress;
+import org.onosproject.net.DeviceId;
+
+import java.util.Collection;
+import java.util.Map;
+
+import static org.onosproject.ovsdbrest.OvsdbNodeConfig.OvsdbNode;
+
+/**
+ * Immutable index of the configured ovsdb nodes, by management address and by device id.
+ * A new index is built on every configuration change, so it can be read without locks.
+ */
+public final class OvsdbNodeIndex {
+
+    /**
+     * Index without nodes, used before the configuration is read.
+     */
+    public static final OvsdbNodeIndex EMPTY = new OvsdbNodeIndex(ImmutableMap.of(), ImmutableMap.of());
+
+    private final Map<IpAddress, OvsdbNode> nodesByIp;
+    private final Map<DeviceId, OvsdbNode> nodesById;
+
+    private OvsdbNodeIndex(Map<IpAddress, OvsdbNode> nodesByIp, Map<DeviceId, OvsdbNode> nodesById) {
+        this.nodesByIp = nodesByIp;
+        this.nodesById = nodesById;
+    }
+
+    /**
+     * Builds the index of a set of nodes. When two nodes have the same address the last one is kept.
+     *
+     * @param nodes the configured ovsdb nodes
+     * @return the index
+     */
+    public static OvsdbNodeIndex of(Collection<OvsdbNode> nodes) {
+        Map<IpAddress, OvsdbNode> nodesByIp = Maps.newLinkedHashMap();
+        nodes.forEach(node -> nodesByIp.put(node.ovsdbIp(), node));
+        ImmutableMap.Builder<DeviceId, OvsdbNode> nodesById = ImmutableMap.builder();
+        nodesByIp.values().forEach(node -> nodesById.put(node.ovsdbId(), node));
+        return new OvsdbNodeIndex(ImmutableMap.copyOf(nodesByIp), nodesById.build());
+    }
+
+    /**
+     * Returns the node with the given management address.
+     *
+     * @param ovsdbIp the ovsdb node address
+     * @return the node, null if it is not configured
+     */
+    public OvsdbNode node(IpAddress ovsdbIp) {
+        return nodesByIp.get(ovsdbIp);
+    }
+
+    /**
+     * Returns the node with the given ovsdb device id.
+     *
+     * @param ovsdbId the device id of the ovsdb node
+     * @return the node, null if it is not configured
+     */
+    public OvsdbNode node(DeviceId ovsdbId) {
+        return nodesById.get(ovsdbId);
+    }
+
+    /**
+     * Returns all the configured nodes.
+     *
+     * @return the nodes
+     */
+    public Collection<OvsdbNode> nodes() {
+        return nodesByIp.values();
+    }
+
+    /**
+     * Returns the number of configured nodes.
+     *
+     * @return the number of nodes
+     */
+    public int size() {
+        return nodesByIp.size();
+    }
+}
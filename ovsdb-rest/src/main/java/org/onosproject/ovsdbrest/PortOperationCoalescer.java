@@ -0,0 +1,253 @@
+/*
+ * Copyright 2020-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.ovsdbrest;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.onlab.packet.IpAddress;
+import org.onosproject.ovsdbrest.common.OperationMetrics.Sample;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Merges the port additions and removals of the same bridge into a single ovsdb transaction.
+ * A change is queued at once in the lane of its ovsdb node, and the changes of the same bridge
+ * submitted while that transaction waits for the lane, such as while the previous transaction
+ * of the bridge is running, join it, up to a maximum number. A burst of port changes costs a
+ * few round-trips instead of one per port, and a single change does not wait at all.
+ * A change of a port which is already in the waiting transaction starts a new one, so a
+ * transaction never touches a port twice.
+ * Every change still completes its own future. When a transaction with several changes
+ * fails, its changes are applied again one by one, so a single bad change does not fail
+ * the others.
+ */
+public class PortOperationCoalescer {
+
+    /**
+     * Kinds of port change.
+     */
+    public enum Action {
+        ADD,
+        REMOVE
+    }
+
+    /**
+     * Addition or removal of a port of a bridge, with the optional sample of its operation
+     * metrics where the transaction records its phases.
+     */
+    public static final class PortChange {
+        private final Action action;
+        private final String portName;
+        private final Sample sample;
+
+        public PortChange(Action action, String portName) {
+            this(action, portName, null);
+        }
+
+        public PortChange(Action action, String portName, Sample sample) {
+            this.action = checkNotNull(action);
+            this.portName = checkNotNull(portName);
+            this.sample = sample;
+        }
+
+        public Action action() {
+            return action;
+        }
+
+        public String portName() {
+            return portName;
+        }
+
+        /**
+         * Returns the sample of the operation of the change.
+         *
+         * @return the sample, null if the change is not measured
+         */
+        public Sample sample() {
+            return sample;
+        }
+
+        @Override
+        public String toString() {
+            return toStringHelper(this)
+                    .add("action", action)
+                    .add("portName", portName)
+                    .toString();
+        }
+    }
+
+    /**
+     * Applies port changes of a bridge in a single ovsdb transaction.
+     */
+    public interface Transaction {
+        /**
+         * Applies the changes, all of them or none.
+         *
+         * @param ovsdbAddress the ovsdb IP address
+         * @param bridgeName the bridge name
+         * @param changes the changes, never two of the same port
+         * @throws Exception if the transaction failed
+         */
+        void apply(IpAddress ovsdbAddress, String bridgeName, List<PortChange> changes) throws Exception;
+    }
+
+    private final StripedExecutor executor;
+    private final Transaction transaction;
+    private final int maxChanges;
+
+    // {(ovsdbAddress, bridgeName): queued transaction which still takes changes}
+    private final Map<Key, Batch> open = Maps.newHashMap();
+
+    /**
+     * Creates a coalescer.
+     *
+     * @param executor the lanes of the ovsdb nodes, where the transactions run
+     * @param transaction applies the changes of a bridge in one transaction
+     * @param maxChanges the largest number of changes of a transaction
+     */
+    public PortOperationCoalescer(StripedExecutor executor, Transaction transaction, int maxChanges) {
+        checkArgument(maxChanges > 0, "A transaction needs at least one change");
+        this.executor = executor;
+        this.transaction = transaction;
+        this.maxChanges = maxChanges;
+    }
+
+    /**
+     * Submits the change of a port, it is applied with the other changes of its bridge which
+     * are waiting for the lane.
+     *
+     * @param ovsdbAddress the ovsdb IP address
+     * @param bridgeName the bridge name
+     * @param change the port change
+     * @return future completed when the change is applied, or with its error, it is completed
+     * with RejectedExecutionException when there are too many pending operations in the lane
+     */
+    public CompletableFuture<Void> submit(IpAddress ovsdbAddress, String bridgeName, PortChange change) {
+        Key key = new Key(ovsdbAddress, bridgeName);
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        // queued under the lock, so the transactions of a bridge reach the lane in order
+        synchronized (open) {
+            Batch batch = open.get(key);
+            if (batch == null || batch.portNames.contains(change.portName())
+                    || batch.changes.size() >= maxChanges) {
+                batch = new Batch(key);
+                open.put(key, batch);
+                batch.add(change, future);
+                queue(batch);
+            } else {
+                batch.add(change, future);
+            }
+        }
+        return future;
+    }
+
+    private void queue(Batch batch) {
+        executor.submit(batch.key.ovsdbAddress, () -> {
+            synchronized (open) {
+                // from now on the changes of the bridge go to a new transaction
+                open.remove(batch.key, batch);
+            }
+            apply(batch);
+            return null;
+        }).whenComplete((result, error) -> {
+            if (error != null) {
+                synchronized (open) {
+                    open.remove(batch.key, batch);
+                }
+                batch.fail(error);
+            }
+        });
+    }
+
+    private void apply(Batch batch) {
+        try {
+            transaction.apply(batch.key.ovsdbAddress, batch.key.bridgeName, batch.changes);
+            batch.futures.forEach(future -> future.complete(null));
+        } catch (Exception e) {
+            if (batch.changes.size() == 1) {
+                batch.fail(e);
+                return;
+            }
+            for (int i = 0; i < batch.changes.size(); i++) {
+                try {
+                    transaction.apply(batch.key.ovsdbAddress, batch.key.bridgeName,
+                                      ImmutableList.of(batch.changes.get(i)));
+                    batch.futures.get(i).complete(null);
+                } catch (Exception single) {
+                    batch.futures.get(i).completeExceptionally(single);
+                }
+            }
+        }
+    }
+
+    private static final class Batch {
+        private final Key key;
+        private final List<PortChange> changes = Lists.newArrayList();
+        private final List<CompletableFuture<Void>> futures = Lists.newArrayList();
+        private final Set<String> portNames = Sets.newHashSet();
+
+        private Batch(Key key) {
+            this.key = key;
+        }
+
+        private void add(PortChange change, CompletableFuture<Void> future) {
+            changes.add(change);
+            futures.add(future);
+            portNames.add(change.portName());
+        }
+
+        private void fail(Throwable error) {
+            futures.forEach(future -> future.completeExceptionally(error));
+        }
+    }
+
+    private static final class Key {
+        private final IpAddress ovsdbAddress;
+        private final String bridgeName;
+
+        private Key(IpAddress ovsdbAddress, String bridgeName) {
+            this.ovsdbAddress = ovsdbAddress;
+            this.bridgeName = bridgeName;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key that = (Key) obj;
+            return ovsdbAddress.equals(that.ovsdbAddress) && bridgeName.equals(that.bridgeName);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(ovsdbAddress, bridgeName);
+        }
+    }
+}
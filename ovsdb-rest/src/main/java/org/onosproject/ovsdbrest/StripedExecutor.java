@@ -0,0 +1,271 @@
+/*
+ * Copyright 2020-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.ovsdbrest;
+
+import com.google.common.base.Ticker;
+import org.slf4j.Logger;
+
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static org.onlab.util.Tools.groupedThreads;
+
+/**
+ * Executor made of serial lanes. The tasks with the same key always run in the same lane,
+ * one after the other, while the tasks of different lanes run in parallel.
+ * Every lane counts the time it spent running tasks, and its utilisation over fixed windows.
+ */
+public class StripedExecutor {
+
+    private static final long UTILISATION_WINDOW = TimeUnit.SECONDS.toNanos(10);
+
+    private final Lane[] lanes;
+    private final ThreadLocal<Lane> currentLane = new ThreadLocal<>();
+    private final Ticker ticker;
+    private final long utilisationWindow;
+
+    /**
+     * Creates the lanes of the executor.
+     *
+     * @param laneCount number of lanes
+     * @param queueSize maximum number of pending tasks of every lane
+     * @param groupName thread group name of the lanes
+     * @param log logger used by the lane threads
+     */
+    public StripedExecutor(int laneCount, int queueSize, String groupName, Logger log) {
+        this(laneCount, queueSize, groupName, log, Ticker.systemTicker(), UTILISATION_WINDOW);
+    }
+
+    /**
+     * Creates the lanes of the executor, with the clock of the utilisation.
+     *
+     * @param laneCount number of lanes
+     * @param queueSize maximum number of pending tasks of every lane
+     * @param groupName thread group name of the lanes
+     * @param log logger used by the lane threads
+     * @param ticker clock of the busy time and of the utilisation windows
+     * @param utilisationWindow length of an utilisation window, in nanoseconds
+     */
+    StripedExecutor(int laneCount, int queueSize, String groupName, Logger log, Ticker ticker,
+                    long utilisationWindow) {
+        checkArgument(laneCount > 0, "The executor needs at least one lane");
+        checkArgument(utilisationWindow > 0, "The utilisation window cannot be empty");
+        this.ticker = ticker;
+        this.utilisationWindow = utilisationWindow;
+        lanes = new Lane[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            lanes[i] = new Lane(new ThreadPoolExecutor(
+                    1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueSize),
+                    groupedThreads(groupName, "lane-" + i, log)));
+        }
+    }
+
+    /**
+     * Runs a task in the lane of the given key. A task submitted from its own lane runs
+     * right away, so that a lane never waits for itself.
+     *
+     * @param key the key which selects the lane
+     * @param task the task
+     * @param <T> the type of the result of the task
+     * @return future completed with the result or the error of the task, it is completed
+     * with RejectedExecutionException when the lane queue is full
+     */
+    public <T> CompletableFuture<T> submit(Object key, Callable<T> task) {
+        Lane lane = lanes[laneOf(key)];
+        CompletableFuture<T> future = new CompletableFuture<>();
+        if (currentLane.get() == lane) {
+            run(task, future);
+            return future;
+        }
+        try {
+            lane.executor.execute(new LaneTask<>(lane, task, future));
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Returns the lane of a key.
+     *
+     * @param key the key
+     * @return the lane index
+     */
+    public int laneOf(Object key) {
+        return Math.floorMod(Objects.hashCode(key), lanes.length);
+    }
+
+    /**
+     * Returns the number of lanes.
+     *
+     * @return the number of lanes
+     */
+    public int laneCount() {
+        return lanes.length;
+    }
+
+    /**
+     * Returns the number of tasks waiting in a lane.
+     *
+     * @param lane the lane index
+     * @return the number of queued tasks
+     */
+    public int queueDepth(int lane) {
+        return lanes[lane].executor.getQueue().size();
+    }
+
+    /**
+     * Returns the number of tasks waiting in all the lanes.
+     *
+     * @return the number of queued tasks
+     */
+    public int queueDepth() {
+        int depth = 0;
+        for (Lane lane : lanes) {
+            depth += lane.executor.getQueue().size();
+        }
+        return depth;
+    }
+
+    /**
+     * Returns the fraction of time a lane was busy during its last complete utilisation
+     * window. The value changes at most once per window, whoever reads it and however often.
+     *
+     * @param lane the lane index
+     * @return the utilisation of the lane, between 0 and 1, 0 before the first window ends
+     */
+    public double utilisation(int lane) {
+        return lanes[lane].utilisation();
+    }
+
+    /**
+     * Returns the total time a lane spent running tasks, including the running task.
+     *
+     * @param lane the lane index
+     * @return the busy time of the lane since its creation, in nanoseconds
+     */
+    public long busyTime(int lane) {
+        return lanes[lane].busyTime(ticker.read());
+    }
+
+    /**
+     * Stops all the lanes. The queued tasks are discarded and their futures are completed
+     * with RejectedExecutionException, so no caller waits for them.
+     */
+    public void shutdown() {
+        for (Lane lane : lanes) {
+            for (Runnable discarded : lane.executor.shutdownNow()) {
+                if (discarded instanceof LaneTask) {
+                    ((LaneTask<?>) discarded).future.completeExceptionally(
+                            new RejectedExecutionException("The executor was shut down"));
+                }
+            }
+        }
+    }
+
+    private <T> void run(Callable<T> task, CompletableFuture<T> future) {
+        try {
+            future.complete(task.call());
+        } catch (Exception e) {
+            future.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Task queued in a lane, it keeps its future to fail it if the lane is shut down.
+     */
+    private static final class LaneTask<T> implements Runnable {
+        private final Lane lane;
+        private final Callable<T> task;
+        private final CompletableFuture<T> future;
+
+        private LaneTask(Lane lane, Callable<T> task, CompletableFuture<T> future) {
+            this.lane = lane;
+            this.task = task;
+            this.future = future;
+        }
+
+        @Override
+        public void run() {
+            lane.track(task, future);
+        }
+    }
+
+    private final class Lane {
+        private final ThreadPoolExecutor executor;
+        private final AtomicLong busyNanos = new AtomicLong();
+        // start of the running task, 0 when the lane is idle
+        private volatile long taskStart;
+        // current utilisation window, rolled by the first read after its end
+        private long windowStart = ticker.read();
+        private long windowBusy;
+        private double lastUtilisation;
+
+        private Lane(ThreadPoolExecutor executor) {
+            this.executor = executor;
+        }
+
+        private <T> void track(Callable<T> task, CompletableFuture<T> future) {
+            currentLane.set(this);
+            try {
+                T result = null;
+                Exception error = null;
+                taskStart = ticker.read();
+                try {
+                    result = task.call();
+                } catch (Exception e) {
+                    error = e;
+                } finally {
+                    busyNanos.addAndGet(ticker.read() - taskStart);
+                    taskStart = 0;
+                }
+                // completed once the busy time is counted, the callbacks still run in the lane
+                if (error == null) {
+                    future.complete(result);
+                } else {
+                    future.completeExceptionally(error);
+                }
+            } finally {
+                currentLane.remove();
+            }
+        }
+
+        private long busyTime(long now) {
+            long start = taskStart;
+            return busyNanos.get() + (start == 0 ? 0 : now - start);
+        }
+
+        private synchronized double utilisation() {
+            long now = ticker.read();
+            if (now - windowStart >= utilisationWindow) {
+                long busy = busyTime(now);
+                double utilisation = (double) (busy - windowBusy) / (now - windowStart);
+                lastUtilisation = Math.max(0, Math.min(1, utilisation));
+                windowStart = now;
+                windowBusy = busy;
+            }
+            return lastUtilisation;
+        }
+    }
+}
@@ -16,9 +16,12 @@
 
 package org.onosproject.ovsdbrest.rest;
 
+import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.onlab.packet.IpAddress;
+import org.onosproject.ovsdbrest.common.NodeSnapshot;
+import org.onosproject.ovsdbrest.common.OperationStats;
 import org.onosproject.ovsdbrest.OvsdbRestException;
 import org.onosproject.ovsdbrest.OvsdbBridgeService;
 import org.onosproject.rest.AbstractWebResource;
@@ -31,21 +34,37 @@ import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 
 import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
 
 import static org.slf4j.LoggerFactory.getLogger;
 
 /**
  * REST APIs for create/delete a bridge and create a port.
+ * Every operation accepts an optional "timeout" query parameter, in milliseconds.
+ * Every POST accepts an optional Idempotency-Key header, a retry with the same key gets the
+ * response of the first request instead of running the operation again.
  */
 
 @Path("/")
 public class OvsdbBridgeWebResource extends AbstractWebResource {
     private final Logger log = getLogger(getClass());
 
+    private static final String TIMEOUT = "timeout";
+
     @GET
     @Path("/test")
     public Response getTest() {
@@ -54,144 +73,300 @@ public class OvsdbBridgeWebResource extends AbstractWebResource {
         return Response.status(200).entity(responseBody).build();
     }
 
+    /**
+     * Returns the connection state of the configured ovsdb nodes, with the number of
+     * connection attempts since they were last connected.
+     *
+     * @return 200 OK with the state of every node
+     */
+    @GET
+    @Path("/connections")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getConnections() {
+        ObjectNode responseBody = mapper().createObjectNode();
+        ArrayNode nodes = responseBody.putArray("nodes");
+        get(OvsdbBridgeService.class).connections().forEach((ovsdbId, connection) -> nodes.addObject()
+                .put("ovsdb-id", ovsdbId.toString())
+                .put("state", connection.state().name())
+                .put("attempts", connection.attempts())
+                .put("since", connection.sinceMillis()));
+        return Response.status(200).entity(responseBody).build();
+    }
+
+    /**
+     * Returns the latency and the number of successes and errors of every operation.
+     * The latencies are in milliseconds, for the whole operation and for its lookup and
+     * driver phases.
+     *
+     * @return 200 OK with the statistics of the operations
+     */
+    @GET
+    @Path("/metrics")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getMetrics() {
+        ObjectNode responseBody = mapper().createObjectNode();
+        ArrayNode operations = responseBody.putArray("operations");
+        for (OperationStats stats : get(OvsdbBridgeService.class).operationStats()) {
+            ObjectNode operation = operations.addObject();
+            operation.put("operation", stats.operation());
+            operation.put("success", stats.successCount());
+            ObjectNode errors = operation.putObject("errors");
+            stats.errorCounts().forEach(errors::put);
+            ObjectNode latencies = operation.putObject("latency-ms");
+            stats.latencies().forEach((name, snapshot) -> latencies.putObject(name)
+                    .put("p50", millis(snapshot.getMedian()))
+                    .put("p99", millis(snapshot.get99thPercentile()))
+                    .put("p999", millis(snapshot.get999thPercentile()))
+                    .put("max", millis(snapshot.getMax())));
+        }
+        return Response.status(200).entity(responseBody).build();
+    }
+
+    private static double millis(double nanos) {
+        return nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * Returns the bridges of an ovsdb node with their datapath ids, from a snapshot of the
+     * node refreshed in the background. The version of the snapshot is the ETag, a request
+     * with it in If-None-Match gets 304 Not Modified while the node does not change.
+     *
+     * @param ovsdbIp the ovsdb IP address
+     * @param request the request, for its conditional headers
+     * @return 200 OK with the bridges, 304 Not Modified or 404 Not Found
+     */
+    @GET
+    @Path("/{ovsdb-ip}/bridges")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getBridges(@PathParam("ovsdb-ip") String ovsdbIp, @Context Request request) {
+        return snapshotResponse(ovsdbIp, request, (snapshot, responseBody) -> {
+            ArrayNode bridges = responseBody.putArray("bridges");
+            snapshot.bridges().forEach((bridgeName, bridgeId) -> bridges.addObject()
+                    .put("bridge-name", bridgeName)
+                    .put("bridge-id", bridgeId.toString()));
+        });
+    }
+
+    /**
+     * Returns the ports of the bridges of an ovsdb node, with the same snapshot and ETag of
+     * the bridges. The ports of a bridge are only known while its OpenFlow device is connected.
+     *
+     * @param ovsdbIp the ovsdb IP address
+     * @param request the request, for its conditional headers
+     * @return 200 OK with the ports of every bridge, 304 Not Modified or 404 Not Found
+     */
+    @GET
+    @Path("/{ovsdb-ip}/ports")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getPorts(@PathParam("ovsdb-ip") String ovsdbIp, @Context Request request) {
+        return snapshotResponse(ovsdbIp, request, (snapshot, responseBody) -> {
+            ArrayNode bridges = responseBody.putArray("bridges");
+            snapshot.ports().forEach((bridgeName, portNames) -> {
+                ArrayNode ports = bridges.addObject().put("bridge-name", bridgeName).putArray("ports");
+                portNames.forEach(ports::add);
+            });
+        });
+    }
+
     @POST
     @Path("/{ovsdb-ip}/bridge/{bridge-name}")
     @Produces(MediaType.TEXT_PLAIN)
-    public Response addBridge(InputStream stream,
-                              @PathParam("ovsdb-ip") String ovsdbIp,
-                              @PathParam("bridge-name") String bridgeName) {
-        try {
-            IpAddress ovsdbAddress = IpAddress.valueOf(ovsdbIp);
-            log.info("You are inside of the addBridge Function");
-            OvsdbBridgeService ovsdbBridgeService = get(OvsdbBridgeService.class);
-            log.info("The GET Service function works, go to createBridge");
-            ovsdbBridgeService.createBridge(ovsdbAddress, bridgeName);
-            return Response.status(200).build();
-        } catch (OvsdbRestException.BridgeAlreadyExistsException ex) {
-            return Response.status(Response.Status.CONFLICT).entity("A bridge with this name already exists").build();
-        } catch (OvsdbRestException.OvsdbDeviceException ex) {
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(ex.getMessage()).build();
-        }
+    public void addBridge(InputStream stream,
+                          @PathParam("ovsdb-ip") String ovsdbIp,
+                          @PathParam("bridge-name") String bridgeName,
+                          @QueryParam(TIMEOUT) long timeout,
+                          @Suspended AsyncResponse asyncResponse) {
+        setTimeout(asyncResponse, timeout);
+        IpAddress ovsdbAddress = IpAddress.valueOf(ovsdbIp);
+        log.info("You are inside of the addBridge Function");
+        OvsdbBridgeService ovsdbBridgeService = get(OvsdbBridgeService.class);
+        log.info("The GET Service function works, go to createBridge");
+        resume(asyncResponse, ovsdbBridgeService.createBridgeAsync(ovsdbAddress, bridgeName));
     }
 
     @DELETE
     @Path("/{ovsdb-ip}/bridge/{bridge-name}")
     @Produces(MediaType.TEXT_PLAIN)
-    public Response deleteBridge(InputStream stream,
-                                 @PathParam("ovsdb-ip") String ovsdbIp,
-                                 @PathParam("bridge-name") String bridgeName) {
-        try {
-
-            IpAddress ovsdbAddress = IpAddress.valueOf(ovsdbIp);
-            OvsdbBridgeService ovsdbBridgeService = get(OvsdbBridgeService.class);
-            ovsdbBridgeService.deleteBridge(ovsdbAddress, bridgeName);
-            return Response.status(200).build();
-        } catch (OvsdbRestException.BridgeNotFoundException ex) {
-            return Response.status(Response.Status.NOT_FOUND).entity("No bridge found with the specified name").build();
-        } catch (OvsdbRestException.OvsdbDeviceException ex) {
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(ex.getMessage()).build();
-        }
+    public void deleteBridge(InputStream stream,
+                             @PathParam("ovsdb-ip") String ovsdbIp,
+                             @PathParam("bridge-name") String bridgeName,
+                             @QueryParam(TIMEOUT) long timeout,
+                             @Suspended AsyncResponse asyncResponse) {
+        setTimeout(asyncResponse, timeout);
+        IpAddress ovsdbAddress = IpAddress.valueOf(ovsdbIp);
+        OvsdbBridgeService ovsdbBridgeService = get(OvsdbBridgeService.class);
+        resume(asyncResponse, ovsdbBridgeService.deleteBridgeAsync(ovsdbAddress, bridgeName));
     }
 
     @POST
     @Path("/{ovsdb-ip}/bridge/{bridge-name}/port/{port-name}")
     @Consumes(MediaType.APPLICATION_JSON)
     @Produces(MediaType.TEXT_PLAIN)
-    public Response addPort(InputStream stream,
-                            @PathParam("ovsdb-ip") String ovsdbIp,
-                            @PathParam("bridge-name") String bridgeName,
-                            @PathParam("port-name") String portName) {
-        try {
-            IpAddress ovsdbAddress = IpAddress.valueOf(ovsdbIp);
-            OvsdbBridgeService ovsdbBridgeService = get(OvsdbBridgeService.class);
-            ovsdbBridgeService.addPort(ovsdbAddress, bridgeName, portName);
-            return Response.status(200).build();
-        } catch (OvsdbRestException.BridgeNotFoundException ex) {
-            return Response.status(Response.Status.NOT_FOUND).entity("No bridge found with the specified name").build();
-        } catch (OvsdbRestException.OvsdbDeviceException ex) {
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(ex.getMessage()).build();
-        }
+    public void addPort(InputStream stream,
+                        @PathParam("ovsdb-ip") String ovsdbIp,
+                        @PathParam("bridge-name") String bridgeName,
+                        @PathParam("port-name") String portName,
+                        @QueryParam(TIMEOUT) long timeout,
+                        @Suspended AsyncResponse asyncResponse) {
+        setTimeout(asyncResponse, timeout);
+        IpAddress ovsdbAddress = IpAddress.valueOf(ovsdbIp);
+        OvsdbBridgeService ovsdbBridgeService = get(OvsdbBridgeService.class);
+        resume(asyncResponse, ovsdbBridgeService.addPortAsync(ovsdbAddress, bridgeName, portName));
     }
 
     @DELETE
     @Path("/{ovsdb-ip}/bridge/{bridge-name}/port/{port-name}")
     @Consumes(MediaType.APPLICATION_JSON)
     @Produces(MediaType.TEXT_PLAIN)
-    public Response deletePort(InputStream stream,
-                               @PathParam("ovsdb-ip") String ovsdbIp,
-                               @PathParam("bridge-name") String bridgeName,
-                               @PathParam("port-name") String portName) {
-        try {
-            IpAddress ovsdbAddress = IpAddress.valueOf(ovsdbIp);
-            OvsdbBridgeService ovsdbBridgeService = get(OvsdbBridgeService.class);
-            ovsdbBridgeService.removePort(ovsdbAddress, bridgeName, portName);
-            return Response.status(200).build();
-        } catch (OvsdbRestException.BridgeNotFoundException ex) {
-            return Response.status(Response.Status.NOT_FOUND).entity("No bridge found with the specified name").build();
-        } catch (OvsdbRestException.OvsdbDeviceException ex) {
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(ex.getMessage()).build();
-        }
+    public void deletePort(InputStream stream,
+                           @PathParam("ovsdb-ip") String ovsdbIp,
+                           @PathParam("bridge-name") String bridgeName,
+                           @PathParam("port-name") String portName,
+                           @QueryParam(TIMEOUT) long timeout,
+                           @Suspended AsyncResponse asyncResponse) {
+        setTimeout(asyncResponse, timeout);
+        IpAddress ovsdbAddress = IpAddress.valueOf(ovsdbIp);
+        OvsdbBridgeService ovsdbBridgeService = get(OvsdbBridgeService.class);
+        resume(asyncResponse, ovsdbBridgeService.removePortAsync(ovsdbAddress, bridgeName, portName));
     }
 
     @POST
     @Path("/{ovsdb-ip}/bridge/{bridge-name}/port/{port-name}/patch_peer/{patch-peer}")
     @Consumes(MediaType.APPLICATION_JSON)
     @Produces(MediaType.TEXT_PLAIN)
-    public Response createPatchPeerPort(InputStream stream,
-                                        @PathParam("ovsdb-ip") String ovsdbIp,
-                                        @PathParam("bridge-name") String bridgeName,
-                                        @PathParam("port-name") String portName,
-                                        @PathParam("patch-peer") String patchPeer) {
-        try {
-            IpAddress ovsdbAddress = IpAddress.valueOf(ovsdbIp);
-            OvsdbBridgeService ovsdbBridgeService = get(OvsdbBridgeService.class);
-            ovsdbBridgeService.createPatchPeerPort(ovsdbAddress, bridgeName, portName, patchPeer);
-            return Response.status(200).build();
-        } catch (OvsdbRestException.OvsdbDeviceException ex) {
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(ex.getMessage()).build();
-        }
+    public void createPatchPeerPort(InputStream stream,
+                                    @PathParam("ovsdb-ip") String ovsdbIp,
+                                    @PathParam("bridge-name") String bridgeName,
+                                    @PathParam("port-name") String portName,
+                                    @PathParam("patch-peer") String patchPeer,
+                                    @QueryParam(TIMEOUT) long timeout,
+                                    @Suspended AsyncResponse asyncResponse) {
+        setTimeout(asyncResponse, timeout);
+        IpAddress ovsdbAddress = IpAddress.valueOf(ovsdbIp);
+        OvsdbBridgeService ovsdbBridgeService = get(OvsdbBridgeService.class);
+        resume(asyncResponse,
+               ovsdbBridgeService.createPatchPeerPortAsync(ovsdbAddress, bridgeName, portName, patchPeer));
     }
 
     @POST
     @Path("/{ovsdb-ip}/bridge/{bridge-name}/port/{port-name}/gre/{local-ip}/{remote-ip}/{key}")
     @Consumes(MediaType.APPLICATION_JSON)
     @Produces(MediaType.TEXT_PLAIN)
-    public Response addGreTunnel(InputStream stream,
-                                 @PathParam("ovsdb-ip") String ovsdbIp,
-                                 @PathParam("bridge-name") String bridgeName,
-                                 @PathParam("port-name") String portName,
-                                 @PathParam("local-ip") String localIp,
-                                 @PathParam("remote-ip") String remoteIp,
-                                 @PathParam("key") String key) {
-        try {
-            IpAddress ovsdbAddress = IpAddress.valueOf(ovsdbIp);
-            IpAddress tunnelLocalIp = IpAddress.valueOf(localIp);
-            IpAddress tunnelRemoteIp = IpAddress.valueOf(remoteIp);
-            OvsdbBridgeService ovsdbBridgeService = get(OvsdbBridgeService.class);
-            ovsdbBridgeService.createGreTunnel(ovsdbAddress, bridgeName, portName, tunnelLocalIp, tunnelRemoteIp, key);
-            return Response.status(200).build();
-        } catch (OvsdbRestException.BridgeNotFoundException ex) {
-            return Response.status(Response.Status.NOT_FOUND).entity("No bridge found with the specified name").build();
-        } catch (OvsdbRestException.OvsdbDeviceException ex) {
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(ex.getMessage()).build();
-        }
+    public void addGreTunnel(InputStream stream,
+                             @PathParam("ovsdb-ip") String ovsdbIp,
+                             @PathParam("bridge-name") String bridgeName,
+                             @PathParam("port-name") String portName,
+                             @PathParam("local-ip") String localIp,
+                             @PathParam("remote-ip") String remoteIp,
+                             @PathParam("key") String key,
+                             @QueryParam(TIMEOUT) long timeout,
+                             @Suspended AsyncResponse asyncResponse) {
+        setTimeout(asyncResponse, timeout);
+        IpAddress ovsdbAddress = IpAddress.valueOf(ovsdbIp);
+        IpAddress tunnelLocalIp = IpAddress.valueOf(localIp);
+        IpAddress tunnelRemoteIp = IpAddress.valueOf(remoteIp);
+        OvsdbBridgeService ovsdbBridgeService = get(OvsdbBridgeService.class);
+        resume(asyncResponse, ovsdbBridgeService.createGreTunnelAsync(ovsdbAddress, bridgeName, portName,
+                                                                      tunnelLocalIp, tunnelRemoteIp, key));
     }
 
     @DELETE
     @Path("/{ovsdb-ip}/bridge/{bridge-name}/port/{port-name}/gre")
     @Consumes(MediaType.APPLICATION_JSON)
     @Produces(MediaType.TEXT_PLAIN)
-    public Response deleteGreTunnel(InputStream stream,
-                                    @PathParam("ovsdb-ip") String ovsdbIp,
-                                    @PathParam("bridge-name") String bridgeName,
-                                    @PathParam("port-name") String portName) {
+    public void deleteGreTunnel(InputStream stream,
+                                @PathParam("ovsdb-ip") String ovsdbIp,
+                                @PathParam("bridge-name") String bridgeName,
+                                @PathParam("port-name") String portName,
+                                @QueryParam(TIMEOUT) long timeout,
+                                @Suspended AsyncResponse asyncResponse) {
+        setTimeout(asyncResponse, timeout);
+        IpAddress ovsdbAddress = IpAddress.valueOf(ovsdbIp);
+        OvsdbBridgeService ovsdbBridgeService = get(OvsdbBridgeService.class);
+        resume(asyncResponse, ovsdbBridgeService.deleteGreTunnelAsync(ovsdbAddress, bridgeName, portName));
+    }
+
+    /**
+     * Builds the answer of a read of the snapshot of a node, or 304 Not Modified when the
+     * client already has its version.
+     *
+     * @param ovsdbIp the ovsdb IP address
+     * @param request the request, for its conditional headers
+     * @param body fills the body of the answer from the snapshot
+     * @return the response
+     */
+    private Response snapshotResponse(String ovsdbIp, Request request, BiConsumer<NodeSnapshot, ObjectNode> body) {
+        NodeSnapshot snapshot;
         try {
-            IpAddress ovsdbAddress = IpAddress.valueOf(ovsdbIp);
-            OvsdbBridgeService ovsdbBridgeService = get(OvsdbBridgeService.class);
-            ovsdbBridgeService.deleteGreTunnel(ovsdbAddress, bridgeName, portName);
-            return Response.status(200).build();
-        } catch (OvsdbRestException.OvsdbDeviceException ex) {
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(ex.getMessage()).build();
+            snapshot = get(OvsdbBridgeService.class).nodeSnapshot(IpAddress.valueOf(ovsdbIp));
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST).entity("Invalid ovsdb IP address").build();
+        } catch (OvsdbRestException.OvsdbDeviceException e) {
+            return Response.status(Response.Status.NOT_FOUND).entity(e.getMessage()).build();
+        }
+        EntityTag etag = new EntityTag(snapshot.version());
+        Response.ResponseBuilder notModified = request.evaluatePreconditions(etag);
+        if (notModified != null) {
+            return notModified.tag(etag).build();
+        }
+        ObjectNode responseBody = mapper().createObjectNode();
+        responseBody.put("ovsdb-id", snapshot.ovsdbId().toString());
+        responseBody.put("version", snapshot.version());
+        responseBody.put("read-at", snapshot.readMillis());
+        body.accept(snapshot, responseBody);
+        return Response.status(200).entity(responseBody).tag(etag).build();
+    }
+
+    /**
+     * Sets the optional timeout of a request, after it the request is answered with
+     * 504 even if the operation is still running in the device.
+     *
+     * @param asyncResponse the response of the request
+     * @param timeout the timeout in milliseconds, zero or less to wait without limit
+     */
+    private void setTimeout(AsyncResponse asyncResponse, long timeout) {
+        if (timeout <= 0) {
+            return;
+        }
+        asyncResponse.setTimeoutHandler(response -> response.resume(
+                Response.status(Response.Status.GATEWAY_TIMEOUT)
+                        .entity("The operation did not finish in " + timeout + " ms").build()));
+        asyncResponse.setTimeout(timeout, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Answers a request when its operation finishes.
+     *
+     * @param asyncResponse the response of the request
+     * @param future the future of the operation
+     */
+    private void resume(AsyncResponse asyncResponse, CompletableFuture<?> future) {
+        future.whenComplete((result, error) -> {
+            if (error == null) {
+                asyncResponse.resume(Response.status(200).build());
+            } else {
+                asyncResponse.resume(errorResponse(error));
+            }
+        });
+    }
+
+    /**
+     * Builds the response of a failed operation.
+     *
+     * @param error the error of the operation
+     * @return the response with the description of the error
+     */
+    private Response errorResponse(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ?
+                error.getCause() : error;
+        if (cause instanceof OvsdbRestException.BridgeAlreadyExistsException) {
+            return Response.status(Response.Status.CONFLICT).entity("A bridge with this name already exists").build();
+        } else if (cause instanceof OvsdbRestException.BridgeNotFoundException) {
+            return Response.status(Response.Status.NOT_FOUND).entity("No bridge found with the specified name").build();
+        } else if (cause instanceof RejectedExecutionException) {
+            return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                    .entity("There are too many pending operations, please try again later").build();
         }
+        return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(cause.getMessage()).build();
     }
 }
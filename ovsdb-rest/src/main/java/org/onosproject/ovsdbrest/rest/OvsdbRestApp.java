@@ -17,6 +17,8 @@
 package org.onosproject.ovsdbrest.rest;
 
 import org.onlab.rest.AbstractWebApplication;
+import org.onosproject.ovsdbrest.common.IdempotencyFilter;
+import org.onosproject.ovsdbrest.common.IdempotentReplayResource;
 
 import java.util.Set;
 
@@ -27,6 +29,6 @@ public class OvsdbRestApp extends AbstractWebApplication {
 
     @Override
     public Set<Class<?>> getClasses() {
-        return getClasses(OvsdbBridgeWebResource.class);
+        return getClasses(OvsdbBridgeWebResource.class, IdempotencyFilter.class, IdempotentReplayResource.class);
     }
 }
@@ -0,0 +1,228 @@
+/*
+ * Copyright 2020-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.ovsdbrest;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.Futures;
+import org.easymock.Capture;
+import org.junit.Before;
+import org.junit.Test;
+import org.onosproject.ovsdb.controller.OvsdbClientService;
+import org.onosproject.ovsdb.rfc.message.OperationResult;
+import org.onosproject.ovsdb.rfc.notation.Mutation;
+import org.onosproject.ovsdb.rfc.notation.Uuid;
+import org.onosproject.ovsdb.rfc.operations.Insert;
+import org.onosproject.ovsdb.rfc.operations.Mutate;
+import org.onosproject.ovsdb.rfc.operations.Operation;
+import org.onosproject.ovsdb.rfc.schema.DatabaseSchema;
+import org.onosproject.ovsdb.rfc.schema.TableSchema;
+import org.onosproject.ovsdbrest.PortOperationCoalescer.Action;
+import org.onosproject.ovsdbrest.PortOperationCoalescer.PortChange;
+
+import java.util.List;
+
+import static org.easymock.EasyMock.anyString;
+import static org.easymock.EasyMock.capture;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.eq;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.newCapture;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.onosproject.ovsdb.controller.OvsdbConstant.DATABASENAME;
+import static org.onosproject.ovsdbrest.OvsdbRestException.BridgeNotFoundException;
+import static org.onosproject.ovsdbrest.OvsdbRestException.OvsdbDeviceException;
+
+/**
+ * Unit tests for the batched port transaction, against a mocked ovsdb client.
+ */
+public class BridgePortTransactionTest {
+
+    private static final String BRIDGE = "br-int";
+    private static final String BRIDGE_UUID = "bridge-uuid";
+    private static final DatabaseSchema SCHEMA = new DatabaseSchema(DATABASENAME, "7.15.1", ImmutableMap.of(
+            "Bridge", new TableSchema("Bridge", ImmutableMap.of()),
+            "Port", new TableSchema("Port", ImmutableMap.of()),
+            "Interface", new TableSchema("Interface", ImmutableMap.of())));
+
+    private static final PortChange ADD_NEW = new PortChange(Action.ADD, "veth0");
+    private static final PortChange ADD_PRESENT = new PortChange(Action.ADD, "veth1");
+    private static final PortChange REMOVE_PRESENT = new PortChange(Action.REMOVE, "veth2");
+    private static final PortChange REMOVE_MISSING = new PortChange(Action.REMOVE, "veth3");
+
+    private OvsdbClientService client;
+    private final Capture<List<Operation>> operations = newCapture();
+
+    @Before
+    public void setUp() {
+        client = createMock(OvsdbClientService.class);
+        expect(client.getBridgeUuid(BRIDGE)).andReturn(BRIDGE_UUID).anyTimes();
+        expect(client.getDatabaseSchema(DATABASENAME)).andReturn(SCHEMA).anyTimes();
+        expect(client.getPortUuid("veth0", BRIDGE_UUID)).andReturn(null).anyTimes();
+        expect(client.getPortUuid("veth1", BRIDGE_UUID)).andReturn("veth1-uuid").anyTimes();
+        expect(client.getPortUuid("veth2", BRIDGE_UUID)).andReturn("veth2-uuid").anyTimes();
+        expect(client.getPortUuid("veth3", BRIDGE_UUID)).andReturn(null).anyTimes();
+    }
+
+    private void transactReturns(OperationResult... results) {
+        expect(client.transactConfig(eq(DATABASENAME), capture(operations)))
+                .andReturn(Futures.immediateFuture(ImmutableList.copyOf(results)));
+        replay(client);
+    }
+
+    private static OperationResult counted(int count) {
+        OperationResult result = new OperationResult();
+        result.setCount(count);
+        return result;
+    }
+
+    private List<PortChange> apply(PortChange... changes) throws Exception {
+        return new BridgePortTransaction(client, 1).apply(BRIDGE, ImmutableList.copyOf(changes));
+    }
+
+    /**
+     * Tests that the new ports are inserted and the present ports removed in one
+     * transaction, and that the other changes are skipped.
+     */
+    @Test
+    public void testMixedChanges() throws Exception {
+        transactReturns(counted(1), counted(1), counted(1), counted(1));
+
+        List<PortChange> skipped = apply(ADD_NEW, ADD_PRESENT, REMOVE_PRESENT, REMOVE_MISSING);
+
+        assertThat(skipped, contains(ADD_PRESENT, REMOVE_MISSING));
+        List<Operation> ops = operations.getValue();
+        assertThat(ops.size(), is(4));
+        assertThat(((Insert) ops.get(0)).getTable(), is("Interface"));
+        Insert port = (Insert) ops.get(1);
+        assertThat(port.getTable(), is("Port"));
+        assertThat(port.getRow().get("interfaces"), is(Uuid.uuid(((Insert) ops.get(0)).getUuidName())));
+
+        Mutate removal = (Mutate) ops.get(2);
+        assertThat(removal.getWhere().size(), is(2));
+        assertThat(removal.getWhere().get(1).getValue(), is(Uuid.uuid("veth2-uuid")));
+        Mutation removed = removal.getMutations().get(0);
+        assertThat(removed.getMutator(), is(Mutation.Mutator.DELETE));
+        assertThat(removed.getValue(), is(Uuid.uuid("veth2-uuid")));
+
+        Mutate addition = (Mutate) ops.get(3);
+        assertThat(addition.getTable(), is("Bridge"));
+        Mutation added = addition.getMutations().get(0);
+        assertThat(added.getMutator(), is(Mutation.Mutator.INSERT));
+        assertThat(added.getValue(), is(Uuid.uuid(port.getUuidName())));
+        verify(client);
+    }
+
+    /**
+     * Tests that a removal which found its port already gone when the transaction ran is
+     * skipped.
+     */
+    @Test
+    public void testConcurrentRemoval() throws Exception {
+        transactReturns(counted(0), counted(1), counted(1), counted(1));
+
+        List<PortChange> skipped = apply(REMOVE_PRESENT, ADD_NEW);
+
+        assertThat(skipped, contains(REMOVE_PRESENT));
+        verify(client);
+    }
+
+    /**
+     * Tests that nothing is sent when every change is already applied.
+     */
+    @Test
+    public void testNothingToChange() throws Exception {
+        replay(client);
+
+        List<PortChange> skipped = apply(ADD_PRESENT, REMOVE_MISSING);
+
+        assertThat(skipped, contains(ADD_PRESENT, REMOVE_MISSING));
+        verify(client);
+    }
+
+    /**
+     * Tests that an error of an operation, such as a port added in the meanwhile, fails the
+     * whole transaction.
+     */
+    @Test
+    public void testOperationError() throws Exception {
+        transactReturns(counted(1), new OperationResult("constraint violation", "duplicate name"));
+
+        try {
+            apply(ADD_NEW, REMOVE_PRESENT);
+            fail("the transaction should fail");
+        } catch (OvsdbDeviceException e) {
+            assertThat(e.getMessage().contains("constraint violation"), is(true));
+        }
+        verify(client);
+    }
+
+    /**
+     * Tests that a transaction without results fails.
+     */
+    @Test
+    public void testMissingResults() throws Exception {
+        transactReturns();
+
+        try {
+            apply(ADD_NEW, REMOVE_PRESENT);
+            fail("the transaction should fail");
+        } catch (OvsdbDeviceException e) {
+            assertThat(e.getMessage().contains("not applied"), is(true));
+        }
+    }
+
+    /**
+     * Tests that a missing bridge fails before any transaction.
+     */
+    @Test
+    public void testUnknownBridge() throws Exception {
+        client = createMock(OvsdbClientService.class);
+        expect(client.getBridgeUuid(anyString())).andReturn(null);
+        replay(client);
+
+        try {
+            apply(ADD_NEW, REMOVE_PRESENT);
+            fail("the bridge should not be found");
+        } catch (BridgeNotFoundException e) {
+            assertThat(e, instanceOf(BridgeNotFoundException.class));
+        }
+        verify(client);
+    }
+
+    /**
+     * Tests that a bridge removed while the transaction ran is reported.
+     */
+    @Test
+    public void testBridgeRemovedConcurrently() throws Exception {
+        transactReturns(counted(1), counted(1), counted(0));
+
+        try {
+            apply(ADD_NEW);
+            fail("the bridge should not be found");
+        } catch (BridgeNotFoundException e) {
+            assertThat(operations.getValue(), is(not(empty())));
+        }
+    }
+}
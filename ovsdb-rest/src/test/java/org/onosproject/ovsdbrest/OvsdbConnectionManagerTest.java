@@ -0,0 +1,286 @@
+/*
+ * Copyright 2020-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.ovsdbrest;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.MoreExecutors;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.onlab.packet.IpAddress;
+import org.onlab.packet.TpPort;
+import org.onosproject.net.DeviceId;
+import org.onosproject.ovsdbrest.OvsdbConnectionManager.NodeConnection;
+import org.onosproject.ovsdbrest.OvsdbConnectionManager.State;
+
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.onosproject.ovsdbrest.OvsdbNodeConfig.OvsdbNode;
+
+/**
+ * Unit tests for the connection and the reconnection of the ovsdb nodes.
+ */
+public class OvsdbConnectionManagerTest {
+
+    private static final long TIMEOUT = 50;
+    private static final long BACKOFF_BASE = 100;
+    private static final long BACKOFF_MAX = 1000;
+    private static final long NOW = 1234;
+
+    private static final OvsdbNode NODE = new OvsdbNode(IpAddress.valueOf("10.0.0.1"), TpPort.tpPort(6640));
+    private static final DeviceId OVSDB_ID = NODE.ovsdbId();
+
+    // the nodes the fake controller is connected to
+    private final Set<DeviceId> connected = Sets.newHashSet();
+    // the connection attempts started by the manager
+    private final List<DeviceId> attempts = Lists.newArrayList();
+    private final ManualScheduler scheduler = new ManualScheduler();
+    private OvsdbConnectionManager manager;
+
+    @Before
+    public void setUp() {
+        // the jitter takes its highest value, so every delay is the ceiling of the backoff
+        Random random = new Random() {
+            @Override
+            public double nextDouble() {
+                return Math.nextDown(1.0);
+            }
+        };
+        manager = new OvsdbConnectionManager(node -> connected.contains(node.ovsdbId()),
+                                             node -> attempts.add(node.ovsdbId()),
+                                             MoreExecutors.newDirectExecutorService(), scheduler,
+                                             () -> NOW, random, TIMEOUT, BACKOFF_BASE, BACKOFF_MAX);
+    }
+
+    @After
+    public void tearDown() {
+        manager.close();
+    }
+
+    /**
+     * Tests that the delay between the attempts doubles with every failed attempt up to
+     * the maximum.
+     */
+    @Test
+    public void testBackoff() {
+        manager.connectAll(ImmutableList.of(NODE));
+
+        List<Long> delays = Lists.newArrayList();
+        for (int i = 0; i < 10; i++) {
+            delays.add(scheduler.runNext());
+        }
+
+        assertThat(delays, is(ImmutableList.of(TIMEOUT, 200L, TIMEOUT, 400L, TIMEOUT, 800L,
+                                               TIMEOUT, BACKOFF_MAX, TIMEOUT, BACKOFF_MAX)));
+        assertThat(attempts.size(), is(6));
+        NodeConnection connection = manager.connection(OVSDB_ID);
+        assertThat(connection.state(), is(State.CONNECTING));
+        assertThat(connection.attempts(), is(6));
+        assertThat(connection.sinceMillis(), is(NOW));
+    }
+
+    /**
+     * Tests that a node which connects starts again from the base delay when it is lost.
+     */
+    @Test
+    public void testResetOnConnected() {
+        manager.connectAll(ImmutableList.of(NODE));
+        for (int i = 0; i < 5; i++) {
+            scheduler.runNext();
+        }
+
+        connected.add(OVSDB_ID);
+        manager.connected(NODE);
+
+        assertThat(manager.connection(OVSDB_ID).state(), is(State.CONNECTED));
+        assertThat(manager.connection(OVSDB_ID).attempts(), is(0));
+        // the retry after the last failed attempt is cancelled
+        assertThat(scheduler.pending(), is(0));
+
+        connected.remove(OVSDB_ID);
+        manager.disconnected(NODE);
+
+        assertThat(manager.connection(OVSDB_ID).state(), is(State.DISCONNECTED));
+        assertThat(scheduler.runNext(), is(BACKOFF_BASE));
+        assertThat(manager.connection(OVSDB_ID).attempts(), is(1));
+    }
+
+    /**
+     * Tests that a node removed from the configuration is not connected again, neither
+     * after its pending retry nor when it is lost.
+     */
+    @Test
+    public void testRemovedNode() {
+        manager.connectAll(ImmutableList.of(NODE));
+        scheduler.runNext();
+        assertThat(scheduler.pending(), is(1));
+
+        manager.connectAll(ImmutableList.of());
+        manager.disconnected(NODE);
+
+        assertThat(scheduler.pending(), is(0));
+        assertThat(attempts.size(), is(1));
+        assertThat(manager.connection(OVSDB_ID), nullValue());
+    }
+
+    /**
+     * Scheduler whose tasks run only when the test asks, in the order they were scheduled.
+     */
+    private static final class ManualScheduler extends AbstractExecutorService
+            implements ScheduledExecutorService {
+        private final List<ManualTask> tasks = Lists.newArrayList();
+        private boolean shutdown;
+
+        /**
+         * Runs the oldest task which was not cancelled.
+         *
+         * @return the delay the task was scheduled with, in milliseconds
+         */
+        private long runNext() {
+            tasks.removeIf(task -> task.cancelled);
+            ManualTask task = tasks.remove(0);
+            task.done = true;
+            task.command.run();
+            return task.delayMillis;
+        }
+
+        private int pending() {
+            tasks.removeIf(task -> task.cancelled);
+            return tasks.size();
+        }
+
+        @Override
+        public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+            ManualTask task = new ManualTask(command, unit.toMillis(delay));
+            tasks.add(task);
+            return task;
+        }
+
+        @Override
+        public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period,
+                                                      TimeUnit unit) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay,
+                                                         TimeUnit unit) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+
+        @Override
+        public void shutdown() {
+            shutdown = true;
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            shutdown = true;
+            tasks.clear();
+            return ImmutableList.of();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return shutdown;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return shutdown;
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return shutdown;
+        }
+    }
+
+    private static final class ManualTask implements ScheduledFuture<Object> {
+        private final Runnable command;
+        private final long delayMillis;
+        private boolean cancelled;
+        private boolean done;
+
+        private ManualTask(Runnable command, long delayMillis) {
+            this.command = command;
+            this.delayMillis = delayMillis;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(delayMillis, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(delayMillis, other.getDelay(TimeUnit.MILLISECONDS));
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            if (done) {
+                return false;
+            }
+            cancelled = true;
+            done = true;
+            return true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public boolean isDone() {
+            return done;
+        }
+
+        @Override
+        public Object get() {
+            return null;
+        }
+
+        @Override
+        public Object get(long timeout, TimeUnit unit) {
+            return null;
+        }
+    }
+}
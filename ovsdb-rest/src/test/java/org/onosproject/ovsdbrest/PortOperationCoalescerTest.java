@@ -0,0 +1,179 @@
+/*
+ * Copyright 2020-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.ovsdbrest;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.onlab.packet.IpAddress;
+import org.onosproject.ovsdbrest.PortOperationCoalescer.Action;
+import org.onosproject.ovsdbrest.PortOperationCoalescer.PortChange;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit tests for the merge of the port changes of a bridge into transactions.
+ */
+public class PortOperationCoalescerTest {
+
+    private static final IpAddress NODE = IpAddress.valueOf("10.0.0.1");
+    private static final String BRIDGE = "br-int";
+
+    private StripedExecutor executor;
+    // every transaction, as the names of its changes prefixed by the bridge
+    private final List<List<String>> transactions = Lists.newCopyOnWriteArrayList();
+    private volatile String failingPort;
+
+    @Before
+    public void setUp() {
+        executor = new StripedExecutor(1, 16, "onos/test", LoggerFactory.getLogger(getClass()));
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    private PortOperationCoalescer coalescer(int maxChanges) {
+        return new PortOperationCoalescer(executor, (ovsdbAddress, bridgeName, changes) -> {
+            List<String> names = Lists.newArrayList();
+            changes.forEach(change -> names.add(bridgeName + "/" + change.portName()));
+            transactions.add(names);
+            if (changes.stream().anyMatch(change -> change.portName().equals(failingPort))) {
+                throw new IllegalStateException("bad port " + failingPort);
+            }
+        }, maxChanges);
+    }
+
+    private static PortChange add(String portName) {
+        return new PortChange(Action.ADD, portName);
+    }
+
+    /**
+     * Holds the lane of the node until the returned latch is released.
+     */
+    private CountDownLatch blockLane() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.submit(NODE, () -> {
+            started.countDown();
+            return release.await(5, TimeUnit.SECONDS);
+        });
+        started.await(5, TimeUnit.SECONDS);
+        return release;
+    }
+
+    private static void await(List<CompletableFuture<Void>> futures) throws Exception {
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]))
+                .exceptionally(error -> null)
+                .get(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Tests that a single change is applied at once, in its own transaction.
+     */
+    @Test
+    public void testSingleChange() throws Exception {
+        coalescer(8).submit(NODE, BRIDGE, add("veth0")).get(5, TimeUnit.SECONDS);
+
+        assertThat(transactions, is(ImmutableList.of(ImmutableList.of("br-int/veth0"))));
+    }
+
+    /**
+     * Tests that the changes of a bridge which wait for the lane are merged in order, and
+     * that the changes of another bridge go to their own transaction.
+     */
+    @Test
+    public void testMergeWhileWaiting() throws Exception {
+        PortOperationCoalescer coalescer = coalescer(8);
+        CountDownLatch release = blockLane();
+
+        List<CompletableFuture<Void>> futures = ImmutableList.of(
+                coalescer.submit(NODE, BRIDGE, add("veth0")),
+                coalescer.submit(NODE, BRIDGE, new PortChange(Action.REMOVE, "veth1")),
+                coalescer.submit(NODE, "br-tun", add("vxlan0")),
+                coalescer.submit(NODE, BRIDGE, add("veth2")));
+        release.countDown();
+        await(futures);
+
+        assertThat(transactions, is(ImmutableList.of(
+                ImmutableList.of("br-int/veth0", "br-int/veth1", "br-int/veth2"),
+                ImmutableList.of("br-tun/vxlan0"))));
+    }
+
+    /**
+     * Tests that a transaction never touches a port twice nor takes more than the maximum
+     * number of changes.
+     */
+    @Test
+    public void testTransactionLimits() throws Exception {
+        PortOperationCoalescer coalescer = coalescer(2);
+        CountDownLatch release = blockLane();
+
+        List<CompletableFuture<Void>> futures = ImmutableList.of(
+                coalescer.submit(NODE, BRIDGE, add("veth0")),
+                coalescer.submit(NODE, BRIDGE, new PortChange(Action.REMOVE, "veth0")),
+                coalescer.submit(NODE, BRIDGE, add("veth1")),
+                coalescer.submit(NODE, BRIDGE, add("veth2")));
+        release.countDown();
+        await(futures);
+
+        assertThat(transactions, is(ImmutableList.of(
+                ImmutableList.of("br-int/veth0"),
+                ImmutableList.of("br-int/veth0", "br-int/veth1"),
+                ImmutableList.of("br-int/veth2"))));
+    }
+
+    /**
+     * Tests that a failed transaction is applied again one change at a time, so only the
+     * bad change fails.
+     */
+    @Test
+    public void testFallbackOneByOne() throws Exception {
+        PortOperationCoalescer coalescer = coalescer(8);
+        failingPort = "bad";
+        CountDownLatch release = blockLane();
+
+        CompletableFuture<Void> good = coalescer.submit(NODE, BRIDGE, add("veth0"));
+        CompletableFuture<Void> bad = coalescer.submit(NODE, BRIDGE, add("bad"));
+        release.countDown();
+        await(ImmutableList.of(good, bad));
+
+        good.get(5, TimeUnit.SECONDS);
+        try {
+            bad.get(5, TimeUnit.SECONDS);
+            fail("the bad change should fail");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), instanceOf(IllegalStateException.class));
+        }
+        assertThat(transactions.size(), is(3));
+        assertThat(transactions.get(1), contains("br-int/veth0"));
+        assertThat(transactions.get(2), contains("br-int/bad"));
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2020-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.ovsdbrest;
+
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableList;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit tests for the lanes of the striped executor.
+ */
+public class StripedExecutorTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+    private static final long WINDOW = 10 * SECOND;
+    private static final double DELTA = 1e-9;
+
+    private final ManualTicker ticker = new ManualTicker();
+    private StripedExecutor executor;
+
+    @Before
+    public void setUp() {
+        executor = new StripedExecutor(2, 4, "onos/test", LoggerFactory.getLogger(getClass()), ticker, WINDOW);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Tests that the tasks of a key run in submission order.
+     */
+    @Test
+    public void testOrderPerKey() throws Exception {
+        List<Integer> order = new CopyOnWriteArrayList<>();
+        List<CompletableFuture<Void>> futures = IntStream.range(0, 4)
+                .mapToObj(i -> executor.submit("node", () -> {
+                    order.add(i);
+                    return (Void) null;
+                }))
+                .collect(Collectors.toList());
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get(5, TimeUnit.SECONDS);
+
+        assertThat(order, is(ImmutableList.of(0, 1, 2, 3)));
+    }
+
+    /**
+     * Tests that a task submitted from its own lane runs at once instead of waiting for
+     * the lane.
+     */
+    @Test
+    public void testSubmitFromOwnLane() throws Exception {
+        String result = executor.submit("node", () -> executor.submit("node", () -> "nested")
+                .get(1, TimeUnit.SECONDS)).get(5, TimeUnit.SECONDS);
+
+        assertThat(result, is("nested"));
+    }
+
+    /**
+     * Tests that a full lane rejects the tasks through their future.
+     */
+    @Test
+    public void testFullLane() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        executor.submit("node", () -> {
+            started.countDown();
+            return release.await(5, TimeUnit.SECONDS);
+        });
+        started.await(5, TimeUnit.SECONDS);
+        for (int i = 0; i < 4; i++) {
+            executor.submit("node", () -> null);
+        }
+
+        CompletableFuture<Object> rejected = executor.submit("node", () -> null);
+        release.countDown();
+
+        try {
+            rejected.join();
+            fail("the task should be rejected");
+        } catch (Exception e) {
+            assertThat(e.getCause(), instanceOf(RejectedExecutionException.class));
+        }
+    }
+
+    /**
+     * Tests that the shutdown fails the futures of the queued tasks, and of the running one
+     * which it interrupts, so no caller waits for them forever.
+     */
+    @Test
+    public void testShutdownFailsQueuedTasks() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CompletableFuture<Boolean> running = executor.submit("node", () -> {
+            started.countDown();
+            return new CountDownLatch(1).await(5, TimeUnit.SECONDS);
+        });
+        started.await(5, TimeUnit.SECONDS);
+        List<CompletableFuture<Object>> queued = ImmutableList.of(executor.submit("node", () -> null),
+                                                                  executor.submit("node", () -> null));
+
+        executor.shutdown();
+
+        for (CompletableFuture<Object> future : queued) {
+            try {
+                future.get(5, TimeUnit.SECONDS);
+                fail("the queued task should be rejected");
+            } catch (ExecutionException e) {
+                assertThat(e.getCause(), instanceOf(RejectedExecutionException.class));
+            }
+        }
+        try {
+            running.get(5, TimeUnit.SECONDS);
+            fail("the running task should be interrupted");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), instanceOf(InterruptedException.class));
+        }
+    }
+
+    /**
+     * Tests that the utilisation is the one of the last complete window, the same for
+     * every read.
+     */
+    @Test
+    public void testUtilisationWindow() throws Exception {
+        int lane = executor.laneOf("node");
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Boolean> task = executor.submit("node", () -> {
+            started.countDown();
+            return release.await(5, TimeUnit.SECONDS);
+        });
+        started.await(5, TimeUnit.SECONDS);
+
+        ticker.advance(4 * SECOND);
+        assertThat(executor.utilisation(lane), is(0.0));
+        assertThat(executor.busyTime(lane), is(4 * SECOND));
+        release.countDown();
+        task.get(5, TimeUnit.SECONDS);
+
+        ticker.advance(6 * SECOND);
+        assertThat(executor.utilisation(lane), closeTo(0.4, DELTA));
+        // reading again does not start a new window
+        ticker.advance(SECOND);
+        assertThat(executor.utilisation(lane), closeTo(0.4, DELTA));
+        assertThat(executor.busyTime(lane), is(4 * SECOND));
+
+        ticker.advance(9 * SECOND);
+        assertThat(executor.utilisation(lane), is(0.0));
+        assertThat(executor.utilisation(1 - lane), is(0.0));
+    }
+
+    private static final class ManualTicker extends Ticker {
+        private final AtomicLong now = new AtomicLong(SECOND);
+
+        @Override
+        public long read() {
+            return now.get();
+        }
+
+        private void advance(long nanos) {
+            now.addAndGet(nanos);
+        }
+    }
+}